@@ -0,0 +1,274 @@
+package com.trdg.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates a comparator for every type annotated with {@code com.trdg.JsonComparable}.
+ *
+ * The generated class compares two instances member by member with straight-line accessor
+ * calls: primitives with {@code ==}, strings, boxed values and enums with {@code equals}, and
+ * members of other annotated types through their generated comparators. Only when such a check
+ * fails, or for members of any other type, does it call {@code BeanComparator.compare}, which
+ * decides JSON equality and reports the operation. Members and their order are those of
+ * {@code BeanTreeAdapter}: record components, or public getters sorted by property name.
+ */
+@SupportedAnnotationTypes(JsonComparableProcessor.ANNOTATION)
+public final class JsonComparableProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "com.trdg.JsonComparable";
+    static final String SUFFIX = "JsonComparator";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (check(element)) {
+                    generate((TypeElement) element);
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean check(Element element) {
+        Messager messager = processingEnv.getMessager();
+        if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.RECORD) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "@JsonComparable applies to classes and records only", element);
+            return false;
+        }
+        for (Element type = element; type instanceof TypeElement; type = type.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "@JsonComparable type must not be private", element);
+                return false;
+            }
+            if (((TypeElement) type).getNestingKind() == NestingKind.LOCAL
+                    || ((TypeElement) type).getNestingKind() == NestingKind.ANONYMOUS) {
+                messager.printMessage(Diagnostic.Kind.ERROR, "@JsonComparable type must not be local", element);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        String packageName = packageOf(type).getQualifiedName().toString();
+        String simpleName = comparatorName(type);
+        String typeName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n * JSON comparator for {@link ").append(typeName).append("}, generated from its @JsonComparable annotation.\n */\n");
+        out.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+        out.append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n");
+        out.append(isPublic(type) ? "public " : "").append("final class ").append(simpleName).append(" {\n\n");
+        out.append("    private ").append(simpleName).append("() {\n    }\n\n");
+        out.append("    public static boolean areEqual(").append(typeName).append(" value1, ").append(typeName).append(" value2) {\n");
+        out.append("        return compare(\"\", value1, value2, null);\n    }\n\n");
+        out.append("    public static org.json.JSONArray generateJsonDiff(").append(typeName).append(" value1, ").append(typeName).append(" value2) {\n");
+        out.append("        org.json.JSONArray diffs = new org.json.JSONArray();\n");
+        out.append("        compare(\"\", value1, value2, diffs);\n");
+        out.append("        return diffs;\n    }\n\n");
+        out.append("    /**\n     * Compares two instances, appending operations under {@code path} to {@code diffs} unless it is\n");
+        out.append("     * null, in which case the comparison stops at the first difference.\n     */\n");
+        out.append("    public static boolean compare(String path, ").append(typeName).append(" value1, ").append(typeName)
+                .append(" value2, org.json.JSONArray diffs) {\n");
+        out.append("        if (value1 == value2) {\n            return true;\n        } else if (value1 == null || value2 == null) {\n");
+        out.append("            return com.trdg.BeanComparator.compare(path, value1, value2, diffs);\n        }\n");
+        out.append("        boolean equal = true;\n");
+        for (Map.Entry<String, ExecutableElement> property : properties(type).entrySet()) {
+            member(out, property.getKey(), property.getValue());
+        }
+        out.append("        return equal;\n    }\n}\n");
+
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(out.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + qualifiedName + ": " + e, type);
+        }
+    }
+
+    /**
+     * The comparison of one member: a fast check inline, then the general comparison only if it
+     * fails.
+     */
+    private void member(StringBuilder out, String name, ExecutableElement accessor) {
+        TypeMirror type = accessor.getReturnType();
+        String path = "(path.isEmpty() ? \"" + name + "\" : path + \"/" + name + "\")";
+        String call = accessor.getSimpleName() + "()";
+        out.append("        {\n");
+        if (type.getKind().isPrimitive()) {
+            out.append("            ").append(type).append(" a = value1.").append(call).append(";\n");
+            out.append("            ").append(type).append(" b = value2.").append(call).append(";\n");
+            out.append("            if (a != b && !com.trdg.BeanComparator.compare(").append(path).append(", a, b, diffs)) {\n");
+        } else if (annotated(type)) {
+            String nested = processingEnv.getTypeUtils().erasure(type).toString();
+            TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+            String comparator = packageOf(element).getQualifiedName().toString();
+            comparator = (comparator.isEmpty() ? "" : comparator + ".") + comparatorName(element);
+            out.append("            ").append(nested).append(" a = value1.").append(call).append(";\n");
+            out.append("            ").append(nested).append(" b = value2.").append(call).append(";\n");
+            out.append("            if (a != b && !").append(comparator).append(".compare(").append(path).append(", a, b, diffs)) {\n");
+        } else if (simpleValue(type)) {
+            out.append("            Object a = value1.").append(call).append(";\n");
+            out.append("            Object b = value2.").append(call).append(";\n");
+            out.append("            if (!java.util.Objects.equals(a, b) && !com.trdg.BeanComparator.compare(")
+                    .append(path).append(", a, b, diffs)) {\n");
+        } else {
+            out.append("            Object a = value1.").append(call).append(";\n");
+            out.append("            Object b = value2.").append(call).append(";\n");
+            out.append("            if (a != b && !com.trdg.BeanComparator.compare(").append(path).append(", a, b, diffs)) {\n");
+        }
+        out.append("                equal = false;\n");
+        out.append("                if (diffs == null) {\n                    return false;\n                }\n");
+        out.append("            }\n        }\n");
+    }
+
+    /**
+     * Members by property name, as BeanTreeAdapter reads them.
+     */
+    private Map<String, ExecutableElement> properties(TypeElement type) {
+        if (type.getKind() == ElementKind.RECORD) {
+            Map<String, ExecutableElement> components = new LinkedHashMap<>();
+            for (RecordComponentElement component : type.getRecordComponents()) {
+                components.put(component.getSimpleName().toString(), component.getAccessor());
+            }
+            return components;
+        }
+        Map<String, ExecutableElement> properties = new TreeMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            String name = propertyName(method);
+            if (name != null) {
+                properties.put(name, method);
+            }
+        }
+        return properties;
+    }
+
+    private static String propertyName(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC)
+                || !method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID
+                || ((TypeElement) method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) {
+            return null;
+        }
+        String name = method.getSimpleName().toString();
+        String property;
+        if (name.startsWith("get") && name.length() > 3) {
+            property = name.substring(3);
+        } else if (name.startsWith("is") && name.length() > 2
+                && (method.getReturnType().getKind() == TypeKind.BOOLEAN
+                || method.getReturnType().toString().equals("java.lang.Boolean"))) {
+            property = name.substring(2);
+        } else {
+            return null;
+        }
+        if (property.length() > 1 && Character.isUpperCase(property.charAt(1)) && Character.isUpperCase(property.charAt(0))) {
+            return property;
+        }
+        return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+    }
+
+    private static boolean annotated(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        for (AnnotationMirror mirror : ((DeclaredType) type).asElement().getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(ANNOTATION)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strings, boxed primitives and enums: equal by {@code equals} means equal as JSON.
+     */
+    private static boolean simpleValue(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element element = ((DeclaredType) type).asElement();
+        if (element.getKind() == ElementKind.ENUM) {
+            return true;
+        }
+        switch (((TypeElement) element).getQualifiedName().toString()) {
+            case "java.lang.String":
+            case "java.lang.Integer":
+            case "java.lang.Long":
+            case "java.lang.Short":
+            case "java.lang.Byte":
+            case "java.lang.Double":
+            case "java.lang.Float":
+            case "java.lang.Boolean":
+            case "java.lang.Character":
+            case "java.math.BigInteger":
+            case "java.math.BigDecimal":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isPublic(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static PackageElement packageOf(Element element) {
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    /**
+     * {@code PersonJsonComparator} for {@code Person}, {@code Outer_InnerJsonComparator} for a
+     * nested {@code Outer.Inner}.
+     */
+    static String comparatorName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element outer = type.getEnclosingElement(); outer instanceof TypeElement; outer = outer.getEnclosingElement()) {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.append(SUFFIX).toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.trdg.processor;
+
+import com.trdg.BeanComparator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonComparableProcessor Tests")
+class JsonComparableProcessorTest {
+
+    private static final String SOURCE = String.join("\n",
+            "package sample;",
+            "import com.trdg.JsonComparable;",
+            "import java.util.List;",
+            "public class Model {",
+            "    public enum Status { ACTIVE, CLOSED }",
+            "    @JsonComparable",
+            "    public record Address(String city, int zip) { }",
+            "    @JsonComparable",
+            "    public record Order(long id, double total, Status status, Address address, List<String> tags, Integer count) { }",
+            "    @JsonComparable",
+            "    public static class Account {",
+            "        private final String owner;",
+            "        private final boolean locked;",
+            "        public Account(String owner, boolean locked) { this.owner = owner; this.locked = locked; }",
+            "        public String getOwner() { return owner; }",
+            "        public boolean isLocked() { return locked; }",
+            "    }",
+            "    public static Order order(String city, double total, List<String> tags) {",
+            "        return new Order(7, total, Status.ACTIVE, new Address(city, 1000), tags, null);",
+            "    }",
+            "}");
+
+    private static ClassLoader compile(String source, List<Diagnostic<? extends JavaFileObject>> errors) throws IOException {
+        Path dir = Files.createTempDirectory("processor-test");
+        Path file = dir.resolve("sample/Model.java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = List.of("-d", dir.toString(), "-s", dir.toString(),
+                    "-classpath", System.getProperty("java.class.path"));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null,
+                    files.getJavaFileObjects(file.toFile()));
+            task.setProcessors(List.of(new JsonComparableProcessor()));
+            task.call();
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic);
+            }
+        }
+        return new URLClassLoader(new URL[]{dir.toUri().toURL()}, JsonComparableProcessorTest.class.getClassLoader());
+    }
+
+    private static Object invoke(Class<?> type, String name, Object... args) throws Exception {
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                return method.invoke(null, args);
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static Set<String> ops(JSONArray diffs) {
+        Set<String> ops = new HashSet<>();
+        for (int i = 0; i < diffs.length(); i++) {
+            JSONObject diff = diffs.getJSONObject(i);
+            ops.add(diff.getString("op") + " " + diff.getString("path") + " " + diff.opt("value"));
+        }
+        return ops;
+    }
+
+    @Test
+    @DisplayName("Generated comparators agree with BeanComparator")
+    void testGeneratedComparators() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        ClassLoader loader = compile(SOURCE, errors);
+        assertTrue(errors.isEmpty(), errors.toString());
+
+        Class<?> model = loader.loadClass("sample.Model");
+        Class<?> comparator = loader.loadClass("sample.Model_OrderJsonComparator");
+        Object order1 = invoke(model, "order", "Oslo", 10.5, List.of("a"));
+        Object order2 = invoke(model, "order", "Oslo", 10.5, List.of("a"));
+        Object order3 = invoke(model, "order", "Bergen", 11.0, List.of("a", "b"));
+
+        assertEquals(true, invoke(comparator, "areEqual", order1, order2));
+        assertEquals(false, invoke(comparator, "areEqual", order1, order3));
+
+        JSONArray diffs = (JSONArray) invoke(comparator, "generateJsonDiff", order1, order3);
+        assertEquals(Set.of("replace total 11.0", "replace address/city Bergen", "add tags/1 b"), ops(diffs));
+        assertEquals(ops(BeanComparator.generateJsonDiff(order1, order3)), ops(diffs));
+
+        Class<?> account = loader.loadClass("sample.Model$Account");
+        Object account1 = account.getConstructor(String.class, boolean.class).newInstance("ann", false);
+        Object account2 = account.getConstructor(String.class, boolean.class).newInstance(null, true);
+        Class<?> accountComparator = loader.loadClass("sample.Model_AccountJsonComparator");
+        assertEquals(Set.of("replace owner null", "replace locked true"),
+                ops((JSONArray) invoke(accountComparator, "generateJsonDiff", account1, account2)));
+    }
+
+    @Test
+    @DisplayName("Unsupported targets are compile errors")
+    void testErrors() throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        compile(String.join("\n",
+                "package sample;",
+                "public class Model {",
+                "    @com.trdg.JsonComparable private record Hidden(int a) { }",
+                "    @com.trdg.JsonComparable public interface Shape { }",
+                "}"), errors);
+        assertEquals(2, errors.size(), errors.toString());
+    }
+}
@@ -0,0 +1,110 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and diffing through org.json against the byte parser and tape comparator.
+ *
+ * Build and run with:
+ * <pre>
+ * mvn -P benchmark package -DskipTests
+ * java --add-modules jdk.incubator.vector -jar target/benchmarks.jar JsonParseBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonParseBenchmark {
+
+    @Param({"100", "10000"})
+    public int records;
+
+    private String text1;
+    private String text2;
+    private byte[] bytes1;
+    private byte[] bytes2;
+
+    @Setup
+    public void setup() {
+        JSONObject doc1 = document(records, new Random(1));
+        JSONObject doc2 = new JSONObject(doc1.toString());
+        // A sparse edit, so the diff has a little to report
+        doc2.getJSONArray("records").getJSONObject(records / 2).put("status", "changed");
+        text1 = doc1.toString();
+        text2 = doc2.toString();
+        bytes1 = text1.getBytes(StandardCharsets.UTF_8);
+        bytes2 = text2.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public JSONObject parseOrgJson() {
+        return new JSONObject(text1);
+    }
+
+    @Benchmark
+    public JsonTape parseTape() {
+        return JsonTape.parse(bytes1);
+    }
+
+    @Benchmark
+    public JsonTape parseIndexed() {
+        return JsonTape.parse(StructuralIndex.build(bytes1));
+    }
+
+    @Benchmark
+    public void diffOrgJson(Blackhole blackhole) {
+        blackhole.consume(JsonComparator.generateJsonDiff("", new JSONObject(text1), new JSONObject(text2)));
+    }
+
+    @Benchmark
+    public void diffTape(Blackhole blackhole) {
+        blackhole.consume(JsonTapeComparator.generateJsonDiff(bytes1, bytes2));
+    }
+
+    @Benchmark
+    public boolean equalOrgJson() {
+        // compare() clears the thread's difference list, which would otherwise grow for the whole run
+        return JsonComparator.compare(new JSONObject(text1), new JSONObject(text2)).equal;
+    }
+
+    @Benchmark
+    public boolean equalTape() {
+        return JsonTapeComparator.areEqual(bytes1, bytes2);
+    }
+
+    private static JSONObject document(int records, Random random) {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < records; i++) {
+            JSONObject record = new JSONObject();
+            record.put("id", i);
+            record.put("name", "user-" + Long.toHexString(random.nextLong()));
+            record.put("score", random.nextDouble());
+            record.put("active", random.nextBoolean());
+            record.put("status", "ok");
+            record.put("tags", new JSONArray().put("a").put("b").put(random.nextInt(100)));
+            record.put("address", new JSONObject().put("city", "City " + random.nextInt(50)).put("zip", "0" + random.nextInt(9999)));
+            array.put(record);
+        }
+        return new JSONObject().put("version", 1).put("records", array);
+    }
+}
@@ -0,0 +1,49 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Compares Java records and beans directly, with the answers {@link JsonComparator} would give
+ * on their JSON serializations, but without serializing them. See {@link BeanTreeAdapter} for
+ * how objects map to JSON.
+ */
+public final class BeanComparator {
+
+    private BeanComparator() {
+    }
+
+    public static boolean areEqual(Object bean1, Object bean2) throws JSONException {
+        BeanTreeAdapter adapter = BeanTreeAdapter.INSTANCE;
+        return JsonTreeComparator.areEqual(adapter.node(bean1), adapter, adapter.node(bean2), adapter);
+    }
+
+    /**
+     * Patch-style diff of two objects, in the format of
+     * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}.
+     */
+    public static JSONArray generateJsonDiff(Object bean1, Object bean2) throws JSONException {
+        BeanTreeAdapter adapter = BeanTreeAdapter.INSTANCE;
+        return JsonTreeComparator.generateJsonDiff(adapter.node(bean1), adapter, adapter.node(bean2), adapter);
+    }
+
+    /**
+     * Patch-style diff from an object to the JSON document it is expected to match.
+     */
+    public static JSONArray generateJsonDiff(Object bean, JSONObject json) throws JSONException {
+        BeanTreeAdapter adapter = BeanTreeAdapter.INSTANCE;
+        return JsonTreeComparator.generateJsonDiff(adapter.node(bean), adapter, json, OrgJsonTreeAdapter.INSTANCE);
+    }
+
+    /**
+     * Compares two values of any kind, appending operations under {@code path} to {@code diffs}
+     * unless it is null, in which case the comparison stops at the first difference. This is what
+     * comparators generated for {@link JsonComparable} types fall back to for members they do not
+     * compare inline.
+     */
+    public static boolean compare(String path, Object value1, Object value2, JSONArray diffs) throws JSONException {
+        BeanTreeAdapter adapter = BeanTreeAdapter.INSTANCE;
+        return JsonTreeComparator.compare(path, adapter.node(value1), adapter, adapter.node(value2), adapter, diffs);
+    }
+}
@@ -0,0 +1,294 @@
+package com.trdg;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * {@link JsonTreeAdapter} that reads Java records and beans as the JSON objects a default
+ * serializer would write for them, without serializing.
+ *
+ * A record becomes an object of its components, a bean an object of its public {@code getX()}
+ * and {@code isX()} properties. Maps (with String keys) are objects; lists, other collections
+ * and arrays are arrays; enums are strings of their name; other {@code java.*} values such as
+ * {@code UUID} or {@code LocalDate} are strings of their {@code toString()}. Null properties are
+ * JSON null. Object graphs must be acyclic.
+ *
+ * Properties are discovered once per class, and each accessor is turned into a
+ * {@link Function} with {@link LambdaMetafactory} (or a {@link MethodHandle} where a lambda
+ * cannot be spun), so reading a property costs a {@link ClassValue} lookup and a direct call.
+ */
+public final class BeanTreeAdapter implements JsonTreeAdapter<Object> {
+
+    public static final BeanTreeAdapter INSTANCE = new BeanTreeAdapter();
+
+    // Stands for a null value, since null from member() means "absent"
+    private static final Object NULL_NODE = new Object();
+
+    private static final ClassValue<NodeType> TYPES = new ClassValue<>() {
+        @Override
+        protected NodeType computeValue(Class<?> type) {
+            return classify(type);
+        }
+    };
+
+    private static final ClassValue<Properties> PROPERTIES = new ClassValue<>() {
+        @Override
+        protected Properties computeValue(Class<?> type) {
+            return Properties.of(type);
+        }
+    };
+
+    private BeanTreeAdapter() {
+    }
+
+    /**
+     * The node for a value: null becomes a JSON null node and arrays and non-list collections
+     * become lists. Roots passed to {@link JsonTreeComparator} should go through this.
+     */
+    public Object node(Object value) {
+        if (value == null) {
+            return NULL_NODE;
+        } else if (value instanceof List) {
+            return value;
+        } else if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        } else if (value.getClass().isArray()) {
+            return arrayList(value);
+        }
+        return value;
+    }
+
+    @Override
+    public NodeType type(Object node) {
+        return node == NULL_NODE || node == null ? NodeType.NULL : TYPES.get(node.getClass());
+    }
+
+    @Override
+    public Iterable<String> keys(Object object) {
+        if (object instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, ?> map = (Map<String, ?>) object;
+            return map.keySet();
+        }
+        return PROPERTIES.get(object.getClass()).names;
+    }
+
+    @Override
+    public Object member(Object object, String key) {
+        if (object instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) object;
+            Object value = map.get(key);
+            return value == null && !map.containsKey(key) ? null : node(value);
+        }
+        Function<Object, Object> getter = PROPERTIES.get(object.getClass()).getters.get(key);
+        return getter == null ? null : node(getter.apply(object));
+    }
+
+    @Override
+    public int size(Object array) {
+        return list(array).size();
+    }
+
+    @Override
+    public Object element(Object array, int index) {
+        return node(list(array).get(index));
+    }
+
+    @Override
+    public String stringValue(Object node) {
+        return node instanceof Enum ? ((Enum<?>) node).name() : node.toString();
+    }
+
+    @Override
+    public Number numberValue(Object node) {
+        return (Number) node;
+    }
+
+    @Override
+    public boolean booleanValue(Object node) {
+        return (Boolean) node;
+    }
+
+    private static List<?> list(Object array) {
+        return array instanceof List ? (List<?>) array : (List<?>) INSTANCE.node(array);
+    }
+
+    private static NodeType classify(Class<?> type) {
+        if (CharSequence.class.isAssignableFrom(type) || Character.class == type || type.isEnum()
+                || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+            return NodeType.STRING;
+        } else if (Number.class.isAssignableFrom(type)) {
+            return NodeType.NUMBER;
+        } else if (Boolean.class == type) {
+            return NodeType.BOOLEAN;
+        } else if (Map.class.isAssignableFrom(type)) {
+            return NodeType.OBJECT;
+        } else if (Collection.class.isAssignableFrom(type) || type.isArray()) {
+            return NodeType.ARRAY;
+        } else if (type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+            // Value types of the platform (UUID, URI, java.time, ...) serialize as text
+            return NodeType.STRING;
+        }
+        return NodeType.OBJECT;
+    }
+
+    private static List<Object> arrayList(Object array) {
+        if (array instanceof Object[]) {
+            return Arrays.asList((Object[]) array);
+        }
+        return new AbstractList<Object>() {
+            @Override
+            public Object get(int index) {
+                if (array instanceof int[]) {
+                    return ((int[]) array)[index];
+                } else if (array instanceof long[]) {
+                    return ((long[]) array)[index];
+                } else if (array instanceof double[]) {
+                    return ((double[]) array)[index];
+                } else if (array instanceof boolean[]) {
+                    return ((boolean[]) array)[index];
+                } else if (array instanceof float[]) {
+                    return ((float[]) array)[index];
+                } else if (array instanceof short[]) {
+                    return ((short[]) array)[index];
+                } else if (array instanceof byte[]) {
+                    return ((byte[]) array)[index];
+                }
+                return ((char[]) array)[index];
+            }
+
+            @Override
+            public int size() {
+                if (array instanceof int[]) {
+                    return ((int[]) array).length;
+                } else if (array instanceof long[]) {
+                    return ((long[]) array).length;
+                } else if (array instanceof double[]) {
+                    return ((double[]) array).length;
+                } else if (array instanceof boolean[]) {
+                    return ((boolean[]) array).length;
+                } else if (array instanceof float[]) {
+                    return ((float[]) array).length;
+                } else if (array instanceof short[]) {
+                    return ((short[]) array).length;
+                } else if (array instanceof byte[]) {
+                    return ((byte[]) array).length;
+                }
+                return ((char[]) array).length;
+            }
+        };
+    }
+
+    /**
+     * Property names and accessors of one record or bean class.
+     */
+    private static final class Properties {
+        private final List<String> names;
+        private final Map<String, Function<Object, Object>> getters;
+
+        private Properties(Map<String, Function<Object, Object>> getters, List<String> names) {
+            this.getters = getters;
+            this.names = names;
+        }
+
+        private static Properties of(Class<?> type) {
+            Map<String, Method> methods = new TreeMap<>();
+            List<String> order = null;
+            if (type.isRecord()) {
+                order = new ArrayList<>();
+                for (RecordComponent component : type.getRecordComponents()) {
+                    methods.put(component.getName(), component.getAccessor());
+                    order.add(component.getName());
+                }
+            } else {
+                for (Method method : type.getMethods()) {
+                    String name = propertyName(method);
+                    if (name != null) {
+                        methods.put(name, method);
+                    }
+                }
+            }
+            Map<String, Function<Object, Object>> getters = new HashMap<>();
+            for (Map.Entry<String, Method> entry : methods.entrySet()) {
+                getters.put(entry.getKey(), accessor(type, entry.getValue()));
+            }
+            List<String> names = order != null ? order : new ArrayList<>(methods.keySet());
+            return new Properties(getters, Collections.unmodifiableList(names));
+        }
+
+        private static String propertyName(Method method) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                    || method.getReturnType() == void.class || method.getDeclaringClass() == Object.class) {
+                return null;
+            }
+            String name = method.getName();
+            String property;
+            if (name.startsWith("get") && name.length() > 3) {
+                property = name.substring(3);
+            } else if (name.startsWith("is") && name.length() > 2
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                property = name.substring(2);
+            } else {
+                return null;
+            }
+            // java.beans.Introspector.decapitalize: "URL" stays "URL", "Name" becomes "name"
+            if (property.length() > 1 && Character.isUpperCase(property.charAt(1)) && Character.isUpperCase(property.charAt(0))) {
+                return property;
+            }
+            return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Function<Object, Object> accessor(Class<?> type, Method method) {
+            MethodHandle handle;
+            MethodHandles.Lookup lookup;
+            try {
+                lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+                handle = lookup.unreflect(method);
+            } catch (IllegalAccessException | SecurityException e) {
+                try {
+                    lookup = null;
+                    handle = MethodHandles.publicLookup().unreflect(method);
+                } catch (IllegalAccessException inaccessible) {
+                    throw new IllegalArgumentException("Cannot access " + method + " of " + type.getName(), inaccessible);
+                }
+            }
+            if (lookup != null) {
+                try {
+                    CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                            MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+                            handle, handle.type().wrap());
+                    return (Function<Object, Object>) site.getTarget().invokeExact();
+                } catch (Throwable e) {
+                    // Fall back to invoking the handle, e.g. when the class cannot define a lambda
+                }
+            }
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return bean -> {
+                try {
+                    return generic.invokeExact(bean);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException("Accessor " + method + " failed", e);
+                }
+            };
+        }
+    }
+}
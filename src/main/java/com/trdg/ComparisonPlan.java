@@ -0,0 +1,579 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Comparison of documents of a known shape, compiled once and reused for every pair.
+ *
+ * A plan is built from a JSON Schema, from sample documents, or both, plus per-path options:
+ * ignored paths, unordered arrays and arrays whose elements are matched by a key field. Pointers
+ * use {@code *} for "any element of the array". In a schema the same options can be given with
+ * {@code "x-compare": "ignore"}, {@code "x-compare": "unordered"} and {@code "x-compare-key": "id"}.
+ *
+ * Known object members are visited in a fixed order by direct lookup, without building the key
+ * union that {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)} needs, and
+ * leaves are compared with a single {@code equals}. Members the plan does not know, and values
+ * whose type differs from the plan, fall back to the dynamic comparison, so a plan never changes
+ * what is reported for them. Operations use the same format as
+ * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}, or RFC 6901 JSON
+ * Pointers when the plan is built with {@link Builder#jsonPointerPaths(boolean)}, which makes
+ * them an RFC 6902 patch; elements of unordered and keyed arrays are removed at their index in
+ * the first document and added or diffed at their index in the second. Plans are immutable and
+ * safe to share between threads.
+ */
+public final class ComparisonPlan {
+
+    public enum ArrayMode {
+        ORDERED,
+        UNORDERED,
+        KEYED
+    }
+
+    private static final int UNSEEN = -1;
+    private static final int ANY = 0;
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+    private static final int STRING = 3;
+    private static final int NUMBER = 4;
+    private static final int BOOLEAN = 5;
+    private static final int NULL = 6;
+
+    private static final Node ANY_NODE = new Node(ANY, new String[0], new Node[0], null, ArrayMode.ORDERED, null, false);
+
+    static {
+        ANY_NODE.items = ANY_NODE;
+    }
+
+    private final Node root;
+    private final boolean pointerPaths;
+
+    private ComparisonPlan(Node root, boolean pointerPaths) {
+        this.root = root;
+        this.pointerPaths = pointerPaths;
+    }
+
+    public static ComparisonPlan fromSchema(JSONObject schema) throws JSONException {
+        return builder().schema(schema).build();
+    }
+
+    public static ComparisonPlan learn(Iterable<JSONObject> samples) throws JSONException {
+        return builder().learn(samples).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean areEqual(JSONObject obj1, JSONObject obj2) throws JSONException {
+        return new Run(null, false).compareValues(root, obj1, obj2);
+    }
+
+    public JSONArray generateJsonDiff(JSONObject obj1, JSONObject obj2) throws JSONException {
+        Run run = new Run(new JSONArray(), pointerPaths);
+        run.compareValues(root, obj1, obj2);
+        return run.diffs;
+    }
+
+    public static class Builder {
+        private JSONObject schema;
+        private final List<JSONObject> samples = new ArrayList<>();
+        private final List<String> ignored = new ArrayList<>();
+        private final List<String> unordered = new ArrayList<>();
+        private final Map<String, String> keyed = new LinkedHashMap<>();
+        private boolean pointerPaths;
+
+        private Builder() {
+        }
+
+        public Builder schema(JSONObject schema) {
+            this.schema = schema;
+            return this;
+        }
+
+        public Builder learn(Iterable<JSONObject> samples) {
+            for (JSONObject sample : samples) {
+                this.samples.add(sample);
+            }
+            return this;
+        }
+
+        public Builder ignore(String pointer) {
+            ignored.add(pointer);
+            return this;
+        }
+
+        public Builder unorderedArray(String pointer) {
+            unordered.add(pointer);
+            return this;
+        }
+
+        public Builder keyedArray(String pointer, String keyField) {
+            keyed.put(pointer, keyField);
+            return this;
+        }
+
+        /**
+         * Reports operation paths as JSON Pointers ({@code /a~1b/0}) instead of the
+         * {@code generateJsonDiff} format ({@code a/b/0}), in which a key containing a slash
+         * cannot be told apart from two keys.
+         */
+        public Builder jsonPointerPaths(boolean pointerPaths) {
+            this.pointerPaths = pointerPaths;
+            return this;
+        }
+
+        public ComparisonPlan build() throws JSONException {
+            Shape root = new Shape();
+            if (schema != null) {
+                root.readSchema(schema);
+            }
+            for (JSONObject sample : samples) {
+                root.merge(sample);
+            }
+            for (String pointer : ignored) {
+                root.resolve(pointer).ignored = true;
+            }
+            for (String pointer : unordered) {
+                root.resolve(pointer).mode = ArrayMode.UNORDERED;
+            }
+            for (Map.Entry<String, String> entry : keyed.entrySet()) {
+                Shape shape = root.resolve(entry.getKey());
+                shape.mode = ArrayMode.KEYED;
+                shape.keyField = entry.getValue();
+            }
+            return new ComparisonPlan(root.compile(), pointerPaths);
+        }
+    }
+
+    /**
+     * Mutable shape collected while building; compiled into immutable {@link Node}s.
+     */
+    private static final class Shape {
+        private int kind = UNSEEN;
+        private final Map<String, Shape> properties = new LinkedHashMap<>();
+        private Shape items;
+        private boolean ignored;
+        private ArrayMode mode = ArrayMode.ORDERED;
+        private String keyField;
+
+        private void readSchema(JSONObject schema) throws JSONException {
+            Object type = schema.opt("type");
+            if (type instanceof String) {
+                setKind(kindOf((String) type));
+            } else if (type != null) {
+                setKind(ANY);
+            }
+            JSONObject props = schema.optJSONObject("properties");
+            if (props != null) {
+                for (String name : props.keySet()) {
+                    property(name).readSchema(props.getJSONObject(name));
+                }
+            }
+            JSONObject itemSchema = schema.optJSONObject("items");
+            if (itemSchema != null) {
+                items().readSchema(itemSchema);
+            }
+            String option = schema.optString("x-compare", "");
+            if ("ignore".equals(option)) {
+                ignored = true;
+            } else if ("unordered".equals(option)) {
+                mode = ArrayMode.UNORDERED;
+            }
+            if (schema.has("x-compare-key")) {
+                mode = ArrayMode.KEYED;
+                keyField = schema.getString("x-compare-key");
+            }
+        }
+
+        private void merge(Object value) throws JSONException {
+            if (value instanceof JSONObject) {
+                setKind(OBJECT);
+                JSONObject obj = (JSONObject) value;
+                for (String name : obj.keySet()) {
+                    property(name).merge(obj.get(name));
+                }
+            } else if (value instanceof JSONArray) {
+                setKind(ARRAY);
+                JSONArray array = (JSONArray) value;
+                for (int i = 0; i < array.length(); i++) {
+                    items().merge(array.get(i));
+                }
+            } else if (value instanceof String) {
+                setKind(STRING);
+            } else if (value instanceof Number) {
+                setKind(NUMBER);
+            } else if (value instanceof Boolean) {
+                setKind(BOOLEAN);
+            } else {
+                setKind(JSONObject.NULL.equals(value) ? NULL : ANY);
+            }
+        }
+
+        private Shape resolve(String pointer) throws JSONException {
+            Shape shape = this;
+            for (String token : IncrementalDiffSession.parsePointer(pointer)) {
+                boolean element = "*".equals(token)
+                        || (shape.kind != OBJECT && !token.isEmpty() && token.chars().allMatch(Character::isDigit));
+                shape = element ? shape.items() : shape.property(token);
+            }
+            return shape;
+        }
+
+        private void setKind(int newKind) {
+            kind = kind == UNSEEN || kind == newKind ? newKind : ANY;
+        }
+
+        private Shape property(String name) {
+            return properties.computeIfAbsent(name, n -> new Shape());
+        }
+
+        private Shape items() {
+            if (items == null) {
+                items = new Shape();
+            }
+            return items;
+        }
+
+        private Node compile() {
+            int compiledKind = kind == UNSEEN ? ANY : kind;
+            // Options below an untyped value still need a node to hang on
+            if (compiledKind == ANY && !properties.isEmpty()) {
+                compiledKind = OBJECT;
+            } else if (compiledKind == ANY && items != null) {
+                compiledKind = ARRAY;
+            }
+            if (compiledKind == ANY && !ignored) {
+                return ANY_NODE;
+            }
+
+            String[] keys = new String[0];
+            Node[] children = new Node[0];
+            if (compiledKind == OBJECT) {
+                keys = properties.keySet().toArray(keys);
+                children = new Node[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    children[i] = properties.get(keys[i]).compile();
+                }
+            }
+            Node node = new Node(compiledKind, keys, children, keyField, mode, null, ignored);
+            node.items = items == null ? ANY_NODE : items.compile();
+            return node;
+        }
+
+        private static int kindOf(String type) {
+            switch (type) {
+                case "object":
+                    return OBJECT;
+                case "array":
+                    return ARRAY;
+                case "string":
+                    return STRING;
+                case "number":
+                case "integer":
+                    return NUMBER;
+                case "boolean":
+                    return BOOLEAN;
+                case "null":
+                    return NULL;
+                default:
+                    return ANY;
+            }
+        }
+    }
+
+    private static final class Node {
+        private final int kind;
+        private final boolean ignored;
+        // Objects: known members in plan order
+        private final String[] keys;
+        private final Node[] children;
+        private final Set<String> keySet;
+        // Arrays
+        private Node items;
+        private final ArrayMode mode;
+        private final String keyField;
+
+        private Node(int kind, String[] keys, Node[] children, String keyField, ArrayMode mode, Node items,
+                     boolean ignored) {
+            this.kind = kind;
+            this.keys = keys;
+            this.children = children;
+            this.keySet = keys.length == 0 ? Collections.emptySet() : new HashSet<>(Arrays.asList(keys));
+            this.keyField = keyField;
+            this.mode = mode;
+            this.items = items;
+            this.ignored = ignored;
+        }
+    }
+
+    /**
+     * State of one comparison. Without a diff array it stops at the first difference.
+     */
+    private static final class Run {
+        private final JSONArray diffs;
+        private final boolean pointerPaths;
+        private final ArrayDeque<Object> path = new ArrayDeque<>();
+
+        private Run(JSONArray diffs, boolean pointerPaths) {
+            this.diffs = diffs;
+            this.pointerPaths = pointerPaths;
+        }
+
+        private boolean compareValues(Node node, Object value1, Object value2) throws JSONException {
+            if (node.ignored) {
+                return true;
+            }
+            switch (node.kind) {
+                case OBJECT:
+                    if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+                        return compareObjects(node, (JSONObject) value1, (JSONObject) value2);
+                    }
+                    break;
+                case ARRAY:
+                    if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+                        return compareArrays(node, (JSONArray) value1, (JSONArray) value2);
+                    }
+                    break;
+                case STRING:
+                case NUMBER:
+                case BOOLEAN:
+                case NULL:
+                    if (value1.equals(value2)) {
+                        return true;
+                    }
+                    break;
+                default:
+            }
+
+            // Not what the plan expected: compare the way JsonComparator does
+            if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+                return compareObjects(ANY_NODE, (JSONObject) value1, (JSONObject) value2);
+            } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+                return compareArrays(ANY_NODE, (JSONArray) value1, (JSONArray) value2);
+            } else if (!value1.equals(value2)) {
+                return emit("replace", value2);
+            }
+            return true;
+        }
+
+        private boolean compareObjects(Node node, JSONObject obj1, JSONObject obj2) throws JSONException {
+            boolean equal = true;
+            int known1 = 0;
+            int known2 = 0;
+            for (int i = 0; i < node.keys.length; i++) {
+                String key = node.keys[i];
+                Object value1 = obj1.opt(key);
+                Object value2 = obj2.opt(key);
+                if (value1 != null) {
+                    known1++;
+                }
+                if (value2 != null) {
+                    known2++;
+                }
+                if ((value1 == null && value2 == null) || node.children[i].ignored) {
+                    continue;
+                }
+                equal &= compareMember(node.children[i], key, value1, value2);
+                if (!equal && diffs == null) {
+                    return false;
+                }
+            }
+
+            // Members the plan does not know about
+            if (known1 < obj1.length()) {
+                for (String key : obj1.keySet()) {
+                    if (!node.keySet.contains(key)) {
+                        equal &= compareMember(ANY_NODE, key, obj1.get(key), obj2.opt(key));
+                        if (!equal && diffs == null) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            if (known2 < obj2.length()) {
+                for (String key : obj2.keySet()) {
+                    if (!node.keySet.contains(key) && !obj1.has(key)) {
+                        equal &= compareMember(ANY_NODE, key, null, obj2.get(key));
+                        if (!equal && diffs == null) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return equal;
+        }
+
+        private boolean compareMember(Node node, Object segment, Object value1, Object value2) throws JSONException {
+            if (node.ignored) {
+                // Like an ignored member, an ignored element is neither added nor removed
+                return true;
+            }
+            path.addLast(segment);
+            try {
+                if (value1 == null) {
+                    return emit("add", value2);
+                } else if (value2 == null) {
+                    return emit("remove", null);
+                }
+                return compareValues(node, value1, value2);
+            } finally {
+                path.removeLast();
+            }
+        }
+
+        private boolean compareArrays(Node node, JSONArray array1, JSONArray array2) throws JSONException {
+            if (node.items.ignored) {
+                return true;
+            } else if (diffs == null && array1.length() != array2.length()) {
+                return false;
+            }
+            switch (node.mode) {
+                case UNORDERED:
+                    return compareUnordered(node, array1, array2);
+                case KEYED:
+                    return compareKeyed(node, array1, array2);
+                default:
+            }
+
+            boolean equal = true;
+            int maxLength = Math.max(array1.length(), array2.length());
+            for (int i = 0; i < maxLength; i++) {
+                equal &= compareMember(node.items, i,
+                        i < array1.length() ? array1.get(i) : null, i < array2.length() ? array2.get(i) : null);
+                if (!equal && diffs == null) {
+                    return false;
+                }
+            }
+            return equal;
+        }
+
+        private boolean compareUnordered(Node node, JSONArray array1, JSONArray array2) throws JSONException {
+            // Likely matches by fingerprint first, each confirmed with the plan's equality, then
+            // the plan's equality against everything left
+            Run check = new Run(null, false);
+            Map<Long, ArrayDeque<Integer>> byFingerprint = new HashMap<>();
+            for (int j = 0; j < array2.length(); j++) {
+                byFingerprint.computeIfAbsent(JsonFingerprint.of(array2.get(j)), f -> new ArrayDeque<>()).addLast(j);
+            }
+            boolean[] matched2 = new boolean[array2.length()];
+            List<Integer> unmatched1 = new ArrayList<>();
+            for (int i = 0; i < array1.length(); i++) {
+                ArrayDeque<Integer> candidates = byFingerprint.get(JsonFingerprint.of(array1.get(i)));
+                boolean found = false;
+                Iterator<Integer> it = candidates == null ? Collections.emptyIterator() : candidates.iterator();
+                while (!found && it.hasNext()) {
+                    int j = it.next();
+                    if (check.compareValues(node.items, array1.get(i), array2.get(j))) {
+                        it.remove();
+                        matched2[j] = true;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    unmatched1.add(i);
+                }
+            }
+
+            boolean equal = true;
+            for (int i : unmatched1) {
+                boolean found = false;
+                for (int j = 0; j < array2.length() && !found; j++) {
+                    if (!matched2[j] && check.compareValues(node.items, array1.get(i), array2.get(j))) {
+                        matched2[j] = true;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    equal &= compareMember(node.items, i, array1.get(i), null);
+                    if (!equal && diffs == null) {
+                        return false;
+                    }
+                }
+            }
+            return addUnmatched(node, array2, matched2) && equal;
+        }
+
+        private boolean compareKeyed(Node node, JSONArray array1, JSONArray array2) throws JSONException {
+            Map<Object, Integer> byKey = new HashMap<>();
+            for (int j = 0; j < array2.length(); j++) {
+                Object key = keyOf(node, array2.get(j));
+                if (key != null) {
+                    byKey.putIfAbsent(key, j);
+                }
+            }
+            boolean[] matched2 = new boolean[array2.length()];
+            boolean equal = true;
+            for (int i = 0; i < array1.length(); i++) {
+                Object key = keyOf(node, array1.get(i));
+                Integer j = key == null ? null : byKey.remove(key);
+                if (j != null) {
+                    matched2[j] = true;
+                    equal &= compareMember(node.items, j, array1.get(i), array2.get(j));
+                } else {
+                    equal &= compareMember(node.items, i, array1.get(i), null);
+                }
+                if (!equal && diffs == null) {
+                    return false;
+                }
+            }
+            return addUnmatched(node, array2, matched2) && equal;
+        }
+
+        private boolean addUnmatched(Node node, JSONArray array2, boolean[] matched2) throws JSONException {
+            boolean equal = true;
+            for (int j = 0; j < array2.length(); j++) {
+                if (!matched2[j]) {
+                    equal &= compareMember(node.items, j, null, array2.get(j));
+                    if (!equal && diffs == null) {
+                        return false;
+                    }
+                }
+            }
+            return equal;
+        }
+
+        private static Object keyOf(Node node, Object element) {
+            return element instanceof JSONObject ? ((JSONObject) element).opt(node.keyField) : null;
+        }
+
+        private boolean emit(String op, Object value) throws JSONException {
+            if (diffs == null) {
+                return false;
+            }
+            StringBuilder thisPath = new StringBuilder();
+            for (Object segment : path) {
+                if (pointerPaths) {
+                    thisPath.append('/').append(segment.toString().replace("~", "~0").replace("/", "~1"));
+                } else {
+                    // Same joining as JsonComparator: keys get no separator after an empty parent path
+                    if (thisPath.length() > 0 || segment instanceof Integer) {
+                        thisPath.append('/');
+                    }
+                    thisPath.append(segment);
+                }
+            }
+            JSONObject diff = new JSONObject();
+            diff.put("op", op);
+            diff.put("path", thisPath.toString());
+            if (value != null) {
+                diff.put("value", value);
+            }
+            diffs.put(diff);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.trdg;
+
+import java.util.List;
+
+/**
+ * Outcome of comparing one pair of documents: whether they are equal and the differences
+ * reported by {@link JsonComparator#areJsonEntitiesEqual}.
+ */
+public class ComparisonResult {
+    public final boolean equal;
+    public final List<String> differences;
+
+    public ComparisonResult(boolean equal, List<String> differences) {
+        this.equal = equal;
+        this.differences = differences;
+    }
+
+    @Override
+    public String toString() {
+        return equal ? "equal" : "not equal: " + differences;
+    }
+}
@@ -0,0 +1,350 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Key-matched comparison of record sets larger than the heap, as a disk-backed partitioned
+ * (Grace) hash join.
+ *
+ * Both inputs are split by a hash of each record's key into {@code partitions} temporary files
+ * per side, so that matching records always land in the same partition pair. Partition pairs
+ * are then diffed in parallel: the left partition is loaded into a hash table and the right one
+ * streamed against it. A left partition with more than {@code maxRecordsInMemory} records, for
+ * example because of skewed keys, is partitioned again with a different hash before it is
+ * loaded. Records with the same key are paired in input order. All temporary files are removed
+ * when the join finishes or fails.
+ *
+ * Results are reported through the same {@link NdjsonDiff.RecordDiff} and
+ * {@link NdjsonDiff.Summary} as {@link NdjsonDiff}. Sink calls come from the worker threads but
+ * are serialized; their order across partitions is unspecified.
+ */
+public class ExternalKeyedJoin {
+
+    public static final int DEFAULT_PARTITIONS = 64;
+    public static final int DEFAULT_MAX_RECORDS_IN_MEMORY = 1_000_000;
+
+    // Skewed partitions are split again at most this many times, then loaded as they are
+    private static final int MAX_LEVELS = 4;
+
+    private final int partitions;
+    private final int parallelism;
+    private final int maxRecordsInMemory;
+    private final ComparisonPlan plan;
+    private final Path tempDir;
+
+    public ExternalKeyedJoin() {
+        this(DEFAULT_PARTITIONS, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_RECORDS_IN_MEMORY, null, null);
+    }
+
+    /**
+     * @param plan    comparison plan for each record pair, or null for the plain comparator
+     * @param tempDir directory for partition files, or null for the system default
+     */
+    public ExternalKeyedJoin(int partitions, int parallelism, int maxRecordsInMemory, ComparisonPlan plan,
+                             Path tempDir) {
+        if (partitions <= 1 || parallelism <= 0 || maxRecordsInMemory <= 0) {
+            throw new IllegalArgumentException("partitions must be greater than 1, parallelism and "
+                    + "maxRecordsInMemory positive");
+        }
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.maxRecordsInMemory = maxRecordsInMemory;
+        this.plan = plan;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Joins two NDJSON files by the value at {@code keyPointer}.
+     */
+    public NdjsonDiff.Summary diff(Path left, Path right, String keyPointer, Consumer<NdjsonDiff.RecordDiff> sink)
+            throws IOException {
+        List<String> tokens = IncrementalDiffSession.parsePointer(keyPointer);
+        try (BufferedReader reader1 = Files.newBufferedReader(left, StandardCharsets.UTF_8);
+             BufferedReader reader2 = Files.newBufferedReader(right, StandardCharsets.UTF_8)) {
+            return join(lines(reader1), lines(reader2), line -> NdjsonDiff.keyOf(line, tokens), sink);
+        }
+    }
+
+    /**
+     * Joins two streams of records, such as the elements of two huge keyed arrays, by the value
+     * at {@code keyPointer}.
+     */
+    public NdjsonDiff.Summary diff(Iterator<JSONObject> left, Iterator<JSONObject> right, String keyPointer,
+                                   Consumer<NdjsonDiff.RecordDiff> sink) throws IOException {
+        List<String> tokens = IncrementalDiffSession.parsePointer(keyPointer);
+        return join(records(left, tokens), records(right, tokens), null, sink);
+    }
+
+    private interface KeyFunction {
+        String keyOf(String line) throws JSONException;
+    }
+
+    private NdjsonDiff.Summary join(Iterator<String[]> left, Iterator<String[]> right, KeyFunction keys,
+                                    Consumer<NdjsonDiff.RecordDiff> sink) throws IOException {
+        Path workDir = tempDir != null ? Files.createTempDirectory(tempDir, "keyed-join")
+                : Files.createTempDirectory("keyed-join");
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "keyed-join");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Partitions leftPartitions;
+            Partitions rightPartitions;
+            try {
+                leftPartitions = partition(left, keys, workDir, "left", 0);
+                rightPartitions = partition(right, keys, workDir, "right", 0);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            Counts counts = new Counts();
+            Consumer<NdjsonDiff.RecordDiff> serialized = diff -> {
+                synchronized (sink) {
+                    sink.accept(diff);
+                }
+            };
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                int partition = p;
+                futures.add(executor.submit(() -> {
+                    joinPartition(leftPartitions, rightPartitions, partition, 1, counts, serialized);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+            return counts.toSummary();
+        } finally {
+            executor.shutdownNow();
+            deleteRecursively(workDir);
+        }
+    }
+
+    private void joinPartition(Partitions left, Partitions right, int partition, int level, Counts counts,
+                               Consumer<NdjsonDiff.RecordDiff> sink) throws IOException {
+        Path leftFile = left.files[partition];
+        Path rightFile = right.files[partition];
+        if (left.counts[partition] > maxRecordsInMemory && level < MAX_LEVELS) {
+            Path subDir = Files.createDirectory(leftFile.resolveSibling(leftFile.getFileName() + ".split"));
+            Partitions leftSplit;
+            Partitions rightSplit;
+            try (BufferedReader leftReader = Files.newBufferedReader(leftFile, StandardCharsets.UTF_8);
+                 BufferedReader rightReader = Files.newBufferedReader(rightFile, StandardCharsets.UTF_8)) {
+                leftSplit = partition(partitionRecords(leftReader), null, subDir, "left", level);
+                rightSplit = partition(partitionRecords(rightReader), null, subDir, "right", level);
+            }
+            Files.delete(leftFile);
+            Files.delete(rightFile);
+            for (int p = 0; p < partitions; p++) {
+                joinPartition(leftSplit, rightSplit, p, level + 1, counts, sink);
+            }
+            return;
+        }
+
+        Map<String, ArrayDeque<String>> table = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(leftFile, StandardCharsets.UTF_8)) {
+            Iterator<String[]> records = partitionRecords(reader);
+            while (records.hasNext()) {
+                String[] record = records.next();
+                table.computeIfAbsent(record[0], key -> new ArrayDeque<>()).addLast(record[1]);
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(rightFile, StandardCharsets.UTF_8)) {
+            Iterator<String[]> records = partitionRecords(reader);
+            while (records.hasNext()) {
+                String[] record = records.next();
+                ArrayDeque<String> matches = table.get(record[0]);
+                String leftLine = matches == null ? null : matches.pollFirst();
+                if (leftLine == null) {
+                    counts.onlyRight.incrementAndGet();
+                    sink.accept(new NdjsonDiff.RecordDiff(NdjsonDiff.Kind.ONLY_RIGHT, record[0], null,
+                            new JSONObject(record[1])));
+                } else {
+                    compare(record[0], leftLine, record[1], counts, sink);
+                }
+            }
+        }
+        for (Map.Entry<String, ArrayDeque<String>> entry : table.entrySet()) {
+            for (String leftLine : entry.getValue()) {
+                counts.onlyLeft.incrementAndGet();
+                sink.accept(new NdjsonDiff.RecordDiff(NdjsonDiff.Kind.ONLY_LEFT, entry.getKey(),
+                        new JSONObject(leftLine), null));
+            }
+        }
+        Files.delete(leftFile);
+        Files.delete(rightFile);
+    }
+
+    private void compare(String key, String line1, String line2, Counts counts, Consumer<NdjsonDiff.RecordDiff> sink)
+            throws JSONException {
+        counts.compared.incrementAndGet();
+        JSONObject obj1 = new JSONObject(line1);
+        JSONObject obj2 = new JSONObject(line2);
+        JSONArray diffs = plan != null ? plan.generateJsonDiff(obj1, obj2) : JsonComparator.generateJsonDiff("", obj1, obj2);
+        if (!diffs.isEmpty()) {
+            counts.changed.incrementAndGet();
+            sink.accept(new NdjsonDiff.RecordDiff(NdjsonDiff.Kind.CHANGED, key, diffs));
+        }
+    }
+
+    /**
+     * Writes records into one file per partition. Records are (key, line) pairs; a null key is
+     * computed from the line with {@code keys}.
+     */
+    private Partitions partition(Iterator<String[]> records, KeyFunction keys, Path dir, String side, int level)
+            throws IOException {
+        Partitions result = new Partitions(partitions);
+        BufferedWriter[] writers = new BufferedWriter[partitions];
+        try {
+            for (int p = 0; p < partitions; p++) {
+                result.files[p] = dir.resolve(side + "-" + p + ".part");
+                writers[p] = Files.newBufferedWriter(result.files[p], StandardCharsets.UTF_8);
+            }
+            while (records.hasNext()) {
+                String[] record = records.next();
+                String key = record[0] != null ? record[0] : keys.keyOf(record[1]);
+                int p = partitionOf(key, level);
+                NdjsonDiff.writeKeyed(writers[p], key, record[1]);
+                result.counts[p]++;
+            }
+        } finally {
+            for (BufferedWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        return result;
+    }
+
+    private int partitionOf(String key, int level) {
+        // Re-seeded per level so that a split partition spreads over all sub-partitions
+        long h = JsonFingerprint.ofString(key) + level * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) Long.remainderUnsigned(h, partitions);
+    }
+
+    private static Iterator<String[]> lines(BufferedReader reader) {
+        return reader.lines()
+                .filter(line -> !line.isBlank())
+                .map(line -> new String[]{null, line})
+                .iterator();
+    }
+
+    private static Iterator<String[]> records(Iterator<JSONObject> records, List<String> tokens) {
+        return new Iterator<String[]>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public String[] next() {
+                JSONObject record = records.next();
+                return new String[]{NdjsonDiff.keyOf(record, tokens), record.toString()};
+            }
+        };
+    }
+
+    private static Iterator<String[]> partitionRecords(BufferedReader reader) {
+        return new Iterator<String[]>() {
+            private String quotedKey = readLine();
+
+            @Override
+            public boolean hasNext() {
+                return quotedKey != null;
+            }
+
+            @Override
+            public String[] next() {
+                String[] record = {NdjsonDiff.readKey(quotedKey), readLine()};
+                quotedKey = readLine();
+                return record;
+            }
+
+            private String readLine() {
+                try {
+                    return reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while joining partitions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static final class Partitions {
+        private final Path[] files;
+        private final long[] counts;
+
+        private Partitions(int partitions) {
+            this.files = new Path[partitions];
+            this.counts = new long[partitions];
+        }
+    }
+
+    private static final class Counts {
+        private final AtomicLong compared = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong onlyLeft = new AtomicLong();
+        private final AtomicLong onlyRight = new AtomicLong();
+
+        private NdjsonDiff.Summary toSummary() {
+            return new NdjsonDiff.Summary(compared.get(), changed.get(), onlyLeft.get(), onlyRight.get());
+        }
+    }
+}
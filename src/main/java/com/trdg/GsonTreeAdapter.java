@@ -0,0 +1,70 @@
+package com.trdg;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * {@link JsonTreeAdapter} for Gson {@link JsonElement} trees.
+ *
+ * Requires gson on the classpath.
+ */
+public final class GsonTreeAdapter implements JsonTreeAdapter<JsonElement> {
+
+    public static final GsonTreeAdapter INSTANCE = new GsonTreeAdapter();
+
+    private GsonTreeAdapter() {
+    }
+
+    @Override
+    public NodeType type(JsonElement node) {
+        if (node.isJsonObject()) {
+            return NodeType.OBJECT;
+        } else if (node.isJsonArray()) {
+            return NodeType.ARRAY;
+        } else if (node.isJsonNull()) {
+            return NodeType.NULL;
+        }
+        JsonPrimitive primitive = node.getAsJsonPrimitive();
+        if (primitive.isNumber()) {
+            return NodeType.NUMBER;
+        } else if (primitive.isBoolean()) {
+            return NodeType.BOOLEAN;
+        }
+        return NodeType.STRING;
+    }
+
+    @Override
+    public Iterable<String> keys(JsonElement object) {
+        return object.getAsJsonObject().keySet();
+    }
+
+    @Override
+    public JsonElement member(JsonElement object, String key) {
+        return object.getAsJsonObject().get(key);
+    }
+
+    @Override
+    public int size(JsonElement array) {
+        return array.getAsJsonArray().size();
+    }
+
+    @Override
+    public JsonElement element(JsonElement array, int index) {
+        return array.getAsJsonArray().get(index);
+    }
+
+    @Override
+    public String stringValue(JsonElement node) {
+        return node.getAsString();
+    }
+
+    @Override
+    public Number numberValue(JsonElement node) {
+        return node.getAsNumber();
+    }
+
+    @Override
+    public boolean booleanValue(JsonElement node) {
+        return node.getAsBoolean();
+    }
+}
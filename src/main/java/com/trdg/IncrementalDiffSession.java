@@ -0,0 +1,285 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Keeps the result of {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)} between a
+ * baseline and a current document up to date while the current document is edited.
+ *
+ * After the initial diff, each change only re-walks the subtree below the changed path, so the
+ * cost of an update is proportional to the edit and not to the document. Changes are reported
+ * either by applying an RFC 6902 patch through {@link #applyPatch(JSONArray)}, or by mutating the
+ * current document directly and calling {@link #pathChanged(String)}.
+ *
+ * Paths given to this class are JSON Pointers ({@code /a/b/0}); the diff operations use the same
+ * path format as {@code generateJsonDiff} ({@code a/b/0}).
+ */
+public class IncrementalDiffSession {
+
+    private final JSONObject baseline;
+    private final JSONObject current;
+
+    // Diff operations keyed by path; sorted so that all operations below a path form one range
+    private final TreeMap<String, JSONObject> operations = new TreeMap<>();
+
+    public IncrementalDiffSession(JSONObject baseline, JSONObject current) throws JSONException {
+        this.baseline = baseline;
+        this.current = current;
+        recompute("", baseline, current);
+    }
+
+    public JSONObject getBaseline() {
+        return baseline;
+    }
+
+    public JSONObject getCurrent() {
+        return current;
+    }
+
+    /**
+     * Current diff operations, ordered by path.
+     */
+    public JSONArray getDiff() {
+        return new JSONArray(operations.values());
+    }
+
+    public boolean isEqual() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Notifies the session that the value at {@code pointer} was changed, added or removed in the
+     * current document (or in the baseline). Array insertions and removals shift indices, so they
+     * should be reported on the array itself.
+     */
+    public void pathChanged(String pointer) throws JSONException {
+        List<String> tokens = parsePointer(pointer);
+
+        // Descend while both sides are containers of the same kind; below the first level where
+        // they are not, the diff is a single operation on that level
+        Object value1 = baseline;
+        Object value2 = current;
+        StringBuilder path = new StringBuilder();
+        for (String token : tokens) {
+            if (!(value1 instanceof JSONObject && value2 instanceof JSONObject)
+                    && !(value1 instanceof JSONArray && value2 instanceof JSONArray)) {
+                break;
+            }
+            // An ancestor that is now a same-kind container on both sides can't carry an operation
+            operations.remove(path.toString());
+            value1 = child(value1, token);
+            value2 = child(value2, token);
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(token);
+        }
+
+        recompute(path.toString(), value1, value2);
+    }
+
+    /**
+     * Applies an RFC 6902 patch to the current document and updates the diff for every path the
+     * patch touched. Supports {@code add}, {@code remove}, {@code replace}, {@code move},
+     * {@code copy} and {@code test}.
+     */
+    public void applyPatch(JSONArray patch) throws JSONException {
+        for (int i = 0; i < patch.length(); i++) {
+            JSONObject op = patch.getJSONObject(i);
+            String path = op.getString("path");
+            switch (op.getString("op")) {
+                case "add":
+                    pathChanged(add(path, op.get("value")));
+                    break;
+                case "remove":
+                    pathChanged(remove(path));
+                    break;
+                case "replace":
+                    remove(path);
+                    pathChanged(add(path, op.get("value")));
+                    break;
+                case "move": {
+                    String from = op.getString("from");
+                    Object value = resolve(current, parsePointer(from));
+                    pathChanged(remove(from));
+                    pathChanged(add(path, value));
+                    break;
+                }
+                case "copy": {
+                    Object value = resolve(current, parsePointer(op.getString("from")));
+                    pathChanged(add(path, deepCopy(value)));
+                    break;
+                }
+                case "test": {
+                    Object value = resolve(current, parsePointer(path));
+                    if (value == null || !JsonFingerprint.sameValue(value, op.get("value"))) {
+                        throw new JSONException("Patch test failed at " + path);
+                    }
+                    break;
+                }
+                default:
+                    throw new JSONException("Unsupported patch operation: " + op.getString("op"));
+            }
+        }
+    }
+
+    private void recompute(String path, Object value1, Object value2) throws JSONException {
+        operations.remove(path);
+        operations.subMap(path.isEmpty() ? "" : path + "/", path.isEmpty() ? "\uffff" : path + "0").clear();
+
+        JSONArray diffs;
+        if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+            diffs = JsonComparator.generateJsonDiff(path, (JSONObject) value1, (JSONObject) value2);
+        } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+            diffs = JsonComparator.generateJsonArrayDiff(path, (JSONArray) value1, (JSONArray) value2);
+        } else {
+            diffs = new JSONArray();
+            JSONObject diff = new JSONObject();
+            if (value1 == null && value2 != null) {
+                diff.put("op", "add");
+                diff.put("path", path);
+                diff.put("value", value2);
+                diffs.put(diff);
+            } else if (value1 != null && value2 == null) {
+                diff.put("op", "remove");
+                diff.put("path", path);
+                diffs.put(diff);
+            } else if (value1 != null && !value1.equals(value2)) {
+                diff.put("op", "replace");
+                diff.put("path", path);
+                diff.put("value", value2);
+                diffs.put(diff);
+            }
+        }
+
+        for (int i = 0; i < diffs.length(); i++) {
+            JSONObject diff = diffs.getJSONObject(i);
+            operations.put(diff.getString("path"), diff);
+        }
+    }
+
+    /**
+     * Adds a value to the current document and returns the pointer whose diff must be refreshed.
+     */
+    private String add(String pointer, Object value) throws JSONException {
+        List<String> tokens = parsePointer(pointer);
+        if (tokens.isEmpty()) {
+            throw new JSONException("Cannot replace the root document of a session");
+        }
+        String last = tokens.get(tokens.size() - 1);
+        Object parent = resolve(current, tokens.subList(0, tokens.size() - 1));
+
+        if (parent instanceof JSONObject) {
+            ((JSONObject) parent).put(last, value);
+            return pointer;
+        } else if (parent instanceof JSONArray) {
+            JSONArray array = (JSONArray) parent;
+            int index = last.equals("-") ? array.length() : arrayIndex(last, array.length());
+            for (int j = array.length(); j > index; j--) {
+                array.put(j, array.get(j - 1));
+            }
+            array.put(index, value);
+            return parentPointer(pointer);
+        }
+        throw new JSONException("No container at " + parentPointer(pointer));
+    }
+
+    /**
+     * Removes a value from the current document and returns the pointer whose diff must be refreshed.
+     */
+    private String remove(String pointer) throws JSONException {
+        List<String> tokens = parsePointer(pointer);
+        if (tokens.isEmpty()) {
+            throw new JSONException("Cannot remove the root document of a session");
+        }
+        String last = tokens.get(tokens.size() - 1);
+        Object parent = resolve(current, tokens.subList(0, tokens.size() - 1));
+
+        if (parent instanceof JSONObject && ((JSONObject) parent).has(last)) {
+            ((JSONObject) parent).remove(last);
+            return pointer;
+        } else if (parent instanceof JSONArray) {
+            JSONArray array = (JSONArray) parent;
+            array.remove(arrayIndex(last, array.length() - 1));
+            return parentPointer(pointer);
+        }
+        throw new JSONException("No value at " + pointer);
+    }
+
+    private static Object resolve(Object root, List<String> tokens) {
+        Object node = root;
+        for (String token : tokens) {
+            node = child(node, token);
+            if (node == null) {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private static Object child(Object node, String token) {
+        if (node instanceof JSONObject) {
+            return ((JSONObject) node).opt(token);
+        } else if (node instanceof JSONArray) {
+            try {
+                return ((JSONArray) node).opt(Integer.parseInt(token));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static int arrayIndex(String token, int maxIndex) throws JSONException {
+        try {
+            int index = Integer.parseInt(token);
+            if (index >= 0 && index <= maxIndex) {
+                return index;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new JSONException("Invalid array index: " + token);
+    }
+
+    private static String parentPointer(String pointer) {
+        return pointer.substring(0, pointer.lastIndexOf('/'));
+    }
+
+    static List<String> parsePointer(String pointer) throws JSONException {
+        List<String> tokens = new ArrayList<>();
+        if (pointer.isEmpty()) {
+            return tokens;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new JSONException("JSON Pointer must start with '/': " + pointer);
+        }
+        for (String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+
+    private static Object deepCopy(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject copy = new JSONObject();
+            for (String key : ((JSONObject) value).keySet()) {
+                copy.put(key, deepCopy(((JSONObject) value).get(key)));
+            }
+            return copy;
+        } else if (value instanceof JSONArray) {
+            JSONArray copy = new JSONArray();
+            for (int i = 0; i < ((JSONArray) value).length(); i++) {
+                copy.put(deepCopy(((JSONArray) value).get(i)));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,80 @@
+package com.trdg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+
+/**
+ * {@link JsonTreeAdapter} for Jackson {@link JsonNode} trees. Binary nodes are read as their
+ * Base64 text, as Jackson serializes them; POJO and missing nodes are rejected.
+ *
+ * Requires jackson-databind on the classpath.
+ */
+public final class JacksonTreeAdapter implements JsonTreeAdapter<JsonNode> {
+
+    public static final JacksonTreeAdapter INSTANCE = new JacksonTreeAdapter();
+
+    private JacksonTreeAdapter() {
+    }
+
+    @Override
+    public NodeType type(JsonNode node) {
+        switch (node.getNodeType()) {
+            case OBJECT:
+                return NodeType.OBJECT;
+            case ARRAY:
+                return NodeType.ARRAY;
+            case STRING:
+            case BINARY:
+                return NodeType.STRING;
+            case NUMBER:
+                return NodeType.NUMBER;
+            case BOOLEAN:
+                return NodeType.BOOLEAN;
+            case NULL:
+                return NodeType.NULL;
+            default:
+                throw new IllegalArgumentException("Unsupported Jackson node type: " + node.getNodeType());
+        }
+    }
+
+    @Override
+    public Iterable<String> keys(JsonNode object) {
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return object.fieldNames();
+            }
+        };
+    }
+
+    @Override
+    public JsonNode member(JsonNode object, String key) {
+        return object.get(key);
+    }
+
+    @Override
+    public int size(JsonNode array) {
+        return array.size();
+    }
+
+    @Override
+    public JsonNode element(JsonNode array, int index) {
+        return array.get(index);
+    }
+
+    @Override
+    public String stringValue(JsonNode node) {
+        return node.asText();
+    }
+
+    @Override
+    public Number numberValue(JsonNode node) {
+        return node.numberValue();
+    }
+
+    @Override
+    public boolean booleanValue(JsonNode node) {
+        return node.booleanValue();
+    }
+}
@@ -0,0 +1,209 @@
+package com.trdg;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Compares many (expected, actual) pairs in parallel with
+ * {@link JsonComparator#areJsonEntitiesEqual(JSONObject, JSONObject)}.
+ *
+ * Pairs are read lazily from the input and handed to the executor in chunks. Each worker keeps
+ * reusing its thread's difference list between pairs, and only a bounded number of chunks is in
+ * flight at a time so that streaming inputs are never fully buffered. A failed chunk stops the
+ * batch once it is the oldest one in flight.
+ */
+public class JsonBatchComparator implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private static final ComparisonResult[] NO_RESULTS = new ComparisonResult[0];
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    /**
+     * Uses the given executor, which stays owned by the caller.
+     */
+    public JsonBatchComparator(ExecutorService executor, int chunkSize, int maxChunksInFlight) {
+        this(executor, false, chunkSize, maxChunksInFlight);
+    }
+
+    private JsonBatchComparator(ExecutorService executor, boolean ownsExecutor, int chunkSize, int maxChunksInFlight) {
+        if (chunkSize <= 0 || maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("chunkSize and maxChunksInFlight must be positive");
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Work-stealing pool with the given parallelism.
+     */
+    public static JsonBatchComparator forkJoin(int parallelism) {
+        return new JsonBatchComparator(new ForkJoinPool(parallelism), true, DEFAULT_CHUNK_SIZE, parallelism * 4);
+    }
+
+    /**
+     * One virtual thread per processor. The threads are kept for the whole batch rather than
+     * started per chunk, so that each keeps reusing its difference list.
+     */
+    public static JsonBatchComparator virtualThreads() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return new JsonBatchComparator(Executors.newFixedThreadPool(parallelism, Thread.ofVirtual().factory()), true,
+                DEFAULT_CHUNK_SIZE, parallelism * 4);
+    }
+
+    /**
+     * Compares all pairs and returns the results in input order.
+     */
+    public BatchResult compareAll(Iterable<Pair> pairs) throws JSONException {
+        return run(pairs.iterator(), null);
+    }
+
+    public BatchResult compareAll(Stream<Pair> pairs) throws JSONException {
+        return run(pairs.iterator(), null);
+    }
+
+    /**
+     * Compares all pairs and passes each result to {@code listener} as soon as it completes. The
+     * listener is called from worker threads and must be thread-safe. The returned
+     * {@link BatchResult} carries the totals only.
+     */
+    public BatchResult compareAll(Iterable<Pair> pairs, ResultListener listener) throws JSONException {
+        return run(pairs.iterator(), listener);
+    }
+
+    public BatchResult compareAll(Stream<Pair> pairs, ResultListener listener) throws JSONException {
+        return run(pairs.iterator(), listener);
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private BatchResult run(Iterator<Pair> pairs, ResultListener listener) throws JSONException {
+        long start = System.nanoTime();
+        LongAdder mismatches = new LongAdder();
+        // Oldest first; awaiting the head before submitting more bounds both the work in flight
+        // and the futures held, and surfaces a failed chunk without reading the rest of the input
+        ArrayDeque<Future<ComparisonResult[]>> inFlight = new ArrayDeque<>();
+        List<ComparisonResult> results = new ArrayList<>();
+        long count = 0;
+
+        try {
+            while (pairs.hasNext()) {
+                List<Pair> chunk = new ArrayList<>(chunkSize);
+                while (chunk.size() < chunkSize && pairs.hasNext()) {
+                    chunk.add(pairs.next());
+                }
+                long firstIndex = count;
+                count += chunk.size();
+
+                inFlight.addLast(executor.submit(() -> compareChunk(chunk, firstIndex, listener, mismatches)));
+                if (inFlight.size() >= maxChunksInFlight) {
+                    results.addAll(Arrays.asList(inFlight.peekFirst().get()));
+                    inFlight.pollFirst();
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                results.addAll(Arrays.asList(inFlight.peekFirst().get()));
+                inFlight.pollFirst();
+            }
+            return new BatchResult(results, count, mismatches.sum(), System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.forEach(chunk -> chunk.cancel(true));
+            throw new JSONException("Batch comparison interrupted", e);
+        } catch (ExecutionException e) {
+            inFlight.forEach(chunk -> chunk.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JSONException("Batch comparison failed", e.getCause());
+        }
+    }
+
+    private static ComparisonResult[] compareChunk(List<Pair> chunk, long firstIndex, ResultListener listener,
+                                                   LongAdder mismatches) throws JSONException {
+        // Listener mode hands every result over as it completes and keeps none
+        ComparisonResult[] results = listener == null ? new ComparisonResult[chunk.size()] : NO_RESULTS;
+        for (int i = 0; i < chunk.size(); i++) {
+            Pair pair = chunk.get(i);
+            ComparisonResult result = JsonComparator.compare(pair.expected, pair.actual);
+            if (!result.equal) {
+                mismatches.increment();
+            }
+            if (listener != null) {
+                listener.onResult(firstIndex + i, result);
+            } else {
+                results[i] = result;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Callback for results delivered in completion order.
+     */
+    public interface ResultListener {
+        void onResult(long index, ComparisonResult result);
+    }
+
+    public static class Pair {
+        public final JSONObject expected;
+        public final JSONObject actual;
+
+        public Pair(JSONObject expected, JSONObject actual) {
+            this.expected = expected;
+            this.actual = actual;
+        }
+    }
+
+    /**
+     * Results of a batch together with its throughput.
+     */
+    public static class BatchResult {
+        /** Results in input order; empty when a {@link ResultListener} was used. */
+        public final List<ComparisonResult> results;
+        public final long pairs;
+        public final long mismatches;
+        public final long elapsedNanos;
+
+        private BatchResult(List<ComparisonResult> results, long pairs, long mismatches, long elapsedNanos) {
+            this.results = results;
+            this.pairs = pairs;
+            this.mismatches = mismatches;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double pairsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : pairs * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d pairs, %d mismatches in %.1f ms (%.0f pairs/s)",
+                    pairs, mismatches, elapsedNanos / 1_000_000.0, pairsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.trdg;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Low-level helpers shared by the byte-oriented readers: whitespace and string scanning,
+ * unescaping, and number conversion that mirrors org.json.
+ */
+final class JsonBytes {
+
+    // Shapes of number text, see numberForm()
+    private static final int INTEGER_FORM = 0;
+    private static final int DECIMAL_FORM = 1;
+    private static final int EXPONENT_FORM = 2;
+
+    private JsonBytes() {
+    }
+
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    static int skipWhitespace(byte[] json, int pos, int end) {
+        while (pos < end && isWhitespace(json[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the index of the closing quote of the string whose content starts at {@code pos}.
+     */
+    static int findStringEnd(byte[] json, int pos, int end) throws JSONException {
+        while (pos < end) {
+            byte b = json[pos];
+            if (b == '"') {
+                return pos;
+            } else if (b == '\\') {
+                pos += 2;
+            } else {
+                pos++;
+            }
+        }
+        throw new JSONException("Unterminated string");
+    }
+
+    static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    /**
+     * Decodes the UTF-8 content of a JSON string (without quotes), resolving escape sequences
+     * when {@code escaped} is set.
+     */
+    static String decodeString(byte[] json, int offset, int length, boolean escaped) throws JSONException {
+        String raw = new String(json, offset, length, StandardCharsets.UTF_8);
+        return escaped ? unescape(raw) : raw;
+    }
+
+    static String unescape(String raw) throws JSONException {
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i >= raw.length()) {
+                throw new JSONException("Unterminated escape sequence");
+            }
+            char e = raw.charAt(i);
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= raw.length()) {
+                        throw new JSONException("Invalid unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException ex) {
+                        throw new JSONException("Invalid unicode escape: " + raw.substring(i + 1, i + 5));
+                    }
+                    i += 4;
+                    break;
+                default:
+                    throw new JSONException("Invalid escape sequence: \\" + e);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses a run of digits with an optional minus sign into a long, or returns
+     * {@code Long.MIN_VALUE} as "not representable" (fractions, exponents, overflow and {@code -0},
+     * which org.json turns into a double).
+     */
+    static long parseLong(byte[] json, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = json[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i >= end || end - i > 19) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = json[i];
+            if (b < '0' || b > '9') {
+                return Long.MIN_VALUE;
+            }
+            // Accumulate negatively so that Long.MIN_VALUE + 1 .. Long.MAX_VALUE all fit
+            long next = value * 10 - (b - '0');
+            if (value < Long.MIN_VALUE / 10 || next > value) {
+                return Long.MIN_VALUE;
+            }
+            value = next;
+        }
+        if (negative) {
+            return value == 0 ? Long.MIN_VALUE : value;
+        }
+        return value == Long.MIN_VALUE ? Long.MIN_VALUE : -value;
+    }
+
+    /**
+     * Integer value boxed the way org.json does: Integer when it fits, Long otherwise.
+     */
+    static Number boxLong(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    /**
+     * Converts number text the way org.json's {@code JSONObject.stringToValue} does: decimals
+     * become BigDecimal (negative zero becomes a Double), integers the narrowest of
+     * Integer, Long and BigInteger.
+     */
+    static Number toNumber(String text) throws JSONException {
+        try {
+            if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0 || "-0".equals(text)) {
+                BigDecimal decimal = new BigDecimal(text);
+                if (text.charAt(0) == '-' && BigDecimal.ZERO.compareTo(decimal) == 0) {
+                    return -0.0;
+                }
+                return decimal;
+            }
+            BigInteger integer = new BigInteger(text);
+            if (integer.bitLength() <= 31) {
+                return integer.intValue();
+            } else if (integer.bitLength() <= 63) {
+                return integer.longValue();
+            }
+            return integer;
+        } catch (NumberFormatException e) {
+            throw new JSONException("Invalid number: " + text, e);
+        }
+    }
+
+    /**
+     * True if two raw string spans (between the quotes) decode to equal strings. The bytes are
+     * compared first; only when they differ and one span contains escapes are both walked code
+     * point by code point, without building either string.
+     */
+    static boolean stringsEqual(byte[] json1, int offset1, int length1, boolean escaped1,
+                                byte[] json2, int offset2, int length2, boolean escaped2) throws JSONException {
+        if (length1 == length2 && Arrays.equals(json1, offset1, offset1 + length1, json2, offset2, offset2 + length2)) {
+            return true;
+        } else if (!escaped1 && !escaped2) {
+            return false;
+        }
+        CodePoints points1 = new CodePoints(json1, offset1, offset1 + length1);
+        CodePoints points2 = new CodePoints(json2, offset2, offset2 + length2);
+        while (true) {
+            int c1 = points1.next();
+            int c2 = points2.next();
+            if (c1 == CodePoints.INVALID || c2 == CodePoints.INVALID) {
+                // Malformed UTF-8 or escape: let the decoder decide, as it would for equals()
+                return decodeString(json1, offset1, length1, escaped1).equals(decodeString(json2, offset2, length2, escaped2));
+            } else if (c1 != c2) {
+                return false;
+            } else if (c1 == CodePoints.END) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * True if two raw number spans convert to equal values with {@link #toNumber}. Integers and
+     * decimals without an exponent have one spelling per value, so differing bytes settle those
+     * without converting; only spans with an exponent are converted. Malformed spans are
+     * rejected.
+     */
+    static boolean numbersEqual(byte[] json1, int offset1, int length1, byte[] json2, int offset2, int length2)
+            throws JSONException {
+        int form1 = numberForm(json1, offset1, length1);
+        int form2 = numberForm(json2, offset2, length2);
+        if (length1 == length2 && Arrays.equals(json1, offset1, offset1 + length1, json2, offset2, offset2 + length2)) {
+            return true;
+        } else if (form1 == INTEGER_FORM || form2 == INTEGER_FORM) {
+            // Integers have one spelling per value and never equal a decimal
+            return false;
+        } else if (((form1 | form2) & EXPONENT_FORM) == 0) {
+            // Plain decimals too, except negative zeros, which all become -0.0
+            return isNegativeZero(json1, offset1, length1) && isNegativeZero(json2, offset2, length2);
+        }
+        return toNumber(new String(json1, offset1, length1, StandardCharsets.ISO_8859_1))
+                .equals(toNumber(new String(json2, offset2, length2, StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * Checks the JSON number grammar and tells integers from numbers with a fraction or an
+     * exponent. {@code -0} counts as a decimal, since org.json turns it into a double.
+     */
+    private static int numberForm(byte[] json, int offset, int length) throws JSONException {
+        int i = offset;
+        int end = offset + length;
+        if (i < end && json[i] == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < end && json[i] >= '0' && json[i] <= '9') {
+            i++;
+        }
+        boolean valid = i > digits && (json[digits] != '0' || i == digits + 1);
+        int form = i == digits + 1 && json[digits] == '0' && digits > offset ? DECIMAL_FORM : INTEGER_FORM;
+        if (valid && i < end && json[i] == '.') {
+            int fraction = ++i;
+            while (i < end && json[i] >= '0' && json[i] <= '9') {
+                i++;
+            }
+            valid = i > fraction;
+            form = DECIMAL_FORM;
+        }
+        if (valid && i < end && (json[i] == 'e' || json[i] == 'E')) {
+            i++;
+            if (i < end && (json[i] == '+' || json[i] == '-')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < end && json[i] >= '0' && json[i] <= '9') {
+                i++;
+            }
+            valid = i > exponent;
+            form = DECIMAL_FORM | EXPONENT_FORM;
+        }
+        if (!valid || i != end) {
+            throw new JSONException("Invalid number: " + new String(json, offset, length, StandardCharsets.ISO_8859_1));
+        }
+        return form;
+    }
+
+    private static boolean isNegativeZero(byte[] json, int offset, int length) {
+        if (json[offset] != '-') {
+            return false;
+        }
+        for (int i = offset + 1; i < offset + length; i++) {
+            if (json[i] != '0' && json[i] != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Code points of a raw string span, decoding escapes and UTF-8 as they are reached.
+     */
+    private static final class CodePoints {
+        static final int END = -1;
+        static final int INVALID = -2;
+
+        private final byte[] json;
+        private final int end;
+        private int pos;
+
+        CodePoints(byte[] json, int pos, int end) {
+            this.json = json;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        int next() {
+            if (pos >= end) {
+                return END;
+            }
+            int b = json[pos];
+            if (b == '\\') {
+                return escape();
+            } else if (b >= 0) {
+                pos++;
+                return b;
+            }
+            int lead = b & 0xFF;
+            int count;
+            int min;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                count = 1;
+                min = 0x80;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                count = 2;
+                min = 0x800;
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                count = 3;
+                min = 0x10000;
+            } else {
+                return INVALID;
+            }
+            if (pos + count >= end) {
+                return INVALID;
+            }
+            int codePoint = lead & (0x3F >> count);
+            for (int k = 1; k <= count; k++) {
+                int continuation = json[pos + k] & 0xFF;
+                if ((continuation & 0xC0) != 0x80) {
+                    return INVALID;
+                }
+                codePoint = codePoint << 6 | (continuation & 0x3F);
+            }
+            if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                    || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+                return INVALID;
+            }
+            pos += count + 1;
+            return codePoint;
+        }
+
+        private int escape() {
+            if (pos + 1 >= end) {
+                return INVALID;
+            }
+            byte e = json[pos + 1];
+            pos += 2;
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    return e;
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u': {
+                    int unit = hex(pos);
+                    if (unit < 0) {
+                        return INVALID;
+                    }
+                    pos += 4;
+                    if (Character.isHighSurrogate((char) unit) && pos + 1 < end
+                            && json[pos] == '\\' && json[pos + 1] == 'u') {
+                        int low = hex(pos + 2);
+                        if (low >= 0 && Character.isLowSurrogate((char) low)) {
+                            pos += 6;
+                            return Character.toCodePoint((char) unit, (char) low);
+                        }
+                    }
+                    // A lone surrogate stays a code unit of its own
+                    return unit;
+                }
+                default:
+                    return INVALID;
+            }
+        }
+
+        private int hex(int at) {
+            if (at + 4 > end) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = at; i < at + 4; i++) {
+                int digit = Character.digit(json[i], 16);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value << 4 | digit;
+            }
+            return value;
+        }
+    }
+
+    static Object literal(byte[] json, int pos, int end) throws JSONException {
+        if (matches(json, pos, end, "true")) {
+            return Boolean.TRUE;
+        } else if (matches(json, pos, end, "false")) {
+            return Boolean.FALSE;
+        } else if (matches(json, pos, end, "null")) {
+            return JSONObject.NULL;
+        }
+        throw new JSONException("Unexpected character '" + (char) json[pos] + "' at " + pos);
+    }
+
+    static boolean matches(byte[] json, int pos, int end, String literal) {
+        if (end - pos < literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (json[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a byte range.
+     */
+    static long hash(byte[] json, int offset, int length) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h ^ (json[i] & 0xFF)) * 0x100000001B3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,23 @@
+package com.trdg;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a record or bean class for which the JSONCompare annotation processor (the
+ * {@code JSONCompare-processor} artifact) generates a comparator at compile time.
+ *
+ * For a type {@code Person} the processor writes {@code PersonJsonComparator} in the same
+ * package, with static {@code areEqual(Person, Person)} and {@code generateJsonDiff(Person, Person)}
+ * methods that give the answers of {@link BeanComparator} through straight-line accessor calls.
+ * Members of other {@code @JsonComparable} types are compared by their own generated
+ * comparators; collections, maps, arrays and other objects go through {@link BeanComparator}.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JsonComparable {
+}
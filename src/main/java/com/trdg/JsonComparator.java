@@ -12,63 +12,160 @@ import java.util.List;
 import java.util.Set;
 
 public class JsonComparator {
-    private static String parentKey = "";
-    private static List<String> differences = new ArrayList<>();
+    // Per-thread so that independent comparisons can run concurrently; each thread reuses its list
+    private static final ThreadLocal<String> parentKey = ThreadLocal.withInitial(() -> "");
+    private static final ThreadLocal<List<String>> differences = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Differences collected by the comparison methods on the calling thread since the last
+     * {@link #clearDifferences()}.
+     */
+    public static List<String> getDifferences() {
+        return new ArrayList<>(differences.get());
+    }
+
+    public static void clearDifferences() {
+        differences.get().clear();
+        parentKey.set("");
+    }
+
+    /**
+     * Runs {@link #areJsonEntitiesEqual(JSONObject, JSONObject)} on a clean difference list and
+     * returns the outcome together with the differences found.
+     */
+    public static ComparisonResult compare(JSONObject obj1, JSONObject obj2) throws JSONException {
+        return compare(obj1, obj2, null);
+    }
+
+    /**
+     * Same as {@link #compare(JSONObject, JSONObject)}, reporting differing strings that
+     * {@code strings} applies to as their changed ranges instead of quoting both values.
+     */
+    public static ComparisonResult compare(JSONObject obj1, JSONObject obj2, StringDiff strings) throws JSONException {
+        clearDifferences();
+        boolean isEqual = areJsonEntitiesEqual(obj1, obj2, strings);
+        List<String> found = differences.get();
+        ComparisonResult result = new ComparisonResult(isEqual, found.isEmpty() ? List.of() : List.copyOf(found));
+        clearDifferences();
+        return result;
+    }
 
     public static boolean areValuesEqual(Object value1, Object value2, String key) throws JSONException {
+        return areValuesEqual(value1, value2, key, null);
+    }
+
+    /**
+     * Same as {@link #areValuesEqual(Object, Object, String)}, describing differing strings with
+     * {@code strings} when it applies to them. Null quotes both values in full.
+     */
+    public static boolean areValuesEqual(Object value1, Object value2, String key, StringDiff strings) throws JSONException {
         if ((value1 instanceof JSONObject) && (value2 instanceof JSONObject)) {
-            parentKey = key;
-            return areJsonEntitiesEqual((JSONObject) value1, (JSONObject) value2);
+            parentKey.set(key);
+            return areJsonEntitiesEqual((JSONObject) value1, (JSONObject) value2, strings);
         } else if ((value1 instanceof JSONArray) && (value2 instanceof JSONArray)) {
-            parentKey = key;
-            return compareJsonArrays((JSONArray) value1, (JSONArray) value2);
+            parentKey.set(key);
+            return compareJsonArrays((JSONArray) value1, (JSONArray) value2, strings);
         } else if (!value1.equals(value2)) {
-            differences.add(String.format("Values are not equal for key: %s - Value 1: %s, Value 2: %s",
-                    (parentKey.isEmpty() ? key : parentKey + "->" + key), value1.toString(), value2.toString()));
+            String path = parentKey.get().isEmpty() ? key : parentKey.get() + "->" + key;
+            String summary = describeStrings(strings, value1, value2);
+            differences.get().add(summary != null
+                    ? String.format("Values are not equal for key: %s - %s", path, summary)
+                    : String.format("Values are not equal for key: %s - Value 1: %s, Value 2: %s", path, value1.toString(), value2.toString()));
             return false;
         }
         return true;
     }
 
     public static boolean areJsonEntitiesEqual(JSONObject obj1, JSONObject obj2) throws JSONException {
-        boolean isEqual = true;
-        for (String key : obj1.keySet()) {
-            if (!obj2.has(key)) {
-                differences.add(String.format("Missing key \"%s\" in JSON Object 2", key));
-                isEqual = false;
+        return areJsonEntitiesEqual(obj1, obj2, null);
+    }
+
+    public static boolean areJsonEntitiesEqual(JSONObject obj1, JSONObject obj2, StringDiff strings) throws JSONException {
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(obj1.length(), differences.get().size())
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            boolean isEqual = true;
+            for (String key : obj1.keySet()) {
+                if (!obj2.has(key)) {
+                    differences.get().add(String.format("Missing key \"%s\" in JSON Object 2", key));
+                    isEqual = false;
+                }
+                else if (!areValuesEqual(obj1.get(key), obj2.get(key), key, strings)) {
+                    isEqual = false;
+                }
             }
-            else if (!areValuesEqual(obj1.get(key), obj2.get(key), key)) {
-                isEqual = false;
+            return isEqual;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.ARE_JSON_ENTITIES_EQUAL, token, differences.get().size());
             }
         }
-        return isEqual;
     }
 
     public static boolean compareJsonArrays(JSONArray jsonArray1, JSONArray jsonArray2) throws JSONException {
-        boolean isEqual = true;
-
-        if (jsonArray1.length() == jsonArray2.length()) {
-            for (int i = 0; i < jsonArray1.length(); i++) {
-                Object a = jsonArray1.get(i);
-                Object b = jsonArray2.get(i);
-
-                if (a instanceof JSONObject && b instanceof JSONObject) {
-                    isEqual = areJsonEntitiesEqual((JSONObject) a, (JSONObject) b);
-                } else if (a instanceof JSONArray && b instanceof JSONArray) {
-                    isEqual = compareJsonArrays((JSONArray) a, (JSONArray) b);
-                } else if (!a.equals(b)) {
-                    differences.add(String.format("Arrays are not same: %s, %s", a, b));
-                    isEqual = false;
+        return compareJsonArrays(jsonArray1, jsonArray2, null);
+    }
+
+    public static boolean compareJsonArrays(JSONArray jsonArray1, JSONArray jsonArray2, StringDiff strings) throws JSONException {
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(jsonArray1.length(), differences.get().size())
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            boolean isEqual = true;
+
+            if (jsonArray1.length() == jsonArray2.length()) {
+                NumericArrays.Result numeric = jsonArray1.length() >= NumericArrays.MIN_LENGTH
+                        ? NumericArrays.compare(jsonArray1, jsonArray2, 1) : null;
+                if (numeric != null) {
+                    // All numbers: compared unboxed, reporting the first mismatch as the loop below would
+                    if (!numeric.isEqual()) {
+                        int i = numeric.mismatches.get(0).from;
+                        differences.get().add(String.format("Arrays are not same: %s, %s", jsonArray1.get(i), jsonArray2.get(i)));
+                        isEqual = false;
+                    }
+                    return isEqual;
                 }
+                for (int i = 0; i < jsonArray1.length(); i++) {
+                    Object a = jsonArray1.get(i);
+                    Object b = jsonArray2.get(i);
+
+                    if (a instanceof JSONObject && b instanceof JSONObject) {
+                        isEqual = areJsonEntitiesEqual((JSONObject) a, (JSONObject) b, strings);
+                    } else if (a instanceof JSONArray && b instanceof JSONArray) {
+                        isEqual = compareJsonArrays((JSONArray) a, (JSONArray) b, strings);
+                    } else if (!a.equals(b)) {
+                        String summary = describeStrings(strings, a, b);
+                        differences.get().add(summary != null
+                                ? "Arrays are not same: " + summary
+                                : String.format("Arrays are not same: %s, %s", a, b));
+                        isEqual = false;
+                    }
 
-                if (!isEqual) break;
+                    if (!isEqual) break;
+                }
+            } else {
+                differences.get().add("Sizes of JSON Arrays are not same");
+                isEqual = false;
+            }
+
+            return isEqual;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.COMPARE_JSON_ARRAYS, token, differences.get().size());
             }
-        } else {
-            differences.add("Sizes of JSON Arrays are not same");
-            isEqual = false;
         }
+    }
 
-        return isEqual;
+    /**
+     * The bounded description of two differing strings, or null to quote the values in full.
+     */
+    private static String describeStrings(StringDiff diff, Object value1, Object value2) {
+        if (diff == null || !(value1 instanceof String) || !(value2 instanceof String)
+                || !diff.applies((String) value1, (String) value2)) {
+            return null;
+        }
+        return diff.describe((String) value1, (String) value2);
     }
 
     public static void main(String[] args) throws Exception {
@@ -88,7 +185,7 @@ public class JsonComparator {
 
         if (!areJsonEntitiesEqual(obj1, obj2)) {
             System.out.println("JSONObjects are not equal. Differences found: ");
-            differences.forEach(System.out::println);
+            differences.get().forEach(System.out::println);
         } else {
             System.out.println("JSONObjects are equal");
         }
@@ -104,213 +201,289 @@ public class JsonComparator {
     }
 
     public static JSONObject generateJsonDiff(JSONObject obj1, JSONObject obj2) throws JSONException {
-        JSONObject result = new JSONObject();
-
-        // get keys from both objects
-        Set<String> keys1 = obj1.keySet();
-        Set<String> keys2 = obj2.keySet();
-
-        // get all unique keys
-        Set<String> allKeys = new HashSet<String>(keys1);
-        allKeys.addAll(keys2);
+        return generateJsonDiff(obj1, obj2, null);
+    }
 
-        for (String key : allKeys) {
-            // if key only exists in obj1
-            if (!obj2.has(key) && obj1.has(key)) {
-                result.put(key, String.format("Key only in first JSONObject: Value - %s", obj1.get(key).toString()));
-            }
-            // if key only exists in obj2
-            else if (obj2.has(key) && !obj1.has(key)) {
-                result.put(key, String.format("Key only in second JSONObject: Value - %s", obj2.get(key).toString()));
-            }
-            // if key exists in both obj1 and obj2
-            else {
-                Object value1 = obj1.get(key);
-                Object value2 = obj2.get(key);
-
-                if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
-                    JSONObject valueDiff = generateJsonDiff((JSONObject) value1, (JSONObject) value2);
-                    if (!valueDiff.isEmpty()) {
-                        result.put(key, valueDiff);
-                    }
-                } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
-                    JSONObject arrayDiff = generateJsonArrayDiff((JSONArray) value1, (JSONArray) value2, key);
-                    if (!arrayDiff.isEmpty()) {
-                        result.put(key, arrayDiff);
+    /**
+     * Same as {@link #generateJsonDiff(JSONObject, JSONObject)}, reporting differing strings that
+     * {@code strings} applies to as their changed ranges instead of quoting both values.
+     */
+    public static JSONObject generateJsonDiff(JSONObject obj1, JSONObject obj2, StringDiff strings) throws JSONException {
+        JSONObject result = new JSONObject();
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(Math.max(obj1.length(), obj2.length()), 0)
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            // get keys from both objects
+            Set<String> keys1 = obj1.keySet();
+            Set<String> keys2 = obj2.keySet();
+
+            // get all unique keys
+            Set<String> allKeys = new HashSet<String>(keys1);
+            allKeys.addAll(keys2);
+
+            for (String key : allKeys) {
+                // if key only exists in obj1
+                if (!obj2.has(key) && obj1.has(key)) {
+                    result.put(key, String.format("Key only in first JSONObject: Value - %s", obj1.get(key).toString()));
+                }
+                // if key only exists in obj2
+                else if (obj2.has(key) && !obj1.has(key)) {
+                    result.put(key, String.format("Key only in second JSONObject: Value - %s", obj2.get(key).toString()));
+                }
+                // if key exists in both obj1 and obj2
+                else {
+                    Object value1 = obj1.get(key);
+                    Object value2 = obj2.get(key);
+
+                    if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+                        JSONObject valueDiff = generateJsonDiff((JSONObject) value1, (JSONObject) value2, strings);
+                        if (!valueDiff.isEmpty()) {
+                            result.put(key, valueDiff);
+                        }
+                    } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+                        JSONObject arrayDiff = generateJsonArrayDiff((JSONArray) value1, (JSONArray) value2, key, strings);
+                        if (!arrayDiff.isEmpty()) {
+                            result.put(key, arrayDiff);
+                        }
+                    } else if (!value1.equals(value2)) {
+                        String summary = describeStrings(strings, value1, value2);
+                        result.put(key, summary != null
+                                ? "Values do not match: " + summary
+                                : String.format("Values do not match: Value 1 - %s, Value 2 - %s", value1, value2));
                     }
-                } else if (!value1.equals(value2)) {
-                    result.put(key, String.format("Values do not match: Value 1 - %s, Value 2 - %s", value1, value2));
                 }
             }
+            return result;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.GENERATE_JSON_DIFF, token, result);
+            }
         }
-        return result;
     }
 
     public static JSONObject generateJsonArrayDiff(JSONArray array1, JSONArray array2, String key) throws JSONException {
-        JSONObject result = new JSONObject();
-
-        if (array1.length() != array2.length()) {
-            result.put("length", String.format("Array lengths differ: Array 1 has %d elements, Array 2 has %d elements",
-                    array1.length(), array2.length()));
-        }
-
-        int maxLength = Math.max(array1.length(), array2.length());
-        for (int i = 0; i < maxLength; i++) {
-            String indexKey = "[" + i + "]";
+        return generateJsonArrayDiff(array1, array2, key, null);
+    }
 
-            if (i >= array1.length()) {
-                result.put(indexKey, String.format("Element only in second array: %s", array2.get(i).toString()));
-            } else if (i >= array2.length()) {
-                result.put(indexKey, String.format("Element only in first array: %s", array1.get(i).toString()));
-            } else {
-                Object value1 = array1.get(i);
-                Object value2 = array2.get(i);
+    public static JSONObject generateJsonArrayDiff(JSONArray array1, JSONArray array2, String key, StringDiff strings) throws JSONException {
+        JSONObject result = new JSONObject();
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(Math.max(array1.length(), array2.length()), 0)
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            if (array1.length() != array2.length()) {
+                result.put("length", String.format("Array lengths differ: Array 1 has %d elements, Array 2 has %d elements",
+                        array1.length(), array2.length()));
+            }
 
-                if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
-                    JSONObject valueDiff = generateJsonDiff((JSONObject) value1, (JSONObject) value2);
-                    if (!valueDiff.isEmpty()) {
-                        result.put(indexKey, valueDiff);
-                    }
-                } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
-                    JSONObject nestedArrayDiff = generateJsonArrayDiff((JSONArray) value1, (JSONArray) value2, indexKey);
-                    if (!nestedArrayDiff.isEmpty()) {
-                        result.put(indexKey, nestedArrayDiff);
+            int maxLength = Math.max(array1.length(), array2.length());
+            for (int i = 0; i < maxLength; i++) {
+                String indexKey = "[" + i + "]";
+
+                if (i >= array1.length()) {
+                    result.put(indexKey, String.format("Element only in second array: %s", array2.get(i).toString()));
+                } else if (i >= array2.length()) {
+                    result.put(indexKey, String.format("Element only in first array: %s", array1.get(i).toString()));
+                } else {
+                    Object value1 = array1.get(i);
+                    Object value2 = array2.get(i);
+
+                    if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+                        JSONObject valueDiff = generateJsonDiff((JSONObject) value1, (JSONObject) value2, strings);
+                        if (!valueDiff.isEmpty()) {
+                            result.put(indexKey, valueDiff);
+                        }
+                    } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+                        JSONObject nestedArrayDiff = generateJsonArrayDiff((JSONArray) value1, (JSONArray) value2, indexKey, strings);
+                        if (!nestedArrayDiff.isEmpty()) {
+                            result.put(indexKey, nestedArrayDiff);
+                        }
+                    } else if (!value1.equals(value2)) {
+                        String summary = describeStrings(strings, value1, value2);
+                        result.put(indexKey, summary != null
+                                ? "Values do not match: " + summary
+                                : String.format("Values do not match: Value 1 - %s, Value 2 - %s", value1, value2));
                     }
-                } else if (!value1.equals(value2)) {
-                    result.put(indexKey, String.format("Values do not match: Value 1 - %s, Value 2 - %s", value1, value2));
                 }
             }
-        }
 
-        return result;
+            return result;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.GENERATE_JSON_ARRAY_DIFF, token, result);
+            }
+        }
     }
 
     public static JSONArray generateJsonPatch(JSONObject obj1, JSONObject obj2) throws JSONException {
         JSONArray diffs = new JSONArray();
-
-        Set<String> keys1 = obj1.keySet();
-        Set<String> keys2 = obj2.keySet();
-
-        Set<String> allKeys = new HashSet<String>(keys1);
-        allKeys.addAll(keys2);
-
-        for (String key : allKeys) {
-            JSONObject diff = new JSONObject();
-            if (!obj2.has(key) && obj1.has(key)) {
-                diff.put("op", "remove");
-                diff.put("path", "/" + key);
-                diffs.put(diff);
-            } else if (obj2.has(key) && !obj1.has(key)) {
-                diff.put("op", "add");
-                diff.put("path", "/" + key);
-                diff.put("value", obj2.get(key));
-                diffs.put(diff);
-            } else {
-                Object value1 = obj1.get(key);
-                Object value2 = obj2.get(key);
-                if (!value1.equals(value2)) {
-                    diff.put("op", "replace");
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(Math.max(obj1.length(), obj2.length()), 0)
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            Set<String> keys1 = obj1.keySet();
+            Set<String> keys2 = obj2.keySet();
+
+            Set<String> allKeys = new HashSet<String>(keys1);
+            allKeys.addAll(keys2);
+
+            for (String key : allKeys) {
+                JSONObject diff = new JSONObject();
+                if (!obj2.has(key) && obj1.has(key)) {
+                    diff.put("op", "remove");
+                    diff.put("path", "/" + key);
+                    diffs.put(diff);
+                } else if (obj2.has(key) && !obj1.has(key)) {
+                    diff.put("op", "add");
                     diff.put("path", "/" + key);
                     diff.put("value", obj2.get(key));
                     diffs.put(diff);
+                } else {
+                    Object value1 = obj1.get(key);
+                    Object value2 = obj2.get(key);
+                    if (!value1.equals(value2)) {
+                        diff.put("op", "replace");
+                        diff.put("path", "/" + key);
+                        diff.put("value", obj2.get(key));
+                        diffs.put(diff);
+                    }
                 }
             }
-        }
 
-        return diffs;
+            return diffs;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.GENERATE_JSON_PATCH, token, diffs);
+            }
+        }
     }
 
     public static JSONArray generateJsonDiff(String parent, JSONObject obj1, JSONObject obj2) throws JSONException {
         JSONArray diffs = new JSONArray();
-
-        Set<String> keys1 = obj1.keySet();
-        Set<String> keys2 = obj2.keySet();
-
-        Set<String> allKeys = new HashSet<String>(keys1);
-        allKeys.addAll(keys2);
-
-        for (String key : allKeys) {
-            String thisPath = parent.isEmpty() ? key : parent + "/" + key;
-
-            JSONObject diff = new JSONObject();
-            if (obj2.has(key) && !obj1.has(key)) {
-                diff.put("op", "add");
-                diff.put("path", thisPath);
-                diff.put("value", obj2.get(key));
-                diffs.put(diff);
-            } else if (!obj2.has(key) && obj1.has(key)) {
-                diff.put("op", "remove");
-                diff.put("path", thisPath);
-                diffs.put(diff);
-            } else {
-                Object value1 = obj1.get(key);
-                Object value2 = obj2.get(key);
-
-                if ((value1 instanceof JSONObject) && (value2 instanceof JSONObject)) {
-                    JSONArray nestedDiffs = generateJsonDiff(thisPath, (JSONObject)value1, (JSONObject)value2);
-                    for (int i = 0; i < nestedDiffs.length(); i++) {
-                        diffs.put(nestedDiffs.get(i));
-                    }
-                } else if ((value1 instanceof JSONArray) && (value2 instanceof JSONArray)) {
-                    JSONArray arrayDiffs = generateJsonArrayDiff(thisPath, (JSONArray)value1, (JSONArray)value2);
-                    for (int i = 0; i < arrayDiffs.length(); i++) {
-                        diffs.put(arrayDiffs.get(i));
-                    }
-                } else if (!value1.equals(value2)) {
-                    diff.put("op", "replace");
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(Math.max(obj1.length(), obj2.length()), 0)
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            Set<String> keys1 = obj1.keySet();
+            Set<String> keys2 = obj2.keySet();
+
+            Set<String> allKeys = new HashSet<String>(keys1);
+            allKeys.addAll(keys2);
+
+            for (String key : allKeys) {
+                String thisPath = parent.isEmpty() ? key : parent + "/" + key;
+
+                JSONObject diff = new JSONObject();
+                if (obj2.has(key) && !obj1.has(key)) {
+                    diff.put("op", "add");
+                    diff.put("path", thisPath);
+                    diff.put("value", obj2.get(key));
+                    diffs.put(diff);
+                } else if (!obj2.has(key) && obj1.has(key)) {
+                    diff.put("op", "remove");
                     diff.put("path", thisPath);
-                    diff.put("value", value2);
                     diffs.put(diff);
+                } else {
+                    Object value1 = obj1.get(key);
+                    Object value2 = obj2.get(key);
+
+                    if ((value1 instanceof JSONObject) && (value2 instanceof JSONObject)) {
+                        JSONArray nestedDiffs = generateJsonDiff(thisPath, (JSONObject)value1, (JSONObject)value2);
+                        for (int i = 0; i < nestedDiffs.length(); i++) {
+                            diffs.put(nestedDiffs.get(i));
+                        }
+                    } else if ((value1 instanceof JSONArray) && (value2 instanceof JSONArray)) {
+                        JSONArray arrayDiffs = generateJsonArrayDiff(thisPath, (JSONArray)value1, (JSONArray)value2);
+                        for (int i = 0; i < arrayDiffs.length(); i++) {
+                            diffs.put(arrayDiffs.get(i));
+                        }
+                    } else if (!value1.equals(value2)) {
+                        diff.put("op", "replace");
+                        diff.put("path", thisPath);
+                        diff.put("value", value2);
+                        diffs.put(diff);
+                    }
                 }
             }
-        }
 
-        return diffs;
+            return diffs;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.GENERATE_JSON_DIFF_OPERATIONS, token, diffs);
+            }
+        }
     }
 
     public static JSONArray generateJsonArrayDiff(String parentPath, JSONArray array1, JSONArray array2) throws JSONException {
         JSONArray diffs = new JSONArray();
+        long token = JsonComparatorMetrics.enabled
+                ? JsonComparatorMetrics.enter(Math.max(array1.length(), array2.length()), 0)
+                : JsonComparatorMetrics.NOT_TRACKED;
+        try {
+            int maxLength = Math.max(array1.length(), array2.length());
+            int start = 0;
+
+            if (Math.min(array1.length(), array2.length()) >= NumericArrays.MIN_LENGTH) {
+                NumericArrays.Result numeric = NumericArrays.compare(array1, array2, Integer.MAX_VALUE);
+                if (numeric != null) {
+                    // All numbers: only the mismatching ranges need replace operations
+                    start = Math.min(array1.length(), array2.length());
+                    for (NumericArrays.Range range : numeric.mismatches) {
+                        for (int i = range.from; i < Math.min(range.to, start); i++) {
+                            JSONObject diff = new JSONObject();
+                            diff.put("op", "replace");
+                            diff.put("path", parentPath + "/" + i);
+                            diff.put("value", array2.get(i));
+                            diffs.put(diff);
+                        }
+                    }
+                }
+            }
 
-        int maxLength = Math.max(array1.length(), array2.length());
-
-        for (int i = 0; i < maxLength; i++) {
-            String thisPath = parentPath + "/" + i;
-            JSONObject diff = new JSONObject();
-
-            if (i >= array1.length()) {
-                // Element only in array2 - add operation
-                diff.put("op", "add");
-                diff.put("path", thisPath);
-                diff.put("value", array2.get(i));
-                diffs.put(diff);
-            } else if (i >= array2.length()) {
-                // Element only in array1 - remove operation
-                diff.put("op", "remove");
-                diff.put("path", thisPath);
-                diffs.put(diff);
-            } else {
-                Object value1 = array1.get(i);
-                Object value2 = array2.get(i);
+            for (int i = start; i < maxLength; i++) {
+                String thisPath = parentPath + "/" + i;
+                JSONObject diff = new JSONObject();
 
-                if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
-                    JSONArray nestedDiffs = generateJsonDiff(thisPath, (JSONObject) value1, (JSONObject) value2);
-                    for (int j = 0; j < nestedDiffs.length(); j++) {
-                        diffs.put(nestedDiffs.get(j));
-                    }
-                } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
-                    JSONArray nestedArrayDiffs = generateJsonArrayDiff(thisPath, (JSONArray) value1, (JSONArray) value2);
-                    for (int j = 0; j < nestedArrayDiffs.length(); j++) {
-                        diffs.put(nestedArrayDiffs.get(j));
-                    }
-                } else if (!value1.equals(value2)) {
-                    diff.put("op", "replace");
+                if (i >= array1.length()) {
+                    // Element only in array2 - add operation
+                    diff.put("op", "add");
                     diff.put("path", thisPath);
-                    diff.put("value", value2);
+                    diff.put("value", array2.get(i));
                     diffs.put(diff);
+                } else if (i >= array2.length()) {
+                    // Element only in array1 - remove operation
+                    diff.put("op", "remove");
+                    diff.put("path", thisPath);
+                    diffs.put(diff);
+                } else {
+                    Object value1 = array1.get(i);
+                    Object value2 = array2.get(i);
+
+                    if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+                        JSONArray nestedDiffs = generateJsonDiff(thisPath, (JSONObject) value1, (JSONObject) value2);
+                        for (int j = 0; j < nestedDiffs.length(); j++) {
+                            diffs.put(nestedDiffs.get(j));
+                        }
+                    } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+                        JSONArray nestedArrayDiffs = generateJsonArrayDiff(thisPath, (JSONArray) value1, (JSONArray) value2);
+                        for (int j = 0; j < nestedArrayDiffs.length(); j++) {
+                            diffs.put(nestedArrayDiffs.get(j));
+                        }
+                    } else if (!value1.equals(value2)) {
+                        diff.put("op", "replace");
+                        diff.put("path", thisPath);
+                        diff.put("value", value2);
+                        diffs.put(diff);
+                    }
                 }
             }
-        }
 
-        return diffs;
+            return diffs;
+        } finally {
+            if (token != JsonComparatorMetrics.NOT_TRACKED) {
+                JsonComparatorMetrics.exit(JsonComparatorMetrics.EntryPoint.GENERATE_JSON_ARRAY_DIFF_OPERATIONS, token, diffs);
+            }
+        }
     }
 }
\ No newline at end of file
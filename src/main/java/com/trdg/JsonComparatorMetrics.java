@@ -0,0 +1,308 @@
+package com.trdg;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in instrumentation of the {@link JsonComparator} entry points.
+ *
+ * While disabled (the default) the comparator only reads one volatile flag per container it
+ * visits. Once enabled, every outermost call records its duration under its {@link EntryPoint}
+ * together with the nodes it visited, the differences it emitted and the depth it reached.
+ * Calls slower than {@link #setSlowThresholdNanos(long)} are also committed as a
+ * {@code com.trdg.SlowComparison} JFR event.
+ *
+ * {@link Snapshot#toMap()} uses dotted metric names, so the counters can be registered as
+ * function counters and gauges in Micrometer or any other metrics registry.
+ */
+public final class JsonComparatorMetrics {
+
+    public enum EntryPoint {
+        ARE_JSON_ENTITIES_EQUAL("areJsonEntitiesEqual"),
+        COMPARE_JSON_ARRAYS("compareJsonArrays"),
+        GENERATE_JSON_DIFF("generateJsonDiff"),
+        GENERATE_JSON_ARRAY_DIFF("generateJsonArrayDiff"),
+        GENERATE_JSON_PATCH("generateJsonPatch"),
+        GENERATE_JSON_DIFF_OPERATIONS("generateJsonDiff.operations"),
+        GENERATE_JSON_ARRAY_DIFF_OPERATIONS("generateJsonArrayDiff.operations");
+
+        public final String metricName;
+
+        EntryPoint(String metricName) {
+            this.metricName = metricName;
+        }
+    }
+
+    /** Returned by {@link #enter} when metrics were disabled at the time of the call. */
+    static final long NOT_TRACKED = Long.MIN_VALUE;
+    private static final long NESTED = Long.MIN_VALUE + 1;
+
+    static volatile boolean enabled;
+    private static volatile long slowThresholdNanos = Long.MAX_VALUE;
+
+    private static final LongAdder nodesVisited = new LongAdder();
+    private static final LongAdder differencesEmitted = new LongAdder();
+    private static final LongAdder bytesParsed = new LongAdder();
+    private static final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private static final EnumMap<EntryPoint, Timer> timers = new EnumMap<>(EntryPoint.class);
+
+    private static final ThreadLocal<Frame> frames = ThreadLocal.withInitial(Frame::new);
+
+    static {
+        for (EntryPoint entryPoint : EntryPoint.values()) {
+            timers.put(entryPoint, new Timer());
+        }
+    }
+
+    private JsonComparatorMetrics() {
+    }
+
+    public static void enable() {
+        enabled = true;
+    }
+
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Outermost calls taking at least this long are committed as JFR events. Disabled by default.
+     */
+    public static void setSlowThresholdNanos(long nanos) {
+        slowThresholdNanos = nanos;
+    }
+
+    /**
+     * Adds to the parsed-input counter. Called by the library's own parsers; callers that parse
+     * documents themselves can report them here too.
+     */
+    public static void recordBytesParsed(long bytes) {
+        if (enabled) {
+            bytesParsed.add(bytes);
+        }
+    }
+
+    /**
+     * Adds the UTF-8 length of a document parsed from a string, which is what the counter
+     * measures for byte input too.
+     */
+    public static void recordBytesParsed(CharSequence json) {
+        if (!enabled) {
+            return;
+        }
+        long bytes = 0;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < json.length() && Character.isLowSurrogate(json.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        bytesParsed.add(bytes);
+    }
+
+    public static Snapshot snapshot() {
+        Map<EntryPoint, TimerSnapshot> timerSnapshots = new EnumMap<>(EntryPoint.class);
+        for (Map.Entry<EntryPoint, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            timerSnapshots.put(entry.getKey(),
+                    new TimerSnapshot(timer.count.sum(), timer.totalNanos.sum(), timer.maxNanos.get()));
+        }
+        return new Snapshot(nodesVisited.sum(), differencesEmitted.sum(), maxDepth.get(), bytesParsed.sum(),
+                timerSnapshots);
+    }
+
+    public static void reset() {
+        nodesVisited.reset();
+        differencesEmitted.reset();
+        bytesParsed.reset();
+        maxDepth.reset();
+        for (Timer timer : timers.values()) {
+            timer.count.reset();
+            timer.totalNanos.reset();
+            timer.maxNanos.reset();
+        }
+    }
+
+    /**
+     * Called when the comparator enters a container with {@code children} child values.
+     * {@code differenceCount} is the size of the calling thread's difference list, used to count
+     * the differences an equality check adds.
+     */
+    static long enter(int children, int differenceCount) {
+        Frame frame = frames.get();
+        if (frame.depth++ == 0) {
+            frame.maxDepth = 1;
+            frame.nodes = 1 + children;
+            frame.differenceBase = differenceCount;
+            return System.nanoTime();
+        }
+        frame.maxDepth = Math.max(frame.maxDepth, frame.depth);
+        frame.nodes += children;
+        return NESTED;
+    }
+
+    /**
+     * Called when the comparator leaves a container. For the outermost call, {@code emitted} is
+     * the method's result: a difference list size (Integer), a diff object or an operation array.
+     */
+    static void exit(EntryPoint entryPoint, long token, Object emitted) {
+        Frame frame = frames.get();
+        frame.depth--;
+        if (token == NESTED) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - token;
+        long differences = countDifferences(emitted, frame.differenceBase);
+        nodesVisited.add(frame.nodes);
+        differencesEmitted.add(differences);
+        maxDepth.accumulate(frame.maxDepth);
+        timers.get(entryPoint).record(elapsed);
+
+        if (elapsed >= slowThresholdNanos) {
+            SlowComparisonEvent event = new SlowComparisonEvent();
+            if (event.shouldCommit()) {
+                event.entryPoint = entryPoint.metricName;
+                event.elapsedNanos = elapsed;
+                event.nodesVisited = frame.nodes;
+                event.differences = differences;
+                event.maxDepth = frame.maxDepth;
+                event.commit();
+            }
+        }
+    }
+
+    private static long countDifferences(Object emitted, int differenceBase) {
+        if (emitted instanceof Integer) {
+            return (Integer) emitted - differenceBase;
+        } else if (emitted instanceof JSONArray) {
+            return ((JSONArray) emitted).length();
+        } else if (emitted instanceof JSONObject) {
+            long count = 0;
+            JSONObject diff = (JSONObject) emitted;
+            for (String key : diff.keySet()) {
+                Object value = diff.get(key);
+                count += value instanceof JSONObject ? countDifferences(value, 0) : 1;
+            }
+            return count;
+        }
+        return 0;
+    }
+
+    private static final class Frame {
+        private int depth;
+        private int maxDepth;
+        private long nodes;
+        private int differenceBase;
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+    }
+
+    public static class TimerSnapshot {
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+
+        private TimerSnapshot(long count, long totalNanos, long maxNanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public double meanNanos() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+    }
+
+    public static class Snapshot {
+        public final long nodesVisited;
+        public final long differencesEmitted;
+        public final long maxDepth;
+        public final long bytesParsed;
+        public final Map<EntryPoint, TimerSnapshot> timers;
+
+        private Snapshot(long nodesVisited, long differencesEmitted, long maxDepth, long bytesParsed,
+                         Map<EntryPoint, TimerSnapshot> timers) {
+            this.nodesVisited = nodesVisited;
+            this.differencesEmitted = differencesEmitted;
+            this.maxDepth = maxDepth;
+            this.bytesParsed = bytesParsed;
+            this.timers = timers;
+        }
+
+        /**
+         * Flat view keyed by metric name, e.g. {@code jsoncompare.nodes.visited} or
+         * {@code jsoncompare.timer.generateJsonDiff.count}.
+         */
+        public Map<String, Number> toMap() {
+            Map<String, Number> map = new LinkedHashMap<>();
+            map.put("jsoncompare.nodes.visited", nodesVisited);
+            map.put("jsoncompare.differences.emitted", differencesEmitted);
+            map.put("jsoncompare.depth.max", maxDepth);
+            map.put("jsoncompare.bytes.parsed", bytesParsed);
+            for (Map.Entry<EntryPoint, TimerSnapshot> entry : timers.entrySet()) {
+                String prefix = "jsoncompare.timer." + entry.getKey().metricName;
+                map.put(prefix + ".count", entry.getValue().count);
+                map.put(prefix + ".total.nanos", entry.getValue().totalNanos);
+                map.put(prefix + ".max.nanos", entry.getValue().maxNanos);
+            }
+            return map;
+        }
+    }
+
+    @Name("com.trdg.SlowComparison")
+    @Label("Slow JSON Comparison")
+    @Description("A JsonComparator call that took longer than the configured threshold")
+    @Category("JSONCompare")
+    static class SlowComparisonEvent extends Event {
+        @Label("Entry Point")
+        String entryPoint;
+
+        // Not "duration": JFR reserves that name for the event's own timing
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsedNanos;
+
+        @Label("Nodes Visited")
+        long nodesVisited;
+
+        @Label("Differences")
+        long differences;
+
+        @Label("Max Depth")
+        int maxDepth;
+    }
+}
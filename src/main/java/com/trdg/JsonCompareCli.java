@@ -0,0 +1,458 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Command-line front end: diffs two JSON files, two NDJSON files line by line, or two directory
+ * trees with files paired by relative path.
+ *
+ * <pre>
+ * java -cp JSONCompare.jar com.trdg.JsonCompareCli [options] &lt;left&gt; &lt;right&gt;
+ *
+ *   --format text|patch|ndjson   output format (default text)
+ *   --ignore &lt;pointer&gt;          skip a path, e.g. /meta/requestId or /items/&#42;/updatedAt; repeatable
+ *   --max-diffs &lt;n&gt;             stop after n differences
+ *   --threads &lt;n&gt;               worker threads (default: available processors)
+ *   --ndjson                     treat both inputs as NDJSON even without a .ndjson or .jsonl suffix
+ *   --key &lt;pointer&gt;             pair NDJSON records by this value instead of by line number
+ *   --sorted                     NDJSON inputs are already sorted by --key, skip the external sort
+ * </pre>
+ *
+ * Pairs are compared in parallel and printed in input order as soon as they complete, with a
+ * bounded number in flight, so memory stays flat on long NDJSON streams. The exit code is
+ * {@link #EXIT_EQUAL}, {@link #EXIT_DIFFERENT} or {@link #EXIT_ERROR} (bad usage, unreadable or
+ * invalid input).
+ */
+public class JsonCompareCli {
+
+    public static final int EXIT_EQUAL = 0;
+    public static final int EXIT_DIFFERENT = 1;
+    public static final int EXIT_ERROR = 2;
+
+    public enum Format {
+        TEXT,
+        PATCH,
+        NDJSON
+    }
+
+    private final Format format;
+    private final long maxDiffs;
+    private final int threads;
+    private final boolean forceNdjson;
+    private final String keyPointer;
+    private final boolean sorted;
+    private final ComparisonPlan plan;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    private boolean multiplePairs;
+    private long pairs;
+    private long different;
+    private long errors;
+    private long diffsPrinted;
+
+    JsonCompareCli(Format format, long maxDiffs, int threads, boolean forceNdjson, String keyPointer, boolean sorted,
+                   List<String> ignored, PrintStream out, PrintStream err) throws JSONException {
+        this.format = format;
+        this.maxDiffs = maxDiffs;
+        this.threads = threads;
+        this.forceNdjson = forceNdjson;
+        this.keyPointer = keyPointer;
+        this.sorted = sorted;
+        // Patches need unambiguous paths: JSON Pointers rather than joined keys
+        ComparisonPlan.Builder builder = ComparisonPlan.builder().jsonPointerPaths(format == Format.PATCH);
+        for (String pointer : ignored) {
+            builder.ignore(pointer);
+        }
+        this.plan = builder.build();
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs the tool and returns its exit code.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Format format = Format.TEXT;
+        long maxDiffs = Long.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean ndjson = false;
+        String keyPointer = null;
+        boolean sorted = false;
+        List<String> ignored = new ArrayList<>();
+        List<String> inputs = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = Format.valueOf(value(args, ++i).toUpperCase());
+                        break;
+                    case "--ignore":
+                        ignored.add(value(args, ++i));
+                        break;
+                    case "--max-diffs":
+                        maxDiffs = Long.parseLong(value(args, ++i));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--ndjson":
+                        ndjson = true;
+                        break;
+                    case "--key":
+                        keyPointer = value(args, ++i);
+                        break;
+                    case "--sorted":
+                        sorted = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        usage(out);
+                        return EXIT_EQUAL;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            throw new IllegalArgumentException("Unknown option: " + args[i]);
+                        }
+                        inputs.add(args[i]);
+                }
+            }
+            if (inputs.size() != 2) {
+                throw new IllegalArgumentException("Expected two inputs, got " + inputs.size());
+            }
+            if (maxDiffs <= 0 || threads <= 0) {
+                throw new IllegalArgumentException("--max-diffs and --threads must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("error: " + e.getMessage());
+            usage(err);
+            return EXIT_ERROR;
+        }
+
+        try {
+            return new JsonCompareCli(format, maxDiffs, threads, ndjson, keyPointer, sorted, ignored, out, err)
+                    .compare(Paths.get(inputs.get(0)), Paths.get(inputs.get(1)));
+        } catch (IOException | RuntimeException e) {
+            // Anything that stopped the comparison is an error, never a difference
+            err.println("error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            return EXIT_ERROR;
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static void usage(PrintStream stream) {
+        stream.println("usage: JsonCompareCli [--format text|patch|ndjson] [--ignore <pointer>]... "
+                + "[--max-diffs <n>] [--threads <n>] [--ndjson [--key <pointer> [--sorted]]] <left> <right>");
+    }
+
+    int compare(Path left, Path right) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "jsoncompare-cli");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (Files.isDirectory(left) && Files.isDirectory(right)) {
+                multiplePairs = true;
+                compareDirectories(left, right, executor);
+            } else if (Files.isDirectory(left) || Files.isDirectory(right)) {
+                throw new IOException("Cannot compare a directory with a file: " + left + ", " + right);
+            } else if (isNdjson(left) || isNdjson(right)) {
+                multiplePairs = true;
+                compareNdjson(left, right, executor);
+            } else {
+                drain(submitAll(Stream.of(() -> compareFiles(left.toString(), left, right)), executor));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+        if (multiplePairs) {
+            err.printf("%d pairs compared, %d different, %d errors%n", pairs, different, errors);
+        }
+        return errors > 0 ? EXIT_ERROR : different > 0 ? EXIT_DIFFERENT : EXIT_EQUAL;
+    }
+
+    private boolean isNdjson(Path path) {
+        String name = path.getFileName().toString();
+        return forceNdjson || name.endsWith(".ndjson") || name.endsWith(".jsonl");
+    }
+
+    private void compareDirectories(Path left, Path right, ExecutorService executor) throws IOException {
+        TreeSet<String> names = new TreeSet<>();
+        collectFiles(left, names);
+        collectFiles(right, names);
+        Stream<Callable<PairResult>> tasks = names.stream().map(name -> () -> {
+            Path file1 = left.resolve(name);
+            Path file2 = right.resolve(name);
+            // A file on the right only is compared against an empty one, so its content is added
+            if (!Files.exists(file2)) {
+                return PairResult.missing(name, null);
+            } else if (isNdjson(file2)) {
+                return compareNdjsonFiles(name, Files.exists(file1) ? file1 : null, file2);
+            }
+            return compareFiles(name, Files.exists(file1) ? file1 : null, file2);
+        });
+        drain(submitAll(tasks, executor));
+    }
+
+    private void collectFiles(Path root, TreeSet<String> names) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.endsWith(".json") || name.endsWith(".ndjson") || name.endsWith(".jsonl");
+                    })
+                    .forEach(file -> names.add(root.relativize(file).toString().replace('\\', '/')));
+        }
+    }
+
+    private PairResult compareFiles(String label, Path file1, Path file2) {
+        try {
+            JSONObject obj2 = new JSONObject(Files.readString(file2));
+            if (file1 == null) {
+                return PairResult.missing(label, obj2);
+            }
+            JSONObject obj1 = new JSONObject(Files.readString(file1));
+            return new PairResult(label, plan.generateJsonDiff(obj1, obj2), null);
+        } catch (IOException | JSONException e) {
+            return new PairResult(label, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Compares two NDJSON files sequentially; used for NDJSON files found in directory trees,
+     * which are already spread over the workers one file per task. Paths are prefixed with the
+     * line number. A null {@code file1} reads as an empty file.
+     */
+    private PairResult compareNdjsonFiles(String label, Path file1, Path file2) {
+        JSONArray diffs = new JSONArray();
+        try (BufferedReader reader1 = file1 == null ? new BufferedReader(Reader.nullReader())
+                : Files.newBufferedReader(file1, StandardCharsets.UTF_8);
+             BufferedReader reader2 = Files.newBufferedReader(file2, StandardCharsets.UTF_8)) {
+            String line1 = reader1.readLine();
+            String line2 = reader2.readLine();
+            for (int line = 1; line1 != null || line2 != null; line++) {
+                PairResult result = compareLines(label + ":" + line, line1, line2);
+                if (result.error != null) {
+                    return result;
+                }
+                for (int i = 0; i < result.diffs.length(); i++) {
+                    JSONObject diff = result.diffs.getJSONObject(i);
+                    String path = diff.getString("path");
+                    diff.put("path", format == Format.PATCH ? "/" + line + path : line + (path.isEmpty() ? "" : "/" + path));
+                    diffs.put(diff);
+                }
+                line1 = reader1.readLine();
+                line2 = reader2.readLine();
+            }
+            return new PairResult(label, diffs, null);
+        } catch (IOException | JSONException e) {
+            return new PairResult(label, null, e.getMessage());
+        }
+    }
+
+    private void compareNdjson(Path left, Path right, ExecutorService executor) throws IOException {
+        if (keyPointer != null) {
+            // Keyed records go through a sort and merge-join, which is sequential
+            String name = left.getFileName().toString();
+            NdjsonDiff.Summary summary = new NdjsonDiff(NdjsonDiff.DEFAULT_BATCH_SIZE, plan, null)
+                    .diffByKey(left, right, keyPointer, sorted, diff -> {
+                        if (!limitReached()) {
+                            String label = name + ":" + diff.key;
+                            print(diff.kind == NdjsonDiff.Kind.CHANGED ? new PairResult(label, diff.diffs, null)
+                                    : PairResult.missing(label, diff.right));
+                        }
+                    });
+            // Only differing pairs reach the sink, so take the totals from the summary
+            pairs = summary.compared + summary.onlyLeft + summary.onlyRight;
+            different = summary.changed + summary.onlyLeft + summary.onlyRight;
+            return;
+        }
+        try (BufferedReader reader1 = Files.newBufferedReader(left, StandardCharsets.UTF_8);
+             BufferedReader reader2 = Files.newBufferedReader(right, StandardCharsets.UTF_8)) {
+            String name = left.getFileName().toString();
+            Stream<Callable<PairResult>> tasks = Stream.iterate(1, line -> line + 1)
+                    .map(line -> {
+                        try {
+                            String line1 = reader1.readLine();
+                            String line2 = reader2.readLine();
+                            if (line1 == null && line2 == null) {
+                                return null;
+                            }
+                            return (Callable<PairResult>) () -> compareLines(name + ":" + line, line1, line2);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .takeWhile(task -> task != null);
+            drain(submitAll(tasks, executor));
+        }
+    }
+
+    private PairResult compareLines(String label, String line1, String line2) {
+        if (line2 == null) {
+            return PairResult.missing(label, null);
+        }
+        try {
+            JSONObject obj2 = new JSONObject(line2);
+            if (line1 == null) {
+                return PairResult.missing(label, obj2);
+            }
+            JSONObject obj1 = new JSONObject(line1);
+            return new PairResult(label, plan.generateJsonDiff(obj1, obj2), null);
+        } catch (JSONException e) {
+            return new PairResult(label, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Submits the tasks with at most a few per thread in flight and hands back the futures in
+     * submission order, printing completed results as the window slides.
+     */
+    private ArrayDeque<Future<PairResult>> submitAll(Stream<Callable<PairResult>> tasks, ExecutorService executor) {
+        int window = threads * 4;
+        ArrayDeque<Future<PairResult>> inFlight = new ArrayDeque<>();
+        Iterator<Callable<PairResult>> iterator = tasks.iterator();
+        while (iterator.hasNext() && !limitReached()) {
+            inFlight.addLast(executor.submit(iterator.next()));
+            if (inFlight.size() >= window) {
+                print(await(inFlight.pollFirst()));
+            }
+        }
+        return inFlight;
+    }
+
+    private void drain(ArrayDeque<Future<PairResult>> inFlight) {
+        while (!inFlight.isEmpty() && !limitReached()) {
+            print(await(inFlight.pollFirst()));
+        }
+    }
+
+    private boolean limitReached() {
+        return diffsPrinted >= maxDiffs;
+    }
+
+    private static PairResult await(Future<PairResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while comparing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw (UncheckedIOException) cause;
+            }
+            return new PairResult("?", null, String.valueOf(cause));
+        }
+    }
+
+    private void print(PairResult result) {
+        pairs++;
+        if (result.error != null) {
+            errors++;
+            err.println(result.label + ": error: " + result.error);
+            return;
+        }
+        if (result.diffs.isEmpty()) {
+            return;
+        }
+        different++;
+
+        JSONArray diffs = result.diffs;
+        long room = maxDiffs - diffsPrinted;
+        if (diffs.length() > room) {
+            JSONArray truncated = new JSONArray();
+            for (int i = 0; i < room; i++) {
+                truncated.put(diffs.get(i));
+            }
+            diffs = truncated;
+        }
+        diffsPrinted += diffs.length();
+
+        switch (format) {
+            case PATCH:
+                // The plan already reports JSON Pointer paths in this format
+                if (multiplePairs) {
+                    out.println(new JSONObject().put("source", result.label).put("patch", diffs));
+                } else {
+                    out.println(diffs.toString(2));
+                }
+                break;
+            case NDJSON:
+                for (int i = 0; i < diffs.length(); i++) {
+                    // Labelled in place: a copy through toMap() would drop null values
+                    out.println(diffs.getJSONObject(i).put("source", result.label));
+                }
+                break;
+            default:
+                for (int i = 0; i < diffs.length(); i++) {
+                    JSONObject diff = diffs.getJSONObject(i);
+                    StringBuilder line = new StringBuilder(result.label).append(": ")
+                            .append(diff.getString("op")).append(' ').append(diff.getString("path"));
+                    if (diff.has("value")) {
+                        line.append(' ').append(JSONObject.valueToString(diff.get("value")));
+                    }
+                    out.println(line);
+                }
+        }
+    }
+
+    private static final class PairResult {
+        private final String label;
+        private final JSONArray diffs;
+        private final String error;
+
+        private PairResult(String label, JSONArray diffs, String error) {
+            this.label = label;
+            this.diffs = diffs;
+            this.error = error;
+        }
+
+        /**
+         * A document present on one side only, reported as the removal of the root if {@code right}
+         * is null and otherwise as the addition of {@code right}.
+         */
+        private static PairResult missing(String label, JSONObject right) {
+            JSONObject diff = new JSONObject().put("op", right == null ? "remove" : "add").put("path", "");
+            if (right != null) {
+                diff.put("value", right);
+            }
+            return new PairResult(label, new JSONArray().put(diff), null);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous comparison service for request paths with many concurrent comparisons.
+ *
+ * Every job runs on its own virtual thread, so in-flight comparisons don't tie up platform
+ * threads. The number of accepted but unfinished jobs is bounded: {@code submit} blocks the caller
+ * while the service is full, {@code trySubmit} fails fast with a {@link RejectedExecutionException}.
+ */
+public class JsonCompareService implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore capacity;
+    private final int maxPending;
+    private volatile boolean closed;
+
+    public JsonCompareService(int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        }
+        this.maxPending = maxPending;
+        this.capacity = new Semaphore(maxPending);
+    }
+
+    /**
+     * Compares two documents, waiting for capacity if the service is full.
+     */
+    public CompletableFuture<ComparisonResult> submit(JSONObject expected, JSONObject actual)
+            throws InterruptedException {
+        capacity.acquire();
+        return schedule(() -> JsonComparator.compare(expected, actual));
+    }
+
+    /**
+     * Parses and compares two JSON strings on the worker thread, waiting for capacity if the
+     * service is full.
+     */
+    public CompletableFuture<ComparisonResult> submit(String expectedJson, String actualJson)
+            throws InterruptedException {
+        capacity.acquire();
+        return schedule(() -> {
+            JsonComparatorMetrics.recordBytesParsed(expectedJson);
+            JsonComparatorMetrics.recordBytesParsed(actualJson);
+            return JsonComparator.compare(new JSONObject(expectedJson), new JSONObject(actualJson));
+        });
+    }
+
+    /**
+     * Compares two documents, waiting at most {@code timeout} for capacity. The returned future
+     * fails with {@link RejectedExecutionException} if no capacity became available.
+     */
+    public CompletableFuture<ComparisonResult> submit(JSONObject expected, JSONObject actual, long timeout,
+                                                      TimeUnit unit) throws InterruptedException {
+        if (!capacity.tryAcquire(timeout, unit)) {
+            return rejected();
+        }
+        return schedule(() -> JsonComparator.compare(expected, actual));
+    }
+
+    /**
+     * Compares two documents if there is capacity, otherwise returns a future that has already
+     * failed with {@link RejectedExecutionException}.
+     */
+    public CompletableFuture<ComparisonResult> trySubmit(JSONObject expected, JSONObject actual) {
+        if (!capacity.tryAcquire()) {
+            return rejected();
+        }
+        return schedule(() -> JsonComparator.compare(expected, actual));
+    }
+
+    /**
+     * Computes the patch-style diff of {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)},
+     * waiting for capacity if the service is full.
+     */
+    public CompletableFuture<JSONArray> submitDiff(JSONObject expected, JSONObject actual)
+            throws InterruptedException {
+        capacity.acquire();
+        return schedule(() -> JsonComparator.generateJsonDiff("", expected, actual));
+    }
+
+    /**
+     * Number of jobs accepted and not yet finished.
+     */
+    public int pending() {
+        return maxPending - capacity.availablePermits();
+    }
+
+    /**
+     * Stops accepting jobs and waits for the accepted ones to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.close();
+    }
+
+    private <T> CompletableFuture<T> schedule(Callable<T> job) {
+        if (closed) {
+            capacity.release();
+            return rejected();
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                // Capacity is returned before completing so callers that join see it released
+                T result;
+                try {
+                    result = job.call();
+                } catch (Throwable t) {
+                    capacity.release();
+                    future.completeExceptionally(t);
+                    return;
+                }
+                capacity.release();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            capacity.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static <T> CompletableFuture<T> rejected() {
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Comparison service is full or closed"));
+    }
+}
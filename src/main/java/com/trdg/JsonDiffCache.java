@@ -0,0 +1,339 @@
+package com.trdg;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of {@link JsonComparator#generateJsonDiff(JSONObject, JSONObject)} results keyed by
+ * the {@link JsonFingerprint} of both documents.
+ *
+ * Entries are bounded by count and by total weight and evicted in least-recently-used order.
+ * With {@link EvictionPolicy#TINY_LFU} a new entry is only admitted when it has been requested
+ * more often than the entries it would evict, which keeps one-off pairs from flushing hot ones.
+ * All methods are safe to call from multiple threads. Cached diffs are shared between callers
+ * and must be treated as read-only.
+ *
+ * The fingerprint of each document instance is computed once and remembered for as long as the
+ * instance is reachable, so documents must not be modified after they have been passed in.
+ */
+public class JsonDiffCache {
+
+    public enum EvictionPolicy {
+        LRU,
+        TINY_LFU
+    }
+
+    private final int maximumSize;
+    private final long maximumWeight;
+    private final ToLongFunction<JSONObject> weigher;
+    private final FrequencySketch sketch;
+    private final StringDiff strings;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // JSONObject keeps Object's identity equals, so this is keyed by instance
+    private final Map<JSONObject, Long> fingerprints = new WeakHashMap<>();
+    private long totalWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * Creates an LRU cache holding at most {@code maximumSize} diffs.
+     */
+    public JsonDiffCache(int maximumSize) {
+        this(maximumSize, Long.MAX_VALUE, JsonDiffCache::defaultWeight, EvictionPolicy.LRU);
+    }
+
+    /**
+     * Creates a cache bounded by both entry count and total weight as computed by {@code weigher}.
+     */
+    public JsonDiffCache(int maximumSize, long maximumWeight, ToLongFunction<JSONObject> weigher,
+                         EvictionPolicy policy) {
+        this(maximumSize, maximumWeight, weigher, policy, null);
+    }
+
+    /**
+     * Same as above, computing diffs with
+     * {@link JsonComparator#generateJsonDiff(JSONObject, JSONObject, StringDiff)}. Every entry of
+     * the cache is computed with the same {@code strings}, so it need not be part of the key.
+     */
+    public JsonDiffCache(int maximumSize, long maximumWeight, ToLongFunction<JSONObject> weigher,
+                         EvictionPolicy policy, StringDiff strings) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive: " + maximumWeight);
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.sketch = policy == EvictionPolicy.TINY_LFU ? new FrequencySketch(maximumSize) : null;
+        this.strings = strings;
+    }
+
+    /**
+     * Returns the diff of the two objects, computing and caching it on a miss. Only the first call
+     * with a given instance walks it; later calls with the same instances are constant-time hits.
+     */
+    public JSONObject generateJsonDiff(JSONObject obj1, JSONObject obj2) throws JSONException {
+        return generateJsonDiff(fingerprint(obj1), fingerprint(obj2), obj1, obj2);
+    }
+
+    /**
+     * Same as {@link #generateJsonDiff(JSONObject, JSONObject)} for callers that already know the
+     * fingerprints, which makes every hit a constant-time lookup.
+     */
+    public JSONObject generateJsonDiff(long fingerprint1, long fingerprint2, JSONObject obj1, JSONObject obj2)
+            throws JSONException {
+        Key key = new Key(fingerprint1, fingerprint2);
+        JSONObject cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Computed outside the lock; concurrent misses on the same key may both compute
+        JSONObject diff = JsonComparator.generateJsonDiff(obj1, obj2, strings);
+        store(key, diff);
+        return diff;
+    }
+
+    /**
+     * Returns the cached diff for the fingerprint pair, or null without computing anything.
+     */
+    public JSONObject getIfPresent(long fingerprint1, long fingerprint2) {
+        return lookup(new Key(fingerprint1, fingerprint2));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        fingerprints.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, rejections);
+    }
+
+    /**
+     * Default weigher: number of leaf entries in the diff, plus one for the entry itself.
+     */
+    public static long defaultWeight(JSONObject diff) {
+        long weight = 1;
+        for (String key : diff.keySet()) {
+            Object value = diff.get(key);
+            weight += value instanceof JSONObject ? defaultWeight((JSONObject) value) : 1;
+        }
+        return weight;
+    }
+
+    /**
+     * The remembered fingerprint of this instance, computed outside the lock on first use.
+     */
+    private long fingerprint(JSONObject obj) {
+        Long known;
+        synchronized (this) {
+            known = fingerprints.get(obj);
+        }
+        if (known != null) {
+            return known;
+        }
+        long fingerprint = JsonFingerprint.ofObject(obj);
+        synchronized (this) {
+            fingerprints.put(obj, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private synchronized JSONObject lookup(Key key) {
+        if (sketch != null) {
+            sketch.increment(key.hashCode());
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.diff;
+    }
+
+    private synchronized void store(Key key, JSONObject diff) {
+        long entryWeight = weigher.applyAsLong(diff);
+        if (entryWeight > maximumWeight || entries.containsKey(key)) {
+            return;
+        }
+
+        if (sketch != null && !admit(key, entryWeight)) {
+            rejections++;
+            return;
+        }
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext() && (entries.size() >= maximumSize || totalWeight + entryWeight > maximumWeight)) {
+            Map.Entry<Key, Entry> victim = eldest.next();
+            totalWeight -= victim.getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+
+        entries.put(key, new Entry(diff, entryWeight));
+        totalWeight += entryWeight;
+    }
+
+    /**
+     * TinyLFU admission: the candidate must be more popular than every entry it would displace.
+     */
+    private boolean admit(Key candidate, long candidateWeight) {
+        int candidateFrequency = sketch.frequency(candidate.hashCode());
+        int size = entries.size();
+        long weight = totalWeight;
+        for (Map.Entry<Key, Entry> victim : entries.entrySet()) {
+            if (size < maximumSize && weight + candidateWeight <= maximumWeight) {
+                break;
+            }
+            if (sketch.frequency(victim.getKey().hashCode()) >= candidateFrequency) {
+                return false;
+            }
+            size--;
+            weight -= victim.getValue().weight;
+        }
+        return true;
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     */
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long rejections;
+
+        private Stats(long hits, long misses, long evictions, long rejections) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+        }
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d, rejections=%d, hitRate=%.3f",
+                    hits, misses, evictions, rejections, hitRate());
+        }
+    }
+
+    private static final class Key {
+        private final long fingerprint1;
+        private final long fingerprint2;
+
+        private Key(long fingerprint1, long fingerprint2) {
+            this.fingerprint1 = fingerprint1;
+            this.fingerprint2 = fingerprint2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return fingerprint1 == other.fingerprint1 && fingerprint2 == other.fingerprint2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) JsonFingerprint.mix(fingerprint1 * 31 + fingerprint2);
+        }
+    }
+
+    private static final class Entry {
+        private final JSONObject diff;
+        private final long weight;
+
+        private Entry(JSONObject diff, long weight) {
+            this.diff = diff;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Count-min sketch with four rows of saturating counters. Counters are halved once the
+     * sample size is reached so that old popularity decays.
+     */
+    private static final class FrequencySketch {
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[4][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(maximumSize, 1 << 24)) * 2 - 1);
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = width * 10;
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int index = indexOf(hash, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = JsonFingerprint.mix(hash + (row + 1) * 0x9E3779B97F4A7C15L);
+            return (int) h & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
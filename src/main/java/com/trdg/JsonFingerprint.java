@@ -0,0 +1,143 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Computes 64-bit structural fingerprints of org.json values.
+ *
+ * Two values that {@link JsonComparator} considers equal always get the same fingerprint:
+ * object keys are combined order-independently, array elements in order, and leaves are
+ * hashed consistently with their {@code equals} (so {@code 1} and {@code 1L} differ, as they do
+ * in the comparator). Different values collide with a probability of roughly 2^-64.
+ */
+public final class JsonFingerprint {
+
+    private static final long OBJECT_SEED = 0x9E3779B97F4A7C15L;
+    private static final long ARRAY_SEED = 0xC2B2AE3D27D4EB4FL;
+    private static final long NULL_HASH = 0x165667B19E3779F9L;
+    private static final long TYPE_MULTIPLIER = 0x9FB21C651E98DF25L;
+
+    private JsonFingerprint() {
+    }
+
+    /**
+     * Fingerprint of any value that can appear in an org.json tree.
+     */
+    public static long of(Object value) {
+        if (value instanceof JSONObject) {
+            return ofObject((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            return ofArray((JSONArray) value);
+        } else if (value == null || JSONObject.NULL.equals(value)) {
+            return NULL_HASH;
+        }
+        return ofLeaf(value);
+    }
+
+    public static long ofObject(JSONObject obj) {
+        // Sum of mixed entry hashes is independent of the HashMap iteration order
+        long sum = 0;
+        for (String key : obj.keySet()) {
+            sum += mix(ofString(key) * 31 + of(obj.get(key)));
+        }
+        return mix(OBJECT_SEED ^ sum ^ obj.length());
+    }
+
+    public static long ofArray(JSONArray array) {
+        long h = ARRAY_SEED ^ array.length();
+        for (int i = 0; i < array.length(); i++) {
+            h = mix(h * 31 + of(array.get(i)));
+        }
+        return h;
+    }
+
+    /**
+     * Fingerprint of a string leaf. Keys and values share this function.
+     */
+    public static long ofString(CharSequence s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h ^ s.length());
+    }
+
+    private static long ofLeaf(Object value) {
+        long typeTag = value.getClass().getName().hashCode();
+        long h;
+        if (value instanceof String) {
+            h = ofString((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            h = ((Number) value).longValue();
+        } else if (value instanceof Double) {
+            h = Double.doubleToLongBits((Double) value);
+        } else if (value instanceof Float) {
+            h = Float.floatToIntBits((Float) value);
+        } else if (value instanceof BigDecimal) {
+            // BigDecimal.equals is scale-sensitive, so the scale is part of the hash
+            BigDecimal bd = (BigDecimal) value;
+            h = ofString(bd.unscaledValue().toString()) * 31 + bd.scale();
+        } else if (value instanceof BigInteger) {
+            h = ofString(value.toString());
+        } else if (value instanceof Boolean) {
+            h = ((Boolean) value) ? 1231 : 1237;
+        } else {
+            h = value.hashCode();
+        }
+        // Mixed separately: XORing the tag into the value would let e.g. an Integer and a Long collide
+        return mix(mix(h) + typeTag * TYPE_MULTIPLIER);
+    }
+
+    /**
+     * True if two values are equal in the sense the fingerprint hashes: the same keys, elements in
+     * the same order and leaves equal by {@code equals}. Confirms a fingerprint match, which on
+     * its own only makes equality very likely.
+     */
+    static boolean sameValue(Object value1, Object value2) {
+        if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+            JSONObject obj1 = (JSONObject) value1;
+            JSONObject obj2 = (JSONObject) value2;
+            if (obj1.length() != obj2.length()) {
+                return false;
+            }
+            for (String key : obj1.keySet()) {
+                if (!obj2.has(key) || !sameValue(obj1.get(key), obj2.get(key))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+            JSONArray array1 = (JSONArray) value1;
+            JSONArray array2 = (JSONArray) value2;
+            if (array1.length() != array2.length()) {
+                return false;
+            }
+            for (int i = 0; i < array1.length(); i++) {
+                if (!sameValue(array1.get(i), array2.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (value1 == null || JSONObject.NULL.equals(value1)) {
+            return value2 == null || JSONObject.NULL.equals(value2);
+        }
+        return value1.equals(value2);
+    }
+
+    /**
+     * Murmur3 64-bit finalizer.
+     */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
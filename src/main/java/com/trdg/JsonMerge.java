@@ -0,0 +1,154 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Three-way merge of JSON documents that were edited concurrently from a common base.
+ *
+ * The three trees are walked together in one pass. A value that one side left as it was in the
+ * base takes the other side's version, and a value both sides changed the same way is kept.
+ * When both sides changed a value differently, objects are merged member by member and arrays of
+ * equal length element by element; anything else is a conflict. Subtrees are compared by
+ * structural fingerprint first, so changed parts are told apart without a full walk, and
+ * unchanged parts are never descended into by the merge itself.
+ *
+ * A conflicted path keeps its base value in the merged document (or stays absent if the base
+ * had none), so the result only contains changes that merged cleanly. Paths use the same format
+ * as {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}. Untouched subtrees
+ * of the merged document are shared with the inputs rather than copied.
+ */
+public final class JsonMerge {
+
+    private JsonMerge() {
+    }
+
+    public static Result merge(JSONObject base, JSONObject left, JSONObject right) throws JSONException {
+        Merger merger = new Merger(new SubtreeIndex(base), new SubtreeIndex(left), new SubtreeIndex(right));
+        JSONObject merged = (JSONObject) merger.merge("", base, left, right);
+        return new Result(merged, merger.conflicts);
+    }
+
+    public static final class Result {
+        public final JSONObject merged;
+        public final List<Conflict> conflicts;
+
+        Result(JSONObject merged, List<Conflict> conflicts) {
+            this.merged = merged;
+            this.conflicts = Collections.unmodifiableList(conflicts);
+        }
+
+        public boolean isClean() {
+            return conflicts.isEmpty();
+        }
+    }
+
+    /**
+     * A path both sides changed incompatibly. A null value means the member is absent on that side.
+     */
+    public static final class Conflict {
+        public final String path;
+        public final Object base;
+        public final Object left;
+        public final Object right;
+
+        Conflict(String path, Object base, Object left, Object right) {
+            this.path = path;
+            this.base = base;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public String toString() {
+            return path + ": base=" + base + ", left=" + left + ", right=" + right;
+        }
+    }
+
+    private static final class Merger {
+        private final SubtreeIndex baseTree;
+        private final SubtreeIndex leftTree;
+        private final SubtreeIndex rightTree;
+        private final List<Conflict> conflicts = new ArrayList<>();
+
+        private Merger(SubtreeIndex baseTree, SubtreeIndex leftTree, SubtreeIndex rightTree) {
+            this.baseTree = baseTree;
+            this.leftTree = leftTree;
+            this.rightTree = rightTree;
+        }
+
+        /**
+         * Returns the merged value at {@code path}, or null if it is absent from the merge.
+         */
+        private Object merge(String path, Object base, Object left, Object right) throws JSONException {
+            if (same(leftTree, left, rightTree, right)) {
+                return left;
+            }
+            if (same(baseTree, base, leftTree, left)) {
+                return right;
+            }
+            if (same(baseTree, base, rightTree, right)) {
+                return left;
+            }
+            if (left instanceof JSONObject && right instanceof JSONObject
+                    && (base == null || base instanceof JSONObject)) {
+                return mergeObjects(path, (JSONObject) base, (JSONObject) left, (JSONObject) right);
+            }
+            if (left instanceof JSONArray && right instanceof JSONArray && base instanceof JSONArray
+                    && ((JSONArray) left).length() == ((JSONArray) base).length()
+                    && ((JSONArray) right).length() == ((JSONArray) base).length()) {
+                return mergeArrays(path, (JSONArray) base, (JSONArray) left, (JSONArray) right);
+            }
+            conflicts.add(new Conflict(path, base, left, right));
+            return base;
+        }
+
+        private JSONObject mergeObjects(String path, JSONObject base, JSONObject left, JSONObject right)
+                throws JSONException {
+            Set<String> keys = new LinkedHashSet<>(left.keySet());
+            keys.addAll(right.keySet());
+            if (base != null) {
+                keys.addAll(base.keySet());
+            }
+            JSONObject merged = new JSONObject();
+            for (String key : keys) {
+                String childPath = path.isEmpty() ? key : path + "/" + key;
+                Object value = merge(childPath, base == null ? null : base.opt(key), left.opt(key), right.opt(key));
+                if (value != null) {
+                    merged.put(key, value);
+                }
+            }
+            return merged;
+        }
+
+        private JSONArray mergeArrays(String path, JSONArray base, JSONArray left, JSONArray right)
+                throws JSONException {
+            JSONArray merged = new JSONArray();
+            for (int i = 0; i < base.length(); i++) {
+                Object value = merge(path + "/" + i, base.get(i), left.get(i), right.get(i));
+                // Elements are never absent here, so a conflict leaves the base element in place
+                merged.put(value);
+            }
+            return merged;
+        }
+
+        private static boolean same(SubtreeIndex tree1, Object value1, SubtreeIndex tree2, Object value2) {
+            if (value1 == null || value2 == null) {
+                return value1 == value2;
+            }
+            if (value1 == value2) {
+                return true;
+            }
+            // Differing fingerprints settle it quickly; a match is confirmed since fingerprints can collide
+            return value1.getClass() == value2.getClass() && tree1.fingerprint(value1) == tree2.fingerprint(value2)
+                    && JsonFingerprint.sameValue(value1, value2);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Comparison restricted to selected parts of two documents.
+ *
+ * Selectors are JSON Pointers, with {@code *} standing for every member or element, or simple
+ * JSONPath expressions: {@code $.a.b}, {@code $['a']}, {@code $.items[0]}, {@code $.items[*].id}
+ * and {@code $.*}. Recursive descent ({@code ..}) and filters are not supported.
+ *
+ * Documents are read through {@link LazyJsonView}: selectors are resolved by stepping over
+ * unselected members with the bracket index, without decoding them, and only the selected
+ * values are compared with {@link LazyJsonComparator}. A selected path that exists on one side
+ * only is reported as a whole add or remove. Paths in the result use the same format as
+ * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}. Instances are
+ * immutable and safe for concurrent use.
+ */
+public final class JsonProjection {
+
+    private static final String WILDCARD = "*";
+
+    private final List<List<String>> selectors;
+
+    private JsonProjection(List<List<String>> selectors) {
+        this.selectors = selectors;
+    }
+
+    public static JsonProjection of(String... selectors) throws JSONException {
+        return of(Arrays.asList(selectors));
+    }
+
+    public static JsonProjection of(List<String> selectors) throws JSONException {
+        List<List<String>> parsed = new ArrayList<>();
+        for (String selector : selectors) {
+            parsed.add(Collections.unmodifiableList(parseSelector(selector)));
+        }
+        return new JsonProjection(Collections.unmodifiableList(parsed));
+    }
+
+    public boolean areEqual(String json1, String json2) throws JSONException {
+        return areEqual(json1.getBytes(StandardCharsets.UTF_8), json2.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean areEqual(byte[] json1, byte[] json2) throws JSONException {
+        return compare(LazyJsonView.of(json1), LazyJsonView.of(json2), null);
+    }
+
+    public JSONArray generateJsonDiff(String json1, String json2) throws JSONException {
+        return generateJsonDiff(json1.getBytes(StandardCharsets.UTF_8), json2.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public JSONArray generateJsonDiff(byte[] json1, byte[] json2) throws JSONException {
+        JSONArray diffs = new JSONArray();
+        compare(LazyJsonView.of(json1), LazyJsonView.of(json2), diffs);
+        return diffs;
+    }
+
+    /**
+     * The selected values of one document by concrete path, in selector order.
+     */
+    public Map<String, Object> select(byte[] json) throws JSONException {
+        LazyJsonView view = LazyJsonView.of(json);
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Selection selection : resolve(view, view)) {
+            if (selection.node1 >= 0) {
+                values.put(selection.path, view.materialize(selection.node1));
+            }
+        }
+        return values;
+    }
+
+    private boolean compare(LazyJsonView view1, LazyJsonView view2, JSONArray diffs) throws JSONException {
+        boolean equal = true;
+        for (Selection selection : resolve(view1, view2)) {
+            if (selection.node1 >= 0 && selection.node2 >= 0) {
+                equal &= LazyJsonComparator.compare(view1, selection.node1, view2, selection.node2, selection.path, diffs);
+            } else {
+                equal = false;
+                if (diffs != null) {
+                    JSONObject diff = new JSONObject();
+                    diff.put("op", selection.node2 >= 0 ? "add" : "remove");
+                    diff.put("path", selection.path);
+                    if (selection.node2 >= 0) {
+                        diff.put("value", view2.materialize(selection.node2));
+                    }
+                    diffs.put(diff);
+                }
+            }
+            if (!equal && diffs == null) {
+                return false;
+            }
+        }
+        return equal;
+    }
+
+    /**
+     * Expands every selector over both documents at once. A path selected more than once, or
+     * inside another selected path, is only kept once, at the outermost level.
+     */
+    private List<Selection> resolve(LazyJsonView view1, LazyJsonView view2) throws JSONException {
+        List<Selection> found = new ArrayList<>();
+        for (List<String> selector : selectors) {
+            expand(view1, view2, selector, 0, view1.root(), view2.root(), "", found);
+        }
+        Set<String> paths = new LinkedHashSet<>();
+        for (Selection selection : found) {
+            paths.add(selection.path);
+        }
+        List<Selection> selections = new ArrayList<>();
+        Set<String> kept = new LinkedHashSet<>();
+        for (Selection selection : found) {
+            if (kept.add(selection.path) && !hasSelectedAncestor(selection.path, paths)) {
+                selections.add(selection);
+            }
+        }
+        return selections;
+    }
+
+    private static void expand(LazyJsonView view1, LazyJsonView view2, List<String> selector, int depth,
+                               int node1, int node2, String path, List<Selection> found)
+            throws JSONException {
+        if (node1 < 0 && node2 < 0) {
+            return;
+        }
+        if (depth == selector.size()) {
+            found.add(new Selection(path, node1, node2));
+            return;
+        }
+        String token = selector.get(depth);
+        if (!token.equals(WILDCARD)) {
+            int child1 = node1 < 0 ? -1 : view1.child(node1, token);
+            int child2 = node2 < 0 ? -1 : view2.child(node2, token);
+            boolean array = (node1 >= 0 ? view1.kind(node1) : view2.kind(node2)) == '[';
+            expand(view1, view2, selector, depth + 1, child1, child2, childPath(path, token, array), found);
+            return;
+        }
+
+        byte kind1 = node1 < 0 ? 0 : view1.kind(node1);
+        byte kind2 = node2 < 0 ? 0 : view2.kind(node2);
+        boolean containers = kind1 == '{' || kind1 == '[' || kind2 == '{' || kind2 == '[';
+        if (node1 >= 0 && node2 >= 0 && kind1 != kind2 && containers) {
+            // The wildcard has nothing to line up: compare the two values as a whole
+            found.add(new Selection(path, node1, node2));
+            return;
+        }
+        byte kind = node1 >= 0 ? kind1 : kind2;
+        if (kind == '{') {
+            Map<String, int[]> members = new LinkedHashMap<>();
+            for (int key = node1 < 0 ? -1 : view1.firstChild(node1); key >= 0; key = view1.nextMember(key)) {
+                members.put(view1.key(key), new int[]{view1.valueOf(key), -1});
+            }
+            for (int key = node2 < 0 ? -1 : view2.firstChild(node2); key >= 0; key = view2.nextMember(key)) {
+                members.computeIfAbsent(view2.key(key), k -> new int[]{-1, -1})[1] = view2.valueOf(key);
+            }
+            for (Map.Entry<String, int[]> member : members.entrySet()) {
+                expand(view1, view2, selector, depth + 1, member.getValue()[0], member.getValue()[1],
+                        childPath(path, member.getKey(), false), found);
+            }
+        } else if (kind == '[') {
+            int element1 = node1 < 0 ? -1 : view1.firstChild(node1);
+            int element2 = node2 < 0 ? -1 : view2.firstChild(node2);
+            for (int i = 0; element1 >= 0 || element2 >= 0; i++) {
+                expand(view1, view2, selector, depth + 1, element1, element2,
+                        childPath(path, Integer.toString(i), true), found);
+                element1 = element1 < 0 ? -1 : view1.nextElement(element1);
+                element2 = element2 < 0 ? -1 : view2.nextElement(element2);
+            }
+        }
+    }
+
+    private static String childPath(String path, String token, boolean array) {
+        return path.isEmpty() && !array ? token : path + "/" + token;
+    }
+
+    private static boolean hasSelectedAncestor(String path, Set<String> paths) {
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            if (paths.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return paths.contains("") && !path.isEmpty();
+    }
+
+    /**
+     * Tokens of a JSON Pointer or of a simple JSONPath expression starting with {@code $}.
+     */
+    static List<String> parseSelector(String selector) throws JSONException {
+        if (!selector.startsWith("$")) {
+            return IncrementalDiffSession.parsePointer(selector);
+        }
+        List<String> tokens = new ArrayList<>();
+        int i = 1;
+        while (i < selector.length()) {
+            char c = selector.charAt(i);
+            if (c == '.') {
+                if (i + 1 < selector.length() && selector.charAt(i + 1) == '.') {
+                    throw new JSONException("Recursive descent is not supported: " + selector);
+                }
+                int end = i + 1;
+                while (end < selector.length() && selector.charAt(end) != '.' && selector.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i + 1) {
+                    throw new JSONException("Empty name in JSONPath: " + selector);
+                }
+                tokens.add(selector.substring(i + 1, end));
+                i = end;
+            } else if (c == '[') {
+                int close;
+                if (i + 1 < selector.length() && (selector.charAt(i + 1) == '\'' || selector.charAt(i + 1) == '"')) {
+                    char quote = selector.charAt(i + 1);
+                    int endQuote = selector.indexOf(quote, i + 2);
+                    if (endQuote < 0 || endQuote + 1 >= selector.length() || selector.charAt(endQuote + 1) != ']') {
+                        throw new JSONException("Unterminated bracket in JSONPath: " + selector);
+                    }
+                    tokens.add(selector.substring(i + 2, endQuote));
+                    close = endQuote + 1;
+                } else {
+                    close = selector.indexOf(']', i);
+                    if (close < 0) {
+                        throw new JSONException("Unterminated bracket in JSONPath: " + selector);
+                    }
+                    String index = selector.substring(i + 1, close).trim();
+                    if (!index.equals(WILDCARD) && LazyJsonView.arrayIndex(index) < 0) {
+                        throw new JSONException("Unsupported JSONPath segment [" + index + "]: " + selector);
+                    }
+                    tokens.add(index);
+                }
+                i = close + 1;
+            } else {
+                throw new JSONException("Unexpected '" + c + "' in JSONPath: " + selector);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Selection {
+        private final String path;
+        private final int node1;
+        private final int node2;
+
+        private Selection(String path, int node1, int node2) {
+            this.path = path;
+            this.node1 = node1;
+            this.node2 = node2;
+        }
+    }
+}
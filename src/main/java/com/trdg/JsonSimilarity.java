@@ -0,0 +1,386 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Graded comparison of JSON trees: an edit cost and a similarity score between 0 and 1.
+ *
+ * The cost of turning one value into another is the sum of the costs of deleting nodes that are
+ * only in the first, inserting nodes that are only in the second and replacing leaves that
+ * differ. Object members are matched by key and array elements are aligned by edit distance.
+ * A value whose type changes is deleted and inserted as a whole. Every cost is multiplied by the
+ * weight of the path it occurs under. Weights are set per JSON Pointer (with {@code *} for any
+ * segment) and apply to the whole subtree below. The similarity is {@code 1 - cost / maxCost},
+ * where {@code maxCost} is the cost of deleting the first tree and inserting the second.
+ *
+ * Subtrees are fingerprinted once per document, so differing subtrees are told apart at once and
+ * identical ones cost nothing once confirmed equal. Equal prefixes and suffixes of arrays are
+ * skipped before alignment.
+ * {@link #rank} also skips candidates whose size alone rules them out. Configure an instance
+ * before sharing it; after that it is safe for concurrent use.
+ */
+public class JsonSimilarity {
+
+    // Longer arrays are aligned by position instead of by edit distance
+    private static final long MAX_ALIGNMENT_CELLS = 1L << 20;
+
+    private final double insertCost;
+    private final double deleteCost;
+    private final double replaceCost;
+    private final WeightNode weights = new WeightNode();
+    private double minWeight = 1.0;
+
+    public JsonSimilarity() {
+        this(1.0, 1.0, 1.0);
+    }
+
+    public JsonSimilarity(double insertCost, double deleteCost, double replaceCost) {
+        if (insertCost < 0 || deleteCost < 0 || replaceCost < 0) {
+            throw new IllegalArgumentException("Costs must not be negative");
+        }
+        this.insertCost = insertCost;
+        this.deleteCost = deleteCost;
+        this.replaceCost = replaceCost;
+    }
+
+    /**
+     * Multiplies all costs under {@code pointer} by {@code weight}; 0 ignores the subtree.
+     */
+    public JsonSimilarity weight(String pointer, double weight) throws JSONException {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative: " + weight);
+        }
+        WeightNode node = weights;
+        for (String token : IncrementalDiffSession.parsePointer(pointer)) {
+            node = node.children.computeIfAbsent(token, t -> new WeightNode());
+        }
+        node.weight = weight;
+        minWeight = Math.min(minWeight, weight);
+        return this;
+    }
+
+    /**
+     * Weighted edit cost of turning {@code value1} into {@code value2}.
+     */
+    public double cost(Object value1, Object value2) throws JSONException {
+        Scorer scorer = new Scorer(new SubtreeIndex(value1), new SubtreeIndex(value2));
+        return scorer.cost(value1, value2, weights, weights.weightOr(1.0));
+    }
+
+    public double similarity(Object value1, Object value2) throws JSONException {
+        return score(new SubtreeIndex(value1), new SubtreeIndex(value2)).similarity;
+    }
+
+    /**
+     * The {@code limit} candidates most similar to {@code reference}, best first.
+     */
+    public List<Match> rank(Object reference, List<?> candidates, int limit) throws JSONException {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        SubtreeIndex referenceTree = new SubtreeIndex(reference);
+        double sizeCost = Math.min(insertCost, deleteCost) * minWeight;
+        // Worst of the best matches so far on top
+        PriorityQueue<Match> best = new PriorityQueue<>(
+                (a, b) -> a.cost != b.cost ? Double.compare(b.cost, a.cost) : Integer.compare(b.index, a.index));
+        for (int i = 0; i < candidates.size(); i++) {
+            Object candidate = candidates.get(i);
+            SubtreeIndex candidateTree = new SubtreeIndex(candidate);
+            double bound = best.size() < limit ? Double.MAX_VALUE : best.peek().cost;
+            // Every node in one tree and not the other is inserted or deleted at least once
+            if (sizeCost * Math.abs(referenceTree.size(reference) - candidateTree.size(candidate)) > bound) {
+                continue;
+            }
+            Score score = score(referenceTree, candidateTree);
+            if (best.size() < limit) {
+                best.add(new Match(i, candidate, score.cost, score.similarity));
+            } else if (score.cost < bound) {
+                best.poll();
+                best.add(new Match(i, candidate, score.cost, score.similarity));
+            }
+        }
+        List<Match> result = new ArrayList<>(best);
+        result.sort((a, b) -> a.cost != b.cost ? Double.compare(a.cost, b.cost) : Integer.compare(a.index, b.index));
+        return result;
+    }
+
+    /**
+     * Pairs the elements of two arrays without relying on IDs: identical elements first, then
+     * greedily by descending similarity. Returns for each element of {@code array1} the index of
+     * its partner in {@code array2}, or -1 if nothing reaches {@code minSimilarity}. Weights are
+     * taken relative to the arrays, e.g. {@code /*}{@code /price}.
+     */
+    public int[] pairElements(JSONArray array1, JSONArray array2, double minSimilarity) throws JSONException {
+        SubtreeIndex tree1 = new SubtreeIndex(array1);
+        SubtreeIndex tree2 = new SubtreeIndex(array2);
+        int[] pairs = new int[array1.length()];
+        Arrays.fill(pairs, -1);
+        boolean[] taken = new boolean[array2.length()];
+
+        Map<Long, List<Integer>> byFingerprint = new HashMap<>();
+        for (int j = array2.length() - 1; j >= 0; j--) {
+            byFingerprint.computeIfAbsent(tree2.fingerprint(array2.get(j)), f -> new ArrayList<>()).add(j);
+        }
+        for (int i = 0; i < array1.length(); i++) {
+            List<Integer> same = byFingerprint.get(tree1.fingerprint(array1.get(i)));
+            if (same == null) {
+                continue;
+            }
+            // Fingerprints can collide, so each candidate is confirmed before it is paired
+            for (int k = same.size() - 1; k >= 0; k--) {
+                if (JsonFingerprint.sameValue(array1.get(i), array2.get(same.get(k)))) {
+                    pairs[i] = same.remove(k);
+                    taken[pairs[i]] = true;
+                    break;
+                }
+            }
+        }
+
+        WeightNode element = weights.child("*");
+        double elementWeight = element == null ? weights.weightOr(1.0) : element.weightOr(weights.weightOr(1.0));
+        Scorer scorer = new Scorer(tree1, tree2);
+        List<double[]> candidates = new ArrayList<>();
+        for (int i = 0; i < array1.length(); i++) {
+            if (pairs[i] >= 0) {
+                continue;
+            }
+            for (int j = 0; j < array2.length(); j++) {
+                if (!taken[j]) {
+                    Object a = array1.get(i);
+                    Object b = array2.get(j);
+                    double max = scorer.deleteAll(a, element, elementWeight) + scorer.insertAll(b, element, elementWeight);
+                    double similarity = max == 0 ? 1.0 : 1.0 - scorer.cost(a, b, element, elementWeight) / max;
+                    if (similarity >= minSimilarity) {
+                        candidates.add(new double[]{similarity, i, j});
+                    }
+                }
+            }
+        }
+        candidates.sort((a, b) -> a[0] != b[0] ? Double.compare(b[0], a[0])
+                : a[1] != b[1] ? Double.compare(a[1], b[1]) : Double.compare(a[2], b[2]));
+        for (double[] candidate : candidates) {
+            int i = (int) candidate[1];
+            int j = (int) candidate[2];
+            if (pairs[i] < 0 && !taken[j]) {
+                pairs[i] = j;
+                taken[j] = true;
+            }
+        }
+        return pairs;
+    }
+
+    private Score score(SubtreeIndex tree1, SubtreeIndex tree2) throws JSONException {
+        Scorer scorer = new Scorer(tree1, tree2);
+        double rootWeight = weights.weightOr(1.0);
+        double cost = scorer.cost(tree1.root, tree2.root, weights, rootWeight);
+        double max = scorer.deleteAll(tree1.root, weights, rootWeight) + scorer.insertAll(tree2.root, weights, rootWeight);
+        return new Score(cost, max == 0 ? 1.0 : 1.0 - cost / max);
+    }
+
+    private static final class Score {
+        private final double cost;
+        private final double similarity;
+
+        private Score(double cost, double similarity) {
+            this.cost = cost;
+            this.similarity = similarity;
+        }
+    }
+
+    private static final class WeightNode {
+        private final Map<String, WeightNode> children = new HashMap<>();
+        private double weight = Double.NaN;
+
+        private double weightOr(double inherited) {
+            return Double.isNaN(weight) ? inherited : weight;
+        }
+
+        private WeightNode child(String segment) {
+            WeightNode child = children.get(segment);
+            return child != null ? child : children.get("*");
+        }
+    }
+
+    private final class Scorer {
+        private final SubtreeIndex tree1;
+        private final SubtreeIndex tree2;
+
+        private Scorer(SubtreeIndex tree1, SubtreeIndex tree2) {
+            this.tree1 = tree1;
+            this.tree2 = tree2;
+        }
+
+        private double cost(Object value1, Object value2, WeightNode node, double weight) throws JSONException {
+            if (weight == 0 && (node == null || node.children.isEmpty())) {
+                return 0;
+            }
+            if (same(value1, value2)) {
+                return 0;
+            }
+            if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+                return objectCost((JSONObject) value1, (JSONObject) value2, node, weight);
+            } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+                return arrayCost((JSONArray) value1, (JSONArray) value2, node, weight);
+            } else if (isLeaf(value1) && isLeaf(value2)) {
+                return value1.equals(value2) ? 0 : replaceCost * weight;
+            }
+            return deleteAll(value1, node, weight) + insertAll(value2, node, weight);
+        }
+
+        /**
+         * Equal subtrees: told apart by fingerprint, and confirmed since fingerprints can collide.
+         */
+        private boolean same(Object value1, Object value2) {
+            return tree1.fingerprint(value1) == tree2.fingerprint(value2) && value1.getClass() == value2.getClass()
+                    && JsonFingerprint.sameValue(value1, value2);
+        }
+
+        private double objectCost(JSONObject obj1, JSONObject obj2, WeightNode node, double weight)
+                throws JSONException {
+            double cost = 0;
+            for (String key : obj1.keySet()) {
+                WeightNode child = node == null ? null : node.child(key);
+                double childWeight = child == null ? weight : child.weightOr(weight);
+                Object value1 = obj1.get(key);
+                Object value2 = obj2.opt(key);
+                cost += value2 == null ? deleteAll(value1, child, childWeight) : cost(value1, value2, child, childWeight);
+            }
+            for (String key : obj2.keySet()) {
+                if (!obj1.has(key)) {
+                    WeightNode child = node == null ? null : node.child(key);
+                    cost += insertAll(obj2.get(key), child, child == null ? weight : child.weightOr(weight));
+                }
+            }
+            return cost;
+        }
+
+        private double arrayCost(JSONArray array1, JSONArray array2, WeightNode node, double weight)
+                throws JSONException {
+            int n = array1.length();
+            int m = array2.length();
+            // Skip the common prefix and suffix by fingerprint
+            int start = 0;
+            while (start < n && start < m && same(array1.get(start), array2.get(start))) {
+                start++;
+            }
+            int end1 = n;
+            int end2 = m;
+            while (end1 > start && end2 > start && same(array1.get(end1 - 1), array2.get(end2 - 1))) {
+                end1--;
+                end2--;
+            }
+            int rows = end1 - start;
+            int cols = end2 - start;
+
+            WeightNode[] children1 = new WeightNode[rows];
+            double[] weights1 = new double[rows];
+            double[] delete = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                children1[i] = node == null ? null : node.child(Integer.toString(start + i));
+                weights1[i] = children1[i] == null ? weight : children1[i].weightOr(weight);
+                delete[i] = deleteAll(array1.get(start + i), children1[i], weights1[i]);
+            }
+            double[] insert = new double[cols];
+            for (int j = 0; j < cols; j++) {
+                WeightNode child = node == null ? null : node.child(Integer.toString(start + j));
+                insert[j] = insertAll(array2.get(start + j), child, child == null ? weight : child.weightOr(weight));
+            }
+
+            if ((long) rows * cols > MAX_ALIGNMENT_CELLS) {
+                double cost = 0;
+                for (int k = 0; k < Math.max(rows, cols); k++) {
+                    if (k >= cols) {
+                        cost += delete[k];
+                    } else if (k >= rows) {
+                        cost += insert[k];
+                    } else {
+                        cost += cost(array1.get(start + k), array2.get(start + k), children1[k], weights1[k]);
+                    }
+                }
+                return cost;
+            }
+
+            // Edit distance over elements, two rows at a time
+            double[] previous = new double[cols + 1];
+            double[] current = new double[cols + 1];
+            for (int j = 1; j <= cols; j++) {
+                previous[j] = previous[j - 1] + insert[j - 1];
+            }
+            for (int i = 1; i <= rows; i++) {
+                current[0] = previous[0] + delete[i - 1];
+                Object value1 = array1.get(start + i - 1);
+                for (int j = 1; j <= cols; j++) {
+                    double substitute = previous[j - 1]
+                            + cost(value1, array2.get(start + j - 1), children1[i - 1], weights1[i - 1]);
+                    current[j] = Math.min(substitute, Math.min(previous[j] + delete[i - 1], current[j - 1] + insert[j - 1]));
+                }
+                double[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            return previous[cols];
+        }
+
+        private double deleteAll(Object value, WeightNode node, double weight) throws JSONException {
+            return deleteCost * weightedSize(tree1, value, node, weight);
+        }
+
+        private double insertAll(Object value, WeightNode node, double weight) throws JSONException {
+            return insertCost * weightedSize(tree2, value, node, weight);
+        }
+
+        private double weightedSize(SubtreeIndex tree, Object value, WeightNode node, double weight) throws JSONException {
+            if (node == null || node.children.isEmpty()) {
+                return weight * tree.size(value);
+            }
+            double size = weight;
+            if (value instanceof JSONObject) {
+                JSONObject obj = (JSONObject) value;
+                for (String key : obj.keySet()) {
+                    WeightNode child = node.child(key);
+                    size += weightedSize(tree, obj.get(key), child, child == null ? weight : child.weightOr(weight));
+                }
+            } else if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                for (int i = 0; i < array.length(); i++) {
+                    WeightNode child = node.child(Integer.toString(i));
+                    size += weightedSize(tree, array.get(i), child, child == null ? weight : child.weightOr(weight));
+                }
+            }
+            return size;
+        }
+
+        private boolean isLeaf(Object value) {
+            return !(value instanceof JSONObject) && !(value instanceof JSONArray);
+        }
+    }
+
+    public static class Match {
+        public final int index;
+        public final Object candidate;
+        public final double cost;
+        public final double similarity;
+
+        private Match(int index, Object candidate, double cost, double similarity) {
+            this.index = index;
+            this.candidate = candidate;
+            this.cost = cost;
+            this.similarity = similarity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d: %.4f", index, similarity);
+        }
+    }
+}
@@ -0,0 +1,581 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact, flat representation of a parsed JSON document.
+ *
+ * The document is stored as a tape of 64-bit words, one or two per value, next to the original
+ * UTF-8 bytes. The top byte of each word is the value type and the rest its payload:
+ * <ul>
+ *     <li>'{' and '[': child count and the tape index of the matching end word</li>
+ *     <li>'}' and ']': tape index of the matching start word</li>
+ *     <li>'"': offset of the string content in the source; the next word holds its length and
+ *     whether it contains escapes. Object keys use the same layout.</li>
+ *     <li>'l': the next word holds the value of an integer that fits in a long</li>
+ *     <li>'n': offset of any other number; the next word holds its length</li>
+ *     <li>'t', 'f', 'z': true, false and null</li>
+ * </ul>
+ * Strings are decoded and numbers converted only when a value is read, so a parsed document
+ * costs two arrays instead of one object per node. {@link #toOffHeap()} moves both into direct
+ * buffers outside the Java heap. Values can be turned into org.json objects with
+ * {@link #materialize(int)}.
+ */
+public final class JsonTape {
+
+    public static final byte OBJECT_START = '{';
+    public static final byte OBJECT_END = '}';
+    public static final byte ARRAY_START = '[';
+    public static final byte ARRAY_END = ']';
+    public static final byte STRING = '"';
+    public static final byte INT64 = 'l';
+    public static final byte RAW_NUMBER = 'n';
+    public static final byte TRUE = 't';
+    public static final byte FALSE = 'f';
+    public static final byte NULL = 'z';
+
+    private static final long PAYLOAD_MASK = (1L << 56) - 1;
+    private static final long ESCAPED_FLAG = 1L << 32;
+    private static final int MAX_COUNT = (1 << 24) - 1;
+
+    private final LongBuffer tape;
+    private final ByteBuffer source;
+    // Backing array of source while it lives on the heap; lets hot paths skip the buffer API
+    private final byte[] heapSource;
+
+    private JsonTape(LongBuffer tape, ByteBuffer source, byte[] heapSource) {
+        this.tape = tape;
+        this.source = source;
+        this.heapSource = heapSource;
+    }
+
+    public static JsonTape parse(String json) throws JSONException {
+        return parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static JsonTape parse(byte[] json) throws JSONException {
+        return parse(json, 0, json.length);
+    }
+
+    /**
+     * Parses {@code length} bytes of UTF-8 JSON starting at {@code offset}. The array is
+     * referenced, not copied, and must not be modified while the tape is in use.
+     */
+    public static JsonTape parse(byte[] json, int offset, int length) throws JSONException {
+        JsonComparatorMetrics.recordBytesParsed(length);
+        Parser parser = new Parser(json, offset, offset + length, null);
+        long[] words = parser.parseDocument();
+        return new JsonTape(LongBuffer.wrap(words, 0, parser.size).slice(), ByteBuffer.wrap(json), json);
+    }
+
+    /**
+     * Second stage of the two-stage parse: builds the tape by jumping between the entries of a
+     * {@link StructuralIndex} instead of scanning whitespace and string contents. The result is
+     * the same as {@link #parse(byte[], int, int)} over the indexed bytes.
+     */
+    public static JsonTape parse(StructuralIndex index) throws JSONException {
+        JsonComparatorMetrics.recordBytesParsed(index.end - index.offset);
+        Parser parser = new Parser(index.json, index.offset, index.end, index);
+        long[] words = parser.parseDocument();
+        return new JsonTape(LongBuffer.wrap(words, 0, parser.size).slice(), ByteBuffer.wrap(index.json), index.json);
+    }
+
+    public static JsonTape parse(ByteBuffer json) throws JSONException {
+        if (json.hasArray()) {
+            return parse(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        byte[] copy = new byte[json.remaining()];
+        json.duplicate().get(copy);
+        return parse(copy);
+    }
+
+    /**
+     * Returns a copy of this tape whose words and source bytes live in direct buffers.
+     */
+    public JsonTape toOffHeap() {
+        if (isOffHeap()) {
+            return this;
+        }
+        ByteBuffer words = ByteBuffer.allocateDirect(tape.limit() * Long.BYTES).order(ByteOrder.nativeOrder());
+        LongBuffer offHeapTape = words.asLongBuffer();
+        offHeapTape.put(tape.duplicate().position(0));
+        offHeapTape.flip();
+
+        ByteBuffer offHeapSource = ByteBuffer.allocateDirect(source.capacity());
+        offHeapSource.put(source.duplicate().position(0));
+        offHeapSource.flip();
+        return new JsonTape(offHeapTape, offHeapSource, null);
+    }
+
+    public boolean isOffHeap() {
+        return heapSource == null;
+    }
+
+    /**
+     * Number of words on the tape.
+     */
+    public int size() {
+        return tape.limit();
+    }
+
+    /**
+     * Approximate bytes used by the tape and the source it refers to.
+     */
+    public long memoryUsage() {
+        return (long) tape.limit() * Long.BYTES + source.capacity();
+    }
+
+    public int root() {
+        return 0;
+    }
+
+    public byte type(int index) {
+        return (byte) (tape.get(index) >>> 56);
+    }
+
+    private long payload(int index) {
+        return tape.get(index) & PAYLOAD_MASK;
+    }
+
+    /**
+     * Index of the value after the one at {@code index}, skipping its children.
+     */
+    public int next(int index) {
+        switch (type(index)) {
+            case OBJECT_START:
+            case ARRAY_START:
+                return matchingEnd(index) + 1;
+            case STRING:
+            case INT64:
+            case RAW_NUMBER:
+                return index + 2;
+            default:
+                return index + 1;
+        }
+    }
+
+    int matchingEnd(int containerIndex) {
+        return (int) payload(containerIndex);
+    }
+
+    /**
+     * Number of members of an object or elements of an array.
+     */
+    public int childCount(int containerIndex) {
+        int count = (int) (payload(containerIndex) >>> 32);
+        if (count < MAX_COUNT) {
+            return count;
+        }
+        // Saturated: count by walking
+        count = 0;
+        int end = matchingEnd(containerIndex);
+        boolean object = type(containerIndex) == OBJECT_START;
+        for (int i = containerIndex + 1; i < end; i = next(object ? i + 2 : i)) {
+            count++;
+        }
+        return count;
+    }
+
+    int stringOffset(int index) {
+        return (int) payload(index);
+    }
+
+    int stringLength(int index) {
+        return (int) tape.get(index + 1);
+    }
+
+    boolean isEscaped(int index) {
+        return (tape.get(index + 1) & ESCAPED_FLAG) != 0;
+    }
+
+    public long longValue(int index) {
+        return tape.get(index + 1);
+    }
+
+    public String stringValue(int index) throws JSONException {
+        int offset = stringOffset(index);
+        int length = stringLength(index);
+        if (heapSource != null) {
+            return JsonBytes.decodeString(heapSource, offset, length, isEscaped(index));
+        }
+        byte[] bytes = new byte[length];
+        source.get(offset, bytes);
+        return JsonBytes.decodeString(bytes, 0, length, isEscaped(index));
+    }
+
+    Number numberValue(int index) throws JSONException {
+        if (type(index) == INT64) {
+            return JsonBytes.boxLong(longValue(index));
+        }
+        return JsonBytes.toNumber(rawText(index));
+    }
+
+    String rawText(int index) {
+        int offset = stringOffset(index);
+        int length = stringLength(index);
+        if (heapSource != null) {
+            return new String(heapSource, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[length];
+        source.get(offset, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * True if the raw source bytes of the string or raw number at {@code index} equal those at
+     * {@code otherIndex} in {@code other}.
+     */
+    boolean rawBytesEqual(int index, JsonTape other, int otherIndex) {
+        int length = stringLength(index);
+        if (length != other.stringLength(otherIndex)) {
+            return false;
+        }
+        int offset = stringOffset(index);
+        int otherOffset = other.stringOffset(otherIndex);
+        if (heapSource != null && other.heapSource != null) {
+            return Arrays.equals(heapSource, offset, offset + length,
+                    other.heapSource, otherOffset, otherOffset + length);
+        }
+        return source.slice(offset, length).equals(other.source.slice(otherOffset, length));
+    }
+
+    /**
+     * True if the strings at {@code index} and at {@code otherIndex} in {@code other} are equal,
+     * comparing raw bytes first and decoding escapes only when they differ.
+     */
+    boolean stringEquals(int index, JsonTape other, int otherIndex) throws JSONException {
+        if (!isEscaped(index) && !other.isEscaped(otherIndex)) {
+            return rawBytesEqual(index, other, otherIndex);
+        } else if (heapSource == null || other.heapSource == null) {
+            return stringValue(index).equals(other.stringValue(otherIndex));
+        }
+        return JsonBytes.stringsEqual(heapSource, stringOffset(index), stringLength(index), isEscaped(index),
+                other.heapSource, other.stringOffset(otherIndex), other.stringLength(otherIndex), other.isEscaped(otherIndex));
+    }
+
+    /**
+     * True if the raw numbers at {@code index} and at {@code otherIndex} in {@code other} are
+     * equal, converting them only when their spelling alone does not decide.
+     */
+    boolean rawNumberEquals(int index, JsonTape other, int otherIndex) throws JSONException {
+        if (heapSource == null || other.heapSource == null) {
+            return rawBytesEqual(index, other, otherIndex) || numberValue(index).equals(other.numberValue(otherIndex));
+        }
+        return JsonBytes.numbersEqual(heapSource, stringOffset(index), stringLength(index),
+                other.heapSource, other.stringOffset(otherIndex), other.stringLength(otherIndex));
+    }
+
+    /**
+     * Hash of the raw bytes of a string, consistent with {@link #rawBytesEqual}; escaped
+     * strings are hashed over their decoded UTF-8 form.
+     */
+    long stringHash(int index) throws JSONException {
+        if (isEscaped(index)) {
+            byte[] decoded = stringValue(index).getBytes(StandardCharsets.UTF_8);
+            return JsonBytes.hash(decoded, 0, decoded.length);
+        }
+        int offset = stringOffset(index);
+        int length = stringLength(index);
+        if (heapSource != null) {
+            return JsonBytes.hash(heapSource, offset, length);
+        }
+        byte[] bytes = new byte[length];
+        source.get(offset, bytes);
+        return JsonBytes.hash(bytes, 0, length);
+    }
+
+    /**
+     * Builds the org.json value at {@code index}: JSONObject, JSONArray, String, a Number boxed
+     * like org.json does, Boolean or {@link JSONObject#NULL}.
+     */
+    public Object materialize(int index) throws JSONException {
+        return materialize(index, null);
+    }
+
+    /**
+     * Like {@link #materialize(int)}, with object keys taken from {@code interner} when it is
+     * not null.
+     */
+    public Object materialize(int index, KeyInterner interner) throws JSONException {
+        switch (type(index)) {
+            case OBJECT_START: {
+                JSONObject obj = new JSONObject();
+                int end = matchingEnd(index);
+                for (int i = index + 1; i < end; ) {
+                    String key = interner == null ? stringValue(i) : keyValue(i, interner);
+                    obj.put(key, materialize(i + 2, interner));
+                    i = next(i + 2);
+                }
+                return obj;
+            }
+            case ARRAY_START: {
+                JSONArray array = new JSONArray();
+                int end = matchingEnd(index);
+                for (int i = index + 1; i < end; i = next(i)) {
+                    array.put(materialize(i, interner));
+                }
+                return array;
+            }
+            case STRING:
+                return stringValue(index);
+            case INT64:
+            case RAW_NUMBER:
+                return numberValue(index);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case NULL:
+                return JSONObject.NULL;
+            default:
+                throw new JSONException("Invalid tape word at " + index);
+        }
+    }
+
+    public Object toJson() throws JSONException {
+        return materialize(root());
+    }
+
+    public Object toJson(KeyInterner interner) throws JSONException {
+        return materialize(root(), interner);
+    }
+
+    private String keyValue(int index, KeyInterner interner) throws JSONException {
+        if (heapSource != null && !isEscaped(index)) {
+            return interner.intern(heapSource, stringOffset(index), stringLength(index));
+        }
+        return interner.intern(stringValue(index));
+    }
+
+    private static final class Parser {
+        private final byte[] json;
+        private final int end;
+        private int pos;
+        private long[] words = new long[64];
+        private int size;
+        // Structural index driving the parse, or null to scan the bytes directly
+        private final StructuralIndex index;
+        private int cursor;
+
+        private Parser(byte[] json, int start, int end, StructuralIndex index) {
+            this.json = json;
+            this.pos = start;
+            this.end = end;
+            this.index = index;
+        }
+
+        /**
+         * Position of the next token at or after {@code pos}.
+         */
+        private int skip() {
+            if (index == null) {
+                return JsonBytes.skipWhitespace(json, pos, end);
+            }
+            while (cursor < index.size() && index.position(cursor) < pos) {
+                cursor++;
+            }
+            return cursor < index.size() ? index.position(cursor) : end;
+        }
+
+        /**
+         * With an index, bytes directly after a number or literal are not indexed, so they are
+         * checked here.
+         */
+        private void checkTokenEnd() throws JSONException {
+            if (index != null && pos < end) {
+                byte b = json[pos];
+                if (!JsonBytes.isWhitespace(b) && b != ',' && b != ']' && b != '}' && b != ':') {
+                    throw error("Unexpected character '" + (char) b + "'");
+                }
+            }
+        }
+
+        private long[] parseDocument() throws JSONException {
+            parseValue();
+            pos = skip();
+            if (pos != end) {
+                throw error("Unexpected trailing content");
+            }
+            return words;
+        }
+
+        private void parseValue() throws JSONException {
+            pos = skip();
+            if (pos >= end) {
+                throw error("Unexpected end of input");
+            }
+            byte b = json[pos];
+            switch (b) {
+                case '{':
+                    parseObject();
+                    break;
+                case '[':
+                    parseArray();
+                    break;
+                case '"':
+                    parseString();
+                    break;
+                case 't':
+                    expectLiteral("true", TRUE);
+                    break;
+                case 'f':
+                    expectLiteral("false", FALSE);
+                    break;
+                case 'n':
+                    expectLiteral("null", NULL);
+                    break;
+                default:
+                    if (b == '-' || (b >= '0' && b <= '9')) {
+                        parseNumber();
+                    } else {
+                        throw error("Unexpected character '" + (char) b + "'");
+                    }
+            }
+        }
+
+        private void parseObject() throws JSONException {
+            int start = emit(OBJECT_START, 0);
+            pos++;
+            int count = 0;
+            pos = skip();
+            if (pos < end && json[pos] == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    pos = skip();
+                    if (pos >= end || json[pos] != '"') {
+                        throw error("Expected object key");
+                    }
+                    parseString();
+                    pos = skip();
+                    if (pos >= end || json[pos] != ':') {
+                        throw error("Expected ':'");
+                    }
+                    pos++;
+                    parseValue();
+                    count++;
+                    if (separator('}')) {
+                        break;
+                    }
+                }
+            }
+            close(start, OBJECT_END, count);
+        }
+
+        private void parseArray() throws JSONException {
+            int start = emit(ARRAY_START, 0);
+            pos++;
+            int count = 0;
+            pos = skip();
+            if (pos < end && json[pos] == ']') {
+                pos++;
+            } else {
+                while (true) {
+                    parseValue();
+                    count++;
+                    if (separator(']')) {
+                        break;
+                    }
+                }
+            }
+            close(start, ARRAY_END, count);
+        }
+
+        /**
+         * Consumes a ',' (returns false) or the closing character (returns true).
+         */
+        private boolean separator(char closing) throws JSONException {
+            pos = skip();
+            if (pos < end && json[pos] == ',') {
+                pos++;
+                return false;
+            } else if (pos < end && json[pos] == closing) {
+                pos++;
+                return true;
+            }
+            throw error("Expected ',' or '" + closing + "'");
+        }
+
+        private void parseString() throws JSONException {
+            int contentStart = pos + 1;
+            if (index != null) {
+                // skip() left the cursor on the opening quote; the closing quote is the next entry
+                int close = index.entry(cursor + 1);
+                int quote = close & ~StructuralIndex.ESCAPED;
+                emit(STRING, contentStart);
+                emitWord((quote - contentStart) | ((close & StructuralIndex.ESCAPED) != 0 ? ESCAPED_FLAG : 0));
+                cursor += 2;
+                pos = quote + 1;
+                return;
+            }
+            int quote = JsonBytes.findStringEnd(json, contentStart, end);
+            boolean escaped = false;
+            for (int i = contentStart; i < quote; i++) {
+                if (json[i] == '\\') {
+                    escaped = true;
+                    break;
+                }
+            }
+            emit(STRING, contentStart);
+            emitWord((quote - contentStart) | (escaped ? ESCAPED_FLAG : 0));
+            pos = quote + 1;
+        }
+
+        private void parseNumber() throws JSONException {
+            int start = pos;
+            while (pos < end && JsonBytes.isNumberChar(json[pos])) {
+                pos++;
+            }
+            long value = JsonBytes.parseLong(json, start, pos - start);
+            if (value != Long.MIN_VALUE) {
+                emit(INT64, 0);
+                emitWord(value);
+            } else {
+                // Validated eagerly so that a malformed number fails at parse time
+                JsonBytes.toNumber(new String(json, start, pos - start, StandardCharsets.ISO_8859_1));
+                emit(RAW_NUMBER, start);
+                emitWord(pos - start);
+            }
+            checkTokenEnd();
+        }
+
+        private void expectLiteral(String literal, byte type) throws JSONException {
+            if (!JsonBytes.matches(json, pos, end, literal)) {
+                throw error("Invalid literal");
+            }
+            pos += literal.length();
+            emit(type, 0);
+            checkTokenEnd();
+        }
+
+        private int emit(byte type, long payload) {
+            return emitWord(((long) type << 56) | payload);
+        }
+
+        private int emitWord(long word) {
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+            }
+            words[size] = word;
+            return size++;
+        }
+
+        private void close(int start, byte endType, int count) {
+            int endIndex = emit(endType, start);
+            byte startType = endType == OBJECT_END ? OBJECT_START : ARRAY_START;
+            words[start] = ((long) startType << 56) | ((long) Math.min(count, MAX_COUNT) << 32) | endIndex;
+        }
+
+        private JSONException error(String message) {
+            return new JSONException(message + " at byte " + pos);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * Equality and diff over {@link JsonTape} documents.
+ *
+ * Gives the same answers as {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}
+ * on the equivalent org.json trees, but works directly on the tapes: strings are compared by
+ * their raw bytes, numbers as longs, and only values that end up in a reported operation are
+ * materialized. Scratch space for matching object keys is pooled per call, so comparing two
+ * documents allocates nothing per node.
+ */
+public final class JsonTapeComparator {
+
+    // Objects with more members than this get a hash index for key lookups
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private static final byte KEY1 = 1;
+    private static final byte KEY2 = 2;
+    private static final byte INDEX = 3;
+
+    private JsonTapeComparator() {
+    }
+
+    /**
+     * True if the two documents are equal, i.e. their diff would be empty.
+     */
+    public static boolean areEqual(JsonTape tape1, JsonTape tape2) throws JSONException {
+        Context context = new Context(tape1, tape2, null);
+        return context.valuesEqual(tape1.root(), tape2.root());
+    }
+
+    /**
+     * Patch-style diff of two documents whose roots are objects, in the format of
+     * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}.
+     */
+    public static JSONArray generateJsonDiff(JsonTape tape1, JsonTape tape2) throws JSONException {
+        if (tape1.type(tape1.root()) != JsonTape.OBJECT_START || tape2.type(tape2.root()) != JsonTape.OBJECT_START) {
+            throw new JSONException("Both documents must be JSON objects");
+        }
+        Context context = new Context(tape1, tape2, new JSONArray());
+        context.diffObjects(tape1.root(), tape2.root());
+        return context.diffs;
+    }
+
+    /**
+     * Parses two UTF-8 documents with {@link JsonTape#parse(byte[])} and compares them without
+     * building org.json trees.
+     */
+    public static boolean areEqual(byte[] json1, byte[] json2) throws JSONException {
+        return areEqual(JsonTape.parse(json1), JsonTape.parse(json2));
+    }
+
+    public static JSONArray generateJsonDiff(byte[] json1, byte[] json2) throws JSONException {
+        return generateJsonDiff(JsonTape.parse(json1), JsonTape.parse(json2));
+    }
+
+    private static final class Context {
+        private final JsonTape tape1;
+        private final JsonTape tape2;
+        private final JSONArray diffs;
+
+        // Current path as a stack of segments: key tape index (tape1 or tape2) or array index.
+        // Keys are only decoded when an operation is emitted.
+        private int[] segments = new int[16];
+        private byte[] segmentKinds = new byte[16];
+        private int depth;
+
+        // Stack-allocated int scratch space: each object comparison takes a slice and returns it
+        private int[] pool = new int[64];
+        private int poolTop;
+
+        private Context(JsonTape tape1, JsonTape tape2, JSONArray diffs) {
+            this.tape1 = tape1;
+            this.tape2 = tape2;
+            this.diffs = diffs;
+        }
+
+        private boolean valuesEqual(int i, int j) throws JSONException {
+            byte type = tape1.type(i);
+            if (type != tape2.type(j)) {
+                return false;
+            }
+            switch (type) {
+                case JsonTape.OBJECT_START:
+                    return objectsEqual(i, j);
+                case JsonTape.ARRAY_START: {
+                    if (tape1.childCount(i) != tape2.childCount(j)) {
+                        return false;
+                    }
+                    int end = tape1.matchingEnd(i);
+                    for (int a = i + 1, b = j + 1; a < end; a = tape1.next(a), b = tape2.next(b)) {
+                        if (!valuesEqual(a, b)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                default:
+                    return leavesEqual(i, j);
+            }
+        }
+
+        private boolean leavesEqual(int i, int j) throws JSONException {
+            byte type = tape1.type(i);
+            if (type != tape2.type(j)) {
+                return false;
+            }
+            switch (type) {
+                case JsonTape.STRING:
+                    return tape1.stringEquals(i, tape2, j);
+                case JsonTape.INT64:
+                    return tape1.longValue(i) == tape2.longValue(j);
+                case JsonTape.RAW_NUMBER:
+                    return tape1.rawNumberEquals(i, tape2, j);
+                case JsonTape.TRUE:
+                case JsonTape.FALSE:
+                case JsonTape.NULL:
+                    return true;
+                default:
+                    // Containers are never equal to leaves, and two containers are compared structurally
+                    return false;
+            }
+        }
+
+        private boolean objectsEqual(int obj1, int obj2) throws JSONException {
+            int count = tape1.childCount(obj1);
+            if (count != tape2.childCount(obj2)) {
+                return false;
+            }
+            int base = poolTop;
+            try {
+                int matches = matchKeys(obj1, obj2);
+                int keys2 = matches + count;
+                for (int k = 0; k < count; k++) {
+                    int match = pool[matches + k];
+                    if (match < 0 || !valuesEqual(pool[base + k] + 2, pool[keys2 + match] + 2)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                poolTop = base;
+            }
+        }
+
+        private void diffObjects(int obj1, int obj2) throws JSONException {
+            int count1 = tape1.childCount(obj1);
+            int count2 = tape2.childCount(obj2);
+            int base = poolTop;
+            try {
+                int matches = matchKeys(obj1, obj2);
+                int keys2 = matches + count1;
+                int matched2 = keys2 + count2;
+                Arrays.fill(pool, matched2, matched2 + count2, 0);
+
+                for (int k = 0; k < count1; k++) {
+                    int key1 = pool[base + k];
+                    int match = pool[matches + k];
+                    push(KEY1, key1);
+                    if (match < 0) {
+                        emit("remove", -1);
+                    } else {
+                        pool[matched2 + match] = 1;
+                        diffValues(key1 + 2, pool[keys2 + match] + 2);
+                    }
+                    depth--;
+                }
+
+                for (int k = 0; k < count2; k++) {
+                    if (pool[matched2 + k] == 0) {
+                        int key2 = pool[keys2 + k];
+                        push(KEY2, key2);
+                        emit("add", key2 + 2);
+                        depth--;
+                    }
+                }
+            } finally {
+                poolTop = base;
+            }
+        }
+
+        private void diffArrays(int array1, int array2) throws JSONException {
+            int end1 = tape1.matchingEnd(array1);
+            int end2 = tape2.matchingEnd(array2);
+            int a = array1 + 1;
+            int b = array2 + 1;
+            for (int index = 0; a < end1 || b < end2; index++) {
+                push(INDEX, index);
+                if (a >= end1) {
+                    emit("add", b);
+                    b = tape2.next(b);
+                } else if (b >= end2) {
+                    emit("remove", -1);
+                    a = tape1.next(a);
+                } else {
+                    diffValues(a, b);
+                    a = tape1.next(a);
+                    b = tape2.next(b);
+                }
+                depth--;
+            }
+        }
+
+        private void diffValues(int i, int j) throws JSONException {
+            byte type1 = tape1.type(i);
+            byte type2 = tape2.type(j);
+            if (type1 == JsonTape.OBJECT_START && type2 == JsonTape.OBJECT_START) {
+                diffObjects(i, j);
+            } else if (type1 == JsonTape.ARRAY_START && type2 == JsonTape.ARRAY_START) {
+                diffArrays(i, j);
+            } else if (!leavesEqual(i, j)) {
+                emit("replace", j);
+            }
+        }
+
+        /**
+         * Writes the member key indices of both objects into the pool (obj1 keys at the current
+         * top, then for each of them the position of the same key among the obj2 keys or -1,
+         * then the obj2 keys) and returns the offset of the matches.
+         */
+        private int matchKeys(int obj1, int obj2) throws JSONException {
+            int count1 = tape1.childCount(obj1);
+            int count2 = tape2.childCount(obj2);
+            int keys1 = allocate(count1);
+            int matches = allocate(count1);
+            int keys2 = allocate(count2);
+            allocate(count2); // matched flags for diffObjects
+            collectKeys(tape1, obj1, keys1);
+            collectKeys(tape2, obj2, keys2);
+
+            int hashTable = -1;
+            int tableMask = 0;
+            for (int k = 0; k < count1; k++) {
+                int key1 = pool[keys1 + k];
+                // Same-shaped documents usually list keys in the same order
+                if (k < count2 && keysEqual(key1, pool[keys2 + k])) {
+                    pool[matches + k] = k;
+                    continue;
+                }
+                if (count2 <= LINEAR_SEARCH_LIMIT) {
+                    pool[matches + k] = -1;
+                    for (int m = 0; m < count2; m++) {
+                        if (keysEqual(key1, pool[keys2 + m])) {
+                            pool[matches + k] = m;
+                            break;
+                        }
+                    }
+                    continue;
+                }
+                if (hashTable < 0) {
+                    int capacity = Integer.highestOneBit(count2 * 2 - 1) * 2;
+                    tableMask = capacity - 1;
+                    hashTable = allocate(capacity);
+                    Arrays.fill(pool, hashTable, hashTable + capacity, -1);
+                    for (int m = 0; m < count2; m++) {
+                        int slot = (int) tape2.stringHash(pool[keys2 + m]) & tableMask;
+                        while (pool[hashTable + slot] >= 0) {
+                            slot = (slot + 1) & tableMask;
+                        }
+                        pool[hashTable + slot] = m;
+                    }
+                }
+                pool[matches + k] = -1;
+                for (int slot = (int) tape1.stringHash(key1) & tableMask; pool[hashTable + slot] >= 0;
+                     slot = (slot + 1) & tableMask) {
+                    if (keysEqual(key1, pool[keys2 + pool[hashTable + slot]])) {
+                        pool[matches + k] = pool[hashTable + slot];
+                        break;
+                    }
+                }
+            }
+            return matches;
+        }
+
+        private void collectKeys(JsonTape tape, int obj, int offset) {
+            int end = tape.matchingEnd(obj);
+            for (int i = obj + 1; i < end; i = tape.next(i + 2)) {
+                pool[offset++] = i;
+            }
+        }
+
+        private boolean keysEqual(int key1, int key2) throws JSONException {
+            return tape1.stringEquals(key1, tape2, key2);
+        }
+
+        private int allocate(int size) {
+            int offset = poolTop;
+            poolTop += size;
+            if (poolTop > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(poolTop, pool.length * 2));
+            }
+            return offset;
+        }
+
+        private void push(byte kind, int value) {
+            if (depth == segments.length) {
+                segments = Arrays.copyOf(segments, depth * 2);
+                segmentKinds = Arrays.copyOf(segmentKinds, depth * 2);
+            }
+            segments[depth] = value;
+            segmentKinds[depth] = kind;
+            depth++;
+        }
+
+        private String path() throws JSONException {
+            StringBuilder path = new StringBuilder();
+            for (int d = 0; d < depth; d++) {
+                // Same joining as JsonComparator: keys get no separator after an empty parent path
+                if (path.length() > 0 || segmentKinds[d] == INDEX) {
+                    path.append('/');
+                }
+                switch (segmentKinds[d]) {
+                    case KEY1:
+                        path.append(tape1.stringValue(segments[d]));
+                        break;
+                    case KEY2:
+                        path.append(tape2.stringValue(segments[d]));
+                        break;
+                    default:
+                        path.append(segments[d]);
+                }
+            }
+            return path.toString();
+        }
+
+        private void emit(String op, int valueIndex) throws JSONException {
+            JSONObject diff = new JSONObject();
+            diff.put("op", op);
+            diff.put("path", path());
+            if (valueIndex >= 0) {
+                diff.put("value", tape2.materialize(valueIndex));
+            }
+            diffs.put(diff);
+        }
+    }
+}
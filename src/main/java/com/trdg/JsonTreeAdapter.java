@@ -0,0 +1,82 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Read-only access to a JSON tree held in some object model, so that {@link JsonTreeComparator}
+ * can compare it in place instead of converting it to org.json first.
+ *
+ * {@code N} is the model's node type. Implementations exist for org.json
+ * ({@link OrgJsonTreeAdapter}), {@code java.util} maps and lists ({@link MapTreeAdapter}),
+ * Jackson ({@link JacksonTreeAdapter}) and Gson ({@link GsonTreeAdapter}); the last two need
+ * their library on the classpath. Adapters hold no state and are safe for concurrent use.
+ */
+public interface JsonTreeAdapter<N> {
+
+    enum NodeType {
+        OBJECT,
+        ARRAY,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL
+    }
+
+    NodeType type(N node);
+
+    /**
+     * Member names of an object node.
+     */
+    Iterable<String> keys(N object);
+
+    /**
+     * Value of a member of an object node, or null if the object has no such member. A member
+     * whose value is JSON null returns a node of type {@link NodeType#NULL}.
+     */
+    N member(N object, String key);
+
+    /**
+     * Number of elements of an array node.
+     */
+    int size(N array);
+
+    N element(N array, int index);
+
+    String stringValue(N node);
+
+    Number numberValue(N node);
+
+    boolean booleanValue(N node);
+
+    /**
+     * Converts a node to the org.json value used in diff output.
+     */
+    default Object toJson(N node) throws JSONException {
+        switch (type(node)) {
+            case OBJECT: {
+                JSONObject obj = new JSONObject();
+                for (String key : keys(node)) {
+                    obj.put(key, toJson(member(node, key)));
+                }
+                return obj;
+            }
+            case ARRAY: {
+                JSONArray array = new JSONArray();
+                for (int i = 0; i < size(node); i++) {
+                    array.put(toJson(element(node, i)));
+                }
+                return array;
+            }
+            case STRING:
+                return stringValue(node);
+            case NUMBER:
+                return numberValue(node);
+            case BOOLEAN:
+                return booleanValue(node);
+            default:
+                return JSONObject.NULL;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Equality and diff between JSON trees of any object model that has a {@link JsonTreeAdapter},
+ * read in place. The two sides may use different models, e.g. a Jackson tree against a Gson tree
+ * or a {@code Map} bound from a request.
+ *
+ * Gives the same answers as {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}
+ * would on the trees converted to org.json, except that numbers are compared by value: an
+ * integer equals an integer of the same value whatever its Java type, and likewise for decimals,
+ * but an integer never equals a decimal. Only the values of reported operations are converted.
+ */
+public final class JsonTreeComparator {
+
+    private JsonTreeComparator() {
+    }
+
+    public static <A, B> boolean areEqual(A tree1, JsonTreeAdapter<A> adapter1,
+                                          B tree2, JsonTreeAdapter<B> adapter2) throws JSONException {
+        return new Context<>(adapter1, adapter2, null).values("", tree1, tree2);
+    }
+
+    /**
+     * Patch-style diff of two trees whose roots are objects, in the format of
+     * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}.
+     */
+    public static <A, B> JSONArray generateJsonDiff(A tree1, JsonTreeAdapter<A> adapter1,
+                                                    B tree2, JsonTreeAdapter<B> adapter2) throws JSONException {
+        if (adapter1.type(tree1) != JsonTreeAdapter.NodeType.OBJECT
+                || adapter2.type(tree2) != JsonTreeAdapter.NodeType.OBJECT) {
+            throw new JSONException("Both trees must be JSON objects");
+        }
+        Context<A, B> context = new Context<>(adapter1, adapter2, new JSONArray());
+        context.values("", tree1, tree2);
+        return context.diffs;
+    }
+
+    /**
+     * Compares two nodes, appending operations under {@code path} to {@code diffs} unless it is
+     * null, in which case the comparison stops at the first difference.
+     */
+    static <A, B> boolean compare(String path, A node1, JsonTreeAdapter<A> adapter1,
+                                  B node2, JsonTreeAdapter<B> adapter2, JSONArray diffs) throws JSONException {
+        return new Context<>(adapter1, adapter2, diffs).values(path, node1, node2);
+    }
+
+    /**
+     * True if the two numbers are both integers or both decimals and have the same value. NaN and
+     * the infinities, which only Java models can hold, equal themselves and no finite number.
+     */
+    static boolean numbersEqual(Number number1, Number number2) {
+        if (isNonFinite(number1) || isNonFinite(number2)) {
+            return isNonFinite(number1) && isNonFinite(number2)
+                    && Double.compare(number1.doubleValue(), number2.doubleValue()) == 0;
+        }
+        boolean integral1 = isIntegral(number1);
+        if (integral1 != isIntegral(number2)) {
+            return false;
+        }
+        if (integral1 && isLong(number1) && isLong(number2)) {
+            return number1.longValue() == number2.longValue();
+        }
+        return toBigDecimal(number1).compareTo(toBigDecimal(number2)) == 0;
+    }
+
+    private static boolean isNonFinite(Number number) {
+        return (number instanceof Double || number instanceof Float) && !Double.isFinite(number.doubleValue());
+    }
+
+    private static boolean isLong(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    private static boolean isIntegral(Number number) {
+        if (isLong(number) || number instanceof BigInteger) {
+            return true;
+        } else if (number instanceof Double || number instanceof Float || number instanceof BigDecimal) {
+            return false;
+        }
+        // Lazily parsed numbers: go by the literal
+        String text = number.toString();
+        return text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        } else if (isLong(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        } else if (number instanceof Double) {
+            return BigDecimal.valueOf(number.doubleValue());
+        }
+        // Floats and lazily parsed numbers by their shortest literal
+        return new BigDecimal(number.toString());
+    }
+
+    private static final class Context<A, B> {
+        private final JsonTreeAdapter<A> adapter1;
+        private final JsonTreeAdapter<B> adapter2;
+        // Null when only equality is wanted: the walk then stops at the first difference
+        private final JSONArray diffs;
+
+        private Context(JsonTreeAdapter<A> adapter1, JsonTreeAdapter<B> adapter2, JSONArray diffs) {
+            this.adapter1 = adapter1;
+            this.adapter2 = adapter2;
+            this.diffs = diffs;
+        }
+
+        private boolean values(String path, A node1, B node2) throws JSONException {
+            JsonTreeAdapter.NodeType type1 = adapter1.type(node1);
+            JsonTreeAdapter.NodeType type2 = adapter2.type(node2);
+            if (type1 == JsonTreeAdapter.NodeType.OBJECT && type2 == JsonTreeAdapter.NodeType.OBJECT) {
+                return objects(path, node1, node2);
+            } else if (type1 == JsonTreeAdapter.NodeType.ARRAY && type2 == JsonTreeAdapter.NodeType.ARRAY) {
+                return arrays(path, node1, node2);
+            } else if (type1 != type2 || !leavesEqual(type1, node1, node2)) {
+                report("replace", path, node2);
+                return false;
+            }
+            return true;
+        }
+
+        private boolean leavesEqual(JsonTreeAdapter.NodeType type, A node1, B node2) {
+            switch (type) {
+                case STRING:
+                    return adapter1.stringValue(node1).equals(adapter2.stringValue(node2));
+                case NUMBER:
+                    return numbersEqual(adapter1.numberValue(node1), adapter2.numberValue(node2));
+                case BOOLEAN:
+                    return adapter1.booleanValue(node1) == adapter2.booleanValue(node2);
+                case NULL:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean objects(String path, A obj1, B obj2) throws JSONException {
+            boolean equal = true;
+            int matched = 0;
+            for (String key : adapter1.keys(obj1)) {
+                String childPath = path.isEmpty() ? key : path + "/" + key;
+                B value2 = adapter2.member(obj2, key);
+                if (value2 == null) {
+                    equal = false;
+                    report("remove", childPath, null);
+                } else {
+                    matched++;
+                    equal &= values(childPath, adapter1.member(obj1, key), value2);
+                }
+                if (!equal && diffs == null) {
+                    return false;
+                }
+            }
+            int count2 = 0;
+            for (String ignored : adapter2.keys(obj2)) {
+                count2++;
+            }
+            if (count2 == matched) {
+                return equal;
+            }
+            for (String key : adapter2.keys(obj2)) {
+                if (adapter1.member(obj1, key) == null) {
+                    equal = false;
+                    report("add", path.isEmpty() ? key : path + "/" + key, adapter2.member(obj2, key));
+                    if (diffs == null) {
+                        return false;
+                    }
+                }
+            }
+            return equal;
+        }
+
+        private boolean arrays(String path, A array1, B array2) throws JSONException {
+            int size1 = adapter1.size(array1);
+            int size2 = adapter2.size(array2);
+            if (size1 != size2 && diffs == null) {
+                return false;
+            }
+            boolean equal = size1 == size2;
+            for (int i = 0; i < Math.max(size1, size2); i++) {
+                String childPath = path + "/" + i;
+                if (i >= size1) {
+                    report("add", childPath, adapter2.element(array2, i));
+                } else if (i >= size2) {
+                    report("remove", childPath, null);
+                } else {
+                    equal &= values(childPath, adapter1.element(array1, i), adapter2.element(array2, i));
+                    if (!equal && diffs == null) {
+                        return false;
+                    }
+                }
+            }
+            return equal;
+        }
+
+        private void report(String op, String path, B value) throws JSONException {
+            if (diffs == null) {
+                return;
+            }
+            JSONObject diff = new JSONObject();
+            diff.put("op", op);
+            diff.put("path", path);
+            if (value != null) {
+                diff.put("value", adapter2.toJson(value));
+            }
+            diffs.put(diff);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe dictionary of object keys shared across documents.
+ *
+ * Documents with a common schema repeat the same keys thousands of times. Interning them makes
+ * every document reference one String instance per key, so the copies can be collected, the
+ * String hash is computed once instead of once per document, and the key sets that
+ * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)} builds resolve matching
+ * keys by identity before falling back to {@code equals}.
+ *
+ * The dictionary never evicts: once {@code maxEntries} keys are known, or for keys longer than
+ * {@code maxKeyLength}, the key is returned as is. Interning is an optimization only, so results
+ * never depend on whether a key was interned. Keys parsed from UTF-8 bytes go through a small
+ * direct-mapped cache first, which returns the interned String without decoding the bytes.
+ */
+public final class KeyInterner {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+    public static final int DEFAULT_MAX_KEY_LENGTH = 128;
+
+    private static final KeyInterner SHARED = new KeyInterner(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_KEY_LENGTH);
+
+    private final int maxEntries;
+    private final int maxKeyLength;
+    private final ConcurrentHashMap<String, String> keys = new ConcurrentHashMap<>();
+
+    // Racy by design: a lost update only costs a decode on the next lookup
+    private final AtomicReferenceArray<ByteEntry> byteCache;
+    private final int byteCacheMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public KeyInterner(int maxEntries, int maxKeyLength) {
+        if (maxEntries <= 0 || maxKeyLength <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxKeyLength must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxKeyLength = maxKeyLength;
+        int cacheSize = Integer.highestOneBit(Math.min(maxEntries, 1 << 12) * 2 - 1);
+        this.byteCache = new AtomicReferenceArray<>(Math.max(cacheSize, 16));
+        this.byteCacheMask = byteCache.length() - 1;
+    }
+
+    /**
+     * Process-wide interner with the default bounds.
+     */
+    public static KeyInterner shared() {
+        return SHARED;
+    }
+
+    public String intern(String key) {
+        if (key.length() > maxKeyLength) {
+            rejected.increment();
+            return key;
+        }
+        String interned = keys.get(key);
+        if (interned != null) {
+            hits.increment();
+            return interned;
+        }
+        if (keys.size() >= maxEntries) {
+            rejected.increment();
+            return key;
+        }
+        misses.increment();
+        interned = keys.putIfAbsent(key, key);
+        return interned != null ? interned : key;
+    }
+
+    /**
+     * Interns the key whose UTF-8 bytes, free of escape sequences, are {@code length} bytes
+     * at {@code offset}.
+     */
+    String intern(byte[] utf8, int offset, int length) {
+        if (length > maxKeyLength * 3) {
+            rejected.increment();
+            return new String(utf8, offset, length, StandardCharsets.UTF_8);
+        }
+        int slot = (int) JsonBytes.hash(utf8, offset, length) & byteCacheMask;
+        ByteEntry entry = byteCache.get(slot);
+        if (entry != null && Arrays.equals(entry.bytes, 0, entry.bytes.length, utf8, offset, offset + length)) {
+            hits.increment();
+            return entry.key;
+        }
+        String key = intern(new String(utf8, offset, length, StandardCharsets.UTF_8));
+        if (keys.get(key) == key) {
+            byteCache.set(slot, new ByteEntry(Arrays.copyOfRange(utf8, offset, offset + length), key));
+        }
+        return key;
+    }
+
+    /**
+     * Parses a JSON object with all of its keys interned.
+     */
+    public JSONObject parse(String json) throws JSONException {
+        Object value = JsonTape.parse(json).toJson(this);
+        if (!(value instanceof JSONObject)) {
+            throw new JSONException("A JSONObject text must begin with '{'");
+        }
+        return (JSONObject) value;
+    }
+
+    /**
+     * Replaces the keys of {@code obj} and of every object nested in it by their interned
+     * instances, in place, and returns {@code obj}.
+     */
+    public JSONObject internKeys(JSONObject obj) throws JSONException {
+        List<String> names = new ArrayList<>(obj.keySet());
+        for (String name : names) {
+            Object value = obj.get(name);
+            internNested(value);
+            String interned = intern(name);
+            if (interned != name) {
+                // A put over an equal key keeps the old key instance, so remove it first
+                obj.remove(name);
+                obj.put(interned, value);
+            }
+        }
+        return obj;
+    }
+
+    private void internNested(Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            internKeys((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            for (int i = 0; i < array.length(); i++) {
+                internNested(array.get(i));
+            }
+        }
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public Stats stats() {
+        return new Stats(keys.size(), hits.sum(), misses.sum(), rejected.sum());
+    }
+
+    private static final class ByteEntry {
+        private final byte[] bytes;
+        private final String key;
+
+        private ByteEntry(byte[] bytes, String key) {
+            this.bytes = bytes;
+            this.key = key;
+        }
+    }
+
+    public static class Stats {
+        public final int size;
+        public final long hits;
+        public final long misses;
+        public final long rejected;
+
+        private Stats(int size, long hits, long misses, long rejected) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d, hits=%d, misses=%d, rejected=%d", size, hits, misses, rejected);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Equality and diff over {@link LazyJsonView} documents.
+ *
+ * Gives the same answers as {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}
+ * on the equivalent org.json trees. Two values whose raw bytes are identical are equal and are
+ * skipped without being decoded. Otherwise objects are matched member by member (in lockstep
+ * while both sides list the same keys in the same order) and arrays element by element. Strings
+ * and numbers whose bytes differ are compared on those bytes, decoding escapes or converting
+ * numbers only when their spelling does not decide; only the values of reported operations and
+ * other leaves are materialized.
+ */
+public final class LazyJsonComparator {
+
+    private LazyJsonComparator() {
+    }
+
+    public static boolean areEqual(LazyJsonView view1, LazyJsonView view2) throws JSONException {
+        return new Context(view1, view2, null).values("", view1.root(), view2.root());
+    }
+
+    /**
+     * Patch-style diff of two documents whose roots are objects, in the format of
+     * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}.
+     */
+    public static JSONArray generateJsonDiff(LazyJsonView view1, LazyJsonView view2) throws JSONException {
+        if (view1.kind(view1.root()) != '{' || view2.kind(view2.root()) != '{') {
+            throw new JSONException("Both documents must be JSON objects");
+        }
+        Context context = new Context(view1, view2, new JSONArray());
+        context.values("", view1.root(), view2.root());
+        return context.diffs;
+    }
+
+    /**
+     * Compares the values at two nodes, appending operations under {@code path} to {@code diffs}
+     * unless it is null, in which case the comparison stops at the first difference.
+     */
+    static boolean compare(LazyJsonView view1, int node1, LazyJsonView view2, int node2, String path,
+                           JSONArray diffs) throws JSONException {
+        return new Context(view1, view2, diffs).values(path, node1, node2);
+    }
+
+    private static final class Context {
+        private final LazyJsonView view1;
+        private final LazyJsonView view2;
+        // Null when only equality is wanted: the walk then stops at the first difference
+        private final JSONArray diffs;
+
+        private Context(LazyJsonView view1, LazyJsonView view2, JSONArray diffs) {
+            this.view1 = view1;
+            this.view2 = view2;
+            this.diffs = diffs;
+        }
+
+        private boolean values(String path, int node1, int node2) throws JSONException {
+            if (view1.sameBytes(node1, view2, node2)) {
+                return true;
+            }
+            byte kind1 = view1.kind(node1);
+            byte kind2 = view2.kind(node2);
+            if (kind1 == '{' && kind2 == '{') {
+                return objects(path, node1, node2);
+            } else if (kind1 == '[' && kind2 == '[') {
+                return arrays(path, node1, node2);
+            }
+            boolean containers = kind1 == '{' || kind1 == '[' || kind2 == '{' || kind2 == '[';
+            if (containers || !view1.leafEquals(node1, view2, node2)) {
+                report("replace", path, node2);
+                return false;
+            }
+            return true;
+        }
+
+        private boolean objects(String path, int object1, int object2) throws JSONException {
+            boolean equal = true;
+            int key1 = view1.firstChild(object1);
+            int key2 = view2.firstChild(object2);
+            // Lockstep while both sides have the same keys in the same order
+            while (key1 >= 0 && key2 >= 0 && view1.sameRawKey(key1, view2, key2)) {
+                if (!values(child(path, view1.key(key1)), view1.valueOf(key1), view2.valueOf(key2))) {
+                    equal = false;
+                    if (diffs == null) {
+                        return false;
+                    }
+                }
+                key1 = view1.nextMember(key1);
+                key2 = view2.nextMember(key2);
+            }
+            if (key1 < 0 && key2 < 0) {
+                return equal;
+            }
+
+            Map<String, Integer> remaining = new HashMap<>();
+            for (; key2 >= 0; key2 = view2.nextMember(key2)) {
+                remaining.put(view2.key(key2), view2.valueOf(key2));
+            }
+            for (; key1 >= 0; key1 = view1.nextMember(key1)) {
+                String key = view1.key(key1);
+                Integer value2 = remaining.remove(key);
+                if (value2 == null) {
+                    report("remove", child(path, key), -1);
+                    equal = false;
+                } else if (!values(child(path, key), view1.valueOf(key1), value2)) {
+                    equal = false;
+                }
+                if (!equal && diffs == null) {
+                    return false;
+                }
+            }
+            for (Map.Entry<String, Integer> added : remaining.entrySet()) {
+                report("add", child(path, added.getKey()), added.getValue());
+                equal = false;
+            }
+            return equal;
+        }
+
+        private boolean arrays(String path, int array1, int array2) throws JSONException {
+            boolean equal = true;
+            int element1 = view1.firstChild(array1);
+            int element2 = view2.firstChild(array2);
+            for (int i = 0; element1 >= 0 || element2 >= 0; i++) {
+                String elementPath = path + "/" + i;
+                if (element2 < 0) {
+                    report("remove", elementPath, -1);
+                    equal = false;
+                } else if (element1 < 0) {
+                    report("add", elementPath, element2);
+                    equal = false;
+                } else if (!values(elementPath, element1, element2)) {
+                    equal = false;
+                }
+                if (!equal && diffs == null) {
+                    return false;
+                }
+                element1 = element1 < 0 ? -1 : view1.nextElement(element1);
+                element2 = element2 < 0 ? -1 : view2.nextElement(element2);
+            }
+            return equal;
+        }
+
+        private void report(String op, String path, int node2) throws JSONException {
+            if (diffs == null) {
+                return;
+            }
+            JSONObject diff = new JSONObject();
+            diff.put("op", op);
+            diff.put("path", path);
+            if (node2 >= 0) {
+                diff.put("value", view2.materialize(node2));
+            }
+            diffs.put(diff);
+        }
+
+        private static String child(String path, String key) {
+            return path.isEmpty() ? key : path + "/" + key;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.trdg;
+
+import org.json.JSONException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Read-only view of a UTF-8 JSON document that decodes values only on demand.
+ *
+ * The first scan builds a {@link StructuralIndex} and pairs every bracket with its match, which
+ * is all that is needed to step over a subtree or compare its raw bytes with another. Nothing
+ * else is decoded up front: keys are decoded when their object is visited and values are turned
+ * into org.json objects only by {@link #get(String)} or when {@link LazyJsonComparator} reports
+ * them. Brackets and strings are checked on the first scan; the remaining syntax of a subtree is
+ * checked when it is materialized.
+ *
+ * Nodes are identified by the index entry of their first byte. The source array is referenced,
+ * not copied, and must not be modified while the view is in use.
+ */
+public final class LazyJsonView {
+
+    private final StructuralIndex index;
+    private final byte[] json;
+    // Entry of the matching close bracket for every open bracket entry
+    private final int[] closing;
+    // Number of values materialized so far, for tests and diagnostics
+    int materialized;
+
+    private LazyJsonView(StructuralIndex index) throws JSONException {
+        this.index = index;
+        this.json = index.json;
+        this.closing = new int[index.size()];
+        int[] stack = new int[16];
+        int depth = 0;
+        for (int i = 0; i < index.size(); i++) {
+            byte b = json[index.position(i)];
+            if (b == '{' || b == '[') {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = i;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0 || json[index.position(stack[depth - 1])] != (b == '}' ? '{' : '[')) {
+                    throw new JSONException("Unmatched '" + (char) b + "' at byte " + index.position(i));
+                }
+                closing[stack[--depth]] = i;
+            }
+        }
+        if (depth > 0 || index.size() == 0) {
+            throw new JSONException("Unexpected end of input");
+        }
+        if (skip(root()) != index.size()) {
+            throw new JSONException("Unexpected trailing content at byte " + index.position(skip(root())));
+        }
+    }
+
+    public static LazyJsonView of(String json) throws JSONException {
+        return of(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LazyJsonView of(byte[] json) throws JSONException {
+        return of(json, 0, json.length);
+    }
+
+    public static LazyJsonView of(byte[] json, int offset, int length) throws JSONException {
+        return new LazyJsonView(StructuralIndex.build(json, offset, length));
+    }
+
+    /**
+     * The value at a JSON Pointer as an org.json value, or null if there is none.
+     */
+    public Object get(String pointer) throws JSONException {
+        int node = root();
+        for (String token : IncrementalDiffSession.parsePointer(pointer)) {
+            node = child(node, token);
+            if (node < 0) {
+                return null;
+            }
+        }
+        return materialize(node);
+    }
+
+    int root() {
+        return 0;
+    }
+
+    /**
+     * First byte of the node: '{', '[', '"', or the first byte of a number or literal.
+     */
+    byte kind(int node) {
+        return json[index.position(node)];
+    }
+
+    /**
+     * Node of the first element of an array or the first key of an object, or -1 if it is empty.
+     */
+    int firstChild(int container) throws JSONException {
+        if (closing[container] == container + 1) {
+            return -1;
+        }
+        return kind(container) == '{' ? checkKey(container + 1) : checkValue(container + 1);
+    }
+
+    /**
+     * Key node of the next member of an object, or -1 after the last one.
+     */
+    int nextMember(int keyNode) throws JSONException {
+        int next = afterValue(skip(valueOf(keyNode)));
+        return next < 0 ? -1 : checkKey(next);
+    }
+
+    /**
+     * Node of the next element of an array, or -1 after the last one.
+     */
+    int nextElement(int node) throws JSONException {
+        int next = afterValue(skip(node));
+        return next < 0 ? -1 : checkValue(next);
+    }
+
+    /**
+     * Value node of the member whose key is at {@code keyNode}.
+     */
+    int valueOf(int keyNode) {
+        return keyNode + 3;
+    }
+
+    String key(int keyNode) throws JSONException {
+        int start = index.position(keyNode) + 1;
+        int close = index.entry(keyNode + 1);
+        int end = close & ~StructuralIndex.ESCAPED;
+        return JsonBytes.decodeString(json, start, end - start, (close & StructuralIndex.ESCAPED) != 0);
+    }
+
+    /**
+     * True if the keys at the two nodes have the same raw bytes and no escapes, i.e. are equal
+     * without decoding.
+     */
+    boolean sameRawKey(int keyNode, LazyJsonView other, int otherKeyNode) {
+        int close1 = index.entry(keyNode + 1);
+        int close2 = other.index.entry(otherKeyNode + 1);
+        if (close1 < 0 || close2 < 0) {
+            return false;
+        }
+        return Arrays.equals(json, index.position(keyNode), close1, other.json, other.index.position(otherKeyNode), close2);
+    }
+
+    /**
+     * True if the two nodes span identical bytes, which makes them equal without decoding.
+     */
+    boolean sameBytes(int node, LazyJsonView other, int otherNode) {
+        int start1 = index.position(node);
+        int start2 = other.index.position(otherNode);
+        int end1 = end(node);
+        int end2 = other.end(otherNode);
+        return end1 - start1 == end2 - start2 && Arrays.equals(json, start1, end1, other.json, start2, end2);
+    }
+
+    /**
+     * True if the leaves at the two nodes are equal as org.json values. Strings and numbers are
+     * compared on their raw bytes, decoding escapes or converting numbers only when the bytes
+     * alone do not decide; other leaves are materialized.
+     */
+    boolean leafEquals(int node, LazyJsonView other, int otherNode) throws JSONException {
+        byte kind1 = kind(node);
+        byte kind2 = other.kind(otherNode);
+        if (kind1 == '"' && kind2 == '"') {
+            int start1 = index.position(node) + 1;
+            int start2 = other.index.position(otherNode) + 1;
+            int close1 = index.entry(node + 1);
+            int close2 = other.index.entry(otherNode + 1);
+            return JsonBytes.stringsEqual(json, start1, (close1 & ~StructuralIndex.ESCAPED) - start1,
+                    (close1 & StructuralIndex.ESCAPED) != 0,
+                    other.json, start2, (close2 & ~StructuralIndex.ESCAPED) - start2,
+                    (close2 & StructuralIndex.ESCAPED) != 0);
+        } else if (isNumberStart(kind1) && isNumberStart(kind2)) {
+            int start1 = index.position(node);
+            int start2 = other.index.position(otherNode);
+            return JsonBytes.numbersEqual(json, start1, end(node) - start1, other.json, start2, other.end(otherNode) - start2);
+        }
+        return materialize(node).equals(other.materialize(otherNode));
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || (b >= '0' && b <= '9');
+    }
+
+    Object materialize(int node) throws JSONException {
+        materialized++;
+        int start = index.position(node);
+        return JsonTape.parse(json, start, end(node) - start).toJson();
+    }
+
+    private int checkKey(int node) throws JSONException {
+        if (kind(node) != '"' || json[index.position(node + 2)] != ':') {
+            throw new JSONException("Expected object member at byte " + index.position(node));
+        }
+        checkValue(valueOf(node));
+        return node;
+    }
+
+    private int checkValue(int node) throws JSONException {
+        byte b = kind(node);
+        if (b == ',' || b == ':' || b == ']' || b == '}') {
+            throw new JSONException("Expected value at byte " + index.position(node));
+        }
+        return node;
+    }
+
+    private int afterValue(int next) throws JSONException {
+        byte b = json[index.position(next)];
+        if (b == ',') {
+            return next + 1;
+        } else if (b == ']' || b == '}') {
+            return -1;
+        }
+        throw new JSONException("Expected ',' at byte " + index.position(next));
+    }
+
+    /**
+     * Entry after the value at {@code node}.
+     */
+    private int skip(int node) {
+        byte b = kind(node);
+        if (b == '{' || b == '[') {
+            return closing[node] + 1;
+        }
+        return b == '"' ? node + 2 : node + 1;
+    }
+
+    /**
+     * Byte position just past the value at {@code node}.
+     */
+    private int end(int node) {
+        byte b = kind(node);
+        if (b == '{' || b == '[') {
+            return index.position(closing[node]) + 1;
+        } else if (b == '"') {
+            return index.position(node + 1) + 1;
+        }
+        int pos = index.position(node);
+        int limit = node + 1 < index.size() ? index.position(node + 1) : index.end;
+        while (pos < limit && !JsonBytes.isWhitespace(json[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Node of the member or element named by a JSON Pointer token, or -1 if there is none.
+     */
+    int child(int node, String token) throws JSONException {
+        byte b = kind(node);
+        if (b == '{') {
+            for (int key = firstChild(node); key >= 0; key = nextMember(key)) {
+                if (key(key).equals(token)) {
+                    return valueOf(key);
+                }
+            }
+        } else if (b == '[') {
+            int position = arrayIndex(token);
+            if (position < 0) {
+                return -1;
+            }
+            int element = firstChild(node);
+            for (int i = 0; i < position && element >= 0; i++) {
+                element = nextElement(element);
+            }
+            return element;
+        }
+        return -1;
+    }
+
+    /**
+     * The array index a JSON Pointer token names, or -1 unless it is {@code 0} or a digit string
+     * without a leading zero that fits an int.
+     */
+    static int arrayIndex(String token) {
+        int length = token.length();
+        if (length == 0 || length > 10 || length > 1 && token.charAt(0) == '0') {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+}
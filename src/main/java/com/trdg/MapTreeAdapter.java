@@ -0,0 +1,80 @@
+package com.trdg;
+
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link JsonTreeAdapter} for trees of {@code java.util} collections as produced by most JSON
+ * binders: {@code Map<String, ?>} objects, {@code List<?>} arrays, and String, Number, Boolean
+ * or null leaves. Any other leaf is treated as a string of its {@code toString()}.
+ */
+public final class MapTreeAdapter implements JsonTreeAdapter<Object> {
+
+    public static final MapTreeAdapter INSTANCE = new MapTreeAdapter();
+
+    // Stands for a null value, since null from member() means "absent"
+    private static final Object NULL_NODE = JSONObject.NULL;
+
+    private MapTreeAdapter() {
+    }
+
+    @Override
+    public NodeType type(Object node) {
+        if (node instanceof Map) {
+            return NodeType.OBJECT;
+        } else if (node instanceof List) {
+            return NodeType.ARRAY;
+        } else if (node instanceof Number) {
+            return NodeType.NUMBER;
+        } else if (node instanceof Boolean) {
+            return NodeType.BOOLEAN;
+        } else if (node == null || node == NULL_NODE) {
+            return NodeType.NULL;
+        }
+        return NodeType.STRING;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<String> keys(Object object) {
+        return ((Map<String, ?>) object).keySet();
+    }
+
+    @Override
+    public Object member(Object object, String key) {
+        Map<?, ?> map = (Map<?, ?>) object;
+        Object value = map.get(key);
+        if (value == null) {
+            return map.containsKey(key) ? NULL_NODE : null;
+        }
+        return value;
+    }
+
+    @Override
+    public int size(Object array) {
+        return ((List<?>) array).size();
+    }
+
+    @Override
+    public Object element(Object array, int index) {
+        Object value = ((List<?>) array).get(index);
+        return value == null ? NULL_NODE : value;
+    }
+
+    @Override
+    public String stringValue(Object node) {
+        return node.toString();
+    }
+
+    @Override
+    public Number numberValue(Object node) {
+        return (Number) node;
+    }
+
+    @Override
+    public boolean booleanValue(Object node) {
+        return (Boolean) node;
+    }
+}
@@ -0,0 +1,236 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 6902 patch generation that turns relocated subtrees into {@code move} and {@code copy} ops.
+ *
+ * The documents are compared the same way as
+ * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}: members by key, array
+ * elements by position. Every container that is added, or that replaces an object member, is then
+ * looked up by structural fingerprint, and a candidate is only used once its content is confirmed
+ * equal. A removed object member with the same content becomes the
+ * source of a {@code move}. Failing that, a subtree that is unchanged between the two documents,
+ * or that an earlier op already put in place, becomes the source of a {@code copy}. Only containers
+ * of at least {@code minNodes} nodes are considered; smaller values are sent as they are.
+ *
+ * Paths are escaped JSON Pointers and the ops are ordered so that the patch applies in sequence:
+ * removals first, highest array index first, then additions in document order.
+ */
+public final class MoveDetector {
+    public static final int DEFAULT_MIN_NODES = 2;
+
+    private MoveDetector() {
+    }
+
+    public static JSONArray generatePatch(JSONObject obj1, JSONObject obj2) throws JSONException {
+        return generatePatch(obj1, obj2, DEFAULT_MIN_NODES);
+    }
+
+    public static JSONArray generatePatch(JSONObject obj1, JSONObject obj2, int minNodes) throws JSONException {
+        if (minNodes < 1) {
+            throw new IllegalArgumentException("minNodes must be at least 1");
+        }
+        List<Op> removals = new ArrayList<>();
+        List<Op> additions = new ArrayList<>();
+        collectObject(new ArrayList<>(), obj1, obj2, removals, additions);
+
+        SubtreeIndex tree1 = new SubtreeIndex(obj1);
+        SubtreeIndex tree2 = new SubtreeIndex(obj2);
+
+        // Removed array elements are left alone: taking one out early would shift its siblings.
+        Map<Long, Deque<Op>> movable = new HashMap<>();
+        for (Op op : removals) {
+            if (!op.inArray && tree1.size(op.value) >= minNodes) {
+                movable.computeIfAbsent(tree1.fingerprint(op.value), f -> new ArrayDeque<>()).add(op);
+            }
+        }
+        Map<Long, Op> unchanged = null;
+        Map<Long, Op> placed = new HashMap<>();
+
+        for (Op op : additions) {
+            // A move or copy onto an array index inserts instead of replacing.
+            if (op.name.equals("replace") && op.inArray || tree2.size(op.value) < minNodes) {
+                continue;
+            }
+            long fingerprint = tree2.fingerprint(op.value);
+            Op source = take(movable.get(fingerprint), op.value);
+            if (source != null) {
+                source.name = null;
+                op.name = "move";
+            } else {
+                if (unchanged == null) {
+                    unchanged = new HashMap<>();
+                    collectUnchanged(new ArrayList<>(), obj1, obj2, false, tree1, tree2, minNodes, unchanged);
+                }
+                source = unchanged.get(fingerprint);
+                if (source == null) {
+                    source = placed.get(fingerprint);
+                }
+                if (source != null && JsonFingerprint.sameValue(source.value, op.value)) {
+                    op.name = "copy";
+                } else {
+                    source = null;
+                }
+            }
+            if (source != null) {
+                op.from = source.path;
+            }
+            placed.putIfAbsent(fingerprint, op);
+        }
+
+        JSONArray patch = new JSONArray();
+        for (Op op : removals) {
+            if (op.name != null) {
+                patch.put(op.toJson());
+            }
+        }
+        for (Op op : additions) {
+            patch.put(op.toJson());
+        }
+        return patch;
+    }
+
+    private static void collectObject(List<String> path, JSONObject obj1, JSONObject obj2,
+                                      List<Op> removals, List<Op> additions) throws JSONException {
+        for (String key : obj1.keySet()) {
+            if (!obj2.has(key)) {
+                removals.add(new Op("remove", child(path, key), obj1.get(key), false));
+            }
+        }
+        for (String key : obj2.keySet()) {
+            Object value2 = obj2.get(key);
+            if (!obj1.has(key)) {
+                additions.add(new Op("add", child(path, key), value2, false));
+            } else {
+                compare(child(path, key), obj1.get(key), value2, false, removals, additions);
+            }
+        }
+    }
+
+    private static void collectArray(List<String> path, JSONArray array1, JSONArray array2,
+                                     List<Op> removals, List<Op> additions) throws JSONException {
+        int common = Math.min(array1.length(), array2.length());
+        for (int i = 0; i < common; i++) {
+            compare(child(path, Integer.toString(i)), array1.get(i), array2.get(i), true, removals, additions);
+        }
+        for (int i = array1.length() - 1; i >= common; i--) {
+            removals.add(new Op("remove", child(path, Integer.toString(i)), array1.get(i), true));
+        }
+        for (int i = common; i < array2.length(); i++) {
+            additions.add(new Op("add", child(path, Integer.toString(i)), array2.get(i), true));
+        }
+    }
+
+    private static void compare(List<String> path, Object value1, Object value2, boolean inArray,
+                                List<Op> removals, List<Op> additions) throws JSONException {
+        if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+            collectObject(path, (JSONObject) value1, (JSONObject) value2, removals, additions);
+        } else if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+            collectArray(path, (JSONArray) value1, (JSONArray) value2, removals, additions);
+        } else if (!value1.equals(value2)) {
+            additions.add(new Op("replace", path, value2, inArray));
+        }
+    }
+
+    /**
+     * Records every subtree of {@code value1} that sits unchanged at the same path in the second
+     * document. {@code equal} is set once an ancestor was confirmed unchanged, which covers the
+     * whole subtree without checking it again.
+     */
+    private static void collectUnchanged(List<String> path, Object value1, Object value2, boolean equal,
+                                         SubtreeIndex tree1, SubtreeIndex tree2, int minNodes,
+                                         Map<Long, Op> unchanged) throws JSONException {
+        if (value2 == null || value1.getClass() != value2.getClass() || tree1.size(value1) < minNodes) {
+            return;
+        }
+        long fingerprint = tree1.fingerprint(value1);
+        if (!equal && fingerprint == tree2.fingerprint(value2)) {
+            equal = JsonFingerprint.sameValue(value1, value2);
+        }
+        if (equal) {
+            unchanged.putIfAbsent(fingerprint, new Op(null, path, value1, false));
+        }
+        if (value1 instanceof JSONObject) {
+            JSONObject obj1 = (JSONObject) value1;
+            JSONObject obj2 = (JSONObject) value2;
+            for (String key : obj1.keySet()) {
+                collectUnchanged(child(path, key), obj1.get(key), obj2.opt(key), equal, tree1, tree2, minNodes, unchanged);
+            }
+        } else if (value1 instanceof JSONArray) {
+            JSONArray array1 = (JSONArray) value1;
+            JSONArray array2 = (JSONArray) value2;
+            for (int i = 0; i < array1.length(); i++) {
+                collectUnchanged(child(path, Integer.toString(i)), array1.get(i), array2.opt(i), equal,
+                        tree1, tree2, minNodes, unchanged);
+            }
+        }
+    }
+
+    private static Op take(Deque<Op> sources, Object value) {
+        if (sources == null) {
+            return null;
+        }
+        for (Iterator<Op> it = sources.iterator(); it.hasNext(); ) {
+            Op source = it.next();
+            if (JsonFingerprint.sameValue(source.value, value)) {
+                it.remove();
+                return source;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> child(List<String> path, String token) {
+        List<String> child = new ArrayList<>(path.size() + 1);
+        child.addAll(path);
+        child.add(token);
+        return child;
+    }
+
+    static String pointer(List<String> tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            sb.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+        }
+        return sb.toString();
+    }
+
+    private static final class Op {
+        private String name;
+        private final List<String> path;
+        private final Object value;
+        private final boolean inArray;
+        private List<String> from;
+
+        private Op(String name, List<String> path, Object value, boolean inArray) {
+            this.name = name;
+            this.path = path;
+            this.value = value;
+            this.inArray = inArray;
+        }
+
+        private JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("op", name);
+            if (from != null) {
+                json.put("from", pointer(from));
+            }
+            json.put("path", pointer(path));
+            if (from == null && !name.equals("remove")) {
+                json.put("value", value);
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Record-by-record diff of two NDJSON (JSON Lines) inputs that are too large to load at once.
+ *
+ * Records are aligned either by line number or by the value at a JSON Pointer inside each
+ * record. Keyed inputs that are already sorted by that value (as strings) are merge-joined
+ * directly; unsorted inputs are first sorted externally: runs of {@code batchSize} records are
+ * sorted in memory and spilled to temporary files, which are then merged. Records with the same
+ * key are paired in input order. Every pair goes through
+ * {@link JsonComparator#generateJsonDiff(String, JSONObject, JSONObject)}, or through a
+ * {@link ComparisonPlan} when one is given, and each difference is handed to the sink as soon
+ * as it is found. At most {@code batchSize} records per input are held in memory.
+ */
+public class NdjsonDiff {
+
+    public static final int DEFAULT_BATCH_SIZE = 100_000;
+
+    public enum Kind {
+        CHANGED,
+        ONLY_LEFT,
+        ONLY_RIGHT
+    }
+
+    private final int batchSize;
+    private final ComparisonPlan plan;
+    private final Path tempDir;
+
+    public NdjsonDiff() {
+        this(DEFAULT_BATCH_SIZE, null, null);
+    }
+
+    /**
+     * @param plan    comparison plan for each record pair, or null for the plain comparator
+     * @param tempDir directory for sort runs, or null for the system default
+     */
+    public NdjsonDiff(int batchSize, ComparisonPlan plan, Path tempDir) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.plan = plan;
+        this.tempDir = tempDir;
+    }
+
+    public Summary diffByLine(Path left, Path right, Consumer<RecordDiff> sink) throws IOException {
+        try (BufferedReader reader1 = Files.newBufferedReader(left, StandardCharsets.UTF_8);
+             BufferedReader reader2 = Files.newBufferedReader(right, StandardCharsets.UTF_8)) {
+            return diffByLine(reader1, reader2, sink);
+        }
+    }
+
+    /**
+     * Pairs the n-th line of one input with the n-th line of the other. Blank lines count as
+     * missing records.
+     */
+    public Summary diffByLine(BufferedReader left, BufferedReader right, Consumer<RecordDiff> sink)
+            throws IOException {
+        Counts counts = new Counts();
+        String line1 = left.readLine();
+        String line2 = right.readLine();
+        for (long line = 1; line1 != null || line2 != null; line++) {
+            boolean has1 = line1 != null && !line1.isBlank();
+            boolean has2 = line2 != null && !line2.isBlank();
+            if (has1 || has2) {
+                emit(Long.toString(line), has1 ? line1 : null, has2 ? line2 : null, counts, sink);
+            }
+            line1 = left.readLine();
+            line2 = right.readLine();
+        }
+        return counts.toSummary();
+    }
+
+    public Summary diffByKey(Path left, Path right, String keyPointer, boolean sorted, Consumer<RecordDiff> sink)
+            throws IOException {
+        try (BufferedReader reader1 = Files.newBufferedReader(left, StandardCharsets.UTF_8);
+             BufferedReader reader2 = Files.newBufferedReader(right, StandardCharsets.UTF_8)) {
+            return diffByKey(reader1, reader2, keyPointer, sorted, sink);
+        }
+    }
+
+    /**
+     * Pairs records by the value at {@code keyPointer}. With {@code sorted} the inputs must
+     * already be in ascending key order, which is checked as they are read; otherwise they are
+     * sorted externally first.
+     */
+    public Summary diffByKey(BufferedReader left, BufferedReader right, String keyPointer, boolean sorted,
+                             Consumer<RecordDiff> sink) throws IOException {
+        List<String> tokens = IncrementalDiffSession.parsePointer(keyPointer);
+        try (RecordSource source1 = sorted ? new SortedSource(left, tokens) : externalSort(left, tokens);
+             RecordSource source2 = sorted ? new SortedSource(right, tokens) : externalSort(right, tokens)) {
+            Counts counts = new Counts();
+            Keyed record1 = source1.next();
+            Keyed record2 = source2.next();
+            while (record1 != null || record2 != null) {
+                int order = record1 == null ? 1 : record2 == null ? -1 : record1.key.compareTo(record2.key);
+                if (order == 0) {
+                    emit(record1.key, record1.line, record2.line, counts, sink);
+                    record1 = source1.next();
+                    record2 = source2.next();
+                } else if (order < 0) {
+                    emit(record1.key, record1.line, null, counts, sink);
+                    record1 = source1.next();
+                } else {
+                    emit(record2.key, null, record2.line, counts, sink);
+                    record2 = source2.next();
+                }
+            }
+            return counts.toSummary();
+        }
+    }
+
+    private void emit(String key, String line1, String line2, Counts counts, Consumer<RecordDiff> sink)
+            throws JSONException {
+        if (line1 == null) {
+            counts.onlyRight++;
+            sink.accept(new RecordDiff(Kind.ONLY_RIGHT, key, null, new JSONObject(line2)));
+            return;
+        } else if (line2 == null) {
+            counts.onlyLeft++;
+            sink.accept(new RecordDiff(Kind.ONLY_LEFT, key, new JSONObject(line1), null));
+            return;
+        }
+
+        counts.compared++;
+        JSONObject obj1 = new JSONObject(line1);
+        JSONObject obj2 = new JSONObject(line2);
+        JSONArray diffs = plan != null ? plan.generateJsonDiff(obj1, obj2) : JsonComparator.generateJsonDiff("", obj1, obj2);
+        if (!diffs.isEmpty()) {
+            counts.changed++;
+            sink.accept(new RecordDiff(Kind.CHANGED, key, diffs));
+        }
+    }
+
+    static String keyOf(String line, List<String> tokens) throws JSONException {
+        return keyOf(new JSONObject(line), tokens);
+    }
+
+    /**
+     * The value at the pointer {@code tokens} as a string: strings as is, anything else in its
+     * JSON form.
+     */
+    static String keyOf(JSONObject record, List<String> tokens) throws JSONException {
+        Object value = record;
+        for (String token : tokens) {
+            if (value instanceof JSONObject) {
+                value = ((JSONObject) value).opt(token);
+            } else if (value instanceof JSONArray) {
+                value = ((JSONArray) value).opt(Integer.parseInt(token));
+            } else {
+                value = null;
+            }
+            if (value == null) {
+                throw new JSONException("Record has no value at the key pointer: " + record);
+            }
+        }
+        return value instanceof String ? (String) value : JSONObject.valueToString(value);
+    }
+
+    /**
+     * Sorts the input into runs of at most {@code batchSize} records. A single run stays in
+     * memory; more are spilled to temporary files and merged.
+     */
+    private RecordSource externalSort(BufferedReader reader, List<String> tokens) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        List<Keyed> batch = new ArrayList<>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(new Keyed(keyOf(line, tokens), line));
+                if (batch.size() == batchSize) {
+                    runs.add(spill(batch));
+                    batch.clear();
+                }
+            }
+            if (runs.isEmpty()) {
+                batch.sort(BY_KEY);
+                Iterator<Keyed> iterator = batch.iterator();
+                return new RecordSource() {
+                    @Override
+                    public Keyed next() {
+                        return iterator.hasNext() ? iterator.next() : null;
+                    }
+                };
+            }
+            if (!batch.isEmpty()) {
+                runs.add(spill(batch));
+            }
+            return new MergedRuns(runs);
+        } catch (IOException | RuntimeException e) {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+            throw e;
+        }
+    }
+
+    private Path spill(List<Keyed> batch) throws IOException {
+        batch.sort(BY_KEY);
+        Path run = tempDir != null ? Files.createTempFile(tempDir, "ndjson-run", ".tmp")
+                : Files.createTempFile("ndjson-run", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (Keyed record : batch) {
+                writeKeyed(writer, record.key, record.line);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Writes a record to a spill file as two lines: its quoted key, then the record as read.
+     */
+    static void writeKeyed(BufferedWriter writer, String key, String line) throws IOException {
+        writer.write(JSONObject.quote(key));
+        writer.newLine();
+        writer.write(line);
+        writer.newLine();
+    }
+
+    static String readKey(String quotedKey) throws JSONException {
+        return JsonBytes.unescape(quotedKey.substring(1, quotedKey.length() - 1));
+    }
+
+    // List.sort and the run index tie-break keep records with equal keys in input order
+    private static final Comparator<Keyed> BY_KEY = Comparator.comparing(record -> record.key);
+
+    private static final class Keyed {
+        private final String key;
+        private final String line;
+
+        private Keyed(String key, String line) {
+            this.key = key;
+            this.line = line;
+        }
+    }
+
+    private interface RecordSource extends Closeable {
+        /** Next record in key order, or null at the end. */
+        Keyed next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private static final class SortedSource implements RecordSource {
+        private final BufferedReader reader;
+        private final List<String> tokens;
+        private String previousKey;
+        private long lineNumber;
+
+        private SortedSource(BufferedReader reader, List<String> tokens) {
+            this.reader = reader;
+            this.tokens = tokens;
+        }
+
+        @Override
+        public Keyed next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+            String key = keyOf(line, tokens);
+            if (previousKey != null && previousKey.compareTo(key) > 0) {
+                throw new JSONException("Input is not sorted by key at line " + lineNumber
+                        + ": " + key + " follows " + previousKey);
+            }
+            previousKey = key;
+            return new Keyed(key, line);
+        }
+    }
+
+    private static final class MergedRuns implements RecordSource {
+        private final List<Path> runs;
+        private final List<BufferedReader> readers = new ArrayList<>();
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(
+                Comparator.comparing((Head head) -> head.record.key).thenComparingInt(head -> head.run));
+
+        private MergedRuns(List<Path> runs) throws IOException {
+            this.runs = runs;
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    BufferedReader reader = Files.newBufferedReader(runs.get(i), StandardCharsets.UTF_8);
+                    readers.add(reader);
+                    advance(i);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void advance(int run) throws IOException {
+            BufferedReader reader = readers.get(run);
+            String quotedKey = reader.readLine();
+            if (quotedKey != null) {
+                String key = readKey(quotedKey);
+                heads.add(new Head(new Keyed(key, reader.readLine()), run));
+            }
+        }
+
+        @Override
+        public Keyed next() throws IOException {
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            advance(head.run);
+            return head.record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (BufferedReader reader : readers) {
+                reader.close();
+            }
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+
+        private static final class Head {
+            private final Keyed record;
+            private final int run;
+
+            private Head(Keyed record, int run) {
+                this.record = record;
+                this.run = run;
+            }
+        }
+    }
+
+    /**
+     * One unmatched record, or a record pair with differences. {@code key} is the line number in
+     * line mode and the record key in key mode.
+     */
+    public static class RecordDiff {
+        public final Kind kind;
+        public final String key;
+        public final JSONArray diffs;
+        public final JSONObject left;
+        public final JSONObject right;
+
+        RecordDiff(Kind kind, String key, JSONArray diffs) {
+            this(kind, key, diffs, null, null);
+        }
+
+        RecordDiff(Kind kind, String key, JSONObject left, JSONObject right) {
+            this(kind, key, new JSONArray(), left, right);
+        }
+
+        private RecordDiff(Kind kind, String key, JSONArray diffs, JSONObject left, JSONObject right) {
+            this.kind = kind;
+            this.key = key;
+            this.diffs = diffs;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.CHANGED ? key + ": " + diffs : key + ": " + kind;
+        }
+    }
+
+    private static final class Counts {
+        private long compared;
+        private long changed;
+        private long onlyLeft;
+        private long onlyRight;
+
+        private Summary toSummary() {
+            return new Summary(compared, changed, onlyLeft, onlyRight);
+        }
+    }
+
+    public static class Summary {
+        public final long compared;
+        public final long changed;
+        public final long onlyLeft;
+        public final long onlyRight;
+
+        Summary(long compared, long changed, long onlyLeft, long onlyRight) {
+            this.compared = compared;
+            this.changed = changed;
+            this.onlyLeft = onlyLeft;
+            this.onlyRight = onlyRight;
+        }
+
+        public boolean isEqual() {
+            return changed == 0 && onlyLeft == 0 && onlyRight == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("compared=%d, changed=%d, onlyLeft=%d, onlyRight=%d",
+                    compared, changed, onlyLeft, onlyRight);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.trdg;
+
+import org.json.JSONArray;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Comparison of arrays whose elements are all numbers, on unboxed buffers.
+ *
+ * The exact mode gives the answer of comparing the elements with {@code equals}, as
+ * {@link JsonComparator#compareJsonArrays(JSONArray, JSONArray)} does: each element is unpacked
+ * into a {@code long} (the value of an Integer or Long, the bits of a Double or Float, the
+ * unscaled value of a BigDecimal) plus a tag for its class and, for BigDecimals, its scale, and
+ * the buffers are compared with {@link Arrays#mismatch}, which the JIT vectorizes. The tolerance
+ * mode compares {@code doubleValue()}s, treating values at most {@code epsilon} apart as equal,
+ * with the {@code jdk.incubator.vector} API when the module is available. NaN and the infinities
+ * only equal values with the same bits, whatever the tolerance.
+ *
+ * Differences are reported as ranges of consecutive mismatching indices rather than per element.
+ */
+public final class NumericArrays {
+
+    // Below this length unpacking costs more than comparing the boxed elements
+    static final int MIN_LENGTH = 32;
+
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DECIMAL = 5;
+
+    private static final boolean VECTORIZED = detectVectorSupport();
+
+    private NumericArrays() {
+    }
+
+    /**
+     * Exact comparison reporting at most {@code maxRanges} mismatching ranges, or null if either
+     * array holds anything other than Integer, Long, Double, Float or BigDecimal (of at most 18
+     * digits) values.
+     */
+    public static Result compare(JSONArray array1, JSONArray array2, int maxRanges) {
+        Unpacked values1 = Unpacked.of(array1);
+        Unpacked values2 = values1 == null ? null : Unpacked.of(array2);
+        if (values2 == null) {
+            return null;
+        }
+        int common = Math.min(values1.length, values2.length);
+        List<Range> ranges = new ArrayList<>();
+        for (int i = 0; i < common && ranges.size() < maxRanges; ) {
+            int first = values1.mismatch(values2, i, common);
+            if (first < 0) {
+                break;
+            }
+            int end = first + 1;
+            while (end < common && !values1.same(values2, end)) {
+                end++;
+            }
+            ranges.add(new Range(first, end));
+            i = end;
+        }
+        return result(values1.length, values2.length, ranges, maxRanges);
+    }
+
+    /**
+     * Comparison treating numbers at most {@code epsilon} apart as equal, reporting at most
+     * {@code maxRanges} mismatching ranges, or null if either array holds a non-number or a number
+     * other than a Double or Float that is out of the range of a double.
+     */
+    public static Result compare(JSONArray array1, JSONArray array2, double epsilon, int maxRanges) {
+        return compare(array1, array2, epsilon, maxRanges, VECTORIZED);
+    }
+
+    static Result compare(JSONArray array1, JSONArray array2, double epsilon, int maxRanges, boolean vectorized) {
+        double[] values1 = doubles(array1);
+        double[] values2 = values1 == null ? null : doubles(array2);
+        if (values2 == null) {
+            return null;
+        }
+        int common = Math.min(values1.length, values2.length);
+        List<Range> ranges = new ArrayList<>();
+        for (int i = 0; i < common && ranges.size() < maxRanges; ) {
+            int first = vectorized
+                    ? VectorNumericScanner.firstOutside(values1, values2, i, common, epsilon)
+                    : firstOutside(values1, values2, i, common, epsilon);
+            if (first < 0) {
+                break;
+            }
+            int end = first + 1;
+            while (end < common && outside(values1[end], values2[end], epsilon)) {
+                end++;
+            }
+            ranges.add(new Range(first, end));
+            i = end;
+        }
+        return result(values1.length, values2.length, ranges, maxRanges);
+    }
+
+    /**
+     * True if the tolerance mode uses the Vector API rather than the scalar loop.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    private static Result result(int length1, int length2, List<Range> ranges, int maxRanges) {
+        if (length1 != length2 && ranges.size() < maxRanges) {
+            ranges.add(new Range(Math.min(length1, length2), Math.max(length1, length2)));
+        }
+        return new Result(length1, length2, Collections.unmodifiableList(ranges));
+    }
+
+    private static int firstOutside(double[] values1, double[] values2, int from, int to, double epsilon) {
+        for (int i = from; i < to; i++) {
+            if (outside(values1[i], values2[i], epsilon)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * True unless the values have the same bits, or are both finite and at most {@code epsilon}
+     * apart.
+     */
+    static boolean outside(double value1, double value2, double epsilon) {
+        return Double.doubleToRawLongBits(value1) != Double.doubleToRawLongBits(value2)
+                && !(Math.abs(value1 - value2) <= epsilon && Double.isFinite(value1) && Double.isFinite(value2));
+    }
+
+    private static double[] doubles(JSONArray array) {
+        double[] values = new double[array.length()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = array.opt(i);
+            if (!(value instanceof Number)) {
+                return null;
+            }
+            values[i] = ((Number) value).doubleValue();
+            if (!Double.isFinite(values[i]) && !(value instanceof Double || value instanceof Float)) {
+                // Overflowed to an infinity, which would equal any other overflowed value
+                return null;
+            }
+        }
+        return values;
+    }
+
+    private static boolean detectVectorSupport() {
+        if (Boolean.getBoolean("com.trdg.numericArrays.scalar")) {
+            return false;
+        }
+        try {
+            Class.forName("jdk.incubator.vector.DoubleVector");
+            Class.forName("com.trdg.VectorNumericScanner", true, NumericArrays.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Module not resolved at runtime: use the scalar loop
+            return false;
+        }
+    }
+
+    /**
+     * Indices {@code from} (inclusive) to {@code to} (exclusive). Indices past the end of the
+     * shorter array form a range of their own.
+     */
+    public static final class Range {
+        public final int from;
+        public final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + from + ", " + to + ")";
+        }
+    }
+
+    public static final class Result {
+        public final int length1;
+        public final int length2;
+        public final List<Range> mismatches;
+
+        Result(int length1, int length2, List<Range> mismatches) {
+            this.length1 = length1;
+            this.length2 = length2;
+            this.mismatches = mismatches;
+        }
+
+        public boolean isEqual() {
+            return mismatches.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return isEqual() ? "equal" : "mismatches " + mismatches;
+        }
+    }
+
+    /**
+     * One array as value bits, class tags and BigDecimal scales: two elements are equal exactly
+     * when all three match.
+     */
+    private static final class Unpacked {
+        private final int length;
+        private final long[] values;
+        private final byte[] tags;
+        // Set when every element has the same class, which makes comparing tags trivial
+        private final byte uniformTag;
+        // Null when there is no BigDecimal, i.e. every scale is 0
+        private int[] scales;
+
+        private Unpacked(int length, long[] values, byte[] tags, byte uniformTag, int[] scales) {
+            this.length = length;
+            this.values = values;
+            this.tags = tags;
+            this.uniformTag = uniformTag;
+            this.scales = scales;
+        }
+
+        private static Unpacked of(JSONArray array) {
+            int length = array.length();
+            long[] values = new long[length];
+            byte[] tags = new byte[length];
+            int[] scales = null;
+            byte uniform = 0;
+            for (int i = 0; i < length; i++) {
+                Object value = array.opt(i);
+                byte tag;
+                if (value instanceof Integer) {
+                    tag = INTEGER;
+                    values[i] = (Integer) value;
+                } else if (value instanceof Long) {
+                    tag = LONG;
+                    values[i] = (Long) value;
+                } else if (value instanceof Double) {
+                    tag = DOUBLE;
+                    values[i] = Double.doubleToLongBits((Double) value);
+                } else if (value instanceof Float) {
+                    tag = FLOAT;
+                    values[i] = Float.floatToIntBits((Float) value);
+                } else if (value instanceof BigDecimal) {
+                    BigDecimal decimal = (BigDecimal) value;
+                    if (decimal.precision() > 18) {
+                        return null;
+                    }
+                    tag = DECIMAL;
+                    values[i] = decimal.unscaledValue().longValue();
+                    if (scales == null) {
+                        scales = new int[length];
+                    }
+                    scales[i] = decimal.scale();
+                } else {
+                    return null;
+                }
+                tags[i] = tag;
+                uniform = i == 0 || uniform == tag ? tag : -1;
+            }
+            return new Unpacked(length, values, tags, uniform, scales);
+        }
+
+        /**
+         * First index in {@code [from, to)} where the elements differ, or -1.
+         */
+        private int mismatch(Unpacked other, int from, int to) {
+            int m = Arrays.mismatch(values, from, to, other.values, from, to);
+            int first = m < 0 ? to : from + m;
+            if (uniformTag > 0 && uniformTag == other.uniformTag) {
+                // Same class throughout: only the values can differ
+            } else if (uniformTag > 0 && other.uniformTag > 0) {
+                first = from;
+            } else {
+                m = Arrays.mismatch(tags, from, first, other.tags, from, first);
+                first = m < 0 ? first : from + m;
+            }
+            if (scales != null || other.scales != null) {
+                m = Arrays.mismatch(scales(), from, first, other.scales(), from, first);
+                first = m < 0 ? first : from + m;
+            }
+            return first == to ? -1 : first;
+        }
+
+        private boolean same(Unpacked other, int i) {
+            return values[i] == other.values[i] && tags[i] == other.tags[i]
+                    && (scales == null ? 0 : scales[i]) == (other.scales == null ? 0 : other.scales[i]);
+        }
+
+        private int[] scales() {
+            if (scales == null) {
+                scales = new int[length];
+            }
+            return scales;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * {@link JsonTreeAdapter} for org.json values: JSONObject, JSONArray, String, Number, Boolean
+ * and {@link JSONObject#NULL}. Any other value is treated as a string of its {@code toString()}.
+ */
+public final class OrgJsonTreeAdapter implements JsonTreeAdapter<Object> {
+
+    public static final OrgJsonTreeAdapter INSTANCE = new OrgJsonTreeAdapter();
+
+    private OrgJsonTreeAdapter() {
+    }
+
+    @Override
+    public NodeType type(Object node) {
+        if (node instanceof JSONObject) {
+            return NodeType.OBJECT;
+        } else if (node instanceof JSONArray) {
+            return NodeType.ARRAY;
+        } else if (node instanceof Number) {
+            return NodeType.NUMBER;
+        } else if (node instanceof Boolean) {
+            return NodeType.BOOLEAN;
+        } else if (node == null || JSONObject.NULL.equals(node)) {
+            return NodeType.NULL;
+        }
+        return NodeType.STRING;
+    }
+
+    @Override
+    public Iterable<String> keys(Object object) {
+        return ((JSONObject) object).keySet();
+    }
+
+    @Override
+    public Object member(Object object, String key) {
+        return ((JSONObject) object).opt(key);
+    }
+
+    @Override
+    public int size(Object array) {
+        return ((JSONArray) array).length();
+    }
+
+    @Override
+    public Object element(Object array, int index) {
+        return ((JSONArray) array).opt(index);
+    }
+
+    @Override
+    public String stringValue(Object node) {
+        return node.toString();
+    }
+
+    @Override
+    public Number numberValue(Object node) {
+        return (Number) node;
+    }
+
+    @Override
+    public boolean booleanValue(Object node) {
+        return (Boolean) node;
+    }
+
+    @Override
+    public Object toJson(Object node) {
+        return node;
+    }
+}
@@ -0,0 +1,293 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline stage for shadow traffic: diffs a sample of (primary, candidate) response pairs and
+ * aggregates the differences by normalized path instead of storing every diff.
+ *
+ * A pair is diffed with probability {@code sampleRate}. Each difference is counted under its path
+ * with array indices replaced by {@code *}, so that all elements of an array share one counter,
+ * and a fixed number of example operations per path is kept by reservoir sampling. At most
+ * {@code maxPaths} distinct paths are tracked per window; the rest are counted under
+ * {@link #OVERFLOW_PATH}. Memory therefore stays bounded however much traffic passes through.
+ * Summaries are handed to the sink on every {@link #flush()}, which also starts a new window.
+ */
+public class ShadowTrafficPipeline implements AutoCloseable {
+
+    public static final String OVERFLOW_PATH = "<other>";
+
+    private final double sampleRate;
+    private final int maxPaths;
+    private final int exemplarsPerPath;
+    private final Consumer<Summary> sink;
+
+    // Offers share the read lock; flush takes the write lock to swap windows atomically
+    private final ReadWriteLock windowLock = new ReentrantReadWriteLock();
+    private Window window = new Window();
+    private ScheduledExecutorService scheduler;
+    private final LongAdder failedFlushes = new LongAdder();
+
+    public ShadowTrafficPipeline(double sampleRate, int maxPaths, int exemplarsPerPath, Consumer<Summary> sink) {
+        if (sampleRate < 0.0 || sampleRate > 1.0) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+        }
+        if (maxPaths <= 0 || exemplarsPerPath < 0) {
+            throw new IllegalArgumentException("maxPaths must be positive and exemplarsPerPath non-negative");
+        }
+        this.sampleRate = sampleRate;
+        this.maxPaths = maxPaths;
+        this.exemplarsPerPath = exemplarsPerPath;
+        this.sink = sink;
+    }
+
+    /**
+     * Flushes a summary to the sink every {@code period}. A flush that fails, typically because
+     * the sink threw, is counted in {@link #failedFlushes()} and reported to the flush thread's
+     * uncaught exception handler; later flushes still run.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Pipeline already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shadow-traffic-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::scheduledFlush, period, period, unit);
+    }
+
+    /**
+     * Number of periodic flushes that threw since the pipeline was created.
+     */
+    public long failedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    /**
+     * Offers a response pair to the pipeline. Returns true if the pair was sampled and diffed.
+     */
+    public boolean offer(JSONObject primary, JSONObject candidate) throws JSONException {
+        boolean sample = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        // Diffed outside the lock so that a flush never waits for a comparison
+        JSONArray diffs = sample ? JsonComparator.generateJsonDiff("", primary, candidate) : null;
+
+        windowLock.readLock().lock();
+        try {
+            window.offered.increment();
+            if (!sample) {
+                return false;
+            }
+            window.sampled.increment();
+            if (!diffs.isEmpty()) {
+                window.mismatched.increment();
+            }
+            for (int i = 0; i < diffs.length(); i++) {
+                JSONObject diff = diffs.getJSONObject(i);
+                pathAggregate(normalizePath(diff.getString("path"))).record(diff, exemplarsPerPath);
+            }
+            return true;
+        } finally {
+            windowLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the current window, passes its summary to the sink and returns it.
+     */
+    public Summary flush() {
+        Window closed;
+        windowLock.writeLock().lock();
+        try {
+            closed = window;
+            window = new Window();
+        } finally {
+            windowLock.writeLock().unlock();
+        }
+
+        Summary summary = closed.summarize();
+        if (sink != null) {
+            sink.accept(summary);
+        }
+        return summary;
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // An exception escaping the task would cancel every later flush without a trace
+            failedFlushes.increment();
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * Stops periodic flushing and flushes what is left.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Turns a diff path into its aggregation key: a leading slash, and {@code *} for every
+     * numeric segment.
+     */
+    public static String normalizePath(String path) {
+        StringBuilder normalized = new StringBuilder(path.length() + 1);
+        for (String segment : path.split("/", -1)) {
+            if (segment.isEmpty() && normalized.length() == 0 && path.startsWith("/")) {
+                continue;
+            }
+            normalized.append('/').append(isIndex(segment) ? "*" : segment);
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isIndex(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PathAggregate pathAggregate(String path) {
+        PathAggregate aggregate = window.paths.get(path);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        // The bound is checked loosely; concurrent offers may overshoot it by a few entries
+        if (window.paths.size() >= maxPaths) {
+            path = OVERFLOW_PATH;
+        }
+        return window.paths.computeIfAbsent(path, p -> new PathAggregate());
+    }
+
+    private static final class Window {
+        private final long startMillis = System.currentTimeMillis();
+        private final LongAdder offered = new LongAdder();
+        private final LongAdder sampled = new LongAdder();
+        private final LongAdder mismatched = new LongAdder();
+        private final ConcurrentHashMap<String, PathAggregate> paths = new ConcurrentHashMap<>();
+
+        private Summary summarize() {
+            List<Map.Entry<String, PathAggregate>> entries = new ArrayList<>(paths.entrySet());
+            entries.sort((a, b) -> Long.compare(b.getValue().count.sum(), a.getValue().count.sum()));
+
+            Map<String, PathSummary> pathSummaries = new LinkedHashMap<>();
+            for (Map.Entry<String, PathAggregate> entry : entries) {
+                PathAggregate aggregate = entry.getValue();
+                synchronized (aggregate) {
+                    pathSummaries.put(entry.getKey(), new PathSummary(entry.getKey(), aggregate.count.sum(),
+                            Collections.unmodifiableList(new ArrayList<>(aggregate.exemplars))));
+                }
+            }
+            return new Summary(startMillis, System.currentTimeMillis(), offered.sum(), sampled.sum(),
+                    mismatched.sum(), Collections.unmodifiableMap(pathSummaries));
+        }
+    }
+
+    private static final class PathAggregate {
+        private final LongAdder count = new LongAdder();
+        private final List<JSONObject> exemplars = new ArrayList<>();
+        private long seen;
+
+        private void record(JSONObject diff, int maxExemplars) {
+            count.increment();
+            if (maxExemplars == 0) {
+                return;
+            }
+            synchronized (this) {
+                // Reservoir sampling (algorithm R): every occurrence is kept with equal probability
+                seen++;
+                if (exemplars.size() < maxExemplars) {
+                    exemplars.add(diff);
+                } else {
+                    long slot = ThreadLocalRandom.current().nextLong(seen);
+                    if (slot < maxExemplars) {
+                        exemplars.set((int) slot, diff);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Differences counted under one normalized path, with sampled example operations.
+     */
+    public static class PathSummary {
+        public final String path;
+        public final long count;
+        public final List<JSONObject> exemplars;
+
+        private PathSummary(String path, long count, List<JSONObject> exemplars) {
+            this.path = path;
+            this.count = count;
+            this.exemplars = exemplars;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d", path, count);
+        }
+    }
+
+    /**
+     * Aggregated view of one flush window. Paths are ordered by descending count.
+     */
+    public static class Summary {
+        public final long windowStartMillis;
+        public final long windowEndMillis;
+        public final long offered;
+        public final long sampled;
+        public final long mismatched;
+        public final Map<String, PathSummary> paths;
+
+        private Summary(long windowStartMillis, long windowEndMillis, long offered, long sampled, long mismatched,
+                        Map<String, PathSummary> paths) {
+            this.windowStartMillis = windowStartMillis;
+            this.windowEndMillis = windowEndMillis;
+            this.offered = offered;
+            this.sampled = sampled;
+            this.mismatched = mismatched;
+            this.paths = paths;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("offered=%d, sampled=%d, mismatched=%d, paths=%s",
+                    offered, sampled, mismatched, paths.values());
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.trdg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded diff of two string values, for reporting where long strings differ instead of
+ * printing both of them.
+ *
+ * The common prefix and suffix are stripped first, which is all it takes when one region
+ * changed. What remains is diffed with Myers' algorithm over characters or lines, giving up
+ * after {@code maxCost} inserted or deleted tokens; the remaining region is then reported as a
+ * single change. Strings longer than {@code maxLength} skip the Myers step altogether.
+ * Instances are immutable and safe for concurrent use.
+ */
+public final class StringDiff {
+
+    public enum Granularity {
+        CHARS,
+        LINES
+    }
+
+    // Changes listed by describe() before the rest are only counted
+    private static final int MAX_LISTED = 10;
+
+    private final Granularity granularity;
+    private final int minLength;
+    private final int maxCost;
+    private final int maxLength;
+    private final int snippetLength;
+
+    private StringDiff(Builder builder) {
+        this.granularity = builder.granularity;
+        this.minLength = builder.minLength;
+        this.maxCost = builder.maxCost;
+        this.maxLength = builder.maxLength;
+        this.snippetLength = builder.snippetLength;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * True if {@link #describe} should be used for this pair: at least one of the two strings is
+     * {@code minLength} characters or longer.
+     */
+    public boolean applies(String s1, String s2) {
+        return s1.length() >= minLength || s2.length() >= minLength;
+    }
+
+    public Result diff(String s1, String s2) {
+        if (same(s1, s2)) {
+            return new Result(Collections.emptyList(), true);
+        }
+        int prefix = 0;
+        int limit = Math.min(s1.length(), s2.length());
+        while (prefix < limit && s1.charAt(prefix) == s2.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix && s1.charAt(s1.length() - 1 - suffix) == s2.charAt(s2.length() - 1 - suffix)) {
+            suffix++;
+        }
+        Edit coarse = new Edit(prefix, s1.length() - suffix, prefix, s2.length() - suffix);
+        if (Math.max(s1.length(), s2.length()) > maxLength) {
+            return new Result(Collections.singletonList(coarse), false);
+        }
+        List<Edit> edits = granularity == Granularity.LINES ? lineEdits(s1, s2) : charEdits(s1, s2, coarse);
+        return edits == null ? new Result(Collections.singletonList(coarse), false) : new Result(edits, true);
+    }
+
+    /**
+     * A bounded description of how the strings differ: their lengths and the changed ranges
+     * with shortened snippets of the old and new text.
+     */
+    public String describe(String s1, String s2) {
+        Result result = diff(s1, s2);
+        StringBuilder out = new StringBuilder();
+        out.append("strings of length ").append(s1.length()).append(" and ").append(s2.length());
+        if (!result.minimal && Math.max(s1.length(), s2.length()) > maxLength) {
+            out.append(String.format(" (hashes %08x and %08x)", s1.hashCode(), s2.hashCode()));
+        }
+        out.append(" differ in ").append(result.edits.size()).append(result.edits.size() == 1 ? " range" : " ranges");
+        for (int i = 0; i < Math.min(result.edits.size(), MAX_LISTED); i++) {
+            Edit edit = result.edits.get(i);
+            out.append(i == 0 ? ": " : "; ");
+            out.append('@').append(edit.start1).append(' ');
+            out.append(snippet(s1, edit.start1, edit.end1)).append(" -> ").append(snippet(s2, edit.start2, edit.end2));
+        }
+        if (result.edits.size() > MAX_LISTED) {
+            out.append("; ... ").append(result.edits.size() - MAX_LISTED).append(" more");
+        }
+        return out.toString();
+    }
+
+    private String snippet(String s, int start, int end) {
+        if (end - start <= snippetLength) {
+            return '"' + s.substring(start, end) + '"';
+        }
+        int half = snippetLength / 2;
+        return '"' + s.substring(start, start + half) + "\"...(" + (end - start) + " chars)...\""
+                + s.substring(end - half, end) + '"';
+    }
+
+    /**
+     * Length and cached hash first, so that repeated comparisons of long values are cheap.
+     */
+    private static boolean same(String s1, String s2) {
+        return s1.length() == s2.length() && s1.hashCode() == s2.hashCode() && s1.equals(s2);
+    }
+
+    private List<Edit> charEdits(String s1, String s2, Edit middle) {
+        int[] tokens1 = new int[middle.end1 - middle.start1];
+        int[] tokens2 = new int[middle.end2 - middle.start2];
+        for (int i = 0; i < tokens1.length; i++) {
+            tokens1[i] = s1.charAt(middle.start1 + i);
+        }
+        for (int i = 0; i < tokens2.length; i++) {
+            tokens2[i] = s2.charAt(middle.start2 + i);
+        }
+        List<int[]> ranges = myers(tokens1, tokens2, maxCost);
+        if (ranges == null) {
+            return null;
+        }
+        List<Edit> edits = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            edits.add(new Edit(middle.start1 + range[0], middle.start1 + range[1],
+                    middle.start2 + range[2], middle.start2 + range[3]));
+        }
+        return edits;
+    }
+
+    private List<Edit> lineEdits(String s1, String s2) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<Integer> starts1 = new ArrayList<>();
+        List<Integer> starts2 = new ArrayList<>();
+        int[] tokens1 = lines(s1, ids, starts1);
+        int[] tokens2 = lines(s2, ids, starts2);
+        List<int[]> ranges = myers(tokens1, tokens2, maxCost);
+        if (ranges == null) {
+            return null;
+        }
+        List<Edit> edits = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            edits.add(new Edit(starts1.get(range[0]), starts1.get(range[1]), starts2.get(range[2]), starts2.get(range[3])));
+        }
+        return edits;
+    }
+
+    /**
+     * Line ids, each line including its terminator, and the start offset of every line plus the
+     * end of the string.
+     */
+    private static int[] lines(String s, Map<String, Integer> ids, List<Integer> starts) {
+        List<Integer> tokens = new ArrayList<>();
+        int start = 0;
+        while (start < s.length()) {
+            int newline = s.indexOf('\n', start);
+            int end = newline < 0 ? s.length() : newline + 1;
+            starts.add(start);
+            tokens.add(ids.computeIfAbsent(s.substring(start, end), line -> ids.size()));
+            start = end;
+        }
+        starts.add(s.length());
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = tokens.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Myers' shortest edit script between two token sequences as {@code {start1, end1, start2,
+     * end2}} ranges of replaced tokens, or null if it needs more than {@code maxCost} insertions
+     * and deletions.
+     */
+    static List<int[]> myers(int[] a, int[] b, int maxCost) {
+        int n = a.length;
+        int m = b.length;
+        int max = Math.min(n + m, maxCost);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x] == b[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return backtrack(trace, offset, n, m, d);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<int[]> backtrack(List<int[]> trace, int offset, int n, int m, int cost) {
+        List<int[]> ranges = new ArrayList<>();
+        int x = n;
+        int y = m;
+        int[] current = null;
+        for (int d = cost; d > 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int prevK = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]) ? k + 1 : k - 1;
+            int prevX = v[offset + prevK];
+            int prevY = prevX - prevK;
+            // Where the insertion (down) or deletion (right) from the previous point ends
+            int stepX = prevK == k + 1 ? prevX : prevX + 1;
+            if (x > stepX) {
+                // A run of equal tokens separates this edit from the later one
+                current = null;
+            }
+            x = stepX;
+            y = stepX - k;
+            if (current == null) {
+                current = new int[]{prevX, x, prevY, y};
+                ranges.add(current);
+            } else {
+                current[0] = prevX;
+                current[2] = prevY;
+            }
+            x = prevX;
+            y = prevY;
+        }
+        Collections.reverse(ranges);
+        return ranges;
+    }
+
+    /**
+     * A changed region: characters {@code [start1, end1)} of the first string were replaced by
+     * {@code [start2, end2)} of the second.
+     */
+    public static final class Edit {
+        public final int start1;
+        public final int end1;
+        public final int start2;
+        public final int end2;
+
+        Edit(int start1, int end1, int start2, int end2) {
+            this.start1 = start1;
+            this.end1 = end1;
+            this.start2 = start2;
+            this.end2 = end2;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start1 + ", " + end1 + ") -> [" + start2 + ", " + end2 + ")";
+        }
+    }
+
+    public static final class Result {
+        public final List<Edit> edits;
+        // False when the cost cutoff or the length limit made the diff report one coarse range
+        public final boolean minimal;
+
+        Result(List<Edit> edits, boolean minimal) {
+            this.edits = Collections.unmodifiableList(edits);
+            this.minimal = minimal;
+        }
+    }
+
+    public static class Builder {
+        private Granularity granularity = Granularity.CHARS;
+        private int minLength = 256;
+        private int maxCost = 200;
+        private int maxLength = 1 << 20;
+        private int snippetLength = 40;
+
+        private Builder() {
+        }
+
+        public Builder granularity(Granularity granularity) {
+            this.granularity = granularity;
+            return this;
+        }
+
+        /**
+         * Shorter strings are reported in full. Defaults to 256 characters.
+         */
+        public Builder minLength(int minLength) {
+            this.minLength = minLength;
+            return this;
+        }
+
+        /**
+         * Most insertions plus deletions the Myers step may find. Defaults to 200.
+         */
+        public Builder maxCost(int maxCost) {
+            this.maxCost = maxCost;
+            return this;
+        }
+
+        /**
+         * Longer strings only get their common prefix and suffix stripped. Defaults to 1M chars.
+         */
+        public Builder maxLength(int maxLength) {
+            this.maxLength = maxLength;
+            return this;
+        }
+
+        /**
+         * Longest old or new text quoted in full by {@link #describe}. Defaults to 40.
+         */
+        public Builder snippetLength(int snippetLength) {
+            this.snippetLength = snippetLength;
+            return this;
+        }
+
+        public StringDiff build() {
+            return new StringDiff(this);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.trdg;
+
+import org.json.JSONException;
+
+import java.util.Arrays;
+
+/**
+ * Positions of the structural bytes of a UTF-8 JSON document: brackets, braces, colons and
+ * commas outside strings, every unescaped quote, and the first byte of each number and literal.
+ *
+ * This is the first stage of a two-stage parse in the style of simdjson. The input is classified
+ * 64 bytes at a time into bitmasks (quotes, backslashes, operators, whitespace), with the
+ * {@code jdk.incubator.vector} API when the module is available ({@code --add-modules
+ * jdk.incubator.vector}) and a table-driven scalar loop otherwise. Escapes, string interiors and
+ * token starts are then resolved with branch-free bit arithmetic on the masks, so the bytes
+ * inside strings are never looked at one by one. The second stage,
+ * {@link JsonTape#parse(StructuralIndex)}, jumps from entry to entry instead of scanning.
+ *
+ * The index references the source array, which must not be modified while it is in use.
+ */
+public final class StructuralIndex {
+
+    // Set on the entry of a closing quote when the string contains an escape sequence
+    static final int ESCAPED = 1 << 31;
+
+    private static final long EVEN_BITS = 0x5555555555555555L;
+
+    private static final int QUOTE = 1;
+    private static final int BACKSLASH = 2;
+    private static final int OPERATOR = 4;
+    private static final int WHITESPACE = 8;
+    private static final byte[] CLASSES = new byte[256];
+
+    static {
+        CLASSES['"'] = QUOTE;
+        CLASSES['\\'] = BACKSLASH;
+        for (char c : "{}[]:,".toCharArray()) {
+            CLASSES[c] = OPERATOR;
+        }
+        for (char c : " \n\r\t".toCharArray()) {
+            CLASSES[c] = WHITESPACE;
+        }
+    }
+
+    private static final boolean VECTORIZED = detectVectorSupport();
+
+    final byte[] json;
+    final int offset;
+    final int end;
+    private final int[] entries;
+    private final int size;
+
+    private StructuralIndex(byte[] json, int offset, int end, int[] entries, int size) {
+        this.json = json;
+        this.offset = offset;
+        this.end = end;
+        this.entries = entries;
+        this.size = size;
+    }
+
+    public static StructuralIndex build(byte[] json) throws JSONException {
+        return build(json, 0, json.length);
+    }
+
+    public static StructuralIndex build(byte[] json, int offset, int length) throws JSONException {
+        return build(json, offset, length, VECTORIZED);
+    }
+
+    static StructuralIndex build(byte[] json, int offset, int length, boolean vectorized) throws JSONException {
+        Builder builder = new Builder(json, offset, offset + length);
+        int scanned = vectorized ? VectorStructuralScanner.scan(json, offset, offset + length, builder) : offset;
+        for (int base = scanned; base < offset + length; base += 64) {
+            classify(json, base, Math.min(base + 64, offset + length), builder);
+        }
+        return builder.finish();
+    }
+
+    /**
+     * True if indexes are built with the Vector API rather than the scalar fallback.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Number of structural positions.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int position(int i) {
+        return entries[i] & ~ESCAPED;
+    }
+
+    int entry(int i) {
+        return entries[i];
+    }
+
+    /**
+     * Scalar classification of one block of at most 64 bytes.
+     */
+    private static void classify(byte[] json, int base, int limit, Builder builder) {
+        long quote = 0;
+        long backslash = 0;
+        long operator = 0;
+        // Bytes past the end of the input count as whitespace
+        long whitespace = limit - base == 64 ? 0 : -1L << (limit - base);
+        for (int i = 0; i < limit - base; i++) {
+            int c = CLASSES[json[base + i] & 0xff];
+            quote |= (long) (c & QUOTE) << i;
+            backslash |= (long) ((c & BACKSLASH) >>> 1) << i;
+            operator |= (long) ((c & OPERATOR) >>> 2) << i;
+            whitespace |= (long) ((c & WHITESPACE) >>> 3) << i;
+        }
+        builder.block(base, quote, backslash, operator, whitespace);
+    }
+
+    private static boolean detectVectorSupport() {
+        if (Boolean.getBoolean("com.trdg.structuralIndex.scalar")) {
+            return false;
+        }
+        try {
+            Class.forName("jdk.incubator.vector.ByteVector");
+            Class.forName("com.trdg.VectorStructuralScanner", true, StructuralIndex.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            // Module not resolved at runtime: use the scalar classifier
+            return false;
+        }
+    }
+
+    /**
+     * Turns the per-block bitmasks into index entries, carrying string and escape state from
+     * one block to the next.
+     */
+    static final class Builder {
+        private final byte[] json;
+        private final int offset;
+        private final int end;
+        private int[] entries;
+        private int size;
+
+        private long prevEscaped;
+        private long prevInString;
+        // The byte before the input counts as a separator, so a leading scalar is indexed
+        private long prevSeparator = 1;
+        private boolean escapeInString;
+
+        private Builder(byte[] json, int offset, int end) {
+            this.json = json;
+            this.offset = offset;
+            this.end = end;
+            this.entries = new int[Math.max(16, (end - offset) / 8)];
+        }
+
+        /**
+         * Bits past the end of the input must be set in {@code whitespace} only.
+         */
+        void block(int base, long quote, long backslash, long operator, long whitespace) {
+            long escaped = escapedChars(backslash);
+            quote &= ~escaped;
+            long inString = prefixXor(quote) ^ prevInString;
+            prevInString = inString >> 63;
+
+            long outside = ~inString;
+            long separators = (operator | whitespace | quote) & outside;
+            long scalarStarts = ~(operator | whitespace | quote) & outside & (separators << 1 | prevSeparator);
+            prevSeparator = separators >>> 63;
+
+            long emit = (operator & outside) | quote | scalarStarts;
+            long escapes = backslash & inString & ~escaped;
+            if (escapes == 0 && (quote & inString) == 0 && !escapeInString) {
+                // No string opens in this block and none is escaped: every entry is plain
+                while (emit != 0) {
+                    add(base + Long.numberOfTrailingZeros(emit));
+                    emit &= emit - 1;
+                }
+                return;
+            }
+            long bits = emit | escapes;
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                long mask = bits & -bits;
+                bits ^= mask;
+                if ((emit & mask) == 0) {
+                    escapeInString = true;
+                } else if ((quote & inString & mask) != 0) {
+                    escapeInString = false;
+                    add(base + bit);
+                } else if ((quote & mask) != 0) {
+                    add((base + bit) | (escapeInString ? ESCAPED : 0));
+                    escapeInString = false;
+                } else {
+                    add(base + bit);
+                }
+            }
+        }
+
+        /**
+         * Bits of the characters that follow an odd-length run of backslashes.
+         */
+        private long escapedChars(long backslash) {
+            if (backslash == 0 && prevEscaped == 0) {
+                return 0;
+            }
+            backslash &= ~prevEscaped;
+            long followsEscape = backslash << 1 | prevEscaped;
+            long oddStarts = backslash & ~EVEN_BITS & ~followsEscape;
+            long sequencesOnEven = oddStarts + backslash;
+            prevEscaped = Long.compareUnsigned(sequencesOnEven, oddStarts) < 0 ? 1 : 0;
+            long invert = sequencesOnEven << 1;
+            return (EVEN_BITS ^ invert) & followsEscape;
+        }
+
+        private static long prefixXor(long bits) {
+            bits ^= bits << 1;
+            bits ^= bits << 2;
+            bits ^= bits << 4;
+            bits ^= bits << 8;
+            bits ^= bits << 16;
+            bits ^= bits << 32;
+            return bits;
+        }
+
+        private void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+
+        private StructuralIndex finish() throws JSONException {
+            if (prevInString != 0) {
+                throw new JSONException("Unterminated string");
+            }
+            return new StructuralIndex(json, offset, end, entries, size);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.IdentityHashMap;
+
+/**
+ * Fingerprint and node count of every container in a document, computed once bottom-up.
+ *
+ * Containers are looked up by identity, so the index is only valid while the document is not
+ * modified. Leaves are fingerprinted on demand.
+ */
+final class SubtreeIndex {
+    private static final long OBJECT_SEED = 0x9E3779B97F4A7C15L;
+    private static final long ARRAY_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    final Object root;
+    private final IdentityHashMap<Object, long[]> containers = new IdentityHashMap<>();
+
+    SubtreeIndex(Object root) throws JSONException {
+        this.root = root;
+        annotate(root);
+    }
+
+    private long[] annotate(Object value) throws JSONException {
+        if (value instanceof JSONObject) {
+            JSONObject obj = (JSONObject) value;
+            long sum = 0;
+            long size = 1;
+            for (String key : obj.keySet()) {
+                long[] child = annotate(obj.get(key));
+                sum += JsonFingerprint.mix(JsonFingerprint.ofString(key) * 31 + child[0]);
+                size += child[1];
+            }
+            long[] info = {JsonFingerprint.mix(OBJECT_SEED ^ sum ^ obj.length()), size};
+            containers.put(value, info);
+            return info;
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            long h = ARRAY_SEED ^ array.length();
+            long size = 1;
+            for (int i = 0; i < array.length(); i++) {
+                long[] child = annotate(array.get(i));
+                h = JsonFingerprint.mix(h * 31 + child[0]);
+                size += child[1];
+            }
+            long[] info = {h, size};
+            containers.put(value, info);
+            return info;
+        }
+        return new long[]{JsonFingerprint.of(value), 1};
+    }
+
+    long fingerprint(Object value) {
+        long[] info = containers.get(value);
+        return info != null ? info[0] : JsonFingerprint.of(value);
+    }
+
+    long size(Object value) {
+        long[] info = containers.get(value);
+        return info != null ? info[1] : 1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.trdg;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API tolerance comparison for {@link NumericArrays}.
+ *
+ * Only loaded when {@code jdk.incubator.vector} is resolved at runtime; the scalar equivalent
+ * lives in {@link NumericArrays}.
+ */
+final class VectorNumericScanner {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorNumericScanner() {
+    }
+
+    /**
+     * First index in {@code [from, to)} where {@link NumericArrays#outside} holds, or -1 if there
+     * is none.
+     */
+    static int firstOutside(double[] values1, double[] values2, int from, int to, double epsilon) {
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            DoubleVector vector1 = DoubleVector.fromArray(SPECIES, values1, i);
+            DoubleVector vector2 = DoubleVector.fromArray(SPECIES, values2, i);
+            VectorMask<Double> within = vector1.sub(vector2).abs().compare(VectorOperators.LE, epsilon)
+                    .and(vector1.test(VectorOperators.IS_FINITE))
+                    .and(vector2.test(VectorOperators.IS_FINITE))
+                    .or(vector1.reinterpretAsLongs().compare(VectorOperators.EQ, vector2.reinterpretAsLongs()).cast(SPECIES));
+            VectorMask<Double> outside = within.not();
+            if (outside.anyTrue()) {
+                return i + outside.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (NumericArrays.outside(values1[i], values2[i], epsilon)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
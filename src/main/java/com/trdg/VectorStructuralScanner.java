@@ -0,0 +1,53 @@
+package com.trdg;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API classification of 64-byte blocks for {@link StructuralIndex}.
+ *
+ * Only loaded when {@code jdk.incubator.vector} is resolved at runtime; everything that does
+ * not depend on the Vector API lives in {@link StructuralIndex}.
+ */
+final class VectorStructuralScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED.length() > 64
+            ? ByteVector.SPECIES_512 : ByteVector.SPECIES_PREFERRED;
+
+    private VectorStructuralScanner() {
+    }
+
+    /**
+     * Classifies every full 64-byte block and returns where the scalar tail starts.
+     */
+    static int scan(byte[] json, int offset, int end, StructuralIndex.Builder builder) {
+        int step = SPECIES.length();
+        int base = offset;
+        for (; base + 64 <= end; base += 64) {
+            long quote = 0;
+            long backslash = 0;
+            long operator = 0;
+            long whitespace = 0;
+            for (int k = 0; k < 64; k += step) {
+                ByteVector v = ByteVector.fromArray(SPECIES, json, base + k);
+                // '[' and '{', ']' and '}' differ only in bit 0x20
+                ByteVector folded = v.or((byte) 0x20);
+                VectorMask<Byte> ops = folded.eq((byte) '{')
+                        .or(folded.eq((byte) '}'))
+                        .or(v.eq((byte) ':'))
+                        .or(v.eq((byte) ','));
+                VectorMask<Byte> spaces = v.eq((byte) ' ')
+                        .or(v.eq((byte) '\n'))
+                        .or(v.eq((byte) '\r'))
+                        .or(v.eq((byte) '\t'));
+                quote |= v.eq((byte) '"').toLong() << k;
+                backslash |= v.eq((byte) '\\').toLong() << k;
+                operator |= ops.toLong() << k;
+                whitespace |= spaces.toLong() << k;
+            }
+            builder.block(base, quote, backslash, operator, whitespace);
+        }
+        return base;
+    }
+}
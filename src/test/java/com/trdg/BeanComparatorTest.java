@@ -0,0 +1,126 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BeanComparator Tests")
+class BeanComparatorTest {
+
+    enum Status { ACTIVE, CLOSED }
+
+    record Address(String city, String zip) {
+    }
+
+    record Person(String name, int age, boolean member, Status status, Address address, List<String> tags,
+                  int[] scores, LocalDate born, Map<String, Object> extra) {
+    }
+
+    public static class Account {
+        private String id;
+        private BigDecimal balance;
+        private boolean locked;
+        private String URL;
+
+        public Account(String id, BigDecimal balance, boolean locked) {
+            this.id = id;
+            this.balance = balance;
+            this.locked = locked;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public BigDecimal getBalance() {
+            return balance;
+        }
+
+        public boolean isLocked() {
+            return locked;
+        }
+
+        public String getURL() {
+            return URL;
+        }
+
+        public void setURL(String url) {
+            this.URL = url;
+        }
+
+        public static String getIgnored() {
+            return "static";
+        }
+    }
+
+    private static Person person(String city, int[] scores) {
+        Map<String, Object> extra = new LinkedHashMap<>();
+        extra.put("note", null);
+        return new Person("Ann", 30, true, Status.ACTIVE, new Address(city, "1000"), List.of("a", "b"),
+                scores, LocalDate.of(1990, 1, 2), extra);
+    }
+
+    @Test
+    @DisplayName("Records compare like their JSON form")
+    void testRecords() {
+        assertTrue(BeanComparator.areEqual(person("Oslo", new int[]{1, 2}), person("Oslo", new int[]{1, 2})));
+
+        JSONArray diffs = BeanComparator.generateJsonDiff(person("Oslo", new int[]{1, 2}), person("Bergen", new int[]{1, 3, 4}));
+        assertEquals(Set.of(JsonTapeComparatorTest.op("replace", "address/city", "Bergen"),
+                JsonTapeComparatorTest.op("replace", "scores/1", 3), JsonTapeComparatorTest.op("add", "scores/2", 4)),
+                JsonTapeComparatorTest.asSet(diffs));
+    }
+
+    @Test
+    @DisplayName("Objects match their expected JSON documents")
+    void testAgainstJson() {
+        JSONObject json = new JSONObject("{\"name\":\"Ann\",\"age\":30,\"member\":true,\"status\":\"ACTIVE\","
+                + "\"address\":{\"city\":\"Oslo\",\"zip\":\"1000\"},\"tags\":[\"a\",\"b\"],\"scores\":[1,2],"
+                + "\"born\":\"1990-01-02\",\"extra\":{\"note\":null}}");
+        assertEquals(0, BeanComparator.generateJsonDiff(person("Oslo", new int[]{1, 2}), json).length());
+
+        json.put("age", 31).remove("tags");
+        assertEquals(Set.of(JsonTapeComparatorTest.op("replace", "age", 31), JsonTapeComparatorTest.op("remove", "tags", null)),
+                JsonTapeComparatorTest.asSet(BeanComparator.generateJsonDiff(person("Oslo", new int[]{1, 2}), json)));
+    }
+
+    @Test
+    @DisplayName("Beans expose their getters as properties")
+    void testBeans() {
+        Account account = new Account("x1", new BigDecimal("10.50"), false);
+        account.setURL("http://a");
+        JSONObject json = new JSONObject("{\"id\":\"x1\",\"balance\":10.5,\"locked\":false,\"URL\":\"http://a\"}");
+        assertEquals(0, BeanComparator.generateJsonDiff(account, json).length());
+
+        Account other = new Account("x1", new BigDecimal("10.5"), true);
+        assertEquals(Set.of(JsonTapeComparatorTest.op("replace", "locked", true),
+                        JsonTapeComparatorTest.op("replace", "URL", JSONObject.NULL)),
+                JsonTapeComparatorTest.asSet(BeanComparator.generateJsonDiff(account, other)));
+    }
+
+    @Test
+    @DisplayName("Collections, arrays and nulls")
+    void testContainers() {
+        List<Object> list = new ArrayList<>();
+        list.add(null);
+        list.add(new long[]{1, 2});
+        list.add(Set.of("s"));
+        assertTrue(BeanComparator.areEqual(list, new Object[]{null, List.of(1, 2L), new String[]{"s"}}));
+        assertFalse(BeanComparator.areEqual(list, new Object[]{null, List.of(1, 2.0), new String[]{"s"}}));
+        assertFalse(BeanComparator.areEqual(new Address("a", null), new Address("a", "z")));
+        assertTrue(BeanComparator.areEqual(new double[]{Double.NaN, Double.NEGATIVE_INFINITY},
+                List.of(Float.NaN, Float.NEGATIVE_INFINITY)));
+        assertFalse(BeanComparator.areEqual(new double[]{Double.NaN}, new double[]{Double.POSITIVE_INFINITY}));
+    }
+}
@@ -0,0 +1,133 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ComparisonPlan Tests")
+class ComparisonPlanTest {
+
+    private static final String SCHEMA = "{\"type\":\"object\",\"properties\":{"
+            + "\"id\":{\"type\":\"integer\"},"
+            + "\"name\":{\"type\":\"string\"},"
+            + "\"updatedAt\":{\"type\":\"string\",\"x-compare\":\"ignore\"},"
+            + "\"tags\":{\"type\":\"array\",\"items\":{\"type\":\"string\"},\"x-compare\":\"unordered\"},"
+            + "\"items\":{\"type\":\"array\",\"x-compare-key\":\"sku\",\"items\":{\"type\":\"object\",\"properties\":{"
+            + "\"sku\":{\"type\":\"string\"},\"qty\":{\"type\":\"integer\"}}}},"
+            + "\"address\":{\"type\":\"object\",\"properties\":{\"city\":{\"type\":\"string\"}}}}}";
+
+    private static void assertSameAsComparator(ComparisonPlan plan, String json1, String json2) {
+        JSONObject obj1 = new JSONObject(json1);
+        JSONObject obj2 = new JSONObject(json2);
+        JSONArray expected = JsonComparator.generateJsonDiff("", obj1, obj2);
+        assertEquals(JsonTapeComparatorTest.asSet(expected), JsonTapeComparatorTest.asSet(plan.generateJsonDiff(obj1, obj2)));
+        assertEquals(expected.isEmpty(), plan.areEqual(obj1, obj2));
+    }
+
+    @Test
+    @DisplayName("Plan without options reports what JsonComparator reports")
+    void testMatchesComparator() {
+        ComparisonPlan plan = ComparisonPlan.learn(List.of(
+                new JSONObject("{\"id\":1,\"name\":\"a\",\"address\":{\"city\":\"NY\"},\"list\":[{\"x\":1}]}")));
+
+        assertSameAsComparator(plan, "{\"id\":1,\"name\":\"a\",\"address\":{\"city\":\"NY\"},\"list\":[{\"x\":1}]}",
+                "{\"id\":1,\"name\":\"a\",\"address\":{\"city\":\"NY\"},\"list\":[{\"x\":1}]}");
+        assertSameAsComparator(plan, "{\"id\":1,\"name\":\"a\",\"address\":{\"city\":\"NY\"},\"list\":[{\"x\":1},{\"x\":2}]}",
+                "{\"id\":2,\"address\":{\"city\":\"LA\",\"zip\":\"1\"},\"list\":[{\"x\":3}],\"extra\":true}");
+    }
+
+    @Test
+    @DisplayName("Values that do not fit the plan fall back to dynamic comparison")
+    void testTypeMismatch() {
+        ComparisonPlan plan = ComparisonPlan.fromSchema(new JSONObject(
+                "{\"type\":\"object\",\"properties\":{\"a\":{\"type\":\"string\"},\"b\":{\"type\":\"array\"}}}"));
+
+        assertSameAsComparator(plan, "{\"a\":{\"x\":1,\"y\":[1]},\"b\":{\"c\":1}}", "{\"a\":{\"x\":2,\"y\":[1,2]},\"b\":[1]}");
+        assertSameAsComparator(plan, "{\"a\":\"s\",\"b\":[{\"k\":1}]}", "{\"a\":\"s\",\"b\":[{\"k\":1}]}");
+    }
+
+    @Test
+    @DisplayName("Ignored paths are skipped")
+    void testIgnore() {
+        ComparisonPlan plan = ComparisonPlan.builder()
+                .schema(new JSONObject(SCHEMA))
+                .ignore("/items/*/qty")
+                .build();
+
+        JSONObject obj1 = new JSONObject("{\"id\":1,\"updatedAt\":\"t1\",\"items\":[{\"sku\":\"a\",\"qty\":1}]}");
+        JSONObject obj2 = new JSONObject("{\"id\":1,\"updatedAt\":\"t2\",\"items\":[{\"sku\":\"a\",\"qty\":5}]}");
+        assertTrue(plan.areEqual(obj1, obj2));
+        assertTrue(plan.generateJsonDiff(obj1, obj2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Ignored array elements are not added or removed")
+    void testIgnoreElements() {
+        ComparisonPlan plan = ComparisonPlan.builder().ignore("/tags/*").ignore("/meta").build();
+
+        JSONObject obj1 = new JSONObject("{\"tags\":[1,2],\"meta\":1}");
+        JSONObject obj2 = new JSONObject("{\"tags\":[3,4,5]}");
+        assertTrue(plan.areEqual(obj1, obj2));
+        assertTrue(plan.generateJsonDiff(obj1, obj2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Unordered arrays ignore element order but not multiplicity")
+    void testUnordered() {
+        ComparisonPlan plan = ComparisonPlan.fromSchema(new JSONObject(SCHEMA));
+
+        assertTrue(plan.areEqual(new JSONObject("{\"tags\":[\"a\",\"b\",\"c\"]}"),
+                new JSONObject("{\"tags\":[\"c\",\"a\",\"b\"]}")));
+        assertFalse(plan.areEqual(new JSONObject("{\"tags\":[\"a\",\"a\"]}"),
+                new JSONObject("{\"tags\":[\"a\",\"b\"]}")));
+
+        JSONArray diffs = plan.generateJsonDiff(new JSONObject("{\"tags\":[\"a\",\"x\",\"b\"]}"),
+                new JSONObject("{\"tags\":[\"b\",\"a\",\"y\"]}"));
+        assertEquals(Set.of("remove tags/1 ", "add tags/2 " + Long.toHexString(JsonFingerprint.of("y"))),
+                JsonTapeComparatorTest.asSet(diffs));
+
+        // Same fingerprint as the Integer 5 under the old leaf hashing: still two different values
+        JSONObject colliding1 = new JSONObject().put("tags", new JSONArray().put(5));
+        JSONObject colliding2 = new JSONObject().put("tags", new JSONArray().put(-7880643240104296443L));
+        assertFalse(plan.areEqual(colliding1, colliding2));
+    }
+
+    @Test
+    @DisplayName("Keyed arrays match elements by key")
+    void testKeyed() {
+        ComparisonPlan plan = ComparisonPlan.fromSchema(new JSONObject(SCHEMA));
+
+        JSONObject obj1 = new JSONObject("{\"items\":[{\"sku\":\"a\",\"qty\":1},{\"sku\":\"b\",\"qty\":2},{\"sku\":\"c\",\"qty\":3}]}");
+        JSONObject obj2 = new JSONObject("{\"items\":[{\"sku\":\"d\",\"qty\":4},{\"sku\":\"b\",\"qty\":2},{\"sku\":\"a\",\"qty\":9}]}");
+
+        assertFalse(plan.areEqual(obj1, obj2));
+        assertEquals(Set.of(
+                "replace items/2/qty " + Long.toHexString(JsonFingerprint.of(9)),
+                "remove items/2 ",
+                "add items/0 " + Long.toHexString(JsonFingerprint.of(new JSONObject("{\"sku\":\"d\",\"qty\":4}")))),
+                JsonTapeComparatorTest.asSet(plan.generateJsonDiff(obj1, obj2)));
+
+        JSONObject reordered = new JSONObject("{\"items\":[{\"sku\":\"c\",\"qty\":3},{\"sku\":\"a\",\"qty\":1},{\"sku\":\"b\",\"qty\":2}]}");
+        assertTrue(plan.areEqual(obj1, reordered));
+    }
+
+    @Test
+    @DisplayName("Learned shapes accept options on their paths")
+    void testLearnWithOptions() {
+        JSONObject sample = new JSONObject("{\"meta\":{\"requestId\":\"r1\"},\"values\":[1,2,3]}");
+        ComparisonPlan plan = ComparisonPlan.builder()
+                .learn(List.of(sample))
+                .ignore("/meta/requestId")
+                .unorderedArray("/values")
+                .build();
+
+        assertTrue(plan.areEqual(sample, new JSONObject("{\"meta\":{\"requestId\":\"r2\"},\"values\":[3,2,1]}")));
+        assertFalse(plan.areEqual(sample, new JSONObject("{\"meta\":{\"requestId\":\"r2\",\"extra\":1},\"values\":[3,2,1]}")));
+    }
+}
@@ -0,0 +1,132 @@
+package com.trdg;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ExternalKeyedJoin Tests")
+class ExternalKeyedJoinTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("keyed-join-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path writeLines(String name, List<String> lines) throws IOException {
+        return Files.write(tempDir.resolve(name), lines);
+    }
+
+    private long workFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(Files::isDirectory).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Shuffled NDJSON files are matched by key")
+    void testNdjsonFiles() throws IOException {
+        List<String> left = new ArrayList<>();
+        List<String> right = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            left.add("{\"id\":" + i + ",\"v\":\"x" + i + "\"}");
+            if (i != 7) {
+                right.add("{\"id\":" + i + ",\"v\":\"x" + (i % 250 == 0 ? "changed" : i) + "\"}");
+            }
+        }
+        right.add("{\"id\":5000,\"v\":\"new\"}");
+        Collections.shuffle(left, new Random(1));
+        Collections.shuffle(right, new Random(2));
+
+        Map<String, NdjsonDiff.RecordDiff> diffs = new HashMap<>();
+        NdjsonDiff.Summary summary = new ExternalKeyedJoin(8, 4, 1000, null, tempDir)
+                .diff(writeLines("left.ndjson", left), writeLines("right.ndjson", right), "/id",
+                        diff -> assertNull(diffs.put(diff.key, diff)));
+
+        assertEquals(1999, summary.compared);
+        assertEquals(8, summary.changed);
+        assertEquals(1, summary.onlyLeft);
+        assertEquals(1, summary.onlyRight);
+        assertEquals(NdjsonDiff.Kind.ONLY_LEFT, diffs.get("7").kind);
+        assertEquals(NdjsonDiff.Kind.ONLY_RIGHT, diffs.get("5000").kind);
+        assertEquals("xchanged", diffs.get("250").diffs.getJSONObject(0).getString("value"));
+        assertEquals(0, workFiles(), "partition files are removed");
+    }
+
+    @Test
+    @DisplayName("Oversized partitions are split again")
+    void testRepartition() throws IOException {
+        List<JSONObject> left = new ArrayList<>();
+        List<JSONObject> right = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            left.add(new JSONObject().put("key", "k" + i).put("n", i));
+            right.add(new JSONObject().put("key", "k" + (499 - i)).put("n", 499 - i == 42 ? -1 : 499 - i));
+        }
+
+        List<NdjsonDiff.RecordDiff> diffs = new ArrayList<>();
+        NdjsonDiff.Summary summary = new ExternalKeyedJoin(2, 2, 10, null, tempDir)
+                .diff(left.iterator(), right.iterator(), "/key", diffs::add);
+
+        assertEquals(500, summary.compared);
+        assertEquals(1, diffs.size());
+        assertEquals("k42", diffs.get(0).key);
+        assertEquals(0, workFiles());
+    }
+
+    @Test
+    @DisplayName("Duplicate keys pair in input order")
+    void testDuplicates() throws IOException {
+        List<NdjsonDiff.RecordDiff> diffs = new ArrayList<>();
+        NdjsonDiff.Summary summary = new ExternalKeyedJoin(4, 2, 100, null, tempDir).diff(
+                writeLines("l.ndjson", List.of("{\"id\":\"a\",\"n\":1}", "{\"id\":\"a\",\"n\":2}", "{\"id\":\"a\",\"n\":3}")),
+                writeLines("r.ndjson", List.of("{\"id\":\"a\",\"n\":1}", "{\"id\":\"a\",\"n\":2}")),
+                "/id", diffs::add);
+
+        assertEquals(2, summary.compared);
+        assertEquals(1, summary.onlyLeft);
+        assertEquals(3, diffs.get(0).left.getInt("n"));
+    }
+
+    @Test
+    @DisplayName("Failures still clean up the work directory")
+    void testFailureCleanup() throws IOException {
+        Path left = writeLines("l.ndjson", List.of("{\"id\":1}", "{\"noid\":2}"));
+        Path right = writeLines("r.ndjson", List.of("{\"id\":1}"));
+
+        assertThrows(JSONException.class,
+                () -> new ExternalKeyedJoin(4, 2, 100, null, tempDir).diff(left, right, "/id", diff -> { }));
+        assertEquals(0, workFiles());
+    }
+
+    @Test
+    @DisplayName("Invalid configuration is rejected")
+    void testConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new ExternalKeyedJoin(1, 1, 1, null, null));
+        assertThrows(IllegalArgumentException.class, () -> new ExternalKeyedJoin(4, 0, 1, null, null));
+    }
+}
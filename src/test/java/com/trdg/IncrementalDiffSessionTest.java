@@ -0,0 +1,139 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("IncrementalDiffSession Tests")
+class IncrementalDiffSessionTest {
+
+    private static final String BASELINE = "{\"name\":\"John\",\"age\":30,"
+            + "\"address\":{\"city\":\"New York\",\"zip\":\"10001\"},"
+            + "\"tags\":[\"a\",\"b\",\"c\"],"
+            + "\"orders\":[{\"id\":1,\"total\":10},{\"id\":2,\"total\":20}]}";
+
+    private static void assertMatchesFullDiff(IncrementalDiffSession session) {
+        JSONArray full = JsonComparator.generateJsonDiff("", session.getBaseline(), session.getCurrent());
+        assertEquals(JsonTapeComparatorTest.asSet(full), JsonTapeComparatorTest.asSet(session.getDiff()));
+    }
+
+    private static JSONArray patch(String json) {
+        return new JSONArray(json);
+    }
+
+    @Test
+    @DisplayName("Initial diff matches generateJsonDiff")
+    void testInitialDiff() {
+        JSONObject current = new JSONObject(BASELINE);
+        current.put("age", 31);
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject(BASELINE), current);
+
+        assertMatchesFullDiff(session);
+        assertEquals(1, session.getDiff().length());
+    }
+
+    @Test
+    @DisplayName("Replace, then revert, returns to an empty diff")
+    void testReplaceAndRevert() {
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject(BASELINE), new JSONObject(BASELINE));
+        assertTrue(session.isEqual());
+
+        session.applyPatch(patch("[{\"op\":\"replace\",\"path\":\"/address/city\",\"value\":\"Boston\"}]"));
+        assertMatchesFullDiff(session);
+        assertEquals("address/city", session.getDiff().getJSONObject(0).getString("path"));
+
+        session.applyPatch(patch("[{\"op\":\"replace\",\"path\":\"/address/city\",\"value\":\"New York\"}]"));
+        assertTrue(session.isEqual());
+    }
+
+    @Test
+    @DisplayName("Adding and removing keys and array elements")
+    void testAddRemove() {
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject(BASELINE), new JSONObject(BASELINE));
+
+        session.applyPatch(patch("[{\"op\":\"add\",\"path\":\"/email\",\"value\":\"j@x.com\"},"
+                + "{\"op\":\"remove\",\"path\":\"/address/zip\"},"
+                + "{\"op\":\"add\",\"path\":\"/tags/1\",\"value\":\"z\"},"
+                + "{\"op\":\"add\",\"path\":\"/orders/-\",\"value\":{\"id\":3,\"total\":30}}]"));
+        assertMatchesFullDiff(session);
+
+        session.applyPatch(patch("[{\"op\":\"remove\",\"path\":\"/tags/1\"}]"));
+        assertMatchesFullDiff(session);
+    }
+
+    @Test
+    @DisplayName("Type changes at an inner path are handled at the right level")
+    void testTypeChange() {
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject(BASELINE), new JSONObject(BASELINE));
+
+        session.applyPatch(patch("[{\"op\":\"replace\",\"path\":\"/address\",\"value\":\"unknown\"}]"));
+        assertMatchesFullDiff(session);
+        assertEquals(1, session.getDiff().length());
+
+        session.applyPatch(patch("[{\"op\":\"replace\",\"path\":\"/address\",\"value\":{\"city\":\"New York\"}}]"));
+        assertMatchesFullDiff(session);
+
+        // Reported below the former replacement; the stale operation on the parent must go away
+        session.getCurrent().getJSONObject("address").put("zip", "10001");
+        session.pathChanged("/address/zip");
+        assertTrue(session.isEqual());
+    }
+
+    @Test
+    @DisplayName("Direct mutation with pathChanged notification")
+    void testPathChanged() {
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject(BASELINE), new JSONObject(BASELINE));
+
+        session.getCurrent().getJSONArray("orders").getJSONObject(1).put("total", 25);
+        session.pathChanged("/orders/1/total");
+        assertMatchesFullDiff(session);
+
+        session.getCurrent().getJSONArray("orders").getJSONObject(0).put("note", "gift");
+        session.pathChanged("/orders/0");
+        assertMatchesFullDiff(session);
+        assertEquals(2, session.getDiff().length());
+    }
+
+    @Test
+    @DisplayName("Move, copy and test operations")
+    void testMoveCopyTest() {
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject(BASELINE), new JSONObject(BASELINE));
+
+        session.applyPatch(patch("[{\"op\":\"test\",\"path\":\"/name\",\"value\":\"John\"},"
+                + "{\"op\":\"move\",\"from\":\"/address/zip\",\"path\":\"/zip\"},"
+                + "{\"op\":\"copy\",\"from\":\"/orders/0\",\"path\":\"/firstOrder\"}]"));
+        assertMatchesFullDiff(session);
+
+        assertThrows(JSONException.class,
+                () -> session.applyPatch(patch("[{\"op\":\"test\",\"path\":\"/name\",\"value\":\"Jane\"}]")));
+    }
+
+    @Test
+    @DisplayName("Test operations compare values, not fingerprints")
+    void testTestComparesValues() {
+        JSONObject doc = new JSONObject().put("a", 5);
+        IncrementalDiffSession session = new IncrementalDiffSession(new JSONObject().put("a", 5), doc);
+        // Same fingerprint as the Integer 5 under the old leaf hashing
+        JSONObject test = new JSONObject().put("op", "test").put("path", "/a").put("value", -7880643240104296443L);
+
+        assertThrows(JSONException.class, () -> session.applyPatch(new JSONArray().put(test)));
+        session.applyPatch(new JSONArray().put(new JSONObject().put("op", "test").put("path", "/a").put("value", 5)));
+    }
+
+    @Test
+    @DisplayName("Pointer tokens are unescaped")
+    void testEscapedPointer() {
+        JSONObject baseline = new JSONObject().put("a/b", 1).put("c~d", 2);
+        IncrementalDiffSession session = new IncrementalDiffSession(baseline, new JSONObject(baseline.toString()));
+
+        session.applyPatch(patch("[{\"op\":\"replace\",\"path\":\"/a~1b\",\"value\":5},"
+                + "{\"op\":\"replace\",\"path\":\"/c~0d\",\"value\":6}]"));
+        assertEquals(5, session.getCurrent().getInt("a/b"));
+        assertEquals(6, session.getCurrent().getInt("c~d"));
+        assertEquals(2, session.getDiff().length());
+    }
+}
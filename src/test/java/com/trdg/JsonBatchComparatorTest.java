@@ -0,0 +1,127 @@
+package com.trdg;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonBatchComparator Tests")
+class JsonBatchComparatorTest {
+
+    private static List<JsonBatchComparator.Pair> pairs(int count) {
+        List<JsonBatchComparator.Pair> pairs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            JSONObject expected = new JSONObject().put("id", i).put("name", "item" + i);
+            // Every third pair differs
+            JSONObject actual = new JSONObject().put("id", i).put("name", i % 3 == 0 ? "other" : "item" + i);
+            pairs.add(new JsonBatchComparator.Pair(expected, actual));
+        }
+        return pairs;
+    }
+
+    @Test
+    @DisplayName("Results are returned in input order")
+    void testOrderedResults() {
+        try (JsonBatchComparator batch = JsonBatchComparator.forkJoin(4)) {
+            JsonBatchComparator.BatchResult result = batch.compareAll(pairs(1000));
+
+            assertEquals(1000, result.pairs);
+            assertEquals(1000, result.results.size());
+            assertEquals(334, result.mismatches);
+            for (int i = 0; i < 1000; i++) {
+                ComparisonResult pairResult = result.results.get(i);
+                assertEquals(i % 3 != 0, pairResult.equal);
+                if (!pairResult.equal) {
+                    assertEquals(1, pairResult.differences.size());
+                    assertTrue(pairResult.differences.get(0).contains("item" + i));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Results are delivered as they complete with their input index")
+    void testCompletionOrderListener() {
+        ConcurrentHashMap<Long, ComparisonResult> seen = new ConcurrentHashMap<>();
+        try (JsonBatchComparator batch = JsonBatchComparator.virtualThreads()) {
+            JsonBatchComparator.BatchResult result = batch.compareAll(pairs(500).stream(), seen::put);
+
+            assertEquals(500, result.pairs);
+            assertTrue(result.results.isEmpty());
+        }
+        assertEquals(500, seen.size());
+        assertFalse(seen.get(0L).equal);
+        assertTrue(seen.get(1L).equal);
+    }
+
+    @Test
+    @DisplayName("Caller-supplied executor is not shut down")
+    void testExternalExecutor() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            JsonBatchComparator batch = new JsonBatchComparator(executor, 7, 2);
+            JsonBatchComparator.BatchResult result = batch.compareAll(pairs(50));
+            batch.close();
+
+            assertEquals(17, result.mismatches);
+            assertFalse(executor.isShutdown());
+            assertTrue(result.pairsPerSecond() > 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A failed chunk stops the batch without reading the whole input")
+    void testFailureStopsEarly() {
+        AtomicInteger read = new AtomicInteger();
+        Stream<JsonBatchComparator.Pair> input = IntStream.range(0, 1_000_000).mapToObj(i -> {
+            read.incrementAndGet();
+            // The first pair has no expected document and fails its chunk
+            return new JsonBatchComparator.Pair(i == 0 ? null : new JSONObject(), new JSONObject());
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            JsonBatchComparator batch = new JsonBatchComparator(executor, 10, 2);
+            assertThrows(NullPointerException.class, () -> batch.compareAll(input));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(read.get() <= 30, "read " + read.get());
+    }
+
+    @Test
+    @DisplayName("Empty input yields an empty result")
+    void testEmpty() {
+        try (JsonBatchComparator batch = JsonBatchComparator.forkJoin(2)) {
+            JsonBatchComparator.BatchResult result = batch.compareAll(new ArrayList<>());
+            assertEquals(0, result.pairs);
+            assertTrue(result.results.isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent compare calls don't share differences")
+    void testThreadIsolation() {
+        List<ComparisonResult> results = IntStream.range(0, 200).parallel()
+                .mapToObj(i -> JsonComparator.compare(
+                        new JSONObject().put("v", i), new JSONObject().put("v", i + 1)))
+                .toList();
+
+        for (ComparisonResult result : results) {
+            assertFalse(result.equal);
+            assertEquals(1, result.differences.size());
+        }
+        assertTrue(JsonComparator.getDifferences().isEmpty());
+    }
+}
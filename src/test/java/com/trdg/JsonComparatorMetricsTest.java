@@ -0,0 +1,149 @@
+package com.trdg;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonComparatorMetrics Tests")
+class JsonComparatorMetricsTest {
+
+    private static final String DOC1 = "{\"name\":\"John\",\"address\":{\"city\":\"NY\",\"geo\":{\"lat\":1}},\"tags\":[1,2,3]}";
+    private static final String DOC2 = "{\"name\":\"Jane\",\"address\":{\"city\":\"LA\",\"geo\":{\"lat\":1}},\"tags\":[1,2,4]}";
+
+    @BeforeEach
+    void setUp() {
+        JsonComparatorMetrics.reset();
+        JsonComparator.clearDifferences();
+    }
+
+    @AfterEach
+    void tearDown() {
+        JsonComparatorMetrics.disable();
+        JsonComparatorMetrics.setSlowThresholdNanos(Long.MAX_VALUE);
+        JsonComparatorMetrics.reset();
+    }
+
+    @Test
+    @DisplayName("Nothing is recorded while disabled")
+    void testDisabled() {
+        JsonComparator.areJsonEntitiesEqual(new JSONObject(DOC1), new JSONObject(DOC2));
+        JsonComparator.generateJsonDiff(new JSONObject(DOC1), new JSONObject(DOC2));
+
+        JsonComparatorMetrics.Snapshot snapshot = JsonComparatorMetrics.snapshot();
+        assertEquals(0, snapshot.nodesVisited);
+        assertEquals(0, snapshot.timers.get(JsonComparatorMetrics.EntryPoint.ARE_JSON_ENTITIES_EQUAL).count);
+    }
+
+    @Test
+    @DisplayName("Only the outermost call is timed")
+    void testOutermostTimer() {
+        JsonComparatorMetrics.enable();
+        JsonComparator.areJsonEntitiesEqual(new JSONObject(DOC1), new JSONObject(DOC2));
+
+        JsonComparatorMetrics.Snapshot snapshot = JsonComparatorMetrics.snapshot();
+        assertEquals(1, snapshot.timers.get(JsonComparatorMetrics.EntryPoint.ARE_JSON_ENTITIES_EQUAL).count);
+        assertEquals(0, snapshot.timers.get(JsonComparatorMetrics.EntryPoint.COMPARE_JSON_ARRAYS).count);
+        assertEquals(3, snapshot.maxDepth);
+        // root, 3 top-level values, 2 address values, 1 geo value, 3 tags
+        assertEquals(10, snapshot.nodesVisited);
+    }
+
+    @Test
+    @DisplayName("Differences are counted per entry point")
+    void testDifferencesEmitted() {
+        JsonComparatorMetrics.enable();
+
+        JsonComparator.areJsonEntitiesEqual(new JSONObject(DOC1), new JSONObject(DOC2));
+        long afterEquals = JsonComparatorMetrics.snapshot().differencesEmitted;
+        assertEquals(JsonComparator.getDifferences().size(), afterEquals);
+
+        JsonComparator.generateJsonDiff("", new JSONObject(DOC1), new JSONObject(DOC2));
+        assertEquals(afterEquals + 3, JsonComparatorMetrics.snapshot().differencesEmitted);
+
+        JsonComparator.generateJsonDiff(new JSONObject(DOC1), new JSONObject(DOC2));
+        assertEquals(afterEquals + 6, JsonComparatorMetrics.snapshot().differencesEmitted);
+    }
+
+    @Test
+    @DisplayName("Exceptions don't leave the depth tracking unbalanced")
+    void testExceptionSafety() {
+        JsonComparatorMetrics.enable();
+        JSONObject failing = new JSONObject() {
+            @Override
+            public Object get(String key) throws JSONException {
+                throw new JSONException("boom");
+            }
+        };
+        failing.put("b", 1);
+        JSONObject obj1 = new JSONObject().put("a", failing);
+        JSONObject obj2 = new JSONObject().put("a", new JSONObject().put("b", 1));
+        assertThrows(JSONException.class, () -> JsonComparator.areJsonEntitiesEqual(obj1, obj2));
+
+        JsonComparatorMetrics.reset();
+        JsonComparator.areJsonEntitiesEqual(new JSONObject(DOC1), new JSONObject(DOC1));
+        JsonComparatorMetrics.Snapshot snapshot = JsonComparatorMetrics.snapshot();
+        assertEquals(1, snapshot.timers.get(JsonComparatorMetrics.EntryPoint.ARE_JSON_ENTITIES_EQUAL).count);
+        assertEquals(3, snapshot.maxDepth);
+    }
+
+    @Test
+    @DisplayName("Parsed strings are counted in UTF-8 bytes")
+    void testBytesParsedFromStrings() throws Exception {
+        JsonComparatorMetrics.enable();
+        String json = "{\"name\":\"Zo\u00eb \u20ac \ud83d\ude00\"}";
+        JsonComparatorMetrics.recordBytesParsed(json);
+        assertEquals(json.getBytes(StandardCharsets.UTF_8).length, JsonComparatorMetrics.snapshot().bytesParsed);
+
+        JsonComparatorMetrics.reset();
+        try (JsonCompareService service = new JsonCompareService(1)) {
+            service.submit(json, json).get();
+        }
+        assertEquals(2L * json.getBytes(StandardCharsets.UTF_8).length, JsonComparatorMetrics.snapshot().bytesParsed);
+    }
+
+    @Test
+    @DisplayName("Snapshot flattens into named metrics")
+    void testToMap() {
+        JsonComparatorMetrics.enable();
+        JsonComparatorMetrics.setSlowThresholdNanos(0);
+        JsonComparatorMetrics.recordBytesParsed(DOC1.length());
+        JsonComparator.generateJsonPatch(new JSONObject(DOC1), new JSONObject(DOC2));
+
+        Map<String, Number> metrics = JsonComparatorMetrics.snapshot().toMap();
+        assertEquals((long) DOC1.length(), metrics.get("jsoncompare.bytes.parsed"));
+        assertEquals(1L, metrics.get("jsoncompare.timer.generateJsonPatch.count"));
+        assertEquals(3L, metrics.get("jsoncompare.differences.emitted"));
+    }
+
+    @Test
+    @DisplayName("Slow comparisons are committed as JFR events")
+    void testSlowComparisonEvent() throws Exception {
+        CompletableFuture<RecordedEvent> received = new CompletableFuture<>();
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable("com.trdg.SlowComparison");
+            stream.onEvent("com.trdg.SlowComparison", received::complete);
+            stream.startAsync();
+
+            JsonComparatorMetrics.enable();
+            JsonComparatorMetrics.setSlowThresholdNanos(0);
+            JsonComparator.generateJsonPatch(new JSONObject(DOC1), new JSONObject(DOC2));
+
+            RecordedEvent event = received.get(30, TimeUnit.SECONDS);
+            assertEquals("generateJsonPatch", event.getString("entryPoint"));
+            assertEquals(3L, event.getLong("differences"));
+            assertTrue(event.getLong("elapsedNanos") > 0);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonCompareCli Tests")
+class JsonCompareCliTest {
+
+    private Path dir;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("jsoncompare-cli");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private int run(String... args) {
+        return JsonCompareCli.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String[] outputLines() {
+        String text = out.toString(StandardCharsets.UTF_8).trim();
+        return text.isEmpty() ? new String[0] : text.split("\\R");
+    }
+
+    @Test
+    @DisplayName("Equal files exit with 0 and print nothing")
+    void testEqualFiles() throws IOException {
+        Path left = write("a.json", "{\"name\":\"John\",\"age\":30}");
+        Path right = write("b.json", "{\"age\":30,\"name\":\"John\"}");
+
+        assertEquals(JsonCompareCli.EXIT_EQUAL, run(left.toString(), right.toString()));
+        assertEquals(0, outputLines().length);
+    }
+
+    @Test
+    @DisplayName("Different files are reported in text format")
+    void testTextFormat() throws IOException {
+        Path left = write("a.json", "{\"name\":\"John\",\"address\":{\"city\":\"NY\"}}");
+        Path right = write("b.json", "{\"name\":\"John\",\"address\":{\"city\":\"LA\"}}");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run(left.toString(), right.toString()));
+        String[] lines = outputLines();
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].endsWith(": replace address/city \"LA\""), lines[0]);
+    }
+
+    @Test
+    @DisplayName("Patch format prints RFC 6902 paths")
+    void testPatchFormat() throws IOException {
+        Path left = write("a.json", "{\"a\":1,\"b\":2}");
+        Path right = write("b.json", "{\"a\":1,\"c\":3}");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "patch", left.toString(), right.toString()));
+        JSONArray patch = new JSONArray(out.toString(StandardCharsets.UTF_8));
+        assertEquals(2, patch.length());
+        for (int i = 0; i < patch.length(); i++) {
+            assertTrue(patch.getJSONObject(i).getString("path").startsWith("/"));
+        }
+    }
+
+    @Test
+    @DisplayName("Patch paths escape slashes and tildes in keys")
+    void testPatchPointerEscaping() throws IOException {
+        Path left = write("a.json", "{\"\":{\"a/b\":1,\"~\":2},\"list\":[1]}");
+        Path right = write("b.json", "{\"\":{\"a/b\":3,\"~\":4},\"list\":[1,2]}");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "patch", left.toString(), right.toString()));
+        JSONArray patch = new JSONArray(out.toString(StandardCharsets.UTF_8));
+        Set<String> paths = new TreeSet<>();
+        for (int i = 0; i < patch.length(); i++) {
+            paths.add(patch.getJSONObject(i).getString("op") + " " + patch.getJSONObject(i).getString("path"));
+        }
+        assertEquals(Set.of("replace //a~1b", "replace //~0", "add /list/1"), paths);
+    }
+
+    @Test
+    @DisplayName("A failed comparison exits with the error code, not as a difference")
+    void testUnsortedKeyedInput() throws IOException {
+        Path left = write("a.ndjson", "{\"id\":\"b\"}\n{\"id\":\"a\"}\n");
+        Path right = write("b.ndjson", "{\"id\":\"a\"}\n{\"id\":\"b\"}\n");
+
+        assertEquals(JsonCompareCli.EXIT_ERROR, run("--ndjson", "--key", "/id", "--sorted", left.toString(), right.toString()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("not sorted"));
+    }
+
+    @Test
+    @DisplayName("Ignored paths and the difference limit")
+    void testIgnoreAndMaxDiffs() throws IOException {
+        Path left = write("a.json", "{\"a\":1,\"b\":2,\"c\":3,\"meta\":{\"id\":\"x\"}}");
+        Path right = write("b.json", "{\"a\":9,\"b\":9,\"c\":9,\"meta\":{\"id\":\"y\"}}");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--ignore", "/meta/id", "--max-diffs", "2",
+                left.toString(), right.toString()));
+        String[] lines = outputLines();
+        assertEquals(2, lines.length);
+        for (String line : lines) {
+            assertFalse(line.contains("meta"));
+        }
+
+        out.reset();
+        assertEquals(JsonCompareCli.EXIT_EQUAL, run("--ignore", "/a", "--ignore", "/b", "--ignore", "/c",
+                "--ignore", "/meta", left.toString(), right.toString()));
+    }
+
+    @Test
+    @DisplayName("NDJSON streams are compared line by line in order")
+    void testNdjson() throws IOException {
+        StringBuilder left = new StringBuilder();
+        StringBuilder right = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            left.append("{\"id\":").append(i).append("}\n");
+            right.append("{\"id\":").append(i % 50 == 0 ? -i : i).append("}\n");
+        }
+        right.append("{\"id\":200}\n");
+        Path file1 = write("left.ndjson", left.toString());
+        Path file2 = write("right.ndjson", right.toString());
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "ndjson", "--threads", "3",
+                file1.toString(), file2.toString()));
+        String[] lines = outputLines();
+        assertEquals(4, lines.length);
+        assertEquals("left.ndjson:51", new JSONObject(lines[0]).getString("source"));
+        assertEquals("left.ndjson:201", new JSONObject(lines[3]).getString("source"));
+        assertEquals("add", new JSONObject(lines[3]).getString("op"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("201 pairs compared, 4 different, 0 errors"));
+    }
+
+    @Test
+    @DisplayName("NDJSON output keeps null values")
+    void testNdjsonNullValues() throws IOException {
+        Path left = write("l.json", "{\"a\":1,\"b\":{\"x\":1}}");
+        Path right = write("r.json", "{\"a\":null,\"b\":{\"x\":null},\"c\":{\"y\":null}}");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "ndjson", left.toString(), right.toString()));
+        Set<String> lines = new TreeSet<>();
+        for (String line : outputLines()) {
+            JSONObject diff = new JSONObject(line);
+            assertTrue(diff.getString("source").endsWith("l.json"));
+            lines.add(diff.getString("op") + " " + diff.getString("path") + " " + JSONObject.valueToString(diff.get("value")));
+        }
+        assertEquals(Set.of("replace a null", "replace b/x null", "add c {\"y\":null}"), lines);
+    }
+
+    @Test
+    @DisplayName("Documents on the right only are added with their content")
+    void testAddedDocuments() throws IOException {
+        Path file1 = write("left.ndjson", "{\"id\":\"a\"}\n");
+        Path file2 = write("right.ndjson", "{\"id\":\"a\"}\n{\"id\":\"b\",\"v\":1}\n");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "patch", "--key", "/id", file1.toString(), file2.toString()));
+        // Each record pair is printed as its own labelled patch
+        JSONObject diff = new JSONObject(outputLines()[0]).getJSONArray("patch").getJSONObject(0);
+        assertEquals("add", diff.getString("op"));
+        assertEquals("", diff.getString("path"));
+        assertEquals(1, diff.getJSONObject("value").getInt("v"));
+
+        out.reset();
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "patch", file1.toString(), file2.toString()));
+        diff = new JSONObject(outputLines()[0]).getJSONArray("patch").getJSONObject(0);
+        assertEquals("", diff.getString("path"));
+        assertEquals("b", diff.getJSONObject("value").getString("id"));
+
+        out.reset();
+        write("left/keep.json", "{}");
+        write("right/keep.json", "{}");
+        write("right/new.json", "{\"a\":1}");
+        write("right/new.ndjson", "{\"a\":2}\n");
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--format", "patch",
+                dir.resolve("left").toString(), dir.resolve("right").toString()));
+        String[] lines = outputLines();
+        assertEquals(2, lines.length);
+        JSONObject added = new JSONObject(lines[0]);
+        assertEquals("new.json", added.getString("source"));
+        assertEquals(1, added.getJSONArray("patch").getJSONObject(0).getJSONObject("value").getInt("a"));
+        added = new JSONObject(lines[1]);
+        assertEquals("new.ndjson", added.getString("source"));
+        assertEquals("/1", added.getJSONArray("patch").getJSONObject(0).getString("path"));
+        assertEquals(2, added.getJSONArray("patch").getJSONObject(0).getJSONObject("value").getInt("a"));
+    }
+
+    @Test
+    @DisplayName("NDJSON records can be paired by key")
+    void testNdjsonByKey() throws IOException {
+        Path file1 = write("left.ndjson", "{\"id\":\"b\",\"v\":2}\n{\"id\":\"a\",\"v\":1}\n");
+        Path file2 = write("right.ndjson", "{\"id\":\"a\",\"v\":1}\n{\"id\":\"b\",\"v\":3}\n{\"id\":\"c\",\"v\":0}\n");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run("--key", "/id", file1.toString(), file2.toString()));
+        String[] lines = outputLines();
+        assertEquals(2, lines.length);
+        assertEquals("left.ndjson:b: replace v 3", lines[0]);
+        assertTrue(lines[1].startsWith("left.ndjson:c: add"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("3 pairs compared, 2 different, 0 errors"));
+    }
+
+    @Test
+    @DisplayName("Directory trees are paired by relative path")
+    void testDirectories() throws IOException {
+        write("left/same.json", "{\"a\":1}");
+        write("right/same.json", "{\"a\":1}");
+        write("left/nested/changed.json", "{\"a\":1}");
+        write("right/nested/changed.json", "{\"a\":2}");
+        write("left/removed.json", "{\"a\":1}");
+        write("right/added.json", "{\"a\":1}");
+
+        assertEquals(JsonCompareCli.EXIT_DIFFERENT, run(dir.resolve("left").toString(), dir.resolve("right").toString()));
+        String[] lines = outputLines();
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("added.json: add"));
+        assertTrue(lines[1].startsWith("nested/changed.json: replace a 2"));
+        assertTrue(lines[2].startsWith("removed.json: remove"));
+    }
+
+    @Test
+    @DisplayName("Invalid input and bad usage exit with 2")
+    void testErrors() throws IOException {
+        Path valid = write("a.json", "{\"a\":1}");
+        Path invalid = write("b.json", "{\"a\":");
+
+        assertEquals(JsonCompareCli.EXIT_ERROR, run(valid.toString(), invalid.toString()));
+        assertEquals(JsonCompareCli.EXIT_ERROR, run(valid.toString(), dir.resolve("missing.json").toString()));
+        assertEquals(JsonCompareCli.EXIT_ERROR, run(valid.toString()));
+        assertEquals(JsonCompareCli.EXIT_ERROR, run("--threads", "0", valid.toString(), valid.toString()));
+        assertEquals(JsonCompareCli.EXIT_ERROR, run("--bogus", valid.toString(), valid.toString()));
+    }
+}
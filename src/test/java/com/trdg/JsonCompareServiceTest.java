@@ -0,0 +1,94 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonCompareService Tests")
+class JsonCompareServiceTest {
+
+    private static JSONObject request(int id, String status) {
+        return new JSONObject().put("id", id).put("status", status);
+    }
+
+    @Test
+    @DisplayName("Submitted comparisons complete with their results")
+    void testSubmit() throws Exception {
+        try (JsonCompareService service = new JsonCompareService(64)) {
+            List<CompletableFuture<ComparisonResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(service.submit(request(i, "ok"), request(i, i % 2 == 0 ? "ok" : "error")));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                ComparisonResult result = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertEquals(i % 2 == 0, result.equal);
+            }
+            assertEquals(0, service.pending());
+        }
+    }
+
+    @Test
+    @DisplayName("String payloads are parsed on the worker")
+    void testSubmitStrings() throws Exception {
+        try (JsonCompareService service = new JsonCompareService(4)) {
+            ComparisonResult result = service.submit("{\"a\":1}", "{\"a\":2}").get();
+            assertFalse(result.equal);
+
+            CompletableFuture<ComparisonResult> invalid = service.submit("{\"a\":1}", "not json");
+            ExecutionException e = assertThrows(ExecutionException.class, invalid::get);
+            assertTrue(e.getCause() instanceof JSONException);
+        }
+    }
+
+    @Test
+    @DisplayName("Diff jobs return patch-style operations")
+    void testSubmitDiff() throws Exception {
+        try (JsonCompareService service = new JsonCompareService(4)) {
+            JSONArray diff = service.submitDiff(request(1, "ok"), request(1, "error")).get();
+            assertEquals(1, diff.length());
+            assertEquals("status", diff.getJSONObject(0).getString("path"));
+        }
+    }
+
+    @Test
+    @DisplayName("trySubmit rejects when the service is full")
+    void testBackpressure() throws Exception {
+        // A document large enough to keep the single slot busy while trySubmit runs
+        JSONObject big = new JSONObject();
+        for (int i = 0; i < 200_000; i++) {
+            big.put("k" + i, i);
+        }
+        try (JsonCompareService service = new JsonCompareService(1)) {
+            CompletableFuture<ComparisonResult> first = service.submit(big, big);
+            CompletableFuture<ComparisonResult> second = service.trySubmit(request(1, "ok"), request(1, "ok"));
+
+            if (!first.isDone()) {
+                ExecutionException e = assertThrows(ExecutionException.class, second::get);
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            assertTrue(first.get().equal);
+        }
+    }
+
+    @Test
+    @DisplayName("Jobs submitted after close are rejected")
+    void testClosed() {
+        JsonCompareService service = new JsonCompareService(4);
+        service.close();
+
+        CompletableFuture<ComparisonResult> future = service.trySubmit(request(1, "ok"), request(1, "ok"));
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(0, service.pending());
+    }
+}
@@ -0,0 +1,166 @@
+package com.trdg;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonDiffCache Tests")
+class JsonDiffCacheTest {
+
+    private static JSONObject person(String name, int age) {
+        return new JSONObject().put("name", name).put("age", age);
+    }
+
+    @Test
+    @DisplayName("Repeated diff of the same pair is served from the cache")
+    void testHit() {
+        JsonDiffCache cache = new JsonDiffCache(10);
+        JSONObject obj1 = person("John", 30);
+        JSONObject obj2 = person("Jane", 30);
+
+        JSONObject first = cache.generateJsonDiff(obj1, obj2);
+        JSONObject second = cache.generateJsonDiff(person("John", 30), person("Jane", 30));
+
+        assertSame(first, second);
+        assertTrue(first.has("name"));
+        assertEquals(1, cache.stats().hits);
+        assertEquals(1, cache.stats().misses);
+    }
+
+    @Test
+    @DisplayName("Cached diff matches JsonComparator.generateJsonDiff")
+    void testSameResult() {
+        JsonDiffCache cache = new JsonDiffCache(10);
+        JSONObject obj1 = new JSONObject("{\"a\":1,\"b\":{\"c\":2},\"d\":[1,2]}");
+        JSONObject obj2 = new JSONObject("{\"a\":1,\"b\":{\"c\":3},\"d\":[1,2,3]}");
+
+        JSONObject expected = JsonComparator.generateJsonDiff(obj1, obj2);
+        cache.generateJsonDiff(obj1, obj2);
+
+        assertEquals(expected.toString(), cache.generateJsonDiff(obj1, obj2).toString());
+    }
+
+    @Test
+    @DisplayName("Pairs whose leaves differ only in class get separate entries")
+    void testLeafClassCollision() {
+        JsonDiffCache cache = new JsonDiffCache(10);
+        JSONObject base = new JSONObject().put("a", 1);
+
+        JSONObject diff1 = cache.generateJsonDiff(base, new JSONObject().put("a", 5));
+        JSONObject diff2 = cache.generateJsonDiff(base, new JSONObject().put("a", -7880643240104296443L));
+
+        assertNotSame(diff1, diff2);
+        assertTrue(diff2.getString("a").contains("-7880643240104296443"));
+        assertEquals(2, cache.stats().misses);
+    }
+
+    @Test
+    @DisplayName("Entries are computed with the cache's own StringDiff")
+    void testStringDiff() {
+        StringDiff strings = StringDiff.builder().minLength(100).build();
+        JsonDiffCache cache = new JsonDiffCache(10, Long.MAX_VALUE, JsonDiffCache::defaultWeight,
+                JsonDiffCache.EvictionPolicy.LRU, strings);
+        JSONObject obj1 = new JSONObject().put("page", "x".repeat(1000));
+        JSONObject obj2 = new JSONObject().put("page", "x".repeat(999) + "y");
+
+        assertEquals(JsonComparator.generateJsonDiff(obj1, obj2, strings).toString(), cache.generateJsonDiff(obj1, obj2).toString());
+        assertTrue(new JsonDiffCache(10).generateJsonDiff(obj1, obj2).getString("page").length() > 2000);
+    }
+
+    @Test
+    @DisplayName("Pair order is part of the key")
+    void testOrderedKey() {
+        JsonDiffCache cache = new JsonDiffCache(10);
+        JSONObject obj1 = person("John", 30);
+        JSONObject obj2 = new JSONObject().put("name", "John");
+
+        cache.generateJsonDiff(obj1, obj2);
+        JSONObject reversed = cache.generateJsonDiff(obj2, obj1);
+
+        assertEquals(2, cache.size());
+        assertTrue(reversed.getString("age").startsWith("Key only in second"));
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted when size is exceeded")
+    void testSizeEviction() {
+        JsonDiffCache cache = new JsonDiffCache(2);
+        JSONObject base = person("A", 0);
+        JSONObject p1 = person("B", 1);
+        JSONObject p2 = person("C", 2);
+        JSONObject p3 = person("D", 3);
+
+        cache.generateJsonDiff(base, p1);
+        cache.generateJsonDiff(base, p2);
+        cache.generateJsonDiff(base, p1); // p1 becomes most recently used
+        cache.generateJsonDiff(base, p3); // evicts p2
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.stats().evictions);
+        assertNotNull(cache.getIfPresent(JsonFingerprint.of(base), JsonFingerprint.of(p1)));
+        assertNull(cache.getIfPresent(JsonFingerprint.of(base), JsonFingerprint.of(p2)));
+    }
+
+    @Test
+    @DisplayName("Total weight stays within the weight bound")
+    void testWeightEviction() {
+        JsonDiffCache cache = new JsonDiffCache(100, 5, JsonDiffCache::defaultWeight,
+                JsonDiffCache.EvictionPolicy.LRU);
+        JSONObject base = person("A", 0);
+
+        for (int i = 1; i <= 5; i++) {
+            cache.generateJsonDiff(base, person("B" + i, i));
+            assertTrue(cache.weight() <= 5);
+        }
+        assertTrue(cache.stats().evictions > 0);
+    }
+
+    @Test
+    @DisplayName("TinyLFU keeps a popular entry over one-off pairs")
+    void testTinyLfuAdmission() {
+        JsonDiffCache cache = new JsonDiffCache(1, Long.MAX_VALUE, JsonDiffCache::defaultWeight,
+                JsonDiffCache.EvictionPolicy.TINY_LFU);
+        JSONObject base = person("A", 0);
+        JSONObject hot = person("Hot", 1);
+
+        for (int i = 0; i < 5; i++) {
+            cache.generateJsonDiff(base, hot);
+        }
+        for (int i = 0; i < 5; i++) {
+            cache.generateJsonDiff(base, person("Cold" + i, i));
+        }
+
+        assertNotNull(cache.getIfPresent(JsonFingerprint.of(base), JsonFingerprint.of(hot)));
+        assertEquals(5, cache.stats().rejections);
+    }
+
+    @Test
+    @DisplayName("Cache can be shared across threads")
+    void testConcurrentAccess() throws Exception {
+        JsonDiffCache cache = new JsonDiffCache(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<JSONObject>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int n = i % 16;
+                futures.add(executor.submit(() -> cache.generateJsonDiff(person("A", 0), person("B", n))));
+            }
+            for (Future<JSONObject> future : futures) {
+                assertTrue(future.get().has("name"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.size() <= 8);
+        assertEquals(200, cache.stats().hits + cache.stats().misses);
+    }
+}
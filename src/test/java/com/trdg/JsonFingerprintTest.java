@@ -0,0 +1,67 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonFingerprint Tests")
+class JsonFingerprintTest {
+
+    @Test
+    @DisplayName("Equal objects have equal fingerprints regardless of key order")
+    void testKeyOrderIndependent() {
+        JSONObject obj1 = new JSONObject("{\"a\":1,\"b\":{\"c\":[1,2,3]},\"d\":\"x\"}");
+        JSONObject obj2 = new JSONObject("{\"d\":\"x\",\"b\":{\"c\":[1,2,3]},\"a\":1}");
+
+        assertEquals(JsonFingerprint.of(obj1), JsonFingerprint.of(obj2));
+    }
+
+    @Test
+    @DisplayName("Array element order changes the fingerprint")
+    void testArrayOrderDependent() {
+        JSONArray arr1 = new JSONArray("[1,2,3]");
+        JSONArray arr2 = new JSONArray("[3,2,1]");
+
+        assertNotEquals(JsonFingerprint.of(arr1), JsonFingerprint.of(arr2));
+    }
+
+    @Test
+    @DisplayName("Different values produce different fingerprints")
+    void testDifferentValues() {
+        JSONObject obj1 = new JSONObject("{\"name\":\"John\",\"age\":30}");
+        JSONObject obj2 = new JSONObject("{\"name\":\"John\",\"age\":31}");
+        JSONObject obj3 = new JSONObject("{\"name\":\"John\",\"age\":\"30\"}");
+
+        assertNotEquals(JsonFingerprint.of(obj1), JsonFingerprint.of(obj2));
+        assertNotEquals(JsonFingerprint.of(obj1), JsonFingerprint.of(obj3));
+    }
+
+    @Test
+    @DisplayName("Swapping values between keys changes the fingerprint")
+    void testSwappedValues() {
+        JSONObject obj1 = new JSONObject("{\"a\":1,\"b\":2}");
+        JSONObject obj2 = new JSONObject("{\"a\":2,\"b\":1}");
+
+        assertNotEquals(JsonFingerprint.of(obj1), JsonFingerprint.of(obj2));
+    }
+
+    @Test
+    @DisplayName("Leaves follow the comparator's equals semantics")
+    void testLeafTypes() {
+        assertNotEquals(JsonFingerprint.of(1), JsonFingerprint.of(1L));
+        assertEquals(JsonFingerprint.of(JSONObject.NULL), JsonFingerprint.of(null));
+        assertNotEquals(JsonFingerprint.of(true), JsonFingerprint.of(false));
+    }
+
+    @Test
+    @DisplayName("Leaves of different classes do not collide through their value bits")
+    void testTypeTagCollision() {
+        // Used to collide when the class tag was XORed into the high bits of the value
+        assertNotEquals(JsonFingerprint.of(5), JsonFingerprint.of(-7880643240104296443L));
+        assertNotEquals(JsonFingerprint.of(new JSONObject().put("a", 5)),
+                JsonFingerprint.of(new JSONObject().put("a", -7880643240104296443L)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonMerge Tests")
+class JsonMergeTest {
+
+    private static void assertSameJson(String expected, JSONObject actual) {
+        assertEquals(0, JsonComparator.generateJsonDiff("", new JSONObject(expected), actual).length(),
+                actual.toString());
+    }
+
+    @Test
+    @DisplayName("Non-overlapping edits are merged")
+    void testCleanMerge() {
+        JSONObject base = new JSONObject("{\"a\":1,\"b\":{\"x\":1,\"y\":2},\"c\":[1,2,3],\"d\":true}");
+        JSONObject left = new JSONObject("{\"a\":2,\"b\":{\"x\":1,\"y\":2},\"c\":[1,9,3],\"d\":true,\"e\":\"new\"}");
+        JSONObject right = new JSONObject("{\"a\":1,\"b\":{\"x\":1,\"y\":5},\"c\":[1,2,4]}");
+
+        JsonMerge.Result result = JsonMerge.merge(base, left, right);
+        assertTrue(result.isClean(), result.conflicts.toString());
+        assertSameJson("{\"a\":2,\"b\":{\"x\":1,\"y\":5},\"c\":[1,9,4],\"e\":\"new\"}", result.merged);
+    }
+
+    @Test
+    @DisplayName("Identical edits on both sides are not conflicts")
+    void testSameChange() {
+        JSONObject base = new JSONObject("{\"a\":1,\"list\":[1]}");
+        JSONObject left = new JSONObject("{\"a\":3,\"list\":[1,2],\"n\":{\"k\":1}}");
+        JSONObject right = new JSONObject("{\"a\":3,\"list\":[1,2],\"n\":{\"k\":1}}");
+
+        JsonMerge.Result result = JsonMerge.merge(base, left, right);
+        assertTrue(result.isClean());
+        assertSameJson(left.toString(), result.merged);
+    }
+
+    @Test
+    @DisplayName("Conflicting edits are reported and keep the base value")
+    void testConflicts() {
+        JSONObject base = new JSONObject("{\"a\":1,\"b\":{\"x\":1},\"c\":[1,2],\"d\":\"keep\",\"ok\":0}");
+        JSONObject left = new JSONObject("{\"a\":2,\"b\":{\"x\":2},\"c\":[1,2,3],\"ok\":1,\"new\":1}");
+        JSONObject right = new JSONObject("{\"a\":3,\"b\":{\"x\":3},\"c\":[1],\"d\":\"edited\",\"new\":2}");
+
+        JsonMerge.Result result = JsonMerge.merge(base, left, right);
+        assertFalse(result.isClean());
+        // a, b/x, c, d, new, and ok (edited on the left, deleted on the right)
+        assertEquals(6, result.conflicts.size());
+
+        JsonMerge.Conflict conflict = null;
+        for (JsonMerge.Conflict c : result.conflicts) {
+            if (c.path.equals("d")) {
+                conflict = c;
+            }
+        }
+        assertNotNull(conflict);
+        assertEquals("keep", conflict.base);
+        assertNull(conflict.left);
+        assertEquals("edited", conflict.right);
+
+        assertSameJson("{\"a\":1,\"b\":{\"x\":1},\"c\":[1,2],\"d\":\"keep\",\"ok\":0}", result.merged);
+    }
+
+    @Test
+    @DisplayName("Values with colliding fingerprints are not treated as equal")
+    void testFingerprintCollision() {
+        // Integer 5 and this Long used to share a leaf fingerprint
+        JSONObject base = new JSONObject().put("a", 1);
+        JSONObject left = new JSONObject().put("a", 5);
+        JSONObject right = new JSONObject().put("a", -7880643240104296443L);
+
+        JsonMerge.Result result = JsonMerge.merge(base, left, right);
+        assertEquals(1, result.conflicts.size());
+        assertEquals("a", result.conflicts.get(0).path);
+        assertEquals(1, result.merged.get("a"));
+    }
+
+    @Test
+    @DisplayName("Conflicts are reported at the deepest path")
+    void testNestedPaths() {
+        JSONObject base = new JSONObject("{\"items\":[{\"name\":\"a\",\"tags\":[\"x\"]},{\"name\":\"b\"}]}");
+        JSONObject left = new JSONObject("{\"items\":[{\"name\":\"a\",\"tags\":[\"y\"]},{\"name\":\"b2\"}]}");
+        JSONObject right = new JSONObject("{\"items\":[{\"name\":\"a\",\"tags\":[\"z\"]},{\"name\":\"b\",\"n\":1}]}");
+
+        JsonMerge.Result result = JsonMerge.merge(base, left, right);
+        assertEquals(1, result.conflicts.size());
+        assertEquals("items/0/tags/0", result.conflicts.get(0).path);
+        assertSameJson("{\"items\":[{\"name\":\"a\",\"tags\":[\"x\"]},{\"name\":\"b2\",\"n\":1}]}", result.merged);
+    }
+
+    @Test
+    @DisplayName("Large documents with sparse edits")
+    void testLargeDocument() {
+        JSONObject base = new JSONObject();
+        for (int i = 0; i < 2000; i++) {
+            base.put("section" + i, new JSONObject().put("values", new JSONArray().put(i).put(i + 1)).put("name", "s" + i));
+        }
+        JSONObject left = new JSONObject(base.toString());
+        JSONObject right = new JSONObject(base.toString());
+        left.getJSONObject("section10").put("name", "left");
+        right.getJSONObject("section20").getJSONArray("values").put(0, -1);
+        right.remove("section30");
+
+        JsonMerge.Result result = JsonMerge.merge(base, left, right);
+        assertTrue(result.isClean());
+        assertEquals(1999, result.merged.length());
+        assertEquals("left", result.merged.getJSONObject("section10").getString("name"));
+        assertEquals(-1, result.merged.getJSONObject("section20").getJSONArray("values").getInt(0));
+        // Untouched sections are shared with the inputs
+        assertSame(left.get("section5"), result.merged.get("section5"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonProjection Tests")
+class JsonProjectionTest {
+
+    private static final String LEFT = "{\"status\":\"ok\",\"meta\":{\"requestId\":\"r1\",\"time\":5},"
+            + "\"items\":[{\"id\":1,\"price\":10,\"note\":\"a\"},{\"id\":2,\"price\":20,\"note\":\"b\"}],"
+            + "\"payload\":{\"huge\":[1,2,3]}}";
+    private static final String RIGHT = "{\"status\":\"ok\",\"meta\":{\"requestId\":\"r2\",\"time\":7},"
+            + "\"items\":[{\"id\":1,\"price\":15,\"note\":\"x\"},{\"id\":2,\"price\":20,\"note\":\"y\"},{\"id\":3,\"price\":1}],"
+            + "\"payload\":{\"huge\":[4,5,6]}}";
+
+    @Test
+    @DisplayName("Only selected paths are compared")
+    void testPointers() {
+        assertTrue(JsonProjection.of("/status", "/items/1/price").areEqual(LEFT, RIGHT));
+        assertFalse(JsonProjection.of("/status", "/meta/time").areEqual(LEFT, RIGHT));
+
+        JSONArray diffs = JsonProjection.of("/items/*/price", "/missing").generateJsonDiff(LEFT, RIGHT);
+        assertEquals(Set.of("replace items/0/price " + Long.toHexString(JsonFingerprint.of(15)),
+                "add items/2/price " + Long.toHexString(JsonFingerprint.of(1))), JsonTapeComparatorTest.asSet(diffs));
+    }
+
+    @Test
+    @DisplayName("JSONPath selectors")
+    void testJsonPath() {
+        assertEquals(List.of("items", "*", "id"), JsonProjection.parseSelector("$.items[*].id"));
+        assertEquals(List.of("a.b", "0"), JsonProjection.parseSelector("$['a.b'][0]"));
+        assertEquals(List.of("*"), JsonProjection.parseSelector("$.*"));
+        assertEquals(List.of(), JsonProjection.parseSelector("$"));
+        assertThrows(JSONException.class, () -> JsonProjection.parseSelector("$..id"));
+        assertThrows(JSONException.class, () -> JsonProjection.parseSelector("$.items[?(@.id)]"));
+        assertThrows(JSONException.class, () -> JsonProjection.parseSelector("$.items[01]"));
+        assertThrows(JSONException.class, () -> JsonProjection.parseSelector("$.items[-1]"));
+        assertTrue(JsonProjection.of("/items/-1/price", "/items/00/price").areEqual(LEFT, RIGHT));
+
+        JSONArray diffs = JsonProjection.of("$.items[*].id", "$.meta").generateJsonDiff(LEFT, RIGHT);
+        assertEquals(Set.of("add items/2/id " + Long.toHexString(JsonFingerprint.of(3)),
+                "replace meta/requestId " + Long.toHexString(JsonFingerprint.of("r2")),
+                "replace meta/time " + Long.toHexString(JsonFingerprint.of(7))), JsonTapeComparatorTest.asSet(diffs));
+    }
+
+    @Test
+    @DisplayName("Whole-document selection matches generateJsonDiff and overlapping selectors report once")
+    void testOverlap() {
+        JSONArray expected = JsonComparator.generateJsonDiff("", new JSONObject(LEFT), new JSONObject(RIGHT));
+        JSONArray actual = JsonProjection.of("$", "/meta", "/items/0").generateJsonDiff(LEFT, RIGHT);
+        assertEquals(expected.length(), actual.length());
+        assertEquals(JsonTapeComparatorTest.asSet(expected), JsonTapeComparatorTest.asSet(actual));
+
+        assertEquals(2, JsonProjection.of("/meta", "/meta/time", "/meta").generateJsonDiff(LEFT, RIGHT).length());
+    }
+
+    @Test
+    @DisplayName("Selected values of one document")
+    void testSelect() {
+        Map<String, Object> values = JsonProjection.of("/items/*/id", "/status", "/nothing")
+                .select(LEFT.getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("items/0/id", "items/1/id", "status"), List.copyOf(values.keySet()));
+        assertEquals(2, values.get("items/1/id"));
+        assertEquals("ok", values.get("status"));
+    }
+}
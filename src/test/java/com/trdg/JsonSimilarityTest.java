@@ -0,0 +1,109 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonSimilarity Tests")
+class JsonSimilarityTest {
+
+    private final JsonSimilarity similarity = new JsonSimilarity();
+
+    @Test
+    @DisplayName("Identical and disjoint documents")
+    void testBounds() {
+        JSONObject obj = new JSONObject("{\"a\":1,\"b\":[1,2,{\"c\":\"x\"}]}");
+
+        assertEquals(0.0, similarity.cost(obj, new JSONObject(obj.toString())));
+        assertEquals(1.0, similarity.similarity(obj, new JSONObject(obj.toString())));
+        // Only the two roots match: 2 of the maximum cost of 4 is spent
+        assertEquals(0.5, similarity.similarity(new JSONObject("{\"a\":1}"), new JSONObject("{\"b\":2}")));
+        assertEquals(1.0, similarity.similarity(new JSONObject(), new JSONObject()));
+    }
+
+    @Test
+    @DisplayName("Costs of replacing, inserting and deleting")
+    void testCosts() {
+        JsonSimilarity weighted = new JsonSimilarity(2.0, 3.0, 5.0);
+
+        assertEquals(5.0, weighted.cost(new JSONObject("{\"a\":1}"), new JSONObject("{\"a\":2}")));
+        assertEquals(2.0, weighted.cost(new JSONObject("{}"), new JSONObject("{\"a\":2}")));
+        // The deleted member is a subtree of three nodes: the object and its two leaves
+        assertEquals(9.0, weighted.cost(new JSONObject("{\"a\":{\"x\":1,\"y\":2}}"), new JSONObject("{}")));
+        // Type change: delete the array (2 nodes), insert the leaf
+        assertEquals(8.0, weighted.cost(new JSONObject("{\"a\":[1]}"), new JSONObject("{\"a\":1}")));
+    }
+
+    @Test
+    @DisplayName("Arrays are aligned by edit distance")
+    void testArrayAlignment() {
+        JSONArray array1 = new JSONArray("[1,2,3,4,5,6]");
+        JSONArray array2 = new JSONArray("[0,1,2,3,4,5,6]");
+
+        // One insertion, not seven replacements
+        assertEquals(1.0, similarity.cost(array1, array2));
+        assertEquals(2.0, similarity.cost(new JSONArray("[1,2,3]"), new JSONArray("[1,3,4]")));
+    }
+
+    @Test
+    @DisplayName("Path weights scale and silence subtrees")
+    void testWeights() {
+        JSONObject obj1 = new JSONObject("{\"id\":1,\"meta\":{\"ts\":1},\"items\":[{\"price\":1},{\"price\":2}]}");
+        JSONObject obj2 = new JSONObject("{\"id\":1,\"meta\":{\"ts\":2},\"items\":[{\"price\":1},{\"price\":3}]}");
+
+        assertEquals(2.0, similarity.cost(obj1, obj2));
+        JsonSimilarity weighted = new JsonSimilarity().weight("/meta", 0).weight("/items/*/price", 10);
+        assertEquals(10.0, weighted.cost(obj1, obj2));
+        assertTrue(weighted.similarity(obj1, obj2) < similarity.similarity(obj1, obj2));
+    }
+
+    @Test
+    @DisplayName("Ranking returns the closest candidates first")
+    void testRank() {
+        JSONObject reference = new JSONObject("{\"name\":\"a\",\"tags\":[\"x\",\"y\"],\"n\":1}");
+        List<Object> candidates = new ArrayList<>();
+        candidates.add(new JSONObject("{\"name\":\"b\",\"tags\":[\"x\"],\"n\":2}"));
+        candidates.add(new JSONObject("{\"name\":\"a\",\"tags\":[\"x\",\"y\"],\"n\":2}"));
+        candidates.add(new JSONObject("{\"completely\":\"different\"}"));
+        candidates.add(new JSONObject(reference.toString()));
+        for (int i = 0; i < 1000; i++) {
+            candidates.add(new JSONObject().put("big", new JSONArray().put(i).put(i).put(i).put(i).put(i).put(i).put(i)));
+        }
+
+        List<JsonSimilarity.Match> best = similarity.rank(reference, candidates, 2);
+        assertEquals(2, best.size());
+        assertEquals(3, best.get(0).index);
+        assertEquals(1.0, best.get(0).similarity);
+        assertEquals(1, best.get(1).index);
+        assertTrue(best.get(1).similarity > 0.8);
+        assertTrue(similarity.rank(reference, candidates, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Array elements without IDs are paired by similarity")
+    void testPairElements() {
+        JSONArray array1 = new JSONArray("[{\"name\":\"apple\",\"qty\":1},{\"name\":\"pear\",\"qty\":5},{\"name\":\"fig\",\"qty\":2}]");
+        JSONArray array2 = new JSONArray("[{\"name\":\"pear\",\"qty\":6},{\"other\":true,\"x\":[1,2,3]},{\"name\":\"apple\",\"qty\":1}]");
+
+        assertArrayEquals(new int[]{2, 0, -1}, similarity.pairElements(array1, array2, 0.5));
+        assertArrayEquals(new int[]{2, -1, -1}, new JsonSimilarity().weight("/*/qty", 100)
+                .pairElements(array1, array2, 0.6));
+    }
+
+    @Test
+    @DisplayName("Values with colliding fingerprints are not treated as identical")
+    void testFingerprintCollision() {
+        // Integer 5 and this Long used to share a leaf fingerprint
+        JSONObject obj1 = new JSONObject().put("a", new JSONArray().put(5));
+        JSONObject obj2 = new JSONObject().put("a", new JSONArray().put(-7880643240104296443L));
+
+        assertEquals(1.0, similarity.cost(obj1, obj2));
+        assertArrayEquals(new int[]{-1}, similarity.pairElements(obj1.getJSONArray("a"), obj2.getJSONArray("a"), 1.0));
+    }
+}
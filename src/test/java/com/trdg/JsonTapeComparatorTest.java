@@ -0,0 +1,148 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonTapeComparator Tests")
+class JsonTapeComparatorTest {
+
+    static Set<String> asSet(JSONArray diffs) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < diffs.length(); i++) {
+            JSONObject diff = diffs.getJSONObject(i);
+            result.add(op(diff.getString("op"), diff.getString("path"), diff.opt("value")));
+        }
+        return result;
+    }
+
+    /**
+     * One operation as {@link #asSet} writes it; {@code value} is null for operations without one.
+     */
+    static String op(String op, String path, Object value) {
+        return op + " " + path + " " + (value == null ? "" : Long.toHexString(JsonFingerprint.of(value)));
+    }
+
+    static void assertSameDiff(String json1, String json2) {
+        JSONArray expected = JsonComparator.generateJsonDiff("", new JSONObject(json1), new JSONObject(json2));
+        JSONArray actual = JsonTapeComparator.generateJsonDiff(JsonTape.parse(json1), JsonTape.parse(json2));
+        assertEquals(asSet(expected), asSet(actual));
+        assertEquals(expected.isEmpty(), JsonTapeComparator.areEqual(JsonTape.parse(json1), JsonTape.parse(json2)));
+
+        byte[] bytes1 = json1.getBytes(StandardCharsets.UTF_8);
+        byte[] bytes2 = json2.getBytes(StandardCharsets.UTF_8);
+        assertEquals(asSet(expected), asSet(JsonTapeComparator.generateJsonDiff(bytes1, bytes2)));
+        assertEquals(expected.isEmpty(), JsonTapeComparator.areEqual(bytes1, bytes2));
+    }
+
+    @Test
+    @DisplayName("Equal documents with different key order")
+    void testEqualReordered() {
+        assertSameDiff("{\"a\":1,\"b\":{\"c\":[1,2,{\"d\":\"x\"}]},\"e\":null}",
+                "{\"e\":null,\"b\":{\"c\":[1,2,{\"d\":\"x\"}]},\"a\":1}");
+    }
+
+    @Test
+    @DisplayName("Replace, add and remove operations")
+    void testOperations() {
+        assertSameDiff("{\"name\":\"John\",\"age\":30,\"city\":\"NY\"}",
+                "{\"name\":\"Jane\",\"age\":30,\"zip\":\"10001\"}");
+    }
+
+    @Test
+    @DisplayName("Nested objects and arrays of different lengths")
+    void testNested() {
+        assertSameDiff("{\"person\":{\"tags\":[1,2,3],\"address\":{\"city\":\"NY\"}},\"list\":[{\"a\":1},{\"a\":2}]}",
+                "{\"person\":{\"tags\":[1,5],\"address\":{\"city\":\"LA\",\"zip\":1}},\"list\":[{\"a\":1},{\"a\":3},{\"a\":4}]}");
+    }
+
+    @Test
+    @DisplayName("Type changes are replacements")
+    void testTypeChanges() {
+        assertSameDiff("{\"a\":{\"x\":1},\"b\":[1],\"c\":\"1\",\"d\":1,\"e\":true,\"f\":null}",
+                "{\"a\":[1],\"b\":{\"x\":1},\"c\":1,\"d\":\"1\",\"e\":false,\"f\":0}");
+    }
+
+    @Test
+    @DisplayName("Numbers follow org.json equality")
+    void testNumbers() {
+        assertSameDiff("{\"a\":1.5,\"b\":1.0,\"c\":100,\"d\":12345678901234567890,\"e\":3000000000}",
+                "{\"a\":1.5,\"b\":1.00,\"c\":1e2,\"d\":12345678901234567890,\"e\":3000000000}");
+    }
+
+    @Test
+    @DisplayName("Escaped strings compare by their decoded value")
+    void testEscapes() {
+        assertSameDiff("{\"a\":\"\\u0041B\",\"b\":\"x\\ny\",\"k\\u0065y\":1}",
+                "{\"a\":\"AB\",\"b\":\"x\\u000Ay\",\"key\":1}");
+    }
+
+    @Test
+    @DisplayName("Raw spans that differ are decoded or converted only as far as needed")
+    void testRawSpans() {
+        assertSameDiff("{\"a\":\"caf\\u00e9 \\uD83D\\uDE00\",\"b\":\"a\\/b\",\"c\":\"\\uD800x\",\"d\":\"\\u00e9\"}",
+                "{\"a\":\"café 😀\",\"b\":\"a/b\",\"c\":\"\\ud800x\",\"d\":\"e\"}");
+
+        String[] strings = {"A", "\\u0041", "\\u0041\\u0042", "AB", "é", "\\u00e9", "\\u00E9", "😀", "\\uD83D\\uDE00",
+                "\\uD83D", "\\uDE00\\uD83D", "\\\"", "\\u0022", "\\n", "\\u000a", "", "\\\\", "\\u005c"};
+        for (String s1 : strings) {
+            for (String s2 : strings) {
+                byte[] b1 = s1.getBytes(StandardCharsets.UTF_8);
+                byte[] b2 = s2.getBytes(StandardCharsets.UTF_8);
+                boolean expected = JsonBytes.decodeString(b1, 0, b1.length, true).equals(JsonBytes.decodeString(b2, 0, b2.length, true));
+                assertEquals(expected, JsonBytes.stringsEqual(b1, 0, b1.length, s1.indexOf('\\') >= 0,
+                        b2, 0, b2.length, s2.indexOf('\\') >= 0), s1 + " vs " + s2);
+            }
+        }
+        String[] numbers = {"0", "-0", "-0.0", "-0.00", "0.0", "1", "-1", "1.0", "1.00", "1e0", "1E0", "1.5e1", "15E0",
+                "15", "2.50", "2.5", "25e-1", "3000000000", "12345678901234567890", "1.2345678901234567890e19"};
+        for (String n1 : numbers) {
+            for (String n2 : numbers) {
+                byte[] b1 = n1.getBytes(StandardCharsets.UTF_8);
+                byte[] b2 = n2.getBytes(StandardCharsets.UTF_8);
+                assertEquals(JsonBytes.toNumber(n1).equals(JsonBytes.toNumber(n2)),
+                        JsonBytes.numbersEqual(b1, 0, b1.length, b2, 0, b2.length), n1 + " vs " + n2);
+            }
+        }
+        byte[] malformed = "01".getBytes(StandardCharsets.UTF_8);
+        byte[] one = "1".getBytes(StandardCharsets.UTF_8);
+        assertThrows(JSONException.class, () -> JsonBytes.numbersEqual(malformed, 0, 2, one, 0, 1));
+    }
+
+    @Test
+    @DisplayName("Wide objects use hashed key lookup")
+    void testWideObjects() {
+        JSONObject obj1 = new JSONObject();
+        JSONObject obj2 = new JSONObject();
+        for (int i = 0; i < 100; i++) {
+            obj1.put("key" + i, i);
+            obj2.put("key" + (99 - i), i % 10 == 0 ? -1 : 99 - i);
+        }
+        obj2.put("extra", true);
+        assertSameDiff(obj1.toString(), obj2.toString());
+    }
+
+    @Test
+    @DisplayName("Empty keys and empty containers")
+    void testEmpty() {
+        assertSameDiff("{\"\":{\"\":1},\"a\":{},\"b\":[]}", "{\"\":{\"\":2},\"a\":[],\"b\":{}}");
+        assertSameDiff("{\"\":[1,{\"\":1}]}", "{\"\":[2,{\"\":2},3]}");
+    }
+
+    @Test
+    @DisplayName("Non-object roots are rejected by generateJsonDiff")
+    void testArrayRoot() {
+        assertThrows(JSONException.class,
+                () -> JsonTapeComparator.generateJsonDiff(JsonTape.parse("[1]"), JsonTape.parse("[1]")));
+        assertTrue(JsonTapeComparator.areEqual(JsonTape.parse("[1,[2]]"), JsonTape.parse("[1,[2]]")));
+        assertFalse(JsonTapeComparator.areEqual(JsonTape.parse("[1,[2]]"), JsonTape.parse("[1,[3]]")));
+    }
+}
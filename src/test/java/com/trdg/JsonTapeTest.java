@@ -0,0 +1,119 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonTape Tests")
+class JsonTapeTest {
+
+    private static final String PERSON = "{\"name\":\"John\",\"age\":30,\"balance\":12.50,"
+            + "\"big\":12345678901234567890,\"long\":9876543210,\"active\":true,\"spouse\":null,"
+            + "\"address\":{\"city\":\"New York\",\"geo\":[40.7,-74.0]},\"tags\":[\"a\",\"b\"],\"empty\":{},\"none\":[]}";
+
+    @Test
+    @DisplayName("Materialized tape matches org.json parsing")
+    void testMaterialize() {
+        JsonTape tape = JsonTape.parse(PERSON);
+        JSONObject materialized = (JSONObject) tape.toJson();
+
+        assertTrue(JsonComparator.generateJsonDiff("", new JSONObject(PERSON), materialized).isEmpty());
+        assertEquals(Integer.valueOf(30), materialized.get("age"));
+        assertEquals(Long.valueOf(9876543210L), materialized.get("long"));
+        assertEquals(new BigDecimal("12.50"), materialized.get("balance"));
+        assertEquals(new BigInteger("12345678901234567890"), materialized.get("big"));
+        assertSame(JSONObject.NULL, materialized.get("spouse"));
+    }
+
+    @Test
+    @DisplayName("Tape navigation skips whole subtrees")
+    void testNavigation() {
+        JsonTape tape = JsonTape.parse("{\"a\":{\"x\":[1,2,3]},\"b\":\"s\",\"c\":[]}");
+
+        assertEquals(JsonTape.OBJECT_START, tape.type(tape.root()));
+        assertEquals(3, tape.childCount(tape.root()));
+        assertEquals(tape.size(), tape.next(tape.root()));
+
+        int keyA = tape.root() + 1;
+        assertEquals("a", tape.stringValue(keyA));
+        int keyB = tape.next(keyA + 2);
+        assertEquals("b", tape.stringValue(keyB));
+        assertEquals("s", tape.stringValue(keyB + 2));
+        int keyC = tape.next(keyB + 2);
+        assertEquals(JsonTape.ARRAY_START, tape.type(keyC + 2));
+        assertEquals(0, tape.childCount(keyC + 2));
+    }
+
+    @Test
+    @DisplayName("Escapes and non-ASCII text are decoded")
+    void testStrings() {
+        JsonTape tape = JsonTape.parse("[\"caf\u00e9\",\"line\\nbreak\",\"\\u00e9\\\"q\\\"\",\"\\/\"]");
+        JSONArray array = (JSONArray) tape.toJson();
+
+        assertEquals("caf\u00e9", array.getString(0));
+        assertEquals("line\nbreak", array.getString(1));
+        assertEquals("\u00e9\"q\"", array.getString(2));
+        assertEquals("/", array.getString(3));
+    }
+
+    @Test
+    @DisplayName("Off-heap copy reads the same values")
+    void testOffHeap() {
+        JsonTape tape = JsonTape.parse(PERSON);
+        JsonTape offHeap = tape.toOffHeap();
+
+        assertTrue(offHeap.isOffHeap());
+        assertFalse(tape.isOffHeap());
+        assertEquals(tape.size(), offHeap.size());
+        assertTrue(JsonComparator.generateJsonDiff("", (JSONObject) tape.toJson(), (JSONObject) offHeap.toJson()).isEmpty());
+        assertTrue(JsonTapeComparator.areEqual(tape, offHeap));
+    }
+
+    @Test
+    @DisplayName("Parsing from a byte range and a ByteBuffer")
+    void testByteSources() {
+        byte[] padded = ("xx" + PERSON + "yy").getBytes(StandardCharsets.UTF_8);
+        JsonTape fromRange = JsonTape.parse(padded, 2, padded.length - 4);
+        JsonTape fromBuffer = JsonTape.parse(ByteBuffer.wrap(padded, 2, padded.length - 4));
+        JsonTape direct = JsonTape.parse(ByteBuffer.allocateDirect(PERSON.length())
+                .put(PERSON.getBytes(StandardCharsets.UTF_8)).flip());
+
+        assertTrue(JsonTapeComparator.areEqual(fromRange, JsonTape.parse(PERSON)));
+        assertTrue(JsonTapeComparator.areEqual(fromBuffer, JsonTape.parse(PERSON)));
+        assertTrue(JsonTapeComparator.areEqual(direct, JsonTape.parse(PERSON)));
+    }
+
+    @Test
+    @DisplayName("Malformed input is rejected")
+    void testMalformed() {
+        assertThrows(JSONException.class, () -> JsonTape.parse("{\"a\":1"));
+        assertThrows(JSONException.class, () -> JsonTape.parse("{\"a\" 1}"));
+        assertThrows(JSONException.class, () -> JsonTape.parse("[1,2]x"));
+        assertThrows(JSONException.class, () -> JsonTape.parse("{\"a\":tru}"));
+        assertThrows(JSONException.class, () -> JsonTape.parse("[1.2.3]"));
+        assertThrows(JSONException.class, () -> JsonTape.parse("{\"a\":\"open}"));
+    }
+
+    @Test
+    @DisplayName("Tape is much smaller than the sum of per-node objects")
+    void testMemoryUsage() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"n").append(i).append("\"}");
+        }
+        JsonTape tape = JsonTape.parse(sb.append("]").toString());
+
+        // 2 words per object, 2 per key and 2 per leaf value
+        assertEquals(2 + 1000 * 10, tape.size());
+        assertTrue(tape.memoryUsage() < 8L * tape.size() + sb.length() + 16);
+    }
+}
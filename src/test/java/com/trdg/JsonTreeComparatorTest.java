@@ -0,0 +1,143 @@
+package com.trdg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonTreeComparator Tests")
+class JsonTreeComparatorTest {
+
+    private static final String LEFT = "{\"name\":\"a\",\"n\":1,\"f\":1.5,\"ok\":true,\"none\":null,"
+            + "\"nested\":{\"x\":[1,2,{\"y\":\"z\"}]},\"gone\":1}";
+    private static final String RIGHT = "{\"name\":\"b\",\"n\":1,\"f\":1.5,\"ok\":true,\"none\":null,"
+            + "\"nested\":{\"x\":[1,3,{\"y\":\"z\"},4]},\"added\":[null]}";
+
+    private static JsonNode jackson(String json) throws Exception {
+        return new ObjectMapper().readTree(json);
+    }
+
+    private static JsonElement gson(String json) {
+        return JsonParser.parseString(json);
+    }
+
+    @Test
+    @DisplayName("org.json trees give the same diff as JsonComparator")
+    void testOrgJson() {
+        JSONObject obj1 = new JSONObject(LEFT);
+        JSONObject obj2 = new JSONObject(RIGHT);
+        JSONArray expected = JsonComparator.generateJsonDiff("", obj1, obj2);
+        JSONArray actual = JsonTreeComparator.generateJsonDiff(obj1, OrgJsonTreeAdapter.INSTANCE, obj2, OrgJsonTreeAdapter.INSTANCE);
+        assertEquals(JsonTapeComparatorTest.asSet(expected), JsonTapeComparatorTest.asSet(actual));
+        assertFalse(JsonTreeComparator.areEqual(obj1, OrgJsonTreeAdapter.INSTANCE, obj2, OrgJsonTreeAdapter.INSTANCE));
+        assertTrue(JsonTreeComparator.areEqual(obj1, OrgJsonTreeAdapter.INSTANCE, new JSONObject(LEFT), OrgJsonTreeAdapter.INSTANCE));
+    }
+
+    /**
+     * Each model holds numbers in its own classes, so the diffs are compared as org.json reads
+     * them back.
+     */
+    private static Set<String> reparsed(JSONArray diffs) {
+        return JsonTapeComparatorTest.asSet(new JSONArray(diffs.toString()));
+    }
+
+    @Test
+    @DisplayName("Jackson, Gson and org.json trees of the same documents give the same diff")
+    void testAcrossModels() throws Exception {
+        Set<String> expected = reparsed(JsonComparator.generateJsonDiff("", new JSONObject(LEFT), new JSONObject(RIGHT)));
+        assertEquals(expected, reparsed(JsonTreeComparator.generateJsonDiff(
+                jackson(LEFT), JacksonTreeAdapter.INSTANCE, jackson(RIGHT), JacksonTreeAdapter.INSTANCE)));
+        assertEquals(expected, reparsed(JsonTreeComparator.generateJsonDiff(
+                gson(LEFT), GsonTreeAdapter.INSTANCE, gson(RIGHT), GsonTreeAdapter.INSTANCE)));
+        assertEquals(expected, reparsed(JsonTreeComparator.generateJsonDiff(
+                jackson(LEFT), JacksonTreeAdapter.INSTANCE, gson(RIGHT), GsonTreeAdapter.INSTANCE)));
+        assertEquals(expected, reparsed(JsonTreeComparator.generateJsonDiff(
+                gson(LEFT), GsonTreeAdapter.INSTANCE, new JSONObject(RIGHT), OrgJsonTreeAdapter.INSTANCE)));
+
+        assertTrue(JsonTreeComparator.areEqual(jackson(LEFT), JacksonTreeAdapter.INSTANCE, gson(LEFT), GsonTreeAdapter.INSTANCE));
+        assertTrue(JsonTreeComparator.areEqual(gson(RIGHT), GsonTreeAdapter.INSTANCE, new JSONObject(RIGHT), OrgJsonTreeAdapter.INSTANCE));
+    }
+
+    @Test
+    @DisplayName("Map and List trees, with null values and absent keys told apart")
+    void testMapTrees() throws Exception {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", "a");
+        map.put("n", 1L);
+        map.put("f", 1.5);
+        map.put("ok", true);
+        map.put("none", null);
+        Map<String, Object> nested = new LinkedHashMap<>();
+        List<Object> x = new ArrayList<>(Arrays.asList(1, 2, Map.of("y", "z")));
+        nested.put("x", x);
+        map.put("nested", nested);
+        map.put("gone", 1);
+
+        assertTrue(JsonTreeComparator.areEqual(map, MapTreeAdapter.INSTANCE, jackson(LEFT), JacksonTreeAdapter.INSTANCE));
+
+        map.remove("none");
+        JSONArray diffs = JsonTreeComparator.generateJsonDiff(map, MapTreeAdapter.INSTANCE, jackson(LEFT), JacksonTreeAdapter.INSTANCE);
+        assertEquals(Set.of(JsonTapeComparatorTest.op("add", "none", JSONObject.NULL)), JsonTapeComparatorTest.asSet(diffs));
+        assertSame(JSONObject.NULL, diffs.getJSONObject(0).get("value"));
+
+        map.put("none", null);
+        x.set(1, null);
+        diffs = JsonTreeComparator.generateJsonDiff(jackson(LEFT), JacksonTreeAdapter.INSTANCE, map, MapTreeAdapter.INSTANCE);
+        assertEquals(Set.of(JsonTapeComparatorTest.op("replace", "nested/x/1", JSONObject.NULL)), JsonTapeComparatorTest.asSet(diffs));
+    }
+
+    @Test
+    @DisplayName("Numbers are compared by value but integers never equal decimals")
+    void testNumbers() throws Exception {
+        assertTrue(JsonTreeComparator.numbersEqual(1, 1L));
+        assertTrue(JsonTreeComparator.numbersEqual(new java.math.BigInteger("12345678901234567890"),
+                new java.math.BigInteger("12345678901234567890")));
+        assertTrue(JsonTreeComparator.numbersEqual(1.5, new BigDecimal("1.50")));
+        assertTrue(JsonTreeComparator.numbersEqual(0.1f, 0.1));
+        assertFalse(JsonTreeComparator.numbersEqual(1, 1.0));
+        assertFalse(JsonTreeComparator.numbersEqual(1, 2L));
+        assertTrue(JsonTreeComparator.numbersEqual(Double.NaN, Float.NaN));
+        assertTrue(JsonTreeComparator.numbersEqual(Double.POSITIVE_INFINITY, Float.POSITIVE_INFINITY));
+        assertFalse(JsonTreeComparator.numbersEqual(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY));
+        assertFalse(JsonTreeComparator.numbersEqual(Double.NaN, 1.0));
+        assertFalse(JsonTreeComparator.numbersEqual(new BigDecimal("1e400"), Double.POSITIVE_INFINITY));
+        assertTrue(JsonTreeComparator.areEqual(Map.of("a", Double.NaN), MapTreeAdapter.INSTANCE,
+                Map.of("a", Double.NaN), MapTreeAdapter.INSTANCE));
+        assertFalse(JsonTreeComparator.areEqual(Map.of("a", Double.NaN), MapTreeAdapter.INSTANCE,
+                Map.of("a", 0.0), MapTreeAdapter.INSTANCE));
+
+        // Gson keeps numbers as lazily parsed literals
+        assertTrue(JsonTreeComparator.areEqual(gson("{\"a\":1,\"b\":2.5,\"c\":1e3}"), GsonTreeAdapter.INSTANCE,
+                jackson("{\"a\":1,\"b\":2.50,\"c\":1000.0}"), JacksonTreeAdapter.INSTANCE));
+        assertFalse(JsonTreeComparator.areEqual(gson("{\"a\":1}"), GsonTreeAdapter.INSTANCE,
+                jackson("{\"a\":1.0}"), JacksonTreeAdapter.INSTANCE));
+    }
+
+    @Test
+    @DisplayName("Mismatched kinds are replaced and non-object roots are rejected")
+    void testKinds() throws Exception {
+        JSONArray diffs = JsonTreeComparator.generateJsonDiff(gson("{\"a\":\"1\",\"b\":[1],\"c\":{}}"), GsonTreeAdapter.INSTANCE,
+                jackson("{\"a\":1,\"b\":{},\"c\":[]}"), JacksonTreeAdapter.INSTANCE);
+        assertEquals(Set.of(JsonTapeComparatorTest.op("replace", "a", 1), JsonTapeComparatorTest.op("replace", "b", new JSONObject()),
+                JsonTapeComparatorTest.op("replace", "c", new JSONArray())), JsonTapeComparatorTest.asSet(diffs));
+
+        assertTrue(JsonTreeComparator.areEqual(gson("[1,\"x\",null]"), GsonTreeAdapter.INSTANCE,
+                List.of(1, "x", JSONObject.NULL), MapTreeAdapter.INSTANCE));
+        assertThrows(org.json.JSONException.class, () -> JsonTreeComparator.generateJsonDiff(
+                gson("[1]"), GsonTreeAdapter.INSTANCE, gson("[1]"), GsonTreeAdapter.INSTANCE));
+    }
+}
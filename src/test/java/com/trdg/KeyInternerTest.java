@@ -0,0 +1,135 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeyInterner Tests")
+class KeyInternerTest {
+
+    private static String keyInstance(JSONObject obj, String name) {
+        for (String key : obj.keySet()) {
+            if (key.equals(name)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    @DisplayName("Equal keys share one instance")
+    void testIntern() {
+        KeyInterner interner = new KeyInterner(100, 32);
+        String first = interner.intern(new String("name"));
+        String second = interner.intern(new String("name"));
+
+        assertSame(first, second);
+        assertEquals(1, interner.size());
+        assertEquals(1, interner.stats().hits);
+        assertEquals(1, interner.stats().misses);
+    }
+
+    @Test
+    @DisplayName("Parsed documents reference the same key instances")
+    void testParse() {
+        KeyInterner interner = new KeyInterner(100, 32);
+        JSONObject doc1 = interner.parse("{\"id\":1,\"address\":{\"city\":\"NY\"},\"items\":[{\"sku\":\"a\"}]}");
+        JSONObject doc2 = interner.parse("{\"id\":2,\"address\":{\"city\":\"LA\"},\"items\":[{\"sku\":\"b\"}]}");
+
+        assertSame(keyInstance(doc1, "id"), keyInstance(doc2, "id"));
+        assertSame(keyInstance(doc1.getJSONObject("address"), "city"),
+                keyInstance(doc2.getJSONObject("address"), "city"));
+        assertSame(keyInstance(doc1.getJSONArray("items").getJSONObject(0), "sku"),
+                keyInstance(doc2.getJSONArray("items").getJSONObject(0), "sku"));
+        assertEquals(5, interner.size());
+        assertTrue(JsonComparator.generateJsonDiff("", new JSONObject(
+                "{\"id\":1,\"address\":{\"city\":\"NY\"},\"items\":[{\"sku\":\"a\"}]}"), doc1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Escaped keys are decoded before interning")
+    void testEscapedKeys() {
+        KeyInterner interner = new KeyInterner(100, 32);
+        JSONObject doc1 = interner.parse("{\"k\\u0065y\":1}");
+        JSONObject doc2 = interner.parse("{\"key\":2}");
+
+        assertSame(keyInstance(doc1, "key"), keyInstance(doc2, "key"));
+    }
+
+    @Test
+    @DisplayName("Keys of existing objects are interned in place")
+    void testInternKeys() {
+        KeyInterner interner = new KeyInterner(100, 32);
+        JSONObject doc1 = interner.internKeys(new JSONObject("{\"a\":{\"b\":[{\"c\":1}]}}"));
+        JSONObject doc2 = interner.internKeys(new JSONObject("{\"a\":{\"b\":[{\"c\":2}]}}"));
+
+        assertSame(keyInstance(doc1, "a"), keyInstance(doc2, "a"));
+        JSONObject c1 = doc1.getJSONObject("a").getJSONArray("b").getJSONObject(0);
+        JSONObject c2 = doc2.getJSONObject("a").getJSONArray("b").getJSONObject(0);
+        assertSame(keyInstance(c1, "c"), keyInstance(c2, "c"));
+        assertEquals(1, c1.getInt("c"));
+        assertEquals(2, c2.getInt("c"));
+    }
+
+    @Test
+    @DisplayName("Bounds stop the dictionary from growing")
+    void testBounds() {
+        KeyInterner interner = new KeyInterner(2, 8);
+        interner.intern("a");
+        interner.intern("b");
+        String third = new String("c");
+        String longKey = new String("a-very-long-key");
+
+        assertSame(third, interner.intern(third));
+        assertSame(longKey, interner.intern(longKey));
+        assertEquals(2, interner.size());
+        assertEquals(2, interner.stats().rejected);
+
+        JSONObject doc = interner.parse("{\"a\":1,\"c\":2,\"a-very-long-key\":3}");
+        assertEquals(3, doc.length());
+        assertEquals(3, doc.getInt("a-very-long-key"));
+    }
+
+    @Test
+    @DisplayName("Non-object documents are rejected by parse")
+    void testParseArray() {
+        assertThrows(JSONException.class, () -> KeyInterner.shared().parse("[1,2]"));
+    }
+
+    @Test
+    @DisplayName("Concurrent interning converges on one instance")
+    void testConcurrent() throws Exception {
+        KeyInterner interner = new KeyInterner(1000, 32);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<JSONObject>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                int id = i;
+                futures.add(executor.submit(() -> interner.parse("{\"id\":" + id + ",\"tags\":[\"x\"],\"owner\":{\"name\":\"n\"}}")));
+            }
+            String id = null;
+            for (Future<JSONObject> future : futures) {
+                JSONObject doc = future.get();
+                String key = keyInstance(doc, "id");
+                if (id == null) {
+                    id = key;
+                }
+                assertSame(id, key);
+                assertTrue(doc.get("tags") instanceof JSONArray);
+            }
+            assertEquals(4, interner.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LazyJsonComparator Tests")
+class LazyJsonComparatorTest {
+
+    private static void assertSameDiff(String json1, String json2) {
+        JSONArray expected = JsonComparator.generateJsonDiff("", new JSONObject(json1), new JSONObject(json2));
+        JSONArray actual = LazyJsonComparator.generateJsonDiff(LazyJsonView.of(json1), LazyJsonView.of(json2));
+        assertEquals(JsonTapeComparatorTest.asSet(expected), JsonTapeComparatorTest.asSet(actual), json1 + " / " + json2);
+        assertEquals(expected.isEmpty(), LazyJsonComparator.areEqual(LazyJsonView.of(json1), LazyJsonView.of(json2)));
+    }
+
+    @Test
+    @DisplayName("Same operations as generateJsonDiff")
+    void testOperations() {
+        assertSameDiff("{\"a\":1,\"b\":{\"c\":[1,2,{\"d\":\"x\"}]},\"e\":null}",
+                "{\"e\":null, \"b\":{\"c\":[1,2,{\"d\":\"x\"}]}, \"a\":1}");
+        assertSameDiff("{\"name\":\"John\",\"age\":30,\"city\":\"NY\"}", "{\"name\":\"Jane\",\"age\":30,\"zip\":\"10001\"}");
+        assertSameDiff("{\"list\":[{\"a\":1},{\"a\":2}],\"tags\":[1,2,3]}", "{\"list\":[{\"a\":1},{\"a\":3},{\"a\":4}],\"tags\":[1]}");
+        assertSameDiff("{\"a\":{\"x\":1},\"b\":[1],\"c\":\"1\",\"d\":1,\"e\":true,\"f\":null}",
+                "{\"a\":[1],\"b\":{\"x\":1},\"c\":1,\"d\":\"1\",\"e\":false,\"f\":0}");
+        // Different bytes, same values
+        assertSameDiff("{\"s\":\"\\u0041\",\"n\":100,\"k\\u0031\":1}", "{\"s\":\"A\",\"n\":1e2,\"k1\":1}");
+        assertSameDiff("{\"s\":\"A\",\"n\":100}", "{\"s\":\"A\",\"n\":100}");
+    }
+
+    @Test
+    @DisplayName("Identical subtrees are never decoded")
+    void testIdenticalSpansSkipped() {
+        StringBuilder big = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            big.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"n").append(i).append("\"}");
+        }
+        big.append("]");
+        LazyJsonView view1 = LazyJsonView.of("{\"big\":" + big + ",\"other\":" + big + ",\"v\":1}");
+        LazyJsonView view2 = LazyJsonView.of("{\"big\":" + big + ",\"other\":" + big.toString().replace("\"n500\"", "\"changed\"") + ",\"v\":2}");
+
+        JSONArray diffs = LazyJsonComparator.generateJsonDiff(view1, view2);
+        assertEquals(2, diffs.length());
+        // Changed leaves are compared on their bytes: only the reported values are decoded
+        assertEquals(0, view1.materialized);
+        assertEquals(2, view2.materialized);
+        assertFalse(LazyJsonComparator.areEqual(view1, view2));
+    }
+
+    @Test
+    @DisplayName("Random documents match generateJsonDiff")
+    void testRandomDocuments() {
+        Random random = new Random(11);
+        for (int round = 0; round < 300; round++) {
+            JSONObject obj1 = randomObject(random, 3);
+            JSONObject obj2 = random.nextInt(3) == 0 ? randomObject(random, 3) : new JSONObject(obj1.toString());
+            if (random.nextBoolean() && obj2.length() > 0) {
+                obj2.put(obj2.keys().next(), randomValue(random, 2));
+            }
+            assertSameDiff(obj1.toString(), obj2.toString());
+        }
+    }
+
+    static Object randomValue(Random random, int depth) {
+        switch (depth > 0 ? random.nextInt(5) : random.nextInt(3)) {
+            case 0:
+                return random.nextInt(3);
+            case 1:
+                return "s" + random.nextInt(3);
+            case 2:
+                return random.nextBoolean() ? JSONObject.NULL : Boolean.TRUE;
+            case 3:
+                return randomObject(random, depth - 1);
+            default:
+                JSONArray array = new JSONArray();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    array.put(randomValue(random, depth - 1));
+                }
+                return array;
+        }
+    }
+
+    static JSONObject randomObject(Random random, int depth) {
+        JSONObject obj = new JSONObject();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            obj.put("k" + random.nextInt(5), randomValue(random, depth));
+        }
+        return obj;
+    }
+}
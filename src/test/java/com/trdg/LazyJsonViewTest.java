@@ -0,0 +1,51 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LazyJsonView Tests")
+class LazyJsonViewTest {
+
+    @Test
+    @DisplayName("Values are looked up by pointer and materialized on demand")
+    void testGet() {
+        LazyJsonView view = LazyJsonView.of("{\"a\": {\"b\": [10, \"x\", {\"c\": null}]}, \"k~/\": true, \"n\": -1.5}");
+
+        assertEquals(10, view.get("/a/b/0"));
+        assertEquals("x", view.get("/a/b/1"));
+        assertEquals(JSONObject.NULL, view.get("/a/b/2/c"));
+        assertEquals(Boolean.TRUE, view.get("/k~0~1"));
+        assertEquals(0, new BigDecimal("-1.5").compareTo((BigDecimal) view.get("/n")));
+        assertTrue(view.get("/a/b") instanceof JSONArray);
+        assertEquals(3, ((JSONArray) view.get("/a/b")).length());
+        assertNull(view.get("/a/b/3"));
+        assertNull(view.get("/missing"));
+        assertNull(view.get("/a/b/x"));
+        // Only canonical indices name elements
+        assertNull(view.get("/a/b/-1"));
+        assertNull(view.get("/a/b/01"));
+        assertNull(view.get("/a/b/+1"));
+        assertNull(view.get("/a/b/99999999999"));
+        assertEquals(7, view.materialized);
+    }
+
+    @Test
+    @DisplayName("Structure is checked on the first scan")
+    void testMalformed() {
+        for (String text : new String[]{"{\"a\":[1}", "{\"a\":1", "[1]]", "{\"a\":\"x}", "{} {}", ""}) {
+            assertThrows(JSONException.class, () -> LazyJsonView.of(text), text);
+        }
+        // Member syntax is checked when the object is visited
+        LazyJsonView view = LazyJsonView.of("{\"a\" 1, \"b\": 2}");
+        assertThrows(JSONException.class, () -> view.get("/b"));
+        LazyJsonView trailing = LazyJsonView.of("[1,]");
+        assertThrows(JSONException.class, () -> trailing.get("/1"));
+    }
+}
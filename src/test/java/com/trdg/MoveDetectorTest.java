@@ -0,0 +1,163 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MoveDetector Tests")
+class MoveDetectorTest {
+
+    private static void assertApplies(JSONObject obj1, JSONObject obj2, JSONArray patch) {
+        IncrementalDiffSession session = new IncrementalDiffSession(obj2, new JSONObject(obj1.toString()));
+        session.applyPatch(patch);
+        assertEquals(0, JsonComparator.generateJsonDiff("", session.getCurrent(), obj2).length(), patch.toString());
+    }
+
+    private static JSONObject section(int seed, int size) {
+        Random random = new Random(seed);
+        JSONObject section = new JSONObject();
+        for (int i = 0; i < size; i++) {
+            section.put("field" + i, new JSONObject().put("id", random.nextInt()).put("tags", new JSONArray().put("t" + i)));
+        }
+        return section;
+    }
+
+    @Test
+    @DisplayName("Renamed key becomes a single move")
+    void testRename() {
+        JSONObject obj1 = new JSONObject().put("settings", section(1, 200)).put("name", "x");
+        JSONObject obj2 = new JSONObject().put("config", section(1, 200)).put("name", "x");
+
+        JSONArray patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals(1, patch.length());
+        JSONObject op = patch.getJSONObject(0);
+        assertEquals("move", op.getString("op"));
+        assertEquals("/settings", op.getString("from"));
+        assertEquals("/config", op.getString("path"));
+        assertFalse(op.has("value"));
+        assertApplies(obj1, obj2, patch);
+
+        int full = JsonComparator.generateJsonPatch(obj1, obj2).toString().length();
+        assertTrue(patch.toString().length() * 100 < full);
+    }
+
+    @Test
+    @DisplayName("Subtree moved to another parent")
+    void testMoveAcrossParents() {
+        JSONObject obj1 = new JSONObject("{\"a\":{\"old\":{\"x\":1,\"y\":[1,2]},\"keep\":1},\"b\":{}}");
+        JSONObject obj2 = new JSONObject("{\"a\":{\"keep\":1},\"b\":{\"new\":{\"x\":1,\"y\":[1,2]}}}");
+
+        JSONArray patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals(1, patch.length());
+        assertEquals("/a/old", patch.getJSONObject(0).getString("from"));
+        assertEquals("/b/new", patch.getJSONObject(0).getString("path"));
+        assertApplies(obj1, obj2, patch);
+    }
+
+    @Test
+    @DisplayName("Duplicated subtree becomes a copy")
+    void testCopy() {
+        JSONObject obj1 = new JSONObject().put("primary", section(2, 20));
+        JSONObject obj2 = new JSONObject().put("primary", section(2, 20)).put("backup", section(2, 20));
+
+        JSONArray patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals(1, patch.length());
+        assertEquals("copy", patch.getJSONObject(0).getString("op"));
+        assertEquals("/primary", patch.getJSONObject(0).getString("from"));
+        assertApplies(obj1, obj2, patch);
+    }
+
+    @Test
+    @DisplayName("Fingerprint collisions are not moved or copied")
+    void testFingerprintCollision() {
+        // Integer 5 and this Long used to share a leaf fingerprint
+        JSONObject obj1 = new JSONObject().put("x", new JSONObject().put("a", 5).put("b", 1));
+        JSONObject obj2 = new JSONObject().put("y", new JSONObject().put("a", -7880643240104296443L).put("b", 1));
+        JSONArray patch = MoveDetector.generatePatch(obj1, obj2, 1);
+        for (int i = 0; i < patch.length(); i++) {
+            assertNotEquals("move", patch.getJSONObject(i).getString("op"));
+        }
+        assertApplies(obj1, obj2, patch);
+
+        obj1 = new JSONObject().put("x", new JSONObject().put("a", 5).put("b", 1));
+        obj2 = new JSONObject().put("x", new JSONObject().put("a", -7880643240104296443L).put("b", 1))
+                .put("y", new JSONObject().put("a", -7880643240104296443L).put("b", 1));
+        patch = MoveDetector.generatePatch(obj1, obj2, 1);
+        for (int i = 0; i < patch.length(); i++) {
+            assertFalse(patch.getJSONObject(i).optString("from").equals("/x")
+                    && patch.getJSONObject(i).getString("op").equals("copy"), patch.toString());
+        }
+        assertApplies(obj1, obj2, patch);
+    }
+
+    @Test
+    @DisplayName("Second destination copies from the first")
+    void testMoveThenCopy() {
+        JSONObject obj1 = new JSONObject().put("old", section(3, 5));
+        JSONObject obj2 = new JSONObject().put("list", new JSONArray().put(section(3, 5)).put(section(3, 5)));
+        obj1.put("list", new JSONArray());
+
+        JSONArray patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals(2, patch.length());
+        assertEquals("move", patch.getJSONObject(0).getString("op"));
+        assertEquals("/list/0", patch.getJSONObject(0).getString("path"));
+        assertEquals("copy", patch.getJSONObject(1).getString("op"));
+        assertEquals("/list/0", patch.getJSONObject(1).getString("from"));
+        assertApplies(obj1, obj2, patch);
+    }
+
+    @Test
+    @DisplayName("Small values, array replacements and escaped keys")
+    void testEdgeCases() {
+        // Leaves are below the default threshold and are sent as they are
+        JSONObject obj1 = new JSONObject("{\"a\":1}");
+        JSONObject obj2 = new JSONObject("{\"b\":1}");
+        JSONArray patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals(2, patch.length());
+        assertEquals("remove", patch.getJSONObject(0).getString("op"));
+        assertEquals("add", patch.getJSONObject(1).getString("op"));
+        assertApplies(obj1, obj2, patch);
+
+        // A move onto an array index would insert, so the replace is kept
+        obj1 = new JSONObject("{\"src\":{\"x\":1},\"arr\":[1,2]}");
+        obj2 = new JSONObject("{\"arr\":[{\"x\":1},2]}");
+        patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals("replace", patch.getJSONObject(1).getString("op"));
+        assertApplies(obj1, obj2, patch);
+
+        obj1 = new JSONObject("{\"a/b\":{\"c~d\":[1,2,3]}}");
+        obj2 = new JSONObject("{\"e\":{\"c~d\":[1,2,3]}}");
+        patch = MoveDetector.generatePatch(obj1, obj2);
+        assertEquals("/a~1b", patch.getJSONObject(0).getString("from"));
+        assertApplies(obj1, obj2, patch);
+
+        assertThrows(IllegalArgumentException.class, () -> MoveDetector.generatePatch(new JSONObject(), new JSONObject(), 0));
+    }
+
+    @Test
+    @DisplayName("Patches apply in sequence for shrinking and growing arrays")
+    void testRandomDocuments() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            JSONObject obj1 = LazyJsonComparatorTest.randomObject(random, 3);
+            JSONObject obj2 = random.nextBoolean() ? LazyJsonComparatorTest.randomObject(random, 3) : mutate(random, obj1);
+            assertApplies(obj1, obj2, MoveDetector.generatePatch(obj1, obj2));
+            assertApplies(obj1, obj2, MoveDetector.generatePatch(obj1, obj2, 1));
+        }
+    }
+
+    private static JSONObject mutate(Random random, JSONObject obj) {
+        JSONObject copy = new JSONObject(obj.toString());
+        String[] keys = copy.keySet().toArray(new String[0]);
+        if (keys.length > 0) {
+            Object value = copy.remove(keys[random.nextInt(keys.length)]);
+            copy.put("moved" + random.nextInt(3), value);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,161 @@
+package com.trdg;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("NdjsonDiff Tests")
+class NdjsonDiffTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("ndjson-diff");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static BufferedReader reader(List<String> lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+
+    private static List<String> records(int count, int changeEvery) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int value = changeEvery > 0 && i % changeEvery == 0 ? -i : i;
+            lines.add("{\"id\":\"r" + i + "\",\"value\":" + value + "}");
+        }
+        return lines;
+    }
+
+    @Test
+    @DisplayName("Line mode pairs records by line number")
+    void testByLine() throws IOException {
+        List<NdjsonDiff.RecordDiff> diffs = new ArrayList<>();
+        NdjsonDiff.Summary summary = new NdjsonDiff().diffByLine(
+                reader(List.of("{\"a\":1}", "", "{\"a\":2}", "{\"a\":3}")),
+                reader(List.of("{\"a\":1}", "{\"a\":9}", "{\"a\":5}")), diffs::add);
+
+        assertEquals(2, summary.compared);
+        assertEquals(1, summary.changed);
+        assertEquals(1, summary.onlyLeft);
+        assertEquals(1, summary.onlyRight);
+        assertEquals("2", diffs.get(0).key);
+        assertEquals(NdjsonDiff.Kind.ONLY_RIGHT, diffs.get(0).kind);
+        assertEquals("3", diffs.get(1).key);
+        assertEquals("a", diffs.get(1).diffs.getJSONObject(0).getString("path"));
+        assertEquals(NdjsonDiff.Kind.ONLY_LEFT, diffs.get(2).kind);
+    }
+
+    @Test
+    @DisplayName("Sorted keyed inputs are merge-joined")
+    void testSortedByKey() throws IOException {
+        List<NdjsonDiff.RecordDiff> diffs = new ArrayList<>();
+        NdjsonDiff.Summary summary = new NdjsonDiff().diffByKey(
+                reader(List.of("{\"id\":\"a\",\"v\":1}", "{\"id\":\"b\",\"v\":2}", "{\"id\":\"d\",\"v\":4}")),
+                reader(List.of("{\"id\":\"a\",\"v\":1}", "{\"id\":\"c\",\"v\":3}", "{\"id\":\"d\",\"v\":5}")),
+                "/id", true, diffs::add);
+
+        assertEquals(2, summary.compared);
+        assertEquals(3, diffs.size());
+        assertEquals("b", diffs.get(0).key);
+        assertEquals(NdjsonDiff.Kind.ONLY_LEFT, diffs.get(0).kind);
+        assertEquals("c", diffs.get(1).key);
+        assertEquals(NdjsonDiff.Kind.ONLY_RIGHT, diffs.get(1).kind);
+        assertEquals(3, diffs.get(1).right.getInt("v"));
+        assertEquals("d", diffs.get(2).key);
+        assertEquals(NdjsonDiff.Kind.CHANGED, diffs.get(2).kind);
+    }
+
+    @Test
+    @DisplayName("Unsorted input declared sorted is rejected")
+    void testSortedCheck() {
+        assertThrows(JSONException.class, () -> new NdjsonDiff().diffByKey(
+                reader(List.of("{\"id\":\"b\"}", "{\"id\":\"a\"}")), reader(List.of("{\"id\":\"a\"}")),
+                "/id", true, diff -> { }));
+    }
+
+    @Test
+    @DisplayName("Unsorted inputs are sorted externally through spilled runs")
+    void testExternalSort() throws IOException {
+        List<String> left = records(1000, 100);
+        List<String> right = records(1000, 0);
+        right.remove(500);
+        right.add("{\"id\":\"extra\",\"value\":1}");
+        Collections.shuffle(left, new Random(1));
+        Collections.shuffle(right, new Random(2));
+
+        List<NdjsonDiff.RecordDiff> diffs = new ArrayList<>();
+        NdjsonDiff.Summary summary = new NdjsonDiff(64, null, tempDir)
+                .diffByKey(reader(left), reader(right), "/id", false, diffs::add);
+
+        assertEquals(999, summary.compared);
+        // Every 100th record changed, except r0 (-0 is 0) and r500 (missing on the right)
+        assertEquals(8, summary.changed);
+        assertEquals(1, summary.onlyLeft);
+        assertEquals(1, summary.onlyRight);
+        for (int i = 1; i < diffs.size(); i++) {
+            assertTrue(diffs.get(i - 1).key.compareTo(diffs.get(i).key) < 0);
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "sort runs are deleted");
+        }
+    }
+
+    @Test
+    @DisplayName("Duplicate and numeric keys pair in input order")
+    void testDuplicateKeys() throws IOException {
+        List<NdjsonDiff.RecordDiff> diffs = new ArrayList<>();
+        NdjsonDiff.Summary summary = new NdjsonDiff(1, null, tempDir).diffByKey(
+                reader(List.of("{\"k\":{\"n\":2},\"v\":\"x\"}", "{\"k\":{\"n\":1},\"v\":\"a\"}", "{\"k\":{\"n\":1},\"v\":\"b\"}")),
+                reader(List.of("{\"k\":{\"n\":1},\"v\":\"a\"}", "{\"k\":{\"n\":2},\"v\":\"x\"}", "{\"k\":{\"n\":1},\"v\":\"c\"}")),
+                "/k/n", false, diffs::add);
+
+        assertEquals(3, summary.compared);
+        assertEquals(1, diffs.size());
+        assertEquals("1", diffs.get(0).key);
+        assertEquals("c", diffs.get(0).diffs.getJSONObject(0).getString("value"));
+    }
+
+    @Test
+    @DisplayName("Records without the key are an error")
+    void testMissingKey() {
+        assertThrows(JSONException.class, () -> new NdjsonDiff().diffByKey(
+                reader(List.of("{\"id\":\"a\"}", "{\"other\":1}")), reader(List.of("{\"id\":\"a\"}")),
+                "/id", false, diff -> { }));
+    }
+
+    @Test
+    @DisplayName("Comparison plan applies to every record pair")
+    void testPlan() throws IOException {
+        ComparisonPlan plan = ComparisonPlan.builder().ignore("/updatedAt").build();
+        NdjsonDiff.Summary summary = new NdjsonDiff(10, plan, tempDir).diffByLine(
+                reader(List.of("{\"id\":1,\"updatedAt\":\"t1\"}")), reader(List.of("{\"id\":1,\"updatedAt\":\"t2\"}")),
+                diff -> fail("unexpected " + diff));
+
+        assertTrue(summary.isEqual());
+        assertEquals(1, summary.compared);
+    }
+}
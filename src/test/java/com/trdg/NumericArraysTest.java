@@ -0,0 +1,151 @@
+package com.trdg;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("NumericArrays Tests")
+class NumericArraysTest {
+
+    private static JSONArray ints(int length) {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < length; i++) {
+            array.put(i);
+        }
+        return array;
+    }
+
+    private static String ranges(NumericArrays.Result result) {
+        return result.mismatches.toString();
+    }
+
+    @Test
+    @DisplayName("Exact comparison reports mismatching ranges")
+    void testExactRanges() {
+        JSONArray array1 = ints(100);
+        JSONArray array2 = ints(100);
+        array2.put(3, -1).put(4, -1).put(5, -1).put(50, -1).put(99, -1);
+
+        assertEquals("[[3, 6), [50, 51), [99, 100)]", ranges(NumericArrays.compare(array1, array2, Integer.MAX_VALUE)));
+        assertEquals("[[3, 6)]", ranges(NumericArrays.compare(array1, array2, 1)));
+        assertTrue(NumericArrays.compare(array1, ints(100), 1).isEqual());
+
+        // Elements past the end of the shorter array form the last range
+        assertEquals("[[3, 6), [50, 51), [99, 100), [100, 120)]",
+                ranges(NumericArrays.compare(array1, ints(120).put(3, -1).put(4, -1).put(5, -1).put(50, -1).put(99, -1),
+                        Integer.MAX_VALUE)));
+    }
+
+    @Test
+    @DisplayName("Exact comparison agrees with equals on every number class")
+    void testExactClasses() {
+        List<Object> values = List.of(1, 1L, 1.0, 1.0f, new BigDecimal("1"), new BigDecimal("1.0"), new BigDecimal("1.00"),
+                -0.0, 0.0, 2, Long.MAX_VALUE, new BigDecimal("123456789.123456789"));
+        for (Object a : values) {
+            for (Object b : values) {
+                JSONArray array1 = ints(40).put(20, a);
+                JSONArray array2 = ints(40).put(20, b);
+                NumericArrays.Result result = NumericArrays.compare(array1, array2, Integer.MAX_VALUE);
+                assertEquals(a.equals(b), result.isEqual(), a + " (" + a.getClass().getSimpleName() + ") vs " + b
+                        + " (" + b.getClass().getSimpleName() + ")");
+            }
+        }
+        // Uniform but different classes throughout
+        JSONArray longs = new JSONArray();
+        for (int i = 0; i < 40; i++) {
+            longs.put((long) i);
+        }
+        assertEquals("[[0, 40)]", ranges(NumericArrays.compare(ints(40), longs, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    @DisplayName("Non-numeric arrays are not handled")
+    void testNotNumeric() {
+        assertNull(NumericArrays.compare(ints(40).put(7, "7"), ints(40), 1));
+        assertNull(NumericArrays.compare(ints(40), ints(40).put(7, JSONObject.NULL), 1));
+        assertNull(NumericArrays.compare(ints(40), ints(40).put(7, new BigDecimal("1234567890123456789.5")), 1));
+        assertNull(NumericArrays.compare(ints(40), ints(40).put(7, new JSONObject()), 0.5, 1));
+    }
+
+    @Test
+    @DisplayName("Tolerance comparison, vectorized and scalar")
+    void testTolerance() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            int length = 1 + random.nextInt(300);
+            JSONArray array1 = new JSONArray();
+            JSONArray array2 = new JSONArray();
+            List<Integer> outside = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                double value = random.nextDouble() * 100;
+                double delta = random.nextInt(10) == 0 ? 0.5 : random.nextDouble() * 0.001;
+                array1.put(value);
+                array2.put(random.nextBoolean() ? new BigDecimal(Double.toString(value + delta)) : value - delta);
+                if (delta > 0.01) {
+                    outside.add(i);
+                }
+            }
+            for (boolean vectorized : new boolean[]{false, NumericArrays.isVectorized()}) {
+                NumericArrays.Result result = NumericArrays.compare(array1, array2, 0.01, Integer.MAX_VALUE, vectorized);
+                List<Integer> found = new ArrayList<>();
+                for (NumericArrays.Range range : result.mismatches) {
+                    for (int i = range.from; i < range.to; i++) {
+                        found.add(i);
+                    }
+                }
+                assertEquals(outside, found);
+            }
+        }
+        assertTrue(NumericArrays.compare(ints(50), ints(50).put(9, 9.0000001), 1e-6, 1).isEqual());
+    }
+
+    @Test
+    @DisplayName("Tolerance comparison of NaN, infinities and out-of-range decimals")
+    void testToleranceNonFinite() {
+        for (boolean vectorized : new boolean[]{false, NumericArrays.isVectorized()}) {
+            JSONArray array1 = ints(40).put(3, Double.NaN).put(20, Double.POSITIVE_INFINITY).put(37, Double.NaN);
+            JSONArray array2 = ints(40).put(3, 3.0).put(20, Double.POSITIVE_INFINITY).put(37, Double.NaN);
+            assertEquals("[[3, 4)]", ranges(NumericArrays.compare(array1, array2, 0.5, 10, vectorized)));
+
+            array2 = ints(40).put(3, Double.NaN).put(20, Double.NEGATIVE_INFINITY).put(37, Double.NaN);
+            assertEquals("[[20, 21)]", ranges(NumericArrays.compare(array1, array2, 0.5, 10, vectorized)));
+            assertEquals("[[3, 4), [20, 21), [37, 38)]",
+                    ranges(NumericArrays.compare(ints(40), array1, Double.POSITIVE_INFINITY, 10, vectorized)));
+
+            // Past the double range both would read as infinity
+            assertNull(NumericArrays.compare(new JSONArray().put(new BigDecimal("1e400")),
+                    new JSONArray().put(new BigDecimal("2e400")), 0.5, 10, vectorized));
+        }
+    }
+
+    @Test
+    @DisplayName("JsonComparator gives the same answers on numeric arrays")
+    void testComparatorIntegration() {
+        JSONArray array1 = ints(64);
+        JSONArray array2 = ints(66).put(10, 1.5).put(11, 11L);
+
+        JsonComparator.clearDifferences();
+        assertFalse(JsonComparator.compareJsonArrays(array1, ints(64).put(10, 1.5)));
+        assertEquals(List.of("Arrays are not same: 10, 1.5"), JsonComparator.getDifferences());
+        JsonComparator.clearDifferences();
+        assertTrue(JsonComparator.compareJsonArrays(array1, ints(64)));
+
+        JSONArray diffs = JsonComparator.generateJsonArrayDiff("a", array1, array2);
+        assertEquals(4, diffs.length());
+        assertEquals("replace", diffs.getJSONObject(0).getString("op"));
+        assertEquals("a/10", diffs.getJSONObject(0).getString("path"));
+        assertEquals(1.5, diffs.getJSONObject(0).get("value"));
+        assertEquals("a/11", diffs.getJSONObject(1).getString("path"));
+        assertEquals("add", diffs.getJSONObject(2).getString("op"));
+        assertEquals("a/64", diffs.getJSONObject(2).getString("path"));
+        assertEquals("a/65", diffs.getJSONObject(3).getString("path"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.trdg;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ShadowTrafficPipeline Tests")
+class ShadowTrafficPipelineTest {
+
+    private static JSONObject response(int price0, int price1, String status) {
+        return new JSONObject("{\"status\":\"" + status + "\",\"items\":[{\"id\":1,\"price\":" + price0
+                + "},{\"id\":2,\"price\":" + price1 + "}]}");
+    }
+
+    @Test
+    @DisplayName("Paths are normalized with wildcards for array indices")
+    void testNormalizePath() {
+        assertEquals("/items/*/price", ShadowTrafficPipeline.normalizePath("items/3/price"));
+        assertEquals("/items/*/price", ShadowTrafficPipeline.normalizePath("/items/12/price"));
+        assertEquals("/matrix/*/*", ShadowTrafficPipeline.normalizePath("matrix/0/1"));
+        assertEquals("/name", ShadowTrafficPipeline.normalizePath("name"));
+    }
+
+    @Test
+    @DisplayName("Differences are aggregated by normalized path")
+    void testAggregation() {
+        ShadowTrafficPipeline pipeline = new ShadowTrafficPipeline(1.0, 100, 2, null);
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.offer(response(10, 20, "ok"), response(11, 21, "ok"));
+        }
+        pipeline.offer(response(10, 20, "ok"), response(10, 20, "error"));
+        pipeline.offer(response(10, 20, "ok"), response(10, 20, "ok"));
+
+        ShadowTrafficPipeline.Summary summary = pipeline.flush();
+        assertEquals(12, summary.offered);
+        assertEquals(12, summary.sampled);
+        assertEquals(11, summary.mismatched);
+        assertEquals(20, summary.paths.get("/items/*/price").count);
+        assertEquals(2, summary.paths.get("/items/*/price").exemplars.size());
+        assertEquals(1, summary.paths.get("/status").count);
+        // Ordered by descending count
+        assertEquals("/items/*/price", summary.paths.keySet().iterator().next());
+    }
+
+    @Test
+    @DisplayName("Flush starts a new window")
+    void testFlushResets() {
+        ShadowTrafficPipeline pipeline = new ShadowTrafficPipeline(1.0, 100, 1, null);
+        pipeline.offer(response(10, 20, "ok"), response(10, 20, "error"));
+        pipeline.flush();
+
+        ShadowTrafficPipeline.Summary summary = pipeline.flush();
+        assertEquals(0, summary.offered);
+        assertTrue(summary.paths.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Sample rate limits the pairs that are diffed")
+    void testSampling() {
+        ShadowTrafficPipeline pipeline = new ShadowTrafficPipeline(0.1, 100, 1, null);
+        for (int i = 0; i < 10_000; i++) {
+            pipeline.offer(response(10, 20, "ok"), response(10, 20, "error"));
+        }
+
+        ShadowTrafficPipeline.Summary summary = pipeline.flush();
+        assertEquals(10_000, summary.offered);
+        assertTrue(summary.sampled > 500 && summary.sampled < 1500, "sampled " + summary.sampled);
+        assertEquals(summary.sampled, summary.paths.get("/status").count);
+
+        ShadowTrafficPipeline none = new ShadowTrafficPipeline(0.0, 100, 1, null);
+        assertFalse(none.offer(response(10, 20, "ok"), response(10, 20, "error")));
+    }
+
+    @Test
+    @DisplayName("Distinct paths beyond the limit go to the overflow bucket")
+    void testPathLimit() {
+        ShadowTrafficPipeline pipeline = new ShadowTrafficPipeline(1.0, 2, 1, null);
+        JSONObject primary = new JSONObject();
+        JSONObject candidate = new JSONObject();
+        for (int i = 0; i < 10; i++) {
+            primary.put("field" + i, i);
+            candidate.put("field" + i, i + 1);
+        }
+        pipeline.offer(primary, candidate);
+
+        ShadowTrafficPipeline.Summary summary = pipeline.flush();
+        assertEquals(3, summary.paths.size());
+        assertEquals(8, summary.paths.get(ShadowTrafficPipeline.OVERFLOW_PATH).count);
+    }
+
+    @Test
+    @DisplayName("Summaries are flushed periodically to the sink")
+    void testPeriodicFlush() throws Exception {
+        List<ShadowTrafficPipeline.Summary> summaries = new CopyOnWriteArrayList<>();
+        ShadowTrafficPipeline pipeline = new ShadowTrafficPipeline(1.0, 10, 1, summaries::add);
+        pipeline.start(20, TimeUnit.MILLISECONDS);
+        pipeline.offer(response(10, 20, "ok"), response(10, 20, "error"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (summaries.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        pipeline.close();
+
+        assertFalse(summaries.isEmpty());
+        long total = summaries.stream().mapToLong(s -> s.offered).sum();
+        assertEquals(1, total);
+    }
+
+    @Test
+    @DisplayName("A throwing sink does not stop periodic flushes")
+    void testFailingSink() throws Exception {
+        List<ShadowTrafficPipeline.Summary> summaries = new CopyOnWriteArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        ShadowTrafficPipeline pipeline = new ShadowTrafficPipeline(1.0, 10, 1, summary -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            summaries.add(summary);
+        });
+        pipeline.start(20, TimeUnit.MILLISECONDS);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (summaries.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        pipeline.close();
+
+        assertFalse(summaries.isEmpty());
+        assertEquals(1, pipeline.failedFlushes());
+    }
+}
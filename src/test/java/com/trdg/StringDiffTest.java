@@ -0,0 +1,121 @@
+package com.trdg;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StringDiff Tests")
+class StringDiffTest {
+
+    @AfterEach
+    void tearDown() {
+        JsonComparator.clearDifferences();
+    }
+
+    /**
+     * Applies the edits of a diff of s1 and s2 to s1.
+     */
+    private static String apply(String s1, String s2, List<StringDiff.Edit> edits) {
+        StringBuilder out = new StringBuilder();
+        int position = 0;
+        for (StringDiff.Edit edit : edits) {
+            assertTrue(edit.start1 >= position, edits.toString());
+            out.append(s1, position, edit.start1).append(s2, edit.start2, edit.end2);
+            position = edit.end1;
+        }
+        return out.append(s1.substring(position)).toString();
+    }
+
+    private static int cost(List<StringDiff.Edit> edits) {
+        int cost = 0;
+        for (StringDiff.Edit edit : edits) {
+            cost += edit.end1 - edit.start1 + edit.end2 - edit.start2;
+        }
+        return cost;
+    }
+
+    @Test
+    @DisplayName("Character diff finds the minimal changed ranges")
+    void testChars() {
+        StringDiff diff = StringDiff.builder().build();
+        StringDiff.Result result = diff.diff("the quick brown fox", "the quack brown fix!");
+        assertTrue(result.minimal);
+        assertEquals("[[6, 7) -> [6, 7), [17, 18) -> [17, 18), [19, 19) -> [19, 20)]", result.edits.toString());
+        assertEquals(0, diff.diff("same", "same").edits.size());
+
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            StringBuilder s1 = new StringBuilder();
+            for (int i = 0; i < random.nextInt(60); i++) {
+                s1.append((char) ('a' + random.nextInt(3)));
+            }
+            StringBuilder s2 = new StringBuilder(s1);
+            for (int i = 0; i < random.nextInt(6) && s2.length() > 0; i++) {
+                int at = random.nextInt(s2.length());
+                if (random.nextBoolean()) {
+                    s2.deleteCharAt(at);
+                } else {
+                    s2.insert(at, (char) ('a' + random.nextInt(4)));
+                }
+            }
+            StringDiff.Result found = diff.diff(s1.toString(), s2.toString());
+            assertEquals(s2.toString(), apply(s1.toString(), s2.toString(), found.edits));
+            assertTrue(cost(found.edits) <= 12, found.edits.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Line diff reports whole changed lines")
+    void testLines() {
+        StringDiff diff = StringDiff.builder().granularity(StringDiff.Granularity.LINES).build();
+        String s1 = "a\nb\nc\nd\n";
+        String s2 = "a\nB\nc\nd\ne\n";
+        StringDiff.Result result = diff.diff(s1, s2);
+        assertEquals("[[2, 4) -> [2, 4), [8, 8) -> [8, 10)]", result.edits.toString());
+        assertEquals(s2, apply(s1, s2, result.edits));
+    }
+
+    @Test
+    @DisplayName("Over the cost or length limit one coarse range is reported")
+    void testBounds() {
+        String s1 = "prefix-" + "abcdefghij".repeat(20) + "-suffix";
+        String s2 = "prefix-" + "klmnopqrst".repeat(20) + "-suffix";
+        StringDiff.Result result = StringDiff.builder().maxCost(10).build().diff(s1, s2);
+        assertFalse(result.minimal);
+        assertEquals("[[7, 207) -> [7, 207)]", result.edits.toString());
+
+        result = StringDiff.builder().maxLength(100).build().diff(s1, s1.replace("-suffix", "+suffix"));
+        assertFalse(result.minimal);
+        assertEquals("[[207, 208) -> [207, 208)]", result.edits.toString());
+    }
+
+    @Test
+    @DisplayName("JsonComparator messages use the bounded diff for long strings")
+    void testComparatorMessages() {
+        String base = "<html>" + "x".repeat(5000) + "</html>";
+        JSONObject obj1 = new JSONObject().put("page", base).put("short", "a");
+        JSONObject obj2 = new JSONObject().put("page", base.replace("</html>", "</body></html>")).put("short", "b");
+
+        StringDiff strings = StringDiff.builder().minLength(100).build();
+        assertFalse(JsonComparator.areJsonEntitiesEqual(obj1, obj2, strings));
+        List<String> differences = JsonComparator.getDifferences();
+        assertTrue(differences.contains(
+                "Values are not equal for key: page - strings of length 5013 and 5020 differ in 1 range: @5008 \"\" -> \"body></\""),
+                differences.toString());
+        assertTrue(differences.contains("Values are not equal for key: short - Value 1: a, Value 2: b"));
+        for (String difference : differences) {
+            assertTrue(difference.length() < 200);
+        }
+        assertTrue(JsonComparator.generateJsonDiff(obj1, obj2, strings).getString("page").startsWith("Values do not match: strings of length"));
+        assertTrue(JsonComparator.compare(obj1, obj2, strings).differences.stream().allMatch(d -> d.length() < 200));
+
+        // Other calls, on this thread or any other, are not affected
+        assertTrue(JsonComparator.generateJsonDiff(obj1, obj2).getString("page").length() > 10000);
+    }
+}
@@ -0,0 +1,131 @@
+package com.trdg;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StructuralIndex Tests")
+class StructuralIndexTest {
+
+    /**
+     * Byte-at-a-time reference for the index entries.
+     */
+    private static List<Integer> referenceEntries(byte[] json) {
+        List<Integer> entries = new ArrayList<>();
+        boolean inString = false;
+        boolean escape = false;
+        boolean hadEscape = false;
+        boolean prevSeparator = true;
+        for (int i = 0; i < json.length; i++) {
+            byte b = json[i];
+            if (inString) {
+                if (escape) {
+                    escape = false;
+                } else if (b == '\\') {
+                    escape = true;
+                    hadEscape = true;
+                } else if (b == '"') {
+                    inString = false;
+                    entries.add(i | (hadEscape ? StructuralIndex.ESCAPED : 0));
+                    prevSeparator = true;
+                }
+                continue;
+            }
+            boolean op = "{}[]:,".indexOf(b) >= 0;
+            boolean ws = JsonBytes.isWhitespace(b);
+            if (b == '"') {
+                inString = true;
+                hadEscape = false;
+                entries.add(i);
+            } else if (op || (!ws && prevSeparator)) {
+                entries.add(i);
+            }
+            prevSeparator = op || ws;
+        }
+        return entries;
+    }
+
+    private static List<Integer> entries(StructuralIndex index) {
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            entries.add(index.entry(i));
+        }
+        return entries;
+    }
+
+    private static void assertIndexed(String text) {
+        byte[] json = text.getBytes(StandardCharsets.UTF_8);
+        List<Integer> expected = referenceEntries(json);
+        assertEquals(expected, entries(StructuralIndex.build(json, 0, json.length, false)), text);
+        assertEquals(expected, entries(StructuralIndex.build(json)), text);
+
+        JsonTape scanned = JsonTape.parse(json);
+        JsonTape indexed = JsonTape.parse(StructuralIndex.build(json));
+        assertEquals(scanned.size(), indexed.size());
+        assertTrue(JsonTapeComparator.areEqual(scanned, indexed));
+    }
+
+    @Test
+    @DisplayName("Entries of a small document")
+    void testPositions() {
+        String text = "{\"a\": [1, true], \"b\\\"c\": null}";
+        StructuralIndex index = StructuralIndex.build(text.getBytes(StandardCharsets.UTF_8));
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            positions.add(index.position(i));
+        }
+        // { " " : [ 1 , t ] , " " : n }
+        assertEquals(List.of(0, 1, 3, 4, 6, 7, 8, 10, 14, 15, 17, 22, 23, 25, 29), positions);
+        assertEquals(0, index.entry(3) & StructuralIndex.ESCAPED);
+        assertNotEquals(0, index.entry(11) & StructuralIndex.ESCAPED);
+        assertIndexed(text);
+    }
+
+    @Test
+    @DisplayName("Strings, escapes and backslash runs across block boundaries")
+    void testBlockBoundaries() {
+        for (int pad = 0; pad < 70; pad++) {
+            String filler = "x".repeat(pad);
+            assertIndexed("{\"" + filler + "\":\"" + filler + "\\\\\",\"k\":\"" + filler + "\\\"\\\\\\\"\"}");
+            assertIndexed("[" + " ".repeat(pad) + "123, \"" + "\\\\".repeat(pad) + "\"]");
+        }
+        assertIndexed("{\"long\":\"" + "a{b}[c],:d".repeat(40) + "\"}");
+        assertIndexed("  {\"unicode\":\"é中\\u00e9\"}  ");
+        assertIndexed("42");
+    }
+
+    @Test
+    @DisplayName("Random documents match the byte-at-a-time parse")
+    void testRandomDocuments() {
+        Random random = new Random(7);
+        String alphabet = "ab\"\\/{}[],: \nü";
+        for (int round = 0; round < 200; round++) {
+            JSONObject obj = new JSONObject();
+            for (int i = 0; i < random.nextInt(20); i++) {
+                StringBuilder value = new StringBuilder();
+                for (int j = 0; j < random.nextInt(90); j++) {
+                    value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                obj.put("k" + i + value, random.nextBoolean() ? value.toString() : random.nextInt());
+            }
+            assertIndexed(round % 2 == 0 ? obj.toString() : obj.toString().replace(",", " ,\n  "));
+        }
+    }
+
+    @Test
+    @DisplayName("Malformed input is rejected")
+    void testMalformed() {
+        for (String text : new String[]{"{\"a\":1 x}", "[1 2]", "[\"abc]", "{\"a\":truex}", "[12abc]", "{\"a\" 1}", "[1] x"}) {
+            byte[] json = text.getBytes(StandardCharsets.UTF_8);
+            assertThrows(JSONException.class, () -> JsonTape.parse(StructuralIndex.build(json)), text);
+        }
+    }
+}